@@ -18,11 +18,23 @@
  */
 package org.apache.fineract.cn.individuallending.api.v1.client;
 
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseSummary;
 import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPayment;
 import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPaymentPage;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AtRiskCasePage;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.LossProvisionConfiguration;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.PortfolioAtRisk;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.CommandLockStatistics;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatchProgress;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportResultPage;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.InterestRunProgress;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentBatchProgress;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentResultPage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CasePage;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.apache.fineract.cn.api.util.CustomFeignClientsConfiguration;
 import org.springframework.cloud.netflix.feign.FeignClient;
@@ -105,6 +117,114 @@ public interface IndividualLending {
         .flatMap(pageI -> pageI.getElements().stream());
   }
 
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/cases/{caseidentifier}/summary",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  CaseSummary getCaseSummary(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("caseidentifier") final String caseIdentifier);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/casesummaries",
+      method = RequestMethod.POST,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  void rebuildMissingCaseSummaries(
+      @PathVariable("productidentifier") final String productIdentifier);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/portfolioatrisk",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  PortfolioAtRisk getPortfolioAtRisk(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @RequestParam(value = "asOf", required = false) final String asOf);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/portfolioatrisk/{dayslate}/cases",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  AtRiskCasePage getAtRiskCases(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("dayslate") final Integer daysLate,
+      @RequestParam(value = "asOf", required = false) final String asOf,
+      @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+      @RequestParam(value = "size", required = false) final Integer size);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/repaymentbatches",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  void submitRepaymentBatch(
+      @PathVariable("productidentifier") final String productIdentifier,
+      final RepaymentBatch repaymentBatch);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/repaymentbatches/{batchidentifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  RepaymentBatchProgress getRepaymentBatchProgress(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("batchidentifier") final String batchIdentifier);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/repaymentbatches/{batchidentifier}/results",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  RepaymentResultPage getRepaymentResults(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("batchidentifier") final String batchIdentifier,
+      @RequestParam(value = "state", required = false) final Set<String> states,
+      @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+      @RequestParam(value = "size", required = false) final Integer size);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/importbatches",
+      method = RequestMethod.POST,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  void submitImportBatch(
+      @PathVariable("productidentifier") final String productIdentifier,
+      final ImportBatch importBatch);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/importbatches/{batchidentifier}",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  ImportBatchProgress getImportBatchProgress(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("batchidentifier") final String batchIdentifier);
+
+  @RequestMapping(
+      value = "/individuallending/products/{productidentifier}/importbatches/{batchidentifier}/results",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  ImportResultPage getImportResults(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("batchidentifier") final String batchIdentifier,
+      @RequestParam(value = "state", required = false) final Set<String> states,
+      @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+      @RequestParam(value = "size", required = false) final Integer size);
+
   @RequestMapping(
           value = "/individuallending/customers/{customeridentifier}/cases",
           method = RequestMethod.GET,
@@ -114,4 +234,20 @@ public interface IndividualLending {
   CasePage getAllCasesForCustomer(@PathVariable(value = "customeridentifier") final String customerIdentifier,
                                   @RequestParam("pageIndex") final Integer pageIndex,
                                   @RequestParam("size") final Integer size);
+
+  @RequestMapping(
+      value = "/individuallending/interestrun",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  InterestRunProgress getInterestRunProgress(@RequestParam("forTime") final String forTime);
+
+  @RequestMapping(
+      value = "/individuallending/commandlocks",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  CommandLockStatistics getCommandLockStatistics();
 }
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * The balances and dates of a loan as recorded by the last command executed on it.
+ *
+ * @author Myrle Krantz
+ */
+public class CaseSummary {
+  private BigDecimal principalBalance;
+  private BigDecimal interestBalance;
+  private BigDecimal feesBalance;
+  private BigDecimal paymentSize;
+  private String lateSince;
+  private String nextDueDate;
+  private String lastPaymentDate;
+  private String lastModifiedOn;
+
+  public BigDecimal getPrincipalBalance() {
+    return principalBalance;
+  }
+
+  public void setPrincipalBalance(BigDecimal principalBalance) {
+    this.principalBalance = principalBalance;
+  }
+
+  public BigDecimal getInterestBalance() {
+    return interestBalance;
+  }
+
+  public void setInterestBalance(BigDecimal interestBalance) {
+    this.interestBalance = interestBalance;
+  }
+
+  public BigDecimal getFeesBalance() {
+    return feesBalance;
+  }
+
+  public void setFeesBalance(BigDecimal feesBalance) {
+    this.feesBalance = feesBalance;
+  }
+
+  public BigDecimal getPaymentSize() {
+    return paymentSize;
+  }
+
+  public void setPaymentSize(BigDecimal paymentSize) {
+    this.paymentSize = paymentSize;
+  }
+
+  public String getLateSince() {
+    return lateSince;
+  }
+
+  public void setLateSince(String lateSince) {
+    this.lateSince = lateSince;
+  }
+
+  public String getNextDueDate() {
+    return nextDueDate;
+  }
+
+  public void setNextDueDate(String nextDueDate) {
+    this.nextDueDate = nextDueDate;
+  }
+
+  public String getLastPaymentDate() {
+    return lastPaymentDate;
+  }
+
+  public void setLastPaymentDate(String lastPaymentDate) {
+    this.lastPaymentDate = lastPaymentDate;
+  }
+
+  public String getLastModifiedOn() {
+    return lastModifiedOn;
+  }
+
+  public void setLastModifiedOn(String lastModifiedOn) {
+    this.lastModifiedOn = lastModifiedOn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CaseSummary that = (CaseSummary) o;
+    return Objects.equals(principalBalance, that.principalBalance) &&
+        Objects.equals(interestBalance, that.interestBalance) &&
+        Objects.equals(feesBalance, that.feesBalance) &&
+        Objects.equals(paymentSize, that.paymentSize) &&
+        Objects.equals(lateSince, that.lateSince) &&
+        Objects.equals(nextDueDate, that.nextDueDate) &&
+        Objects.equals(lastPaymentDate, that.lastPaymentDate) &&
+        Objects.equals(lastModifiedOn, that.lastModifiedOn);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(principalBalance, interestBalance, feesBalance, paymentSize, lateSince, nextDueDate, lastPaymentDate, lastModifiedOn);
+  }
+
+  @Override
+  public String toString() {
+    return "CaseSummary{" +
+        "principalBalance=" + principalBalance +
+        ", interestBalance=" + interestBalance +
+        ", feesBalance=" + feesBalance +
+        ", paymentSize=" + paymentSize +
+        ", lateSince='" + lateSince + '\'' +
+        ", nextDueDate='" + nextDueDate + '\'' +
+        ", lastPaymentDate='" + lastPaymentDate + '\'' +
+        ", lastModifiedOn='" + lastModifiedOn + '\'' +
+        '}';
+  }
+}
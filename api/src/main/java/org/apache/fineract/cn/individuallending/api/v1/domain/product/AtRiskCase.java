@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.product;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AtRiskCase {
+  private String caseIdentifier;
+  private String lateSince;
+  private Integer daysLate;
+  private BigDecimal principalBalance;
+
+  public AtRiskCase() {
+  }
+
+  public String getCaseIdentifier() {
+    return caseIdentifier;
+  }
+
+  public void setCaseIdentifier(String caseIdentifier) {
+    this.caseIdentifier = caseIdentifier;
+  }
+
+  public String getLateSince() {
+    return lateSince;
+  }
+
+  public void setLateSince(String lateSince) {
+    this.lateSince = lateSince;
+  }
+
+  public Integer getDaysLate() {
+    return daysLate;
+  }
+
+  public void setDaysLate(Integer daysLate) {
+    this.daysLate = daysLate;
+  }
+
+  public BigDecimal getPrincipalBalance() {
+    return principalBalance;
+  }
+
+  public void setPrincipalBalance(BigDecimal principalBalance) {
+    this.principalBalance = principalBalance;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    AtRiskCase that = (AtRiskCase) o;
+    return Objects.equals(caseIdentifier, that.caseIdentifier) &&
+        Objects.equals(lateSince, that.lateSince) &&
+        Objects.equals(daysLate, that.daysLate) &&
+        Objects.equals(principalBalance, that.principalBalance);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(caseIdentifier, lateSince, daysLate, principalBalance);
+  }
+
+  @Override
+  public String toString() {
+    return "AtRiskCase{" +
+        "caseIdentifier='" + caseIdentifier + '\'' +
+        ", lateSince='" + lateSince + '\'' +
+        ", daysLate=" + daysLate +
+        ", principalBalance=" + principalBalance +
+        '}';
+  }
+}
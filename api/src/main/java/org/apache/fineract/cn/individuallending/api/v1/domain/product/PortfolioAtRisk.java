@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.product;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The principal at risk in the active cases of a product, by the number of days the cases have been late.
+ *
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class PortfolioAtRisk {
+  private String productIdentifier;
+  private String asOf;
+  private List<PortfolioAtRiskBucket> buckets;
+
+  public PortfolioAtRisk() {
+  }
+
+  public String getProductIdentifier() {
+    return productIdentifier;
+  }
+
+  public void setProductIdentifier(String productIdentifier) {
+    this.productIdentifier = productIdentifier;
+  }
+
+  public String getAsOf() {
+    return asOf;
+  }
+
+  public void setAsOf(String asOf) {
+    this.asOf = asOf;
+  }
+
+  public List<PortfolioAtRiskBucket> getBuckets() {
+    return buckets;
+  }
+
+  public void setBuckets(List<PortfolioAtRiskBucket> buckets) {
+    this.buckets = buckets;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    PortfolioAtRisk that = (PortfolioAtRisk) o;
+    return Objects.equals(productIdentifier, that.productIdentifier) &&
+        Objects.equals(asOf, that.asOf) &&
+        Objects.equals(buckets, that.buckets);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(productIdentifier, asOf, buckets);
+  }
+
+  @Override
+  public String toString() {
+    return "PortfolioAtRisk{" +
+        "productIdentifier='" + productIdentifier + '\'' +
+        ", asOf='" + asOf + '\'' +
+        ", buckets=" + buckets +
+        '}';
+  }
+}
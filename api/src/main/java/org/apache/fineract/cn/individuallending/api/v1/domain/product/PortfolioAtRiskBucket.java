@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.product;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * The cases which have been late for at least {@code daysLate} days, and the principal outstanding on them.
+ *
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class PortfolioAtRiskBucket {
+  private Integer daysLate;
+  private Long caseCount;
+  private BigDecimal principalBalance;
+
+  public PortfolioAtRiskBucket() {
+  }
+
+  public Integer getDaysLate() {
+    return daysLate;
+  }
+
+  public void setDaysLate(Integer daysLate) {
+    this.daysLate = daysLate;
+  }
+
+  public Long getCaseCount() {
+    return caseCount;
+  }
+
+  public void setCaseCount(Long caseCount) {
+    this.caseCount = caseCount;
+  }
+
+  public BigDecimal getPrincipalBalance() {
+    return principalBalance;
+  }
+
+  public void setPrincipalBalance(BigDecimal principalBalance) {
+    this.principalBalance = principalBalance;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    PortfolioAtRiskBucket that = (PortfolioAtRiskBucket) o;
+    return Objects.equals(daysLate, that.daysLate) &&
+        Objects.equals(caseCount, that.caseCount) &&
+        Objects.equals(principalBalance, that.principalBalance);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(daysLate, caseCount, principalBalance);
+  }
+
+  @Override
+  public String toString() {
+    return "PortfolioAtRiskBucket{" +
+        "daysLate=" + daysLate +
+        ", caseCount=" + caseCount +
+        ", principalBalance=" + principalBalance +
+        '}';
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.workflow;
+
+import java.util.Objects;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class CommandLockStatistics {
+  private Integer stripeCount;
+  private Long acquisitionCount;
+  private Long contendedAcquisitionCount;
+  private Integer waitingCount;
+  private Long totalWaitMillis;
+  private Long maximumWaitMillis;
+  private Long conflictCount;
+  private Long unresolvedConflictCount;
+
+  public CommandLockStatistics() {
+  }
+
+  public Integer getStripeCount() {
+    return stripeCount;
+  }
+
+  public void setStripeCount(Integer stripeCount) {
+    this.stripeCount = stripeCount;
+  }
+
+  public Long getAcquisitionCount() {
+    return acquisitionCount;
+  }
+
+  public void setAcquisitionCount(Long acquisitionCount) {
+    this.acquisitionCount = acquisitionCount;
+  }
+
+  public Long getContendedAcquisitionCount() {
+    return contendedAcquisitionCount;
+  }
+
+  public void setContendedAcquisitionCount(Long contendedAcquisitionCount) {
+    this.contendedAcquisitionCount = contendedAcquisitionCount;
+  }
+
+  public Integer getWaitingCount() {
+    return waitingCount;
+  }
+
+  public void setWaitingCount(Integer waitingCount) {
+    this.waitingCount = waitingCount;
+  }
+
+  public Long getTotalWaitMillis() {
+    return totalWaitMillis;
+  }
+
+  public void setTotalWaitMillis(Long totalWaitMillis) {
+    this.totalWaitMillis = totalWaitMillis;
+  }
+
+  public Long getMaximumWaitMillis() {
+    return maximumWaitMillis;
+  }
+
+  public void setMaximumWaitMillis(Long maximumWaitMillis) {
+    this.maximumWaitMillis = maximumWaitMillis;
+  }
+
+  public Long getConflictCount() {
+    return conflictCount;
+  }
+
+  public void setConflictCount(Long conflictCount) {
+    this.conflictCount = conflictCount;
+  }
+
+  public Long getUnresolvedConflictCount() {
+    return unresolvedConflictCount;
+  }
+
+  public void setUnresolvedConflictCount(Long unresolvedConflictCount) {
+    this.unresolvedConflictCount = unresolvedConflictCount;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CommandLockStatistics that = (CommandLockStatistics) o;
+    return Objects.equals(stripeCount, that.stripeCount) &&
+        Objects.equals(acquisitionCount, that.acquisitionCount) &&
+        Objects.equals(contendedAcquisitionCount, that.contendedAcquisitionCount) &&
+        Objects.equals(waitingCount, that.waitingCount) &&
+        Objects.equals(totalWaitMillis, that.totalWaitMillis) &&
+        Objects.equals(maximumWaitMillis, that.maximumWaitMillis) &&
+        Objects.equals(conflictCount, that.conflictCount) &&
+        Objects.equals(unresolvedConflictCount, that.unresolvedConflictCount);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(stripeCount, acquisitionCount, contendedAcquisitionCount, waitingCount, totalWaitMillis, maximumWaitMillis, conflictCount, unresolvedConflictCount);
+  }
+
+  @Override
+  public String toString() {
+    return "CommandLockStatistics{" +
+        "stripeCount=" + stripeCount +
+        ", acquisitionCount=" + acquisitionCount +
+        ", contendedAcquisitionCount=" + contendedAcquisitionCount +
+        ", waitingCount=" + waitingCount +
+        ", totalWaitMillis=" + totalWaitMillis +
+        ", maximumWaitMillis=" + maximumWaitMillis +
+        ", conflictCount=" + conflictCount +
+        ", unresolvedConflictCount=" + unresolvedConflictCount +
+        '}';
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.workflow;
+
+import java.util.List;
+import java.util.Objects;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import org.apache.fineract.cn.lang.validation.constraints.ValidIdentifier;
+
+/**
+ * Existing cases to be imported together, for example when migrating a loan book from another system.
+ *
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class ImportBatch {
+  @ValidIdentifier
+  private String identifier;
+
+  @Valid
+  @NotNull
+  @Size(min = 1, max = 100000)
+  private List<CaseImport> imports;
+
+  public ImportBatch() {
+  }
+
+  public String getIdentifier() {
+    return identifier;
+  }
+
+  public void setIdentifier(String identifier) {
+    this.identifier = identifier;
+  }
+
+  public List<CaseImport> getImports() {
+    return imports;
+  }
+
+  public void setImports(List<CaseImport> imports) {
+    this.imports = imports;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ImportBatch that = (ImportBatch) o;
+    return Objects.equals(identifier, that.identifier) &&
+        Objects.equals(imports, that.imports);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(identifier, imports);
+  }
+
+  @Override
+  public String toString() {
+    return "ImportBatch{" +
+        "identifier='" + identifier + '\'' +
+        ", imports=" + imports +
+        '}';
+  }
+}
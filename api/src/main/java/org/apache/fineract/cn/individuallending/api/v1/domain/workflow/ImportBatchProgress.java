@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.workflow;
+
+import java.util.Objects;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class ImportBatchProgress {
+  private String identifier;
+  private String state;
+  private Integer caseCount;
+  private Long importedCount;
+  private Long failedCount;
+  private String createdBy;
+  private String createdOn;
+  private String finishedOn;
+
+  public ImportBatchProgress() {
+  }
+
+  public String getIdentifier() {
+    return identifier;
+  }
+
+  public void setIdentifier(String identifier) {
+    this.identifier = identifier;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public void setState(String state) {
+    this.state = state;
+  }
+
+  public Integer getCaseCount() {
+    return caseCount;
+  }
+
+  public void setCaseCount(Integer caseCount) {
+    this.caseCount = caseCount;
+  }
+
+  public Long getImportedCount() {
+    return importedCount;
+  }
+
+  public void setImportedCount(Long importedCount) {
+    this.importedCount = importedCount;
+  }
+
+  public Long getFailedCount() {
+    return failedCount;
+  }
+
+  public void setFailedCount(Long failedCount) {
+    this.failedCount = failedCount;
+  }
+
+  public String getCreatedBy() {
+    return createdBy;
+  }
+
+  public void setCreatedBy(String createdBy) {
+    this.createdBy = createdBy;
+  }
+
+  public String getCreatedOn() {
+    return createdOn;
+  }
+
+  public void setCreatedOn(String createdOn) {
+    this.createdOn = createdOn;
+  }
+
+  public String getFinishedOn() {
+    return finishedOn;
+  }
+
+  public void setFinishedOn(String finishedOn) {
+    this.finishedOn = finishedOn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ImportBatchProgress that = (ImportBatchProgress) o;
+    return Objects.equals(identifier, that.identifier) &&
+        Objects.equals(state, that.state) &&
+        Objects.equals(caseCount, that.caseCount) &&
+        Objects.equals(importedCount, that.importedCount) &&
+        Objects.equals(failedCount, that.failedCount) &&
+        Objects.equals(createdBy, that.createdBy) &&
+        Objects.equals(createdOn, that.createdOn) &&
+        Objects.equals(finishedOn, that.finishedOn);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(identifier, state, caseCount, importedCount, failedCount, createdBy, createdOn, finishedOn);
+  }
+
+  @Override
+  public String toString() {
+    return "ImportBatchProgress{" +
+        "identifier='" + identifier + '\'' +
+        ", state='" + state + '\'' +
+        ", caseCount=" + caseCount +
+        ", importedCount=" + importedCount +
+        ", failedCount=" + failedCount +
+        ", createdBy='" + createdBy + '\'' +
+        ", createdOn='" + createdOn + '\'' +
+        ", finishedOn='" + finishedOn + '\'' +
+        '}';
+  }
+}
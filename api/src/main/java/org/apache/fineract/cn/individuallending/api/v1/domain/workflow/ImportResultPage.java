@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.workflow;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class ImportResultPage {
+  private List<ImportResult> elements;
+  private Integer totalPages;
+  private Long totalElements;
+
+  public ImportResultPage() {
+  }
+
+  public List<ImportResult> getElements() {
+    return elements;
+  }
+
+  public void setElements(List<ImportResult> elements) {
+    this.elements = elements;
+  }
+
+  public Integer getTotalPages() {
+    return totalPages;
+  }
+
+  public void setTotalPages(Integer totalPages) {
+    this.totalPages = totalPages;
+  }
+
+  public Long getTotalElements() {
+    return totalElements;
+  }
+
+  public void setTotalElements(Long totalElements) {
+    this.totalElements = totalElements;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ImportResultPage that = (ImportResultPage) o;
+    return Objects.equals(elements, that.elements) &&
+        Objects.equals(totalPages, that.totalPages) &&
+        Objects.equals(totalElements, that.totalElements);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(elements, totalPages, totalElements);
+  }
+
+  @Override
+  public String toString() {
+    return "ImportResultPage{" +
+        "elements=" + elements +
+        ", totalPages=" + totalPages +
+        ", totalElements=" + totalElements +
+        '}';
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.workflow;
+
+import java.util.Objects;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class InterestRunProgress {
+  private String forTime;
+  private Integer partitionCount;
+  private Integer finishedPartitionCount;
+  private Long caseCount;
+  private Long processedCaseCount;
+  private Long failedCaseCount;
+
+  public InterestRunProgress() {
+  }
+
+  public String getForTime() {
+    return forTime;
+  }
+
+  public void setForTime(String forTime) {
+    this.forTime = forTime;
+  }
+
+  public Integer getPartitionCount() {
+    return partitionCount;
+  }
+
+  public void setPartitionCount(Integer partitionCount) {
+    this.partitionCount = partitionCount;
+  }
+
+  public Integer getFinishedPartitionCount() {
+    return finishedPartitionCount;
+  }
+
+  public void setFinishedPartitionCount(Integer finishedPartitionCount) {
+    this.finishedPartitionCount = finishedPartitionCount;
+  }
+
+  public Long getCaseCount() {
+    return caseCount;
+  }
+
+  public void setCaseCount(Long caseCount) {
+    this.caseCount = caseCount;
+  }
+
+  public Long getProcessedCaseCount() {
+    return processedCaseCount;
+  }
+
+  public void setProcessedCaseCount(Long processedCaseCount) {
+    this.processedCaseCount = processedCaseCount;
+  }
+
+  public Long getFailedCaseCount() {
+    return failedCaseCount;
+  }
+
+  public void setFailedCaseCount(Long failedCaseCount) {
+    this.failedCaseCount = failedCaseCount;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    InterestRunProgress that = (InterestRunProgress) o;
+    return Objects.equals(forTime, that.forTime) &&
+        Objects.equals(partitionCount, that.partitionCount) &&
+        Objects.equals(finishedPartitionCount, that.finishedPartitionCount) &&
+        Objects.equals(caseCount, that.caseCount) &&
+        Objects.equals(processedCaseCount, that.processedCaseCount) &&
+        Objects.equals(failedCaseCount, that.failedCaseCount);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(forTime, partitionCount, finishedPartitionCount, caseCount, processedCaseCount, failedCaseCount);
+  }
+
+  @Override
+  public String toString() {
+    return "InterestRunProgress{" +
+        "forTime='" + forTime + '\'' +
+        ", partitionCount=" + partitionCount +
+        ", finishedPartitionCount=" + finishedPartitionCount +
+        ", caseCount=" + caseCount +
+        ", processedCaseCount=" + processedCaseCount +
+        ", failedCaseCount=" + failedCaseCount +
+        '}';
+  }
+}
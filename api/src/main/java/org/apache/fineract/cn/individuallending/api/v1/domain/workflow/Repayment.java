@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.workflow;
+
+import java.util.Objects;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import org.apache.fineract.cn.lang.validation.constraints.ValidIdentifier;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Command;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class Repayment {
+  @ValidIdentifier
+  private String caseIdentifier;
+
+  @Valid
+  @NotNull
+  private Command command;
+
+  public Repayment() {
+  }
+
+  public String getCaseIdentifier() {
+    return caseIdentifier;
+  }
+
+  public void setCaseIdentifier(String caseIdentifier) {
+    this.caseIdentifier = caseIdentifier;
+  }
+
+  public Command getCommand() {
+    return command;
+  }
+
+  public void setCommand(Command command) {
+    this.command = command;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    Repayment that = (Repayment) o;
+    return Objects.equals(caseIdentifier, that.caseIdentifier) &&
+        Objects.equals(command, that.command);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(caseIdentifier, command);
+  }
+
+  @Override
+  public String toString() {
+    return "Repayment{" +
+        "caseIdentifier='" + caseIdentifier + '\'' +
+        ", command=" + command +
+        '}';
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.workflow;
+
+import java.util.Objects;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class RepaymentBatchProgress {
+  private String identifier;
+  private String state;
+  private Integer repaymentCount;
+  private Long acceptedCount;
+  private Long failedCount;
+  private String createdBy;
+  private String createdOn;
+  private String finishedOn;
+
+  public RepaymentBatchProgress() {
+  }
+
+  public String getIdentifier() {
+    return identifier;
+  }
+
+  public void setIdentifier(String identifier) {
+    this.identifier = identifier;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public void setState(String state) {
+    this.state = state;
+  }
+
+  public Integer getRepaymentCount() {
+    return repaymentCount;
+  }
+
+  public void setRepaymentCount(Integer repaymentCount) {
+    this.repaymentCount = repaymentCount;
+  }
+
+  public Long getAcceptedCount() {
+    return acceptedCount;
+  }
+
+  public void setAcceptedCount(Long acceptedCount) {
+    this.acceptedCount = acceptedCount;
+  }
+
+  public Long getFailedCount() {
+    return failedCount;
+  }
+
+  public void setFailedCount(Long failedCount) {
+    this.failedCount = failedCount;
+  }
+
+  public String getCreatedBy() {
+    return createdBy;
+  }
+
+  public void setCreatedBy(String createdBy) {
+    this.createdBy = createdBy;
+  }
+
+  public String getCreatedOn() {
+    return createdOn;
+  }
+
+  public void setCreatedOn(String createdOn) {
+    this.createdOn = createdOn;
+  }
+
+  public String getFinishedOn() {
+    return finishedOn;
+  }
+
+  public void setFinishedOn(String finishedOn) {
+    this.finishedOn = finishedOn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    RepaymentBatchProgress that = (RepaymentBatchProgress) o;
+    return Objects.equals(identifier, that.identifier) &&
+        Objects.equals(state, that.state) &&
+        Objects.equals(repaymentCount, that.repaymentCount) &&
+        Objects.equals(acceptedCount, that.acceptedCount) &&
+        Objects.equals(failedCount, that.failedCount) &&
+        Objects.equals(createdBy, that.createdBy) &&
+        Objects.equals(createdOn, that.createdOn) &&
+        Objects.equals(finishedOn, that.finishedOn);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(identifier, state, repaymentCount, acceptedCount, failedCount, createdBy, createdOn, finishedOn);
+  }
+
+  @Override
+  public String toString() {
+    return "RepaymentBatchProgress{" +
+        "identifier='" + identifier + '\'' +
+        ", state='" + state + '\'' +
+        ", repaymentCount=" + repaymentCount +
+        ", acceptedCount=" + acceptedCount +
+        ", failedCount=" + failedCount +
+        ", createdBy='" + createdBy + '\'' +
+        ", createdOn='" + createdOn + '\'' +
+        ", finishedOn='" + finishedOn + '\'' +
+        '}';
+  }
+}
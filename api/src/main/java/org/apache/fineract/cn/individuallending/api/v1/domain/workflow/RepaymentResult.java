@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.api.v1.domain.workflow;
+
+import java.util.Objects;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class RepaymentResult {
+  public enum State {
+    PENDING,
+    ACCEPTED,
+    FAILED
+  }
+
+  private Integer position;
+  private String caseIdentifier;
+  private String state;
+  private String message;
+  private String processedOn;
+
+  public RepaymentResult() {
+  }
+
+  public Integer getPosition() {
+    return position;
+  }
+
+  public void setPosition(Integer position) {
+    this.position = position;
+  }
+
+  public String getCaseIdentifier() {
+    return caseIdentifier;
+  }
+
+  public void setCaseIdentifier(String caseIdentifier) {
+    this.caseIdentifier = caseIdentifier;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public void setState(String state) {
+    this.state = state;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public String getProcessedOn() {
+    return processedOn;
+  }
+
+  public void setProcessedOn(String processedOn) {
+    this.processedOn = processedOn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    RepaymentResult that = (RepaymentResult) o;
+    return Objects.equals(position, that.position) &&
+        Objects.equals(caseIdentifier, that.caseIdentifier) &&
+        Objects.equals(state, that.state) &&
+        Objects.equals(message, that.message) &&
+        Objects.equals(processedOn, that.processedOn);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(position, caseIdentifier, state, message, processedOn);
+  }
+
+  @Override
+  public String toString() {
+    return "RepaymentResult{" +
+        "position=" + position +
+        ", caseIdentifier='" + caseIdentifier + '\'' +
+        ", state='" + state + '\'' +
+        ", message='" + message + '\'' +
+        ", processedOn='" + processedOn + '\'' +
+        '}';
+  }
+}
@@ -35,6 +35,11 @@ public interface IndividualLoanEventConstants {
   String DISBURSE_INDIVIDUALLOAN_CASE = "disburse-individualloan-case";
   String APPLY_INTEREST_INDIVIDUALLOAN_CASE = "apply-interest-individualloan-case";
   String ACCEPT_PAYMENT_INDIVIDUALLOAN_CASE = "accept-payment-individualloan-case";
+  /**
+   * @deprecated No longer emitted.  Lateness is checked without a command per case, so only
+   * {@link #MARK_LATE_INDIVIDUALLOAN_CASE} and {@link #MARK_IN_ARREARS_INDIVIDUALLOAN_CASE} are emitted for it.
+   */
+  @Deprecated
   String CHECK_LATE_INDIVIDUALLOAN_CASE = "check-late-individualloan-case";
   String MARK_LATE_INDIVIDUALLOAN_CASE = "mark-late-individualloan-case";
   String MARK_IN_ARREARS_INDIVIDUALLOAN_CASE = "mark-in-arrears-individualloan-case";
@@ -52,6 +57,10 @@ public interface IndividualLoanEventConstants {
   String SELECTOR_DISBURSE_INDIVIDUALLOAN_CASE = SELECTOR_NAME + " = '" + DISBURSE_INDIVIDUALLOAN_CASE + "'";
   String SELECTOR_APPLY_INTEREST_INDIVIDUALLOAN_CASE = SELECTOR_NAME + " = '" + APPLY_INTEREST_INDIVIDUALLOAN_CASE + "'";
   String SELECTOR_ACCEPT_PAYMENT_INDIVIDUALLOAN_CASE = SELECTOR_NAME + " = '" + ACCEPT_PAYMENT_INDIVIDUALLOAN_CASE + "'";
+  /**
+   * @deprecated No longer emitted, see {@link #CHECK_LATE_INDIVIDUALLOAN_CASE}.
+   */
+  @Deprecated
   String SELECTOR_CHECK_LATE_INDIVIDUALLOAN_CASE = SELECTOR_NAME + " = '" + CHECK_LATE_INDIVIDUALLOAN_CASE + "'";
   String SELECTOR_MARK_LATE_INDIVIDUALLOAN_CASE = SELECTOR_NAME + " = '" + MARK_LATE_INDIVIDUALLOAN_CASE + "'";
   String SELECTOR_MARK_IN_ARREARS_INDIVIDUALLOAN_CASE = SELECTOR_NAME + " = '" + MARK_IN_ARREARS_INDIVIDUALLOAN_CASE + "'";
@@ -21,6 +21,7 @@ package org.apache.fineract.cn.portfolio.api.v1.client;
 import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
 import org.apache.fineract.cn.portfolio.api.v1.domain.BalanceSegmentSet;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.api.v1.domain.CaseCursorPage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CasePage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CaseStatus;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
@@ -301,6 +302,19 @@ public interface PortfolioManager {
       @RequestParam("pageIndex") final Integer pageIndex,
       @RequestParam("size") final Integer size);
 
+  @RequestMapping(
+      value = "/products/{productidentifier}/cases/",
+      method = RequestMethod.GET,
+      produces = MediaType.ALL_VALUE,
+      consumes = MediaType.APPLICATION_JSON_VALUE
+  )
+  CaseCursorPage getCasesForProduct(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @RequestParam(value = "includeClosed", required = false) final Boolean includeClosed,
+      @RequestParam(value = "pageToken", required = false) final String pageToken,
+      @RequestParam("size") final Integer size,
+      @RequestParam(value = "includeTotal", required = false) final Boolean includeTotal);
+
   @RequestMapping(
       value = "/products/{productidentifier}/cases/",
       method = RequestMethod.POST,
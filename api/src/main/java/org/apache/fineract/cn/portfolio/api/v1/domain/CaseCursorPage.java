@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.api.v1.domain;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A page of cases read with a continuation token rather than a page index.  Pass nextPageToken to get the next page.
+ * It is null on the last page.  totalElements is only set if it was requested.
+ *
+ * @author Myrle Krantz
+ */
+public class CaseCursorPage {
+  private List<Case> elements;
+  private String nextPageToken;
+  private Long totalElements;
+
+  public CaseCursorPage() {
+  }
+
+  public CaseCursorPage(List<Case> elements, String nextPageToken, Long totalElements) {
+    this.elements = elements;
+    this.nextPageToken = nextPageToken;
+    this.totalElements = totalElements;
+  }
+
+  public List<Case> getElements() {
+    return elements;
+  }
+
+  public void setElements(List<Case> elements) {
+    this.elements = elements;
+  }
+
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  public void setNextPageToken(String nextPageToken) {
+    this.nextPageToken = nextPageToken;
+  }
+
+  public Long getTotalElements() {
+    return totalElements;
+  }
+
+  public void setTotalElements(Long totalElements) {
+    this.totalElements = totalElements;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CaseCursorPage that = (CaseCursorPage) o;
+    return Objects.equals(elements, that.elements) &&
+            Objects.equals(nextPageToken, that.nextPageToken) &&
+            Objects.equals(totalElements, that.totalElements);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(elements, nextPageToken, totalElements);
+  }
+
+  @Override
+  public String toString() {
+    return "CaseCursorPage{" +
+            "elements=" + elements +
+            ", nextPageToken='" + nextPageToken + '\'' +
+            ", totalElements=" + totalElements +
+            '}';
+  }
+}
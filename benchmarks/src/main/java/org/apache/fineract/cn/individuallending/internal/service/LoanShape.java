@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseParameters;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.ChargeProportionalDesignator;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.mapper.CaseParametersMapper;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.CostComponentService;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.SimulatedRunningBalances;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.BalanceSegmentIndexCache;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledAction;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledActionHelpers;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledCharge;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledChargeComparator;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledChargesService;
+import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
+import org.apache.fineract.cn.portfolio.api.v1.domain.PaymentCycle;
+import org.apache.fineract.cn.portfolio.api.v1.domain.TermRange;
+import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The loan which is put through the cost component engine by the benchmarks.  Everything is simulated, so
+ * neither a database nor accounting are needed.  Charge definitions and balance segments are served from
+ * memory in place of the repositories.
+ *
+ * @author Myrle Krantz
+ */
+@State(Scope.Benchmark)
+public class LoanShape {
+  private static final String TENANT_IDENTIFIER = "benchmark";
+  private static final String PRODUCT_IDENTIFIER = "benchmark";
+  private static final String SEGMENT_SET_IDENTIFIER = "balances";
+  private static final BigDecimal MAXIMUM_BALANCE = BigDecimal.valueOf(100_000_00L, 2);
+  private static final BigDecimal INTEREST = BigDecimal.valueOf(8);
+  private static final int MINOR_CURRENCY_UNIT_DIGITS = 2;
+
+  @Param({"WEEKS", "MONTHS", "YEARS"})
+  private ChronoUnit paymentCycleUnit;
+
+  @Param({"1", "5", "30"})
+  private int termYears;
+
+  @Param({"0", "10", "40"})
+  private int configurableChargeCount;
+
+  /**
+   * The number of segments in the segment set, 0 for no segment set.  When there is one, every other configurable
+   * charge only applies to a range of those segments.
+   */
+  @Param({"0", "8"})
+  private int segmentCount;
+
+  private final ChargeDefinitionVersions chargeDefinitionVersions = new ChargeDefinitionVersions();
+  private final AtomicLong segmentQueryCount = new AtomicLong();
+  private ChargeDefinitionService chargeDefinitionService;
+  private BalanceSegmentRepository balanceSegmentRepository;
+  private LocalDate startOfTerm;
+  private CaseParameters caseParameters;
+  private DataContextOfAction dataContextOfAction;
+  private ScheduledChargesService scheduledChargesService;
+  private List<ScheduledAction> scheduledActions;
+  private List<ScheduledCharge> scheduledCharges;
+  private List<ScheduledCharge> repaymentCharges;
+  private SimulatedRunningBalances repaymentBalances;
+  private BigDecimal loanPaymentSize;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    startOfTerm = LocalDate.of(2017, 1, 5);
+
+    caseParameters = new CaseParameters("benchmark");
+    caseParameters.setMaximumBalance(MAXIMUM_BALANCE);
+    caseParameters.setTermRange(new TermRange(ChronoUnit.YEARS, termYears));
+    caseParameters.setPaymentCycle(new PaymentCycle(paymentCycleUnit, 1, null, null, null));
+
+    final ProductEntity product = new ProductEntity();
+    product.setIdentifier(PRODUCT_IDENTIFIER);
+    product.setMinorCurrencyUnitDigits(MINOR_CURRENCY_UNIT_DIGITS);
+    final CaseEntity customerCase = new CaseEntity();
+    customerCase.setInterest(INTEREST);
+    dataContextOfAction = new DataContextOfAction(
+        product,
+        customerCase,
+        CaseParametersMapper.map(1L, caseParameters),
+        Collections.emptyList());
+
+    //The caches are keyed by tenant.
+    TenantContextHolder.clear();
+    TenantContextHolder.setIdentifier(TENANT_IDENTIFIER);
+    chargeDefinitionService = chargeDefinitionService();
+    balanceSegmentRepository = balanceSegmentRepository();
+    scheduledChargesService = newScheduledChargesService();
+    scheduledActions = ScheduledActionHelpers.getHypotheticalScheduledActions(startOfTerm, caseParameters);
+    scheduledCharges = scheduledChargesService.getScheduledCharges(PRODUCT_IDENTIFIER, scheduledActions);
+    loanPaymentSize = CostComponentService.getLoanPaymentSize(
+        MAXIMUM_BALANCE,
+        MAXIMUM_BALANCE,
+        INTEREST,
+        MINOR_CURRENCY_UNIT_DIGITS,
+        scheduledCharges);
+
+    //A repayment in the middle of the term, the way accepting a payment would see it.
+    final List<ScheduledAction> repayments = scheduledActions.stream()
+        .filter(x -> x.getAction() == Action.ACCEPT_PAYMENT)
+        .collect(Collectors.toList());
+    final ScheduledAction repayment = repayments.get(repayments.size() / 2);
+    repaymentCharges = scheduledCharges.stream()
+        .filter(x -> repayment.getRepaymentPeriod().equals(x.getScheduledAction().getRepaymentPeriod()))
+        .sorted(new ScheduledChargeComparator())
+        .collect(Collectors.toList());
+    repaymentBalances = new SimulatedRunningBalances();
+    repaymentBalances.adjustBalance(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, MAXIMUM_BALANCE.divide(BigDecimal.valueOf(2)));
+    repaymentBalances.adjustBalance(AccountDesignators.ENTRY, loanPaymentSize);
+  }
+
+  private ChargeDefinitionService chargeDefinitionService() {
+    final List<ChargeDefinition> chargeDefinitions = Stream.concat(
+        Stream.concat(
+            ChargeDefinitionService.defaultConfigurableIndividualLoanCharges(),
+            ChargeDefinitionService.individualLoanChargesDerivedFromConfiguration()),
+        IntStream.range(0, configurableChargeCount).mapToObj(this::configurableCharge))
+        .collect(Collectors.toList());
+
+    final ChargeDefinitionTable chargeDefinitionTable = new ChargeDefinitionTable("benchmark", 0, chargeDefinitions);
+    final Map<String, List<ChargeDefinition>> chargeDefinitionsMappedByChargeAction
+        = chargeDefinitionTable.getChargeDefinitionsMappedByChargeAction();
+    final Map<String, List<ChargeDefinition>> chargeDefinitionsMappedByAccrueAction
+        = chargeDefinitionTable.getChargeDefinitionsMappedByAccrueAction();
+
+    return new ChargeDefinitionService(null, null) {
+      @Override
+      public Map<String, List<ChargeDefinition>> getChargeDefinitionsMappedByChargeAction(final String productIdentifier) {
+        return chargeDefinitionsMappedByChargeAction;
+      }
+
+      @Override
+      public Map<String, List<ChargeDefinition>> getChargeDefinitionsMappedByAccrueAction(final String productIdentifier) {
+        return chargeDefinitionsMappedByAccrueAction;
+      }
+    };
+  }
+
+  private ChargeDefinition configurableCharge(final int index) {
+    final ChargeDefinition ret = new ChargeDefinition();
+    ret.setIdentifier("benchmark-fee-" + index);
+    ret.setName("Benchmark fee " + index);
+    ret.setDescription("Benchmark fee " + index);
+    ret.setChargeAction(Action.ACCEPT_PAYMENT.name());
+    ret.setChargeMethod(ChargeDefinition.ChargeMethod.PROPORTIONAL);
+    ret.setAmount(BigDecimal.valueOf(0.01));
+    ret.setProportionalTo(index % 2 == 0
+        ? ChargeProportionalDesignator.CONTRACTUAL_REPAYMENT_DESIGNATOR.getValue()
+        : ChargeProportionalDesignator.PRINCIPAL_DESIGNATOR.getValue());
+    ret.setFromAccountDesignator(AccountDesignators.CUSTOMER_LOAN_FEES);
+    ret.setToAccountDesignator(AccountDesignators.PROCESSING_FEE_INCOME);
+    ret.setChargeOnTop(true);
+    ret.setReadOnly(false);
+    if (segmentCount > 0 && index % 2 == 1) {
+      ret.setForSegmentSet(SEGMENT_SET_IDENTIFIER);
+      ret.setFromSegment(segmentIdentifier(index % segmentCount));
+      ret.setToSegment(segmentIdentifier(Math.min(index % segmentCount + 1, segmentCount - 1)));
+    }
+    return ret;
+  }
+
+  private BalanceSegmentRepository balanceSegmentRepository() {
+    final BigDecimal segmentSize = MAXIMUM_BALANCE.divide(BigDecimal.valueOf(Math.max(segmentCount, 1)), BigDecimal.ROUND_DOWN);
+    final List<BalanceSegmentEntity> segments = new ArrayList<>();
+    for (int i = 0; i < segmentCount; i++) {
+      segments.add(new BalanceSegmentEntity(
+          null,
+          SEGMENT_SET_IDENTIFIER,
+          segmentIdentifier(i),
+          segmentSize.multiply(BigDecimal.valueOf(i))));
+    }
+
+    final BalanceSegmentRepository ret = Mockito.mock(BalanceSegmentRepository.class);
+    Mockito.when(ret.findByProductIdentifierOrderByLowerBound(Matchers.anyString()))
+        .thenAnswer(invocation -> {
+          segmentQueryCount.incrementAndGet();
+          return segments;
+        });
+    return ret;
+  }
+
+  private static String segmentIdentifier(final int index) {
+    return "segment-" + index;
+  }
+
+  public LocalDate getStartOfTerm() {
+    return startOfTerm;
+  }
+
+  public LocalDate getEndOfTerm() {
+    return ScheduledActionHelpers.getRoughEndDate(startOfTerm, caseParameters);
+  }
+
+  public CaseParameters getCaseParameters() {
+    return caseParameters;
+  }
+
+  public DataContextOfAction getDataContextOfAction() {
+    return dataContextOfAction;
+  }
+
+  public ScheduledChargesService getScheduledChargesService() {
+    return scheduledChargesService;
+  }
+
+  /**
+   * @return a service whose balance segment index has not been built yet.
+   */
+  public ScheduledChargesService newScheduledChargesService() {
+    return new ScheduledChargesService(
+        chargeDefinitionService,
+        new BalanceSegmentIndexCache(balanceSegmentRepository, chargeDefinitionVersions));
+  }
+
+  /**
+   * @return the number of times balance segments were read from the simulated repository so far.
+   */
+  public long getSegmentQueryCount() {
+    return segmentQueryCount.get();
+  }
+
+  public List<ScheduledAction> getScheduledActions() {
+    return scheduledActions;
+  }
+
+  /**
+   * @return the charges for every action over the whole term.
+   */
+  public List<ScheduledCharge> getScheduledCharges() {
+    return scheduledCharges;
+  }
+
+  /**
+   * @return the charges of one repayment in the middle of the term, in the order they are applied.
+   */
+  public List<ScheduledCharge> getRepaymentCharges() {
+    return repaymentCharges;
+  }
+
+  /**
+   * @return the balances before the repayment returned by getRepaymentCharges.  Must not be changed by benchmarks.
+   */
+  public SimulatedRunningBalances getRepaymentBalances() {
+    return repaymentBalances;
+  }
+
+  public BigDecimal getMaximumBalance() {
+    return MAXIMUM_BALANCE;
+  }
+
+  public BigDecimal getInterest() {
+    return INTEREST;
+  }
+
+  public int getMinorCurrencyUnitDigits() {
+    return MINOR_CURRENCY_UNIT_DIGITS;
+  }
+
+  public BigDecimal getLoanPaymentSize() {
+    return loanPaymentSize;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPaymentPage;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Myrle Krantz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlannedPaymentsBenchmark {
+  private static final int PAGE_SIZE = 20;
+
+  @State(Scope.Benchmark)
+  public static class Service {
+    private IndividualLoanService individualLoanService;
+    private int lastPageIndex;
+
+    @Setup(Level.Trial)
+    public void setUp(final LoanShape loanShape) {
+      //The case isn't persisted, so every request calculates its schedule.
+      individualLoanService = new IndividualLoanService(
+          loanShape.getScheduledChargesService(),
+          new RepaymentCalendarCache(),
+          new PlannedPaymentScheduleCache(new PortfolioProperties()),
+          Mockito.mock(ChargeDefinitionVersions.class));
+      lastPageIndex = individualLoanService.getPlannedPaymentsPage(
+          loanShape.getDataContextOfAction(),
+          new IndividualLoanService.PlannedPaymentWindow(0, PAGE_SIZE, Optional.of(loanShape.getStartOfTerm())))
+          .getTotalPages() - 1;
+    }
+  }
+
+  @Benchmark
+  public PlannedPaymentPage getFirstPlannedPaymentsPage(final LoanShape loanShape, final Service service) {
+    return service.individualLoanService.getPlannedPaymentsPage(
+        loanShape.getDataContextOfAction(),
+        new IndividualLoanService.PlannedPaymentWindow(0, PAGE_SIZE, Optional.of(loanShape.getStartOfTerm())));
+  }
+
+  @Benchmark
+  public PlannedPaymentPage getLastPlannedPaymentsPage(final LoanShape loanShape, final Service service) {
+    return service.individualLoanService.getPlannedPaymentsPage(
+        loanShape.getDataContextOfAction(),
+        new IndividualLoanService.PlannedPaymentWindow(service.lastPageIndex, PAGE_SIZE, Optional.of(loanShape.getStartOfTerm())));
+  }
+}
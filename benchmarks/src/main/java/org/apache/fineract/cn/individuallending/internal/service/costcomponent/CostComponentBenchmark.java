@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
+
+import org.apache.fineract.cn.individuallending.internal.service.LoanShape;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledCharge;
+import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @author Myrle Krantz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CostComponentBenchmark {
+  private static final int RUNNING_CALCULATION_PRECISION = 8;
+
+  @State(Scope.Benchmark)
+  public static class PeriodicCharges {
+    private List<ScheduledCharge> scheduledCharges;
+
+    @Setup(Level.Trial)
+    public void setUp(final LoanShape loanShape) {
+      //The charges which are calculated per period, over the whole term.
+      scheduledCharges = loanShape.getScheduledCharges().stream()
+          .filter(x -> x.getScheduledAction().getActionPeriod() != null)
+          .filter(x -> x.getChargeDefinition().getChargeMethod() != ChargeDefinition.ChargeMethod.FIXED)
+          .collect(Collectors.toList());
+    }
+  }
+
+  @Benchmark
+  public PaymentBuilder getCostComponentsForRepayment(final LoanShape loanShape) {
+    return CostComponentService.getCostComponentsForScheduledCharges(
+        loanShape.getRepaymentCharges(),
+        loanShape.getMaximumBalance(),
+        loanShape.getRepaymentBalances(),
+        loanShape.getLoanPaymentSize(),
+        BigDecimal.ZERO,
+        loanShape.getLoanPaymentSize(),
+        loanShape.getInterest(),
+        loanShape.getMinorCurrencyUnitDigits(),
+        true);
+  }
+
+  @Benchmark
+  public PaymentBuilder adjustBalancesForRepayment(final LoanShape loanShape) {
+    final PaymentBuilder paymentBuilder = new PaymentBuilder(loanShape.getRepaymentBalances(), true);
+    for (final ScheduledCharge scheduledCharge : loanShape.getRepaymentCharges()) {
+      paymentBuilder.adjustBalances(
+          scheduledCharge.getScheduledAction().getAction(),
+          scheduledCharge.getChargeDefinition(),
+          BigDecimal.TEN);
+    }
+    return paymentBuilder;
+  }
+
+  @Benchmark
+  public void chargeAmountPerPeriodOverTerm(final LoanShape loanShape, final PeriodicCharges periodicCharges, final Blackhole blackhole) {
+    for (final ScheduledCharge scheduledCharge : periodicCharges.scheduledCharges) {
+      final BigDecimal amountInPercentagePoints
+          = scheduledCharge.getChargeDefinition().getChargeMethod() == ChargeDefinition.ChargeMethod.INTEREST
+          ? loanShape.getInterest()
+          : scheduledCharge.getChargeDefinition().getAmount();
+      blackhole.consume(PeriodChargeCalculator.chargeAmountPerPeriod(
+          scheduledCharge,
+          amountInPercentagePoints,
+          RUNNING_CALCULATION_PRECISION));
+    }
+  }
+}
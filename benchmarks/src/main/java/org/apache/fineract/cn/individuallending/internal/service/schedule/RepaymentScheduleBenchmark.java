@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.schedule;
+
+import org.apache.fineract.cn.individuallending.internal.service.LoanShape;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Myrle Krantz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepaymentScheduleBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Calendar {
+    private RepaymentCalendar repaymentCalendar;
+    private LocalDate middleOfTerm;
+
+    @Setup(Level.Trial)
+    public void setUp(final LoanShape loanShape) {
+      repaymentCalendar = RepaymentCalendar.build(
+          loanShape.getStartOfTerm(),
+          loanShape.getEndOfTerm(),
+          loanShape.getCaseParameters().getPaymentCycle());
+      middleOfTerm = loanShape.getStartOfTerm().plusDays(
+          ChronoUnit.DAYS.between(loanShape.getStartOfTerm(), loanShape.getEndOfTerm()) / 2);
+    }
+  }
+
+  @Benchmark
+  public RepaymentCalendar buildRepaymentCalendar(final LoanShape loanShape) {
+    return RepaymentCalendar.build(
+        loanShape.getStartOfTerm(),
+        loanShape.getEndOfTerm(),
+        loanShape.getCaseParameters().getPaymentCycle());
+  }
+
+  @Benchmark
+  public ScheduledAction getNextScheduledPayment(final LoanShape loanShape, final Calendar calendar) {
+    return ScheduledActionHelpers.getNextScheduledPayment(
+        loanShape.getStartOfTerm(),
+        calendar.middleOfTerm,
+        loanShape.getEndOfTerm(),
+        loanShape.getCaseParameters());
+  }
+
+  @Benchmark
+  public ScheduledAction getNextScheduledPaymentFromCalendar(final Calendar calendar) {
+    return calendar.repaymentCalendar.getNextScheduledPayment(calendar.middleOfTerm);
+  }
+
+  @Benchmark
+  public List<ScheduledAction> getHypotheticalScheduledActions(final Calendar calendar) {
+    return ScheduledActionHelpers.getHypotheticalScheduledActions(calendar.repaymentCalendar);
+  }
+
+  /**
+   * The number of times balance segments were read per call.  Charge ranges are resolved from an index, so this
+   * doesn't grow with the length of the term or the number of segmented charges.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class SegmentQueries {
+    public long segmentQueries;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      segmentQueries = 0;
+    }
+  }
+
+  @Benchmark
+  public List<ScheduledCharge> getScheduledCharges(final LoanShape loanShape, final SegmentQueries segmentQueries) {
+    final long segmentQueryCountBefore = loanShape.getSegmentQueryCount();
+    final List<ScheduledCharge> ret = loanShape.getScheduledChargesService().getScheduledCharges(
+        loanShape.getDataContextOfAction().getProductEntity().getIdentifier(),
+        loanShape.getScheduledActions());
+    segmentQueries.segmentQueries += loanShape.getSegmentQueryCount() - segmentQueryCountBefore;
+    return ret;
+  }
+
+  @Benchmark
+  public List<ScheduledCharge> getScheduledChargesWithoutSegmentIndex(
+      final LoanShape loanShape,
+      final SegmentQueries segmentQueries) {
+    final long segmentQueryCountBefore = loanShape.getSegmentQueryCount();
+    final List<ScheduledCharge> ret = loanShape.newScheduledChargesService().getScheduledCharges(
+        loanShape.getDataContextOfAction().getProductEntity().getIdentifier(),
+        loanShape.getScheduledActions());
+    segmentQueries.segmentQueries += loanShape.getSegmentQueryCount() - segmentQueryCountBefore;
+    return ret;
+  }
+}
@@ -22,19 +22,32 @@ import static org.apache.fineract.cn.portfolio.Fixture.MINOR_CURRENCY_UNIT_DIGIT
 
 import com.google.gson.Gson;
 import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseParameters;
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseSummary;
 import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPayment;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.ChargeIdentifiers;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.ChargeProportionalDesignator;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.LossProvisionConfiguration;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.LossProvisionStep;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.PortfolioAtRisk;
 import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.CaseImport;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatchProgress;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportResult;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportResultPage;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Repayment;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentBatchProgress;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentResult;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentResultPage;
 import org.apache.fineract.cn.individuallending.api.v1.events.IndividualLoanCommandEvent;
 import org.apache.fineract.cn.individuallending.api.v1.events.IndividualLoanEventConstants;
 import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
 import org.apache.fineract.cn.portfolio.api.v1.domain.BalanceSegmentSet;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CaseStatus;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Command;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CostComponent;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ImportParameters;
@@ -56,6 +69,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -63,7 +77,9 @@ import javax.annotation.Nullable;
 import org.apache.fineract.cn.accounting.api.v1.domain.AccountType;
 import org.apache.fineract.cn.accounting.api.v1.domain.Creditor;
 import org.apache.fineract.cn.accounting.api.v1.domain.Debtor;
+import org.apache.fineract.cn.accounting.api.v1.domain.JournalEntry;
 import org.apache.fineract.cn.api.util.ApiFactory;
+import org.apache.fineract.cn.api.util.NotFoundException;
 import org.apache.fineract.cn.lang.DateConverter;
 import org.apache.fineract.cn.rhythm.spi.v1.client.BeatListener;
 import org.apache.fineract.cn.rhythm.spi.v1.domain.BeatPublish;
@@ -72,6 +88,8 @@ import org.assertj.core.util.Sets;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 
 /**
  * @author Myrle Krantz
@@ -181,6 +199,26 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
     step8Close(today);
   }
 
+  @Test
+  public void missingCaseSummaryIsRebuilt() throws InterruptedException {
+    step1CreateProduct();
+    step2CreateCase();
+
+    //Only commands on a case give it a summary.
+    try {
+      individualLending.getCaseSummary(product.getIdentifier(), customerCase.getIdentifier());
+      Assert.fail("A case on which no command was executed yet shouldn't have a summary.");
+    }
+    catch (final NotFoundException ignored) {
+    }
+
+    individualLending.rebuildMissingCaseSummaries(product.getIdentifier());
+
+    final CaseSummary caseSummary = individualLending.getCaseSummary(product.getIdentifier(), customerCase.getIdentifier());
+    Assert.assertEquals(0, BigDecimal.ZERO.compareTo(caseSummary.getPrincipalBalance()));
+    Assert.assertNull(caseSummary.getNextDueDate());
+  }
+
   @Test
   public void cantChangeDeniedCase() throws InterruptedException {
     final LocalDateTime today = midnightToday();
@@ -356,6 +394,133 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
     step8Close(today);
   }
 
+  @Test
+  public void workflowWithTwoRepaymentsAtTheSameTime() throws InterruptedException {
+    final LocalDateTime today = midnightToday();
+
+    step1CreateProduct();
+    step2CreateCase();
+    step3OpenCase(today);
+    step4ApproveCase(today);
+    step5Disburse(
+        BigDecimal.valueOf(2_000_00, MINOR_CURRENCY_UNIT_DIGITS),
+        today,
+        UPPER_RANGE_DISBURSEMENT_FEE_ID,
+        BigDecimal.valueOf(20_00, MINOR_CURRENCY_UNIT_DIGITS),
+        BigDecimal.ZERO,
+        AccountingFixture.CUSTOMERS_DEPOSIT_ACCOUNT);
+    step6CalculateInterestAccrualAndCheckForLateness(midnightToday(), BigDecimal.ZERO);
+    final BigDecimal repayment = BigDecimal.valueOf(100_00, MINOR_CURRENCY_UNIT_DIGITS);
+    step7PaybackPartialAmount(
+        repayment,
+        today,
+        BigDecimal.ZERO,
+        repayment,
+        AccountingFixture.CUSTOMERS_DEPOSIT_ACCOUNT);
+    step7PaybackPartialAmount(
+        repayment,
+        today,
+        BigDecimal.ZERO,
+        repayment,
+        AccountingFixture.CUSTOMERS_DEPOSIT_ACCOUNT);
+
+    //Identical payments at the same time are still two bookings.
+    final ArgumentCaptor<JournalEntry> journalEntries = ArgumentCaptor.forClass(JournalEntry.class);
+    Mockito.verify(ledgerManager, Mockito.atLeastOnce()).createJournalEntry(journalEntries.capture());
+    final String paymentMessage = product.getIdentifier() + "." + customerCase.getIdentifier() + "." + Action.ACCEPT_PAYMENT.name();
+    final Set<String> paymentTransactionIdentifiers = journalEntries.getAllValues().stream()
+        .filter(journalEntry -> paymentMessage.equals(journalEntry.getMessage()))
+        .map(JournalEntry::getTransactionIdentifier)
+        .collect(Collectors.toSet());
+    Assert.assertEquals(2, paymentTransactionIdentifiers.size());
+  }
+
+  @Test
+  public void workflowWithRepaymentBatch() throws InterruptedException {
+    final LocalDateTime today = midnightToday();
+
+    step1CreateProduct();
+    step2CreateCase();
+    step3OpenCase(today);
+    step4ApproveCase(today);
+    step5Disburse(
+        BigDecimal.valueOf(2_000_00, MINOR_CURRENCY_UNIT_DIGITS),
+        today,
+        UPPER_RANGE_DISBURSEMENT_FEE_ID,
+        BigDecimal.valueOf(20_00, MINOR_CURRENCY_UNIT_DIGITS),
+        BigDecimal.ZERO,
+        AccountingFixture.CUSTOMERS_DEPOSIT_ACCOUNT);
+
+    final RepaymentBatch repaymentBatch = new RepaymentBatch();
+    repaymentBatch.setIdentifier("settlement" + customerCase.getIdentifier());
+    repaymentBatch.setRepayments(Arrays.asList(
+        repayment(customerCase.getIdentifier(), BigDecimal.valueOf(100_00, MINOR_CURRENCY_UNIT_DIGITS), today),
+        repayment("nonexistent", BigDecimal.valueOf(100_00, MINOR_CURRENCY_UNIT_DIGITS), today)));
+    individualLending.submitRepaymentBatch(product.getIdentifier(), repaymentBatch);
+    Assert.assertTrue(eventRecorder.wait(IndividualLoanEventConstants.ACCEPT_PAYMENT_INDIVIDUALLOAN_CASE,
+        new IndividualLoanCommandEvent(product.getIdentifier(), customerCase.getIdentifier(), DateConverter.toIsoString(today))));
+
+    final RepaymentBatchProgress progress = awaitRepaymentBatch(repaymentBatch.getIdentifier());
+    Assert.assertEquals(Integer.valueOf(2), progress.getRepaymentCount());
+    Assert.assertEquals(Long.valueOf(1), progress.getAcceptedCount());
+    Assert.assertEquals(Long.valueOf(1), progress.getFailedCount());
+
+    final RepaymentResultPage failed = individualLending.getRepaymentResults(product.getIdentifier(),
+        repaymentBatch.getIdentifier(), Collections.singleton(RepaymentResult.State.FAILED.name()), 0, 10);
+    Assert.assertEquals(1, failed.getElements().size());
+    Assert.assertEquals("nonexistent", failed.getElements().get(0).getCaseIdentifier());
+    Assert.assertNotNull(failed.getElements().get(0).getMessage());
+
+    //Submitting a finished batch again accepts none of its repayments a second time.
+    individualLending.submitRepaymentBatch(product.getIdentifier(), repaymentBatch);
+    Assert.assertEquals(Long.valueOf(1), awaitRepaymentBatch(repaymentBatch.getIdentifier()).getAcceptedCount());
+    final ArgumentCaptor<JournalEntry> journalEntries = ArgumentCaptor.forClass(JournalEntry.class);
+    Mockito.verify(ledgerManager, Mockito.atLeastOnce()).createJournalEntry(journalEntries.capture());
+    final String paymentMessage = product.getIdentifier() + "." + customerCase.getIdentifier() + "." + Action.ACCEPT_PAYMENT.name();
+    Assert.assertEquals(1, journalEntries.getAllValues().stream()
+        .filter(journalEntry -> paymentMessage.equals(journalEntry.getMessage()))
+        .map(JournalEntry::getTransactionIdentifier)
+        .distinct()
+        .count());
+  }
+
+  @Test
+  public void workflowWithImportBatch() throws InterruptedException {
+    final LocalDateTime initialDisbursalDate = LocalDateTime.of(2017,11,8,0,0);
+    final BigDecimal currentPrincipal = BigDecimal.valueOf(2_000_00, MINOR_CURRENCY_UNIT_DIGITS);
+
+    step1CreateProduct();
+    step2CreateCase();
+
+    final ImportBatch importBatch = new ImportBatch();
+    importBatch.setIdentifier("migration" + customerCase.getIdentifier());
+    importBatch.setImports(Arrays.asList(
+        caseImport(customerCase.getIdentifier(), importParametersForExistingAccounts(initialDisbursalDate, currentPrincipal)),
+        caseImport("nonexistent", importParametersForExistingAccounts(initialDisbursalDate, currentPrincipal))));
+    individualLending.submitImportBatch(product.getIdentifier(), importBatch);
+
+    final ImportBatchProgress progress = awaitImportBatch(importBatch.getIdentifier());
+    Assert.assertEquals(Integer.valueOf(2), progress.getCaseCount());
+    Assert.assertEquals(Long.valueOf(1), progress.getImportedCount());
+    Assert.assertEquals(Long.valueOf(1), progress.getFailedCount());
+
+    final ImportResultPage failed = individualLending.getImportResults(product.getIdentifier(),
+        importBatch.getIdentifier(), Collections.singleton(ImportResult.State.FAILED.name()), 0, 10);
+    Assert.assertEquals(1, failed.getElements().size());
+    Assert.assertEquals("nonexistent", failed.getElements().get(0).getCaseIdentifier());
+    Assert.assertNotNull(failed.getElements().get(0).getMessage());
+
+    final CaseStatus changedCaseStatus = portfolioManager.getCaseStatus(product.getIdentifier(), customerCase.getIdentifier());
+    Assert.assertEquals(Case.State.ACTIVE.name(), changedCaseStatus.getCurrentState());
+    Assert.assertEquals(DateConverter.toIsoString(initialDisbursalDate), changedCaseStatus.getStartOfTerm());
+    checkNextActionsCorrect(product.getIdentifier(), customerCase.getIdentifier(),
+        Action.APPLY_INTEREST, Action.MARK_LATE, Action.ACCEPT_PAYMENT, Action.DISBURSE, Action.MARK_IN_ARREARS, Action.WRITE_OFF, Action.CLOSE);
+
+    //Submitting a finished batch again imports none of its cases a second time.
+    individualLending.submitImportBatch(product.getIdentifier(), importBatch);
+    Assert.assertEquals(Long.valueOf(1), awaitImportBatch(importBatch.getIdentifier()).getImportedCount());
+  }
+
   @Test
   public void workflowWithNegativePaymentSize() throws InterruptedException {
     final LocalDateTime today = midnightToday();
@@ -540,6 +705,50 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
   }
 
   //Create product and set charges to fixed fees.
+  private Repayment repayment(
+      final String caseIdentifier,
+      final BigDecimal amount,
+      final LocalDateTime forDateTime) {
+    final Command command = new Command();
+    command.setOneTimeAccountAssignments(assignEntry(AccountingFixture.CUSTOMERS_DEPOSIT_ACCOUNT));
+    command.setPaymentSize(amount);
+    command.setCreatedOn(DateConverter.toIsoString(forDateTime));
+
+    final Repayment ret = new Repayment();
+    ret.setCaseIdentifier(caseIdentifier);
+    ret.setCommand(command);
+    return ret;
+  }
+
+  private RepaymentBatchProgress awaitRepaymentBatch(final String batchIdentifier) throws InterruptedException {
+    for (int i = 0; i < 20; i++) {
+      final RepaymentBatchProgress ret = individualLending.getRepaymentBatchProgress(product.getIdentifier(), batchIdentifier);
+      if (ret.getState().equals("FINISHED"))
+        return ret;
+      TimeUnit.MILLISECONDS.sleep(500);
+    }
+    Assert.fail("Repayment batch '" + batchIdentifier + "' didn't finish.");
+    return null;
+  }
+
+  private CaseImport caseImport(final String caseIdentifier, final ImportParameters importParameters) {
+    final CaseImport ret = new CaseImport();
+    ret.setCaseIdentifier(caseIdentifier);
+    ret.setImportParameters(importParameters);
+    return ret;
+  }
+
+  private ImportBatchProgress awaitImportBatch(final String batchIdentifier) throws InterruptedException {
+    for (int i = 0; i < 20; i++) {
+      final ImportBatchProgress ret = individualLending.getImportBatchProgress(product.getIdentifier(), batchIdentifier);
+      if (ret.getState().equals("FINISHED"))
+        return ret;
+      TimeUnit.MILLISECONDS.sleep(500);
+    }
+    Assert.fail("Import batch '" + batchIdentifier + "' didn't finish.");
+    return null;
+  }
+
   private void step1CreateProduct() throws InterruptedException {
     logger.info("step1CreateProduct");
     product = createProduct();
@@ -726,30 +935,7 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
     logger.info("step3IImportCaseWhenAccountsExist");
 
     final BigDecimal currentPrincipal = BigDecimal.valueOf(2_000_00, MINOR_CURRENCY_UNIT_DIGITS);
-
-    final AccountAssignment customerLoanPrincipalAccountAssignment = new AccountAssignment();
-    customerLoanPrincipalAccountAssignment.setDesignator(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL);
-    customerLoanPrincipalAccountAssignment.setAccountIdentifier(AccountingFixture.IMPORTED_CUSTOMER_LOAN_PRINCIPAL_ACCOUNT);
-    customerLoanPrincipalAccountAssignment.setAlternativeAccountNumber("external-system-sourced-customer-loan-principal-account-identifier");
-    final AccountAssignment customerLoanInterestAccountAssignment = new AccountAssignment();
-    customerLoanInterestAccountAssignment.setDesignator(AccountDesignators.CUSTOMER_LOAN_INTEREST);
-    customerLoanInterestAccountAssignment.setAccountIdentifier(AccountingFixture.IMPORTED_CUSTOMER_LOAN_INTEREST_ACCOUNT);
-    customerLoanInterestAccountAssignment.setAlternativeAccountNumber("external-system-sourced-customer-loan-interest-account-identifier");
-    final AccountAssignment customerLoanFeeAccountAssignment = new AccountAssignment();
-    customerLoanFeeAccountAssignment.setDesignator(AccountDesignators.CUSTOMER_LOAN_FEES);
-    customerLoanFeeAccountAssignment.setAccountIdentifier(AccountingFixture.IMPORTED_CUSTOMER_LOAN_FEES_ACCOUNT);
-    customerLoanFeeAccountAssignment.setAlternativeAccountNumber("external-system-sourced-customer-loan-fees-account-identifier");
-    final ArrayList<AccountAssignment> importAccountAssignments = new ArrayList<>();
-    importAccountAssignments.add(customerLoanPrincipalAccountAssignment);
-    importAccountAssignments.add(customerLoanInterestAccountAssignment);
-    importAccountAssignments.add(customerLoanFeeAccountAssignment);
-
-    final ImportParameters importParameters = new ImportParameters();
-    importParameters.setCaseAccountAssignments(importAccountAssignments);
-    importParameters.setPaymentSize(IMPORTED_NEXT_REPAYMENT_AMOUNT);
-    importParameters.setCreatedOn(DateConverter.toIsoString(forDateTime));
-    importParameters.setCurrentBalances(Collections.singletonMap(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, currentPrincipal));
-    importParameters.setStartOfTerm(DateConverter.toIsoString(forDateTime));
+    final ImportParameters importParameters = importParametersForExistingAccounts(forDateTime, currentPrincipal);
     portfolioManager.executeImportCommand(product.getIdentifier(), customerCase.getIdentifier(), importParameters);
 
     Assert.assertTrue(eventRecorder.wait(IndividualLoanEventConstants.IMPORT_INDIVIDUALLOAN_CASE, new IndividualLoanCommandEvent(product.getIdentifier(), customerCase.getIdentifier(), DateConverter.toIsoString(forDateTime))));
@@ -787,6 +973,35 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
         designatorsAssignedForCase.get(AccountDesignators.CUSTOMER_LOAN_FEES));
   }
 
+  private ImportParameters importParametersForExistingAccounts(
+      final LocalDateTime forDateTime,
+      final BigDecimal currentPrincipal) {
+    final AccountAssignment customerLoanPrincipalAccountAssignment = new AccountAssignment();
+    customerLoanPrincipalAccountAssignment.setDesignator(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL);
+    customerLoanPrincipalAccountAssignment.setAccountIdentifier(AccountingFixture.IMPORTED_CUSTOMER_LOAN_PRINCIPAL_ACCOUNT);
+    customerLoanPrincipalAccountAssignment.setAlternativeAccountNumber("external-system-sourced-customer-loan-principal-account-identifier");
+    final AccountAssignment customerLoanInterestAccountAssignment = new AccountAssignment();
+    customerLoanInterestAccountAssignment.setDesignator(AccountDesignators.CUSTOMER_LOAN_INTEREST);
+    customerLoanInterestAccountAssignment.setAccountIdentifier(AccountingFixture.IMPORTED_CUSTOMER_LOAN_INTEREST_ACCOUNT);
+    customerLoanInterestAccountAssignment.setAlternativeAccountNumber("external-system-sourced-customer-loan-interest-account-identifier");
+    final AccountAssignment customerLoanFeeAccountAssignment = new AccountAssignment();
+    customerLoanFeeAccountAssignment.setDesignator(AccountDesignators.CUSTOMER_LOAN_FEES);
+    customerLoanFeeAccountAssignment.setAccountIdentifier(AccountingFixture.IMPORTED_CUSTOMER_LOAN_FEES_ACCOUNT);
+    customerLoanFeeAccountAssignment.setAlternativeAccountNumber("external-system-sourced-customer-loan-fees-account-identifier");
+    final ArrayList<AccountAssignment> importAccountAssignments = new ArrayList<>();
+    importAccountAssignments.add(customerLoanPrincipalAccountAssignment);
+    importAccountAssignments.add(customerLoanInterestAccountAssignment);
+    importAccountAssignments.add(customerLoanFeeAccountAssignment);
+
+    final ImportParameters ret = new ImportParameters();
+    ret.setCaseAccountAssignments(importAccountAssignments);
+    ret.setPaymentSize(IMPORTED_NEXT_REPAYMENT_AMOUNT);
+    ret.setCreatedOn(DateConverter.toIsoString(forDateTime));
+    ret.setCurrentBalances(Collections.singletonMap(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, currentPrincipal));
+    ret.setStartOfTerm(DateConverter.toIsoString(forDateTime));
+    return ret;
+  }
+
 
   //Deny the case. Once this is done, no more actions are possible for the case.
   private void step4DenyCase(final LocalDateTime forDateTime) throws InterruptedException {
@@ -912,6 +1127,10 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
     productLossAllowance = provisionForLosses;
 
     updateBalanceMock();
+
+    final CaseSummary caseSummary = individualLending.getCaseSummary(product.getIdentifier(), customerCase.getIdentifier());
+    Assert.assertEquals(0, expectedCurrentPrincipal.compareTo(caseSummary.getPrincipalBalance()));
+    Assert.assertNotNull(caseSummary.getNextDueDate());
   }
 
   private void step6CalculateInterestAndCheckForLatenessForWeek(
@@ -1008,9 +1227,6 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
     Assert.assertTrue(this.eventRecorder.wait(org.apache.fineract.cn.rhythm.spi.v1.events.EventConstants.POST_PUBLISHEDBEAT,
         new BeatPublishEvent(EventConstants.DESTINATION, beatIdentifier, midnightTimeStamp)));
 
-    Assert.assertTrue(this.eventRecorder.wait(IndividualLoanEventConstants.CHECK_LATE_INDIVIDUALLOAN_CASE,
-        new IndividualLoanCommandEvent(product.getIdentifier(), customerCase.getIdentifier(), midnightTimeStamp)));
-
     Assert.assertTrue(eventRecorder.wait(IndividualLoanEventConstants.APPLY_INTEREST_INDIVIDUALLOAN_CASE,
         new IndividualLoanCommandEvent(product.getIdentifier(), customerCase.getIdentifier(), midnightTimeStamp)));
 
@@ -1063,6 +1279,10 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
           customerCase.getIdentifier(),
           Action.MARK_LATE);
       lateFees = lateFees.add(calculatedLateFee);
+
+      final PortfolioAtRisk portfolioAtRisk = individualLending.getPortfolioAtRisk(product.getIdentifier(), midnightTimeStamp);
+      Assert.assertEquals(Integer.valueOf(1), portfolioAtRisk.getBuckets().get(0).getDaysLate());
+      Assert.assertEquals(Long.valueOf(1), portfolioAtRisk.getBuckets().get(0).getCaseCount());
       productLossAllowance = productLossAllowance.add(provisionForLosses);
     }
     interestAccrued = interestAccrued.add(calculatedInterest);
@@ -1152,9 +1372,6 @@ public class TestAccountingInteractionInLoanWorkflow extends AbstractPortfolioTe
     Assert.assertTrue(this.eventRecorder.wait(org.apache.fineract.cn.rhythm.spi.v1.events.EventConstants.POST_PUBLISHEDBEAT,
         new BeatPublishEvent(EventConstants.DESTINATION, beatIdentifier, midnightTimeStamp)));
 
-    Assert.assertTrue(this.eventRecorder.wait(IndividualLoanEventConstants.CHECK_LATE_INDIVIDUALLOAN_CASE,
-        new IndividualLoanCommandEvent(product.getIdentifier(), customerCase.getIdentifier(), midnightTimeStamp)));
-
     Assert.assertTrue(eventRecorder.wait(IndividualLoanEventConstants.APPLY_INTEREST_INDIVIDUALLOAN_CASE,
         new IndividualLoanCommandEvent(product.getIdentifier(), customerCase.getIdentifier(), midnightTimeStamp)));
 
@@ -25,12 +25,17 @@ import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.Credi
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.api.v1.domain.CaseCursorPage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CasePage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Product;
 import org.apache.fineract.cn.portfolio.api.v1.events.CaseEvent;
 import org.apache.fineract.cn.portfolio.api.v1.events.EventConstants;
+import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -38,19 +43,48 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.persistence.EntityManagerFactory;
 import org.apache.fineract.cn.api.util.NotFoundException;
+import org.apache.fineract.cn.lang.DateConverter;
 import org.apache.fineract.cn.test.domain.TimeStampChecker;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.apache.fineract.cn.lang.config.TenantHeaderFilter.TENANT_HEADER;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * @author Myrle Krantz
  */
 public class TestCases extends AbstractPortfolioTest {
 
+  @SuppressWarnings("SpringAutowiredFieldsWarningInspection")
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @SuppressWarnings("SpringAutowiredFieldsWarningInspection")
+  @Autowired
+  private WebApplicationContext context;
+
+  private MockMvc mockMvc;
+
   public TestCases() { }
 
+  @Before
+  public void prepareMockMvc() {
+    mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+  }
+
   @Test
   public void shouldFailToCreateCaseForNonexistentProduct() throws InterruptedException {
     try {
@@ -303,4 +337,131 @@ public class TestCases extends AbstractPortfolioTest {
 
     Assert.assertEquals(expectedCaseIdentifiers, returnedCaseIdentifiers);
   }
+
+  @Test
+  public void shouldListCasesWithoutQueryingPerCase() throws InterruptedException {
+    final Product product = createAndEnableProduct();
+
+    for (int i = 0; i < 10; i++)
+      createCase(product.getIdentifier());
+
+    final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    try {
+      statistics.clear();
+      final CasePage casePage = portfolioManager.getAllCasesForProduct(product.getIdentifier(), false, 0, 10);
+      Assert.assertEquals(10, casePage.getElements().size());
+
+      //The page, the count, the product, the account assignments, and the parameters.
+      Assert.assertTrue("Listing cases took " + statistics.getPrepareStatementCount() + " queries.",
+          statistics.getPrepareStatementCount() <= 5);
+    }
+    finally {
+      statistics.setStatisticsEnabled(false);
+    }
+  }
+
+  @Test
+  public void shouldPageThroughCasesWithToken() throws InterruptedException {
+    final Product product = createAndEnableProduct();
+
+    final Set<String> created = new HashSet<>();
+    for (int i = 0; i < 7; i++)
+      created.add(createCase(product.getIdentifier()).getIdentifier());
+
+    final List<String> listed = new ArrayList<>();
+    String pageToken = null;
+    int pageCount = 0;
+    do {
+      final CaseCursorPage page = portfolioManager.getCasesForProduct(product.getIdentifier(), false, pageToken, 3, pageCount == 0);
+      if (pageCount == 0)
+        Assert.assertEquals(Long.valueOf(7), page.getTotalElements());
+      else
+        Assert.assertNull(page.getTotalElements());
+      page.getElements().forEach(x -> listed.add(x.getIdentifier()));
+      pageToken = page.getNextPageToken();
+      pageCount++;
+    } while (pageToken != null);
+
+    Assert.assertEquals(3, pageCount);
+    Assert.assertEquals(created.size(), listed.size());
+    Assert.assertEquals(created, new HashSet<>(listed));
+  }
+
+  @Test
+  public void shouldExportAllCasesOfProduct() throws Exception {
+    final Product product = createAndEnableProduct();
+    final Product otherProduct = createAndEnableProduct();
+
+    final Set<String> created = new HashSet<>();
+    for (int i = 0; i < 5; i++)
+      created.add(createCase(product.getIdentifier()).getIdentifier());
+    createCase(otherProduct.getIdentifier());
+
+    final MvcResult result = mockMvc.perform(get("/products/" + product.getIdentifier() + "/caseexport")
+        .param("state", Case.State.CREATED.name())
+        .header(TENANT_HEADER, tenantDataStoreContext.getTenantName()))
+        .andExpect(status().isOk())
+        .andReturn();
+    Assert.assertTrue(result.getResponse().getContentType().startsWith("application/x-ndjson"));
+    final List<Case> exported = exportedCases(result);
+    Assert.assertEquals(created, exported.stream().map(Case::getIdentifier).collect(Collectors.toSet()));
+    exported.forEach(x -> Assert.assertNotNull(x.getParameters()));
+
+    final MvcResult allStatesResult = mockMvc.perform(get("/products/" + product.getIdentifier() + "/caseexport")
+        .header(TENANT_HEADER, tenantDataStoreContext.getTenantName()))
+        .andExpect(status().isOk())
+        .andReturn();
+    Assert.assertEquals(created.size(), exportedCases(allStatesResult).size());
+
+    final MvcResult sinceTomorrowResult = mockMvc.perform(get("/products/" + product.getIdentifier() + "/caseexport")
+        .param("state", Case.State.CREATED.name())
+        .param("modifiedSince", DateConverter.toIsoString(LocalDateTime.now(Clock.systemUTC()).plusDays(1)))
+        .header(TENANT_HEADER, tenantDataStoreContext.getTenantName()))
+        .andExpect(status().isOk())
+        .andReturn();
+    Assert.assertTrue(exportedCases(sinceTomorrowResult).isEmpty());
+
+    final MvcResult activeResult = mockMvc.perform(get("/products/" + product.getIdentifier() + "/caseexport")
+        .param("state", Case.State.ACTIVE.name())
+        .header(TENANT_HEADER, tenantDataStoreContext.getTenantName()))
+        .andExpect(status().isOk())
+        .andReturn();
+    Assert.assertTrue(exportedCases(activeResult).isEmpty());
+  }
+
+  @Test
+  public void shouldNotExportCasesInInvalidState() throws Exception {
+    final Product product = createAndEnableProduct();
+
+    mockMvc.perform(get("/products/" + product.getIdentifier() + "/caseexport")
+        .param("state", "SLEEPING")
+        .header(TENANT_HEADER, tenantDataStoreContext.getTenantName()))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void shouldNotExportCasesModifiedSinceInvalidTime() throws Exception {
+    final Product product = createAndEnableProduct();
+
+    mockMvc.perform(get("/products/" + product.getIdentifier() + "/caseexport")
+        .param("modifiedSince", "yesterday")
+        .header(TENANT_HEADER, tenantDataStoreContext.getTenantName()))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotPageThroughCasesWithInvalidToken() throws InterruptedException {
+    final Product product = createAndEnableProduct();
+
+    portfolioManager.getCasesForProduct(product.getIdentifier(), false, "not a token", 3, false);
+  }
+
+  private static List<Case> exportedCases(final MvcResult result) throws UnsupportedEncodingException {
+    final Gson gson = new Gson();
+    return Arrays.stream(result.getResponse().getContentAsString().split("\n"))
+        .filter(line -> !line.isEmpty())
+        .map(line -> gson.fromJson(line, Case.class))
+        .collect(Collectors.toList());
+  }
 }
@@ -111,16 +111,6 @@ public class IndividualLoanCaseCommandEventListener {
     this.eventRecorder.event(tenant, IndividualLoanEventConstants.ACCEPT_PAYMENT_INDIVIDUALLOAN_CASE, payload, IndividualLoanCommandEvent.class);
   }
 
-  @JmsListener(
-      subscription = IndividualLoanEventConstants.DESTINATION,
-      destination = IndividualLoanEventConstants.DESTINATION,
-      selector = IndividualLoanEventConstants.SELECTOR_CHECK_LATE_INDIVIDUALLOAN_CASE
-  )
-  public void onCheckLate(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
-                          final String payload) {
-    this.eventRecorder.event(tenant, IndividualLoanEventConstants.CHECK_LATE_INDIVIDUALLOAN_CASE, payload, IndividualLoanCommandEvent.class);
-  }
-
   @JmsListener(
       subscription = IndividualLoanEventConstants.DESTINATION,
       destination = IndividualLoanEventConstants.DESTINATION,
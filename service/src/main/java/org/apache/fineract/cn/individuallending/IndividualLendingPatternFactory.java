@@ -28,13 +28,16 @@ import org.apache.fineract.cn.individuallending.internal.repository.CaseParamete
 import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersRepository;
 import org.apache.fineract.cn.individuallending.internal.repository.CreditWorthinessFactorType;
 import org.apache.fineract.cn.individuallending.internal.service.ChargeDefinitionService;
+import org.apache.fineract.cn.individuallending.internal.service.ChargeTotalsService;
 import org.apache.fineract.cn.individuallending.internal.service.DataContextOfAction;
 import org.apache.fineract.cn.individuallending.internal.service.DataContextService;
+import org.apache.fineract.cn.individuallending.internal.service.PlannedPaymentScheduleCache;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.AcceptPaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.ApplyInterestPaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.ApprovePaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.ClosePaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.DenyPaymentBuilderService;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.DesignatorTopology;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.DisbursePaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.MarkInArrearsPaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.MarkLatePaymentBuilderService;
@@ -44,6 +47,7 @@ import org.apache.fineract.cn.individuallending.internal.service.costcomponent.P
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.RealRunningBalances;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.RecoverPaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.WriteOffPaymentBuilderService;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Pattern;
@@ -57,6 +61,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
@@ -85,6 +90,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class IndividualLendingPatternFactory implements PatternFactory {
   final static private String INDIVIDUAL_LENDING_PACKAGE = "org.apache.fineract.cn.individuallending.api.v1";
   final static private Pattern INDIVIDUAL_LENDING_PATTERN;
+  final static private DesignatorTopology INDIVIDUAL_LENDING_TOPOLOGY;
 
   static {
     INDIVIDUAL_LENDING_PATTERN = new Pattern();
@@ -141,6 +147,7 @@ public class IndividualLendingPatternFactory implements PatternFactory {
         AccountDesignators.ENTRY,
         AccountType.LIABILITY.name()));
     INDIVIDUAL_LENDING_PATTERN.setAccountAssignmentsRequired(individualLendingRequiredAccounts);
+    INDIVIDUAL_LENDING_TOPOLOGY = DesignatorTopology.of(INDIVIDUAL_LENDING_PATTERN);
   }
 
 
@@ -148,6 +155,10 @@ public class IndividualLendingPatternFactory implements PatternFactory {
     return INDIVIDUAL_LENDING_PATTERN;
   }
 
+  public static DesignatorTopology individualLendingTopology() {
+    return INDIVIDUAL_LENDING_TOPOLOGY;
+  }
+
   private final CaseParametersRepository caseParametersRepository;
   private final DataContextService dataContextService;
   private final OpenPaymentBuilderService openPaymentBuilderService;
@@ -162,6 +173,9 @@ public class IndividualLendingPatternFactory implements PatternFactory {
   private final WriteOffPaymentBuilderService writeOffPaymentBuilderService;
   private final RecoverPaymentBuilderService recoverPaymentBuilderService;
   private final AccountingAdapter accountingAdapter;
+  private final ChargeTotalsService chargeTotalsService;
+  private final RepaymentCalendarCache repaymentCalendarCache;
+  private final PlannedPaymentScheduleCache plannedPaymentScheduleCache;
   private final CustomerManager customerManager;
   private final IndividualLendingCommandDispatcher individualLendingCommandDispatcher;
   private final Gson gson;
@@ -180,7 +194,10 @@ public class IndividualLendingPatternFactory implements PatternFactory {
       final MarkLatePaymentBuilderService markLatePaymentBuilderService,
       MarkInArrearsPaymentBuilderService markInArrearsBuilderService, final WriteOffPaymentBuilderService writeOffPaymentBuilderService,
       final RecoverPaymentBuilderService recoverPaymentBuilderService,
-      AccountingAdapter accountingAdapter, final CustomerManager customerManager,
+      AccountingAdapter accountingAdapter, final ChargeTotalsService chargeTotalsService,
+      final RepaymentCalendarCache repaymentCalendarCache,
+      final PlannedPaymentScheduleCache plannedPaymentScheduleCache,
+      final CustomerManager customerManager,
       final IndividualLendingCommandDispatcher individualLendingCommandDispatcher,
       @Qualifier(ServiceConstants.GSON_NAME) final Gson gson)
   {
@@ -198,6 +215,9 @@ public class IndividualLendingPatternFactory implements PatternFactory {
     this.writeOffPaymentBuilderService = writeOffPaymentBuilderService;
     this.recoverPaymentBuilderService = recoverPaymentBuilderService;
     this.accountingAdapter = accountingAdapter;
+    this.chargeTotalsService = chargeTotalsService;
+    this.repaymentCalendarCache = repaymentCalendarCache;
+    this.plannedPaymentScheduleCache = plannedPaymentScheduleCache;
 
     this.customerManager = customerManager;
     this.individualLendingCommandDispatcher = individualLendingCommandDispatcher;
@@ -299,6 +319,8 @@ public class IndividualLendingPatternFactory implements PatternFactory {
     oldCaseParameters.getCreditWorthinessFactors().addAll(newCreditWorthinessFactorEntities);
 
     caseParametersRepository.save(oldCaseParameters);
+    repaymentCalendarCache.invalidate(caseId);
+    plannedPaymentScheduleCache.invalidate(caseId);
   }
 
   @Override
@@ -309,6 +331,19 @@ public class IndividualLendingPatternFactory implements PatternFactory {
             .map(gson::toJson);
   }
 
+  @Override
+  public Map<Long, String> getParameters(final Collection<Long> caseIds, final int minorCurrencyUnitDigits) {
+    if (caseIds.isEmpty())
+      return Collections.emptyMap();
+
+    //Credit worthiness factors are fetched in the same query, so that mapping doesn't query once per case.
+    return caseParametersRepository.findWithCreditWorthinessFactorsByCaseIdIn(caseIds).stream()
+        .collect(Collectors.toMap(
+            CaseParametersEntity::getCaseId,
+            x -> gson.toJson(CaseParametersMapper.mapEntity(x, minorCurrencyUnitDigits)),
+            (x, y) -> x));
+  }
+
   @Override
   public Set<String> getNextActionsForState(final Case.State state) {
     return getAllowedNextActionsForState(state).stream().map(Enum::name).collect(Collectors.toSet());
@@ -380,8 +415,13 @@ public class IndividualLendingPatternFactory implements PatternFactory {
         throw ServiceException.internalError("Invalid action: ''{0}''.", action.name());
     }
 
+    //Balances in accounting are missing bookings of earlier commands which haven't been sent to it yet.
+    accountingAdapter.sendPendingBookings(
+        dataContextOfAction.getCustomerCaseEntity().getId(),
+        dataContextOfAction.getCompoundIdentifer());
     final RealRunningBalances runningBalances = new RealRunningBalances(
         accountingAdapter,
+        chargeTotalsService,
         dataContextOfAction);
 
     final PaymentBuilder paymentBuilder = paymentBuilderService.getPaymentBuilder(
@@ -19,6 +19,8 @@
 package org.apache.fineract.cn.individuallending.internal.command;
 
 import org.apache.fineract.cn.portfolio.api.v1.domain.Command;
+import java.util.Optional;
+import javax.annotation.Nullable;
 
 /**
  * @author Myrle Krantz
@@ -27,11 +29,25 @@ public class AcceptPaymentCommand {
   private final String productIdentifier;
   private final String caseIdentifier;
   private final Command command;
+  private final @Nullable String transactionUniqueifier;
 
   public AcceptPaymentCommand(final String productIdentifier, final String caseIdentifier, final Command command) {
+    this(productIdentifier, caseIdentifier, command, null);
+  }
+
+  /**
+   * @param transactionUniqueifier identifies the payment, for callers which must be able to tell later whether it
+   *                               was accepted.  A new one is generated if it is null.
+   */
+  public AcceptPaymentCommand(
+      final String productIdentifier,
+      final String caseIdentifier,
+      final Command command,
+      final @Nullable String transactionUniqueifier) {
     this.productIdentifier = productIdentifier;
     this.caseIdentifier = caseIdentifier;
     this.command = command;
+    this.transactionUniqueifier = transactionUniqueifier;
   }
 
   public String getProductIdentifier() {
@@ -46,6 +62,10 @@ public class AcceptPaymentCommand {
     return command;
   }
 
+  public Optional<String> getTransactionUniqueifier() {
+    return Optional.ofNullable(transactionUniqueifier);
+  }
+
   @Override
   public String toString() {
     return "AcceptPaymentCommand{" +
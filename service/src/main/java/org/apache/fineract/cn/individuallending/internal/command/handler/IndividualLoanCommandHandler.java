@@ -36,13 +36,15 @@ import org.apache.fineract.cn.individuallending.internal.command.MarkLateCommand
 import org.apache.fineract.cn.individuallending.internal.command.OpenCommand;
 import org.apache.fineract.cn.individuallending.internal.command.RecoverCommand;
 import org.apache.fineract.cn.individuallending.internal.command.WriteOffCommand;
-import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
 import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersRepository;
 import org.apache.fineract.cn.individuallending.internal.repository.LateCaseEntity;
 import org.apache.fineract.cn.individuallending.internal.repository.LateCaseRepository;
+import org.apache.fineract.cn.individuallending.internal.service.CaseCommandGuard;
+import org.apache.fineract.cn.individuallending.internal.service.CaseSummaryService;
+import org.apache.fineract.cn.individuallending.internal.service.ChargeTotalsService;
 import org.apache.fineract.cn.individuallending.internal.service.DataContextOfAction;
 import org.apache.fineract.cn.individuallending.internal.service.DataContextService;
-import org.apache.fineract.cn.individuallending.internal.service.DesignatorToAccountIdentifierMapper;
+import org.apache.fineract.cn.individuallending.internal.service.ImportActivationService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.AcceptPaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.ApplyInterestPaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.ApprovePaymentBuilderService;
@@ -57,16 +59,16 @@ import org.apache.fineract.cn.individuallending.internal.service.costcomponent.P
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.RealRunningBalances;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.RecoverPaymentBuilderService;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.WriteOffPaymentBuilderService;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledActionHelpers;
-import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CostComponent;
-import org.apache.fineract.cn.portfolio.service.internal.mapper.CaseMapper;
 import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandRepository;
 import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
 import org.apache.fineract.cn.portfolio.service.internal.repository.TaskInstanceRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountIdentifierAllocator;
 import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -108,10 +110,15 @@ public class IndividualLoanCommandHandler {
   private final WriteOffPaymentBuilderService writeOffPaymentBuilderService;
   private final RecoverPaymentBuilderService recoverPaymentBuilderService;
   private final AccountingAdapter accountingAdapter;
+  private final ChargeTotalsService chargeTotalsService;
+  private final RepaymentCalendarCache repaymentCalendarCache;
   private final CaseCommandRepository caseCommandRepository;
   private final TaskInstanceRepository taskInstanceRepository;
   private final CaseParametersRepository caseParametersRepository;
   private final LateCaseRepository lateCaseRepository;
+  private final CaseSummaryService caseSummaryService;
+  private final ImportActivationService importActivationService;
+  private final CaseCommandGuard caseCommandGuard;
 
   @Autowired
   public IndividualLoanCommandHandler(
@@ -129,10 +136,15 @@ public class IndividualLoanCommandHandler {
       final WriteOffPaymentBuilderService writeOffPaymentBuilderService,
       final RecoverPaymentBuilderService recoverPaymentBuilderService,
       final AccountingAdapter accountingAdapter,
+      final ChargeTotalsService chargeTotalsService,
+      final RepaymentCalendarCache repaymentCalendarCache,
       final CaseCommandRepository caseCommandRepository,
       final TaskInstanceRepository taskInstanceRepository,
       final CaseParametersRepository caseParametersRepository,
-      final LateCaseRepository lateCaseRepository) {
+      final LateCaseRepository lateCaseRepository,
+      final CaseSummaryService caseSummaryService,
+      final ImportActivationService importActivationService,
+      final CaseCommandGuard caseCommandGuard) {
     this.caseRepository = caseRepository;
     this.dataContextService = dataContextService;
     this.openPaymentBuilderService = openPaymentBuilderService;
@@ -147,18 +159,26 @@ public class IndividualLoanCommandHandler {
     this.writeOffPaymentBuilderService = writeOffPaymentBuilderService;
     this.recoverPaymentBuilderService = recoverPaymentBuilderService;
     this.accountingAdapter = accountingAdapter;
+    this.chargeTotalsService = chargeTotalsService;
+    this.repaymentCalendarCache = repaymentCalendarCache;
     this.caseCommandRepository = caseCommandRepository;
     this.taskInstanceRepository = taskInstanceRepository;
     this.caseParametersRepository = caseParametersRepository;
     this.lateCaseRepository = lateCaseRepository;
+    this.caseSummaryService = caseSummaryService;
+    this.importActivationService = importActivationService;
+    this.caseCommandGuard = caseCommandGuard;
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(
       selectorName = IndividualLoanEventConstants.SELECTOR_NAME,
       selectorValue = IndividualLoanEventConstants.OPEN_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final OpenCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> open(command));
+  }
+
+  private IndividualLoanCommandEvent open(final OpenCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -167,35 +187,23 @@ public class IndividualLoanCommandHandler {
 
     checkIfTasksAreOutstanding(dataContextOfAction, Action.OPEN);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder
         = openPaymentBuilderService.getPaymentBuilder(dataContextOfAction, BigDecimal.ZERO, CostComponentService.today(), runningBalances);
 
-
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        command.getCommand().getNote(),
-        command.getCommand().getCreatedOn(),
-        dataContextOfAction.getMessageForCharge(Action.OPEN),
-        Action.OPEN.getTransactionType());
-
     final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getCommand().getCreatedOn(),
-        customerCase.getId(),
-        Action.OPEN,
-        transactionUniqueifier);
-
-    //Only move to new state if book charges command was accepted.
     customerCase.setCurrentState(Case.State.PENDING.name());
     caseRepository.save(customerCase);
 
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        Action.OPEN,
+        Action.OPEN.getTransactionType(),
+        command.getCommand().getNote(),
+        command.getCommand().getCreatedOn());
+
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
   }
 
@@ -208,52 +216,35 @@ public class IndividualLoanCommandHandler {
   public IndividualLoanCommandEvent process(final ImportCommand command) throws InterruptedException {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
-    final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
-        productIdentifier, caseIdentifier, command.getImportParameters().getCaseAccountAssignments());
-    IndividualLendingPatternFactory.checkActionCanBeExecuted(Case.State.valueOf(dataContextOfAction.getCustomerCaseEntity().getCurrentState()), Action.IMPORT);
-
-    checkIfTasksAreOutstanding(dataContextOfAction, Action.IMPORT);
+    //Not repeated on conflicts, because the accounts created in accounting are not part of the transaction.
+    caseCommandGuard.lockUntilCompletion(productIdentifier, caseIdentifier);
+    final DataContextOfAction dataContextOfAction = importActivationService.checkedGetImportableDataContext(
+        productIdentifier, caseIdentifier, command.getImportParameters());
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    createAccounts(dataContextOfAction, designatorToAccountIdentifierMapper, command.getImportParameters().getCurrentBalances());
+    final AccountIdentifierAllocator identifierAllocator = accountingAdapter.createIdentifierAllocator();
+    accountingAdapter.awaitLedgerCreations(
+        importActivationService.startLedgerCreations(dataContextOfAction, identifierAllocator));
+    importActivationService.createAccounts(
+        dataContextOfAction, command.getImportParameters().getCurrentBalances(), identifierAllocator);
 
     final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getImportParameters().getStartOfTerm(),
-        customerCase.getId(),
-        Action.DISBURSE,
-        Optional.empty());
-
-    recordCommand(
-        command.getImportParameters().getCreatedOn(),
-        customerCase.getId(),
-        Action.IMPORT,
-        Optional.empty());
-
-
-    final LocalDate startOfTerm = DateConverter.fromIsoString(command.getImportParameters().getStartOfTerm()).toLocalDate();
-    final LocalDateTime endOfTerm = ScheduledActionHelpers.getRoughEndDate(startOfTerm, dataContextOfAction.getCaseParameters())
-        .atTime(LocalTime.MIDNIGHT);
-    customerCase.setStartOfTerm(startOfTerm.atTime(LocalTime.MIDNIGHT));
-    customerCase.setEndOfTerm(endOfTerm);
-    customerCase.setCurrentState(Case.State.ACTIVE.name());
+    importActivationService.activate(dataContextOfAction, command.getImportParameters(),
+        (action, when) -> recordCommand(when, customerCase.getId(), action, Optional.empty()));
     caseRepository.save(customerCase);
-
-    final CaseParametersEntity caseParameters = dataContextOfAction.getCaseParametersEntity();
-    caseParameters.setPaymentSize(command.getImportParameters().getPaymentSize());
-    caseParametersRepository.save(caseParameters);
+    caseParametersRepository.save(dataContextOfAction.getCaseParametersEntity());
 
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getImportParameters().getCreatedOn());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(
       selectorName = IndividualLoanEventConstants.SELECTOR_NAME,
       selectorValue = IndividualLoanEventConstants.DENY_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final DenyCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> deny(command));
+  }
+
+  private IndividualLoanCommandEvent deny(final DenyCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -262,48 +253,24 @@ public class IndividualLoanCommandHandler {
 
     checkIfTasksAreOutstanding(dataContextOfAction, Action.DENY);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder
         = denyPaymentBuilderService.getPaymentBuilder(dataContextOfAction, BigDecimal.ZERO, CostComponentService.today(), runningBalances);
 
-
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        command.getCommand().getNote(),
-        command.getCommand().getCreatedOn(),
-        dataContextOfAction.getMessageForCharge(Action.DENY),
-        Action.DENY.getTransactionType());
-
     final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getCommand().getCreatedOn(),
-        customerCase.getId(),
-        Action.DENY,
-        transactionUniqueifier);
-
     customerCase.setCurrentState(Case.State.CLOSED.name());
     caseRepository.save(customerCase);
 
-    return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
-  }
-
-  static class InterruptedInALambdaException extends RuntimeException {
-
-    private final InterruptedException interruptedException;
-
-    InterruptedInALambdaException(InterruptedException e) {
-      interruptedException = e;
-    }
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        Action.DENY,
+        Action.DENY.getTransactionType(),
+        command.getCommand().getNote(),
+        command.getCommand().getCreatedOn());
 
-    void throwWrappedException() throws InterruptedException {
-      throw interruptedException;
-    }
+    return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
   }
 
   @Transactional
@@ -315,50 +282,47 @@ public class IndividualLoanCommandHandler {
   {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
+    //Not repeated on conflicts, because the accounts created in accounting are not part of the transaction.
+    caseCommandGuard.lockUntilCompletion(productIdentifier, caseIdentifier);
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
         productIdentifier, caseIdentifier, command.getCommand().getOneTimeAccountAssignments());
     IndividualLendingPatternFactory.checkActionCanBeExecuted(Case.State.valueOf(dataContextOfAction.getCustomerCaseEntity().getCurrentState()), Action.APPROVE);
 
     checkIfTasksAreOutstanding(dataContextOfAction, Action.APPROVE);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-            = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    createAccounts(dataContextOfAction, designatorToAccountIdentifierMapper, Collections.emptyMap());
-
+    final AccountIdentifierAllocator identifierAllocator = accountingAdapter.createIdentifierAllocator();
+    accountingAdapter.awaitLedgerCreations(
+        importActivationService.startLedgerCreations(dataContextOfAction, identifierAllocator));
+    importActivationService.createAccounts(dataContextOfAction, Collections.emptyMap(), identifierAllocator);
+    caseRepository.save(dataContextOfAction.getCustomerCaseEntity());
 
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         approvePaymentBuilderService.getPaymentBuilder(dataContextOfAction, BigDecimal.ZERO, CostComponentService.today(), runningBalances);
 
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        command.getCommand().getNote(),
-        command.getCommand().getCreatedOn(),
-        dataContextOfAction.getMessageForCharge(Action.APPROVE),
-        Action.APPROVE.getTransactionType());
-
     final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getCommand().getCreatedOn(),
-        customerCase.getId(),
-        Action.APPROVE,
-        transactionUniqueifier);
-
-    //Only move to new state if book charges command was accepted.
     customerCase.setCurrentState(Case.State.APPROVED.name());
     caseRepository.save(customerCase);
 
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        Action.APPROVE,
+        Action.APPROVE.getTransactionType(),
+        command.getCommand().getNote(),
+        command.getCommand().getCreatedOn());
+
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(selectorName = IndividualLoanEventConstants.SELECTOR_NAME, selectorValue = IndividualLoanEventConstants.DISBURSE_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final DisburseCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> disburse(command));
+  }
+
+  private IndividualLoanCommandEvent disburse(final DisburseCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -369,31 +333,12 @@ public class IndividualLoanCommandHandler {
 
     final BigDecimal disbursalAmount = Optional.ofNullable(command.getCommand().getPaymentSize()).orElse(BigDecimal.ZERO);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         disbursePaymentBuilderService.getPaymentBuilder(dataContextOfAction, disbursalAmount, CostComponentService.today(), runningBalances);
 
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        command.getCommand().getNote(),
-        command.getCommand().getCreatedOn(),
-        dataContextOfAction.getMessageForCharge(Action.DISBURSE),
-        Action.DISBURSE.getTransactionType());
-
     final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getCommand().getCreatedOn(),
-        customerCase.getId(),
-        Action.DISBURSE,
-        transactionUniqueifier);
-
-    //TODO: Only move to new state if book charges command was accepted.
     if (Case.State.valueOf(dataContextOfAction.getCustomerCaseEntity().getCurrentState()) != Case.State.ACTIVE) {
       final LocalDate startOfTerm = DateConverter.fromIsoString(command.getCommand().getCreatedOn()).toLocalDate();
       final LocalDateTime endOfTerm = ScheduledActionHelpers.getRoughEndDate(startOfTerm, dataContextOfAction.getCaseParameters())
@@ -402,6 +347,7 @@ public class IndividualLoanCommandHandler {
       customerCase.setEndOfTerm(endOfTerm);
       customerCase.setCurrentState(Case.State.ACTIVE.name());
       caseRepository.save(customerCase);
+      repaymentCalendarCache.invalidate(customerCase.getId());
     }
     final BigDecimal currentBalance = runningBalances.getBalance(AccountDesignators.CUSTOMER_LOAN_GROUP).orElse(BigDecimal.ZERO);
 
@@ -412,15 +358,26 @@ public class IndividualLoanCommandHandler {
     dataContextOfAction.getCaseParametersEntity().setPaymentSize(newLoanPaymentSize);
     caseParametersRepository.save(dataContextOfAction.getCaseParametersEntity());
 
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        Action.DISBURSE,
+        Action.DISBURSE.getTransactionType(),
+        command.getCommand().getNote(),
+        command.getCommand().getCreatedOn());
+
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(
       selectorName = IndividualLoanEventConstants.SELECTOR_NAME,
       selectorValue = IndividualLoanEventConstants.APPLY_INTEREST_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final ApplyInterestCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> applyInterest(command));
+  }
+
+  private IndividualLoanCommandEvent applyInterest(final ApplyInterestCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -431,39 +388,31 @@ public class IndividualLoanCommandHandler {
       throw ServiceException.internalError(
           "End of term not set for active case ''{0}.{1}.''", productIdentifier, caseIdentifier);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         applyInterestPaymentBuilderService.getPaymentBuilder(dataContextOfAction, BigDecimal.ZERO, CostComponentService.today(), runningBalances);
 
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        "Applied interest on " + command.getForTime(),
-        command.getForTime(),
-        dataContextOfAction.getMessageForCharge(Action.APPLY_INTEREST),
-        Action.APPLY_INTEREST.getTransactionType());
-
-    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getForTime(),
-        customerCase.getId(),
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
         Action.APPLY_INTEREST,
-        transactionUniqueifier);
+        Action.APPLY_INTEREST.getTransactionType(),
+        "Applied interest on " + command.getForTime(),
+        command.getForTime());
 
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getForTime());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(
       selectorName = IndividualLoanEventConstants.SELECTOR_NAME,
       selectorValue = IndividualLoanEventConstants.ACCEPT_PAYMENT_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final AcceptPaymentCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> acceptPayment(command));
+  }
+
+  private IndividualLoanCommandEvent acceptPayment(final AcceptPaymentCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -477,11 +426,7 @@ public class IndividualLoanCommandHandler {
           "End of term not set for active case ''{0}.{1}.''", productIdentifier, caseIdentifier);
 
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         acceptPaymentBuilderService.getPaymentBuilder(
@@ -489,33 +434,30 @@ public class IndividualLoanCommandHandler {
             command.getCommand().getPaymentSize(),
             DateConverter.fromIsoString(command.getCommand().getCreatedOn()).toLocalDate(), runningBalances);
 
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        command.getCommand().getNote(),
-        command.getCommand().getCreatedOn(),
-        dataContextOfAction.getMessageForCharge(Action.ACCEPT_PAYMENT),
-        Action.ACCEPT_PAYMENT.getTransactionType());
-
-    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getCommand().getCreatedOn(),
-        customerCase.getId(),
-        Action.ACCEPT_PAYMENT,
-        transactionUniqueifier);
-
     //TODO: Should this be more sophisticated?  Take into account what the payment amount was?
     markCaseNotLate(dataContextOfAction);
 
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        Action.ACCEPT_PAYMENT,
+        Action.ACCEPT_PAYMENT.getTransactionType(),
+        command.getCommand().getNote(),
+        command.getCommand().getCreatedOn(),
+        command.getTransactionUniqueifier().orElseGet(AccountingAdapter::newTransactionUniqueifier));
+
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(
       selectorName = IndividualLoanEventConstants.SELECTOR_NAME,
       selectorValue = IndividualLoanEventConstants.MARK_LATE_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final MarkLateCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> markLate(command));
+  }
+
+  private IndividualLoanCommandEvent markLate(final MarkLateCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -528,42 +470,34 @@ public class IndividualLoanCommandHandler {
       throw ServiceException.internalError(
           "End of term not set for active case ''{0}.{1}.''", productIdentifier, caseIdentifier);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         markLatePaymentBuilderService.getPaymentBuilder(dataContextOfAction, BigDecimal.ZERO, DateConverter.fromIsoString(command.getForTime()).toLocalDate(),
             runningBalances);
 
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        "Marked late on " + command.getForTime(),
-        command.getForTime(),
-        dataContextOfAction.getMessageForCharge(Action.MARK_LATE),
-        Action.MARK_LATE.getTransactionType());
-
-    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
+    markCaseLate(dataContextOfAction, command.getForTime());
 
-    recordCommand(
-        command.getForTime(),
-        customerCase.getId(),
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
         Action.MARK_LATE,
-        transactionUniqueifier);
-
-    markCaseLate(dataContextOfAction, command.getForTime());
+        Action.MARK_LATE.getTransactionType(),
+        "Marked late on " + command.getForTime(),
+        command.getForTime());
 
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getForTime());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(
       selectorName = IndividualLoanEventConstants.SELECTOR_NAME,
       selectorValue = IndividualLoanEventConstants.MARK_IN_ARREARS_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final MarkInArrearsCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> markInArrears(command));
+  }
+
+  private IndividualLoanCommandEvent markInArrears(final MarkInArrearsCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -576,11 +510,7 @@ public class IndividualLoanCommandHandler {
       throw ServiceException.internalError(
           "End of term not set for active case ''{0}.{1}.''", productIdentifier, caseIdentifier);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         markInArrearsPaymentBuilderService.getPaymentBuilder(
@@ -589,28 +519,24 @@ public class IndividualLoanCommandHandler {
             DateConverter.fromIsoString(command.getForTime()).toLocalDate(),
             runningBalances);
 
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        "Marked in arrears on " + command.getForTime(),
-        command.getForTime(),
-        dataContextOfAction.getMessageForCharge(Action.MARK_IN_ARREARS),
-        Action.MARK_IN_ARREARS.getTransactionType());
-
-    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getForTime(),
-        customerCase.getId(),
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
         Action.MARK_IN_ARREARS,
-        transactionUniqueifier);
+        Action.MARK_IN_ARREARS.getTransactionType(),
+        "Marked in arrears on " + command.getForTime(),
+        command.getForTime());
 
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getForTime());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(selectorName = IndividualLoanEventConstants.SELECTOR_NAME, selectorValue = IndividualLoanEventConstants.WRITE_OFF_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final WriteOffCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> writeOff(command));
+  }
+
+  private IndividualLoanCommandEvent writeOff(final WriteOffCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -618,11 +544,8 @@ public class IndividualLoanCommandHandler {
     IndividualLendingPatternFactory.checkActionCanBeExecuted(Case.State.valueOf(dataContextOfAction.getCustomerCaseEntity().getCurrentState()), Action.WRITE_OFF);
 
     checkIfTasksAreOutstanding(dataContextOfAction, Action.WRITE_OFF);
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         writeOffPaymentBuilderService.getPaymentBuilder(
@@ -630,31 +553,28 @@ public class IndividualLoanCommandHandler {
             command.getCommand().getPaymentSize(),
             DateConverter.fromIsoString(command.getCommand().getCreatedOn()).toLocalDate(), runningBalances);
 
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        command.getCommand().getNote(),
-        command.getCommand().getCreatedOn(),
-        dataContextOfAction.getMessageForCharge(Action.WRITE_OFF),
-        Action.WRITE_OFF.getTransactionType());
-
     final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getCommand().getCreatedOn(),
-        customerCase.getId(),
-        Action.WRITE_OFF,
-        transactionUniqueifier);
-
     customerCase.setCurrentState(Case.State.CLOSED.name());
     caseRepository.save(customerCase);
 
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        Action.WRITE_OFF,
+        Action.WRITE_OFF.getTransactionType(),
+        command.getCommand().getNote(),
+        command.getCommand().getCreatedOn());
+
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(selectorName = IndividualLoanEventConstants.SELECTOR_NAME, selectorValue = IndividualLoanEventConstants.CLOSE_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final CloseCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> close(command));
+  }
+
+  private IndividualLoanCommandEvent close(final CloseCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -663,33 +583,33 @@ public class IndividualLoanCommandHandler {
 
     checkIfTasksAreOutstanding(dataContextOfAction, Action.CLOSE);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         closePaymentBuilderService.getPaymentBuilder(dataContextOfAction, BigDecimal.ZERO, CostComponentService.today(), runningBalances);
 
-    final Optional<String> transactionIdentifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        command.getCommand().getNote(),
-        command.getCommand().getCreatedOn(),
-        dataContextOfAction.getMessageForCharge(Action.CLOSE),
-        Action.CLOSE.getTransactionType());
-
     final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
     customerCase.setCurrentState(Case.State.CLOSED.name());
     caseRepository.save(customerCase);
 
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        Action.CLOSE,
+        Action.CLOSE.getTransactionType(),
+        command.getCommand().getNote(),
+        command.getCommand().getCreatedOn());
+
     return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
   }
 
-  @Transactional
   @CommandHandler(logStart = CommandLogLevel.INFO, logFinish = CommandLogLevel.INFO)
   @EventEmitter(selectorName = IndividualLoanEventConstants.SELECTOR_NAME, selectorValue = IndividualLoanEventConstants.RECOVER_INDIVIDUALLOAN_CASE)
   public IndividualLoanCommandEvent process(final RecoverCommand command) {
+    return caseCommandGuard.execute(command.getProductIdentifier(), command.getCaseIdentifier(), () -> recover(command));
+  }
+
+  private IndividualLoanCommandEvent recover(final RecoverCommand command) {
     final String productIdentifier = command.getProductIdentifier();
     final String caseIdentifier = command.getCaseIdentifier();
     final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
@@ -698,76 +618,24 @@ public class IndividualLoanCommandHandler {
 
     checkIfTasksAreOutstanding(dataContextOfAction, Action.RECOVER);
 
-    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
-        = new DesignatorToAccountIdentifierMapper(dataContextOfAction);
-    final RealRunningBalances runningBalances = new RealRunningBalances(
-        accountingAdapter,
-        dataContextOfAction);
+    final RealRunningBalances runningBalances = getRunningBalances(dataContextOfAction);
 
     final PaymentBuilder paymentBuilder =
         recoverPaymentBuilderService.getPaymentBuilder(dataContextOfAction, BigDecimal.ZERO, CostComponentService.today(), runningBalances);
 
-    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(paymentBuilder.getBalanceAdjustments(),
-        designatorToAccountIdentifierMapper,
-        command.getCommand().getNote(),
-        command.getCommand().getCreatedOn(),
-        dataContextOfAction.getMessageForCharge(Action.RECOVER),
-        Action.CLOSE.getTransactionType());
-
     final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
-
-    recordCommand(
-        command.getCommand().getCreatedOn(),
-        customerCase.getId(),
-        Action.RECOVER,
-        transactionUniqueifier);
-
     customerCase.setCurrentState(Case.State.CLOSED.name());
     caseRepository.save(customerCase);
 
-    return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
-  }
-
-  private void createAccounts(
-      final DataContextOfAction dataContextOfAction,
-      final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper,
-      final Map<String, BigDecimal> currentBalances) throws InterruptedException
-  {
-    //Create the needed account assignments for groups and persist them for the case.
-    try {
-      designatorToAccountIdentifierMapper.getGroupsNeedingLedgers()
-          .map(groupNeedingLedger -> {
-            try {
-              final String createdLedgerIdentifier = accountingAdapter.createLedger(
-                  dataContextOfAction.getCaseParametersEntity().getCustomerIdentifier(),
-                  groupNeedingLedger.getGroupName(),
-                  groupNeedingLedger.getParentLedger());
-              return new AccountAssignment(groupNeedingLedger.getGroupName(), createdLedgerIdentifier);
-            } catch (InterruptedException e) {
-              throw new InterruptedInALambdaException(e);
-            }
-          })
-          .map(accountAssignment -> CaseMapper.map(accountAssignment, dataContextOfAction.getCustomerCaseEntity()))
-          .forEach(caseAccountAssignmentEntity -> dataContextOfAction.getCustomerCaseEntity().getAccountAssignments().add(caseAccountAssignmentEntity));
-    }
-    catch (final InterruptedInALambdaException e) {
-      e.throwWrappedException();
-    }
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        Action.RECOVER,
+        Action.CLOSE.getTransactionType(),
+        command.getCommand().getNote(),
+        command.getCommand().getCreatedOn());
 
-    //Create the needed account assignments and persist them for the case.
-    designatorToAccountIdentifierMapper.getLedgersNeedingAccounts()
-        .map(ledger -> {
-          final BigDecimal currentBalance = currentBalances.getOrDefault(ledger.getDesignator(), BigDecimal.ZERO);
-          return new AccountAssignment(ledger.getDesignator(),
-              accountingAdapter.createOrFindCaseAccountForLedgerAssignment(
-                  dataContextOfAction.getCaseParametersEntity().getCustomerIdentifier(),
-                  ledger,
-                  currentBalance));})
-        .map(accountAssignment -> CaseMapper.map(accountAssignment, dataContextOfAction.getCustomerCaseEntity()))
-        .forEach(caseAccountAssignmentEntity ->
-            dataContextOfAction.getCustomerCaseEntity().getAccountAssignments().add(caseAccountAssignmentEntity)
-        );
-    caseRepository.save(dataContextOfAction.getCustomerCaseEntity());
+    return new IndividualLoanCommandEvent(productIdentifier, caseIdentifier, command.getCommand().getCreatedOn());
   }
 
   private Map<String, BigDecimal> getRequestedChargeAmounts(final @Nullable List<CostComponent> costComponents) {
@@ -792,6 +660,78 @@ public class IndividualLoanCommandHandler {
           action.name(), productIdentifier, caseIdentifier);
   }
 
+  private RealRunningBalances getRunningBalances(final DataContextOfAction dataContextOfAction) {
+    //Balances in accounting are missing bookings of earlier commands which haven't been sent to it yet.
+    accountingAdapter.sendPendingBookings(
+        dataContextOfAction.getCustomerCaseEntity().getId(),
+        dataContextOfAction.getCompoundIdentifer());
+    return new RealRunningBalances(
+        accountingAdapter,
+        chargeTotalsService,
+        dataContextOfAction,
+        true);
+  }
+
+  /**
+   * Books the balance adjustments of a command, keeps the charge totals and the summary of the case up to date with
+   * them, and records the command.  The command's own changes to the case must already have been made, because the
+   * summary is partly derived from them.
+   */
+  private void book(
+      final DataContextOfAction dataContextOfAction,
+      final RealRunningBalances runningBalances,
+      final PaymentBuilder paymentBuilder,
+      final Action action,
+      final String transactionType,
+      final String note,
+      final String when) {
+    book(dataContextOfAction,
+        runningBalances,
+        paymentBuilder,
+        action,
+        transactionType,
+        note,
+        when,
+        AccountingAdapter.newTransactionUniqueifier());
+  }
+
+  private void book(
+      final DataContextOfAction dataContextOfAction,
+      final RealRunningBalances runningBalances,
+      final PaymentBuilder paymentBuilder,
+      final Action action,
+      final String transactionType,
+      final String note,
+      final String when,
+      final String newTransactionUniqueifier) {
+    final Optional<String> transactionUniqueifier = accountingAdapter.bookCharges(
+        dataContextOfAction.getCustomerCaseEntity().getId(),
+        paymentBuilder.getBalanceAdjustments(),
+        dataContextOfAction.getDesignatorToAccountIdentifierMapper(),
+        note,
+        when,
+        dataContextOfAction.getMessageForCharge(action),
+        transactionType,
+        newTransactionUniqueifier);
+    chargeTotalsService.recordBooking(dataContextOfAction,
+        paymentBuilder.getBalanceAdjustments(),
+        dataContextOfAction.getDesignatorToAccountIdentifierMapper(),
+        action,
+        when);
+
+    recordCommand(
+        when,
+        dataContextOfAction.getCustomerCaseEntity().getId(),
+        action,
+        transactionUniqueifier);
+
+    caseSummaryService.recordAction(dataContextOfAction,
+        runningBalances,
+        paymentBuilder.getBalanceAdjustments(),
+        action,
+        when);
+  }
+
   private void recordCommand(
       final String when,
       final Long caseId,
@@ -55,6 +55,7 @@ public class CaseParametersMapper {
     ret.setPaymentCycleAlignmentMonth(instance.getPaymentCycle().getAlignmentMonth());
     ret.setCreditWorthinessFactors(mapSnapshotsToFactors(instance.getCreditWorthinessSnapshots(), ret));
     ret.setPaymentSize(BigDecimal.ONE.negate()); //semaphore for not yet set.
+    ret.setChargeTotalsComplete(true); //Nothing has been booked yet, so every charge will be counted.
 
     return ret;
   }
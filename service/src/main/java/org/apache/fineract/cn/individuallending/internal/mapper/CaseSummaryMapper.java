@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.mapper;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseSummary;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryEntity;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.apache.fineract.cn.lang.DateConverter;
+
+/**
+ * @author Myrle Krantz
+ */
+public interface CaseSummaryMapper {
+  static CaseSummary map(final CaseSummaryEntity entity, final int minorCurrencyUnitDigits) {
+    final CaseSummary ret = new CaseSummary();
+    ret.setPrincipalBalance(entity.getPrincipalBalance().setScale(minorCurrencyUnitDigits, BigDecimal.ROUND_HALF_EVEN));
+    ret.setInterestBalance(entity.getInterestBalance().setScale(minorCurrencyUnitDigits, BigDecimal.ROUND_HALF_EVEN));
+    ret.setFeesBalance(entity.getFeesBalance().setScale(minorCurrencyUnitDigits, BigDecimal.ROUND_HALF_EVEN));
+    ret.setPaymentSize(Optional.ofNullable(entity.getPaymentSize())
+        .map(x -> x.setScale(minorCurrencyUnitDigits, BigDecimal.ROUND_HALF_EVEN))
+        .orElse(null));
+    ret.setLateSince(mapDate(entity.getLateSince()));
+    ret.setNextDueDate(mapDate(entity.getNextDueDate()));
+    ret.setLastPaymentDate(mapDate(entity.getLastPaymentOn()));
+    ret.setLastModifiedOn(mapDate(entity.getLastModifiedOn()));
+    return ret;
+  }
+
+  static String mapDate(final LocalDateTime dateTime) {
+    return dateTime == null ? null : DateConverter.toIsoString(dateTime);
+  }
+}
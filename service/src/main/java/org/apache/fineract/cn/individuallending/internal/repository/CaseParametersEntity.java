@@ -18,8 +18,11 @@
  */
 package org.apache.fineract.cn.individuallending.internal.repository;
 
+import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 import java.util.Set;
@@ -76,6 +79,22 @@ public class CaseParametersEntity {
   @Column(name = "payment_size")
   private BigDecimal paymentSize;
 
+  /** The time of the most recent lateness check for which the case was found to be current.
+   */
+  @Column(name = "lateness_checked_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime latenessCheckedOn;
+
+  /** True if every charge booked for this case has been counted in the charge totals.  False for cases
+   * which were already underway when the charge totals were introduced.
+   */
+  @Column(name = "charge_totals_complete")
+  private boolean chargeTotalsComplete;
+
+  @Version
+  @Column(name = "version")
+  private Long version;
+
   public CaseParametersEntity() {
   }
 
@@ -191,6 +210,30 @@ public class CaseParametersEntity {
     this.paymentSize = paymentSize;
   }
 
+  public LocalDateTime getLatenessCheckedOn() {
+    return latenessCheckedOn;
+  }
+
+  public void setLatenessCheckedOn(LocalDateTime latenessCheckedOn) {
+    this.latenessCheckedOn = latenessCheckedOn;
+  }
+
+  public boolean isChargeTotalsComplete() {
+    return chargeTotalsComplete;
+  }
+
+  public void setChargeTotalsComplete(boolean chargeTotalsComplete) {
+    this.chargeTotalsComplete = chargeTotalsComplete;
+  }
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -21,9 +21,15 @@ package org.apache.fineract.cn.individuallending.internal.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -34,5 +40,17 @@ import java.util.Optional;
 public interface CaseParametersRepository extends JpaRepository<CaseParametersEntity, Long> {
   Optional<CaseParametersEntity> findByCaseId(Long id);
 
+  List<CaseParametersEntity> findByCaseIdIn(Collection<Long> caseIds);
+
+  @Query("SELECT DISTINCT t FROM CaseParametersEntity t LEFT JOIN FETCH t.creditWorthinessFactors WHERE t.caseId IN :caseIds")
+  List<CaseParametersEntity> findWithCreditWorthinessFactorsByCaseIdIn(@Param("caseIds") Collection<Long> caseIds);
+
   Page<CaseParametersEntity> findByCustomerIdentifier(String customerIdentifier, Pageable pageable);
+
+  //A bulk update leaves the version as it is, so that a lateness check never conflicts with a command on the case.
+  @Modifying
+  @Query("UPDATE CaseParametersEntity t SET t.latenessCheckedOn = :latenessCheckedOn WHERE t.caseId IN :caseIds")
+  int updateLatenessCheckedOn(
+      @Param("caseIds") Collection<Long> caseIds,
+      @Param("latenessCheckedOn") LocalDateTime latenessCheckedOn);
 }
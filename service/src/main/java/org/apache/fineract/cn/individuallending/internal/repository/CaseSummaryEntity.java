@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
+
+/**
+ * The balances and dates shown for a loan, kept up to date by the commands which change them, so that
+ * they can be read without asking accounting.
+ *
+ * @author Myrle Krantz
+ */
+@Entity
+@Table(name = "bastet_il_case_summaries")
+public class CaseSummaryEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+
+  @Column(name = "case_id")
+  private Long caseId;
+
+  @Column(name = "principal_balance")
+  private BigDecimal principalBalance;
+
+  @Column(name = "interest_balance")
+  private BigDecimal interestBalance;
+
+  @Column(name = "fees_balance")
+  private BigDecimal feesBalance;
+
+  @Column(name = "payment_size")
+  private BigDecimal paymentSize;
+
+  @Column(name = "late_since")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime lateSince;
+
+  /** The next repayment date as of the last command.  Interest is applied daily to active cases, so this is at
+   * most a day behind.
+   */
+  @Column(name = "next_due_date")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime nextDueDate;
+
+  @Column(name = "last_payment_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime lastPaymentOn;
+
+  @Column(name = "last_modified_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime lastModifiedOn;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getCaseId() {
+    return caseId;
+  }
+
+  public void setCaseId(Long caseId) {
+    this.caseId = caseId;
+  }
+
+  public BigDecimal getPrincipalBalance() {
+    return principalBalance;
+  }
+
+  public void setPrincipalBalance(BigDecimal principalBalance) {
+    this.principalBalance = principalBalance;
+  }
+
+  public BigDecimal getInterestBalance() {
+    return interestBalance;
+  }
+
+  public void setInterestBalance(BigDecimal interestBalance) {
+    this.interestBalance = interestBalance;
+  }
+
+  public BigDecimal getFeesBalance() {
+    return feesBalance;
+  }
+
+  public void setFeesBalance(BigDecimal feesBalance) {
+    this.feesBalance = feesBalance;
+  }
+
+  public BigDecimal getPaymentSize() {
+    return paymentSize;
+  }
+
+  public void setPaymentSize(BigDecimal paymentSize) {
+    this.paymentSize = paymentSize;
+  }
+
+  public LocalDateTime getLateSince() {
+    return lateSince;
+  }
+
+  public void setLateSince(LocalDateTime lateSince) {
+    this.lateSince = lateSince;
+  }
+
+  public LocalDateTime getNextDueDate() {
+    return nextDueDate;
+  }
+
+  public void setNextDueDate(LocalDateTime nextDueDate) {
+    this.nextDueDate = nextDueDate;
+  }
+
+  public LocalDateTime getLastPaymentOn() {
+    return lastPaymentOn;
+  }
+
+  public void setLastPaymentOn(LocalDateTime lastPaymentOn) {
+    this.lastPaymentOn = lastPaymentOn;
+  }
+
+  public LocalDateTime getLastModifiedOn() {
+    return lastModifiedOn;
+  }
+
+  public void setLastModifiedOn(LocalDateTime lastModifiedOn) {
+    this.lastModifiedOn = lastModifiedOn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CaseSummaryEntity that = (CaseSummaryEntity) o;
+    return Objects.equals(caseId, that.caseId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(caseId);
+  }
+}
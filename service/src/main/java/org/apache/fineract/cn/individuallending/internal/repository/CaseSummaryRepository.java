@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author Myrle Krantz
+ */
+@Repository
+public interface CaseSummaryRepository extends JpaRepository<CaseSummaryEntity, Long> {
+  Optional<CaseSummaryEntity> findByCaseId(Long caseId);
+  List<CaseSummaryEntity> findByCaseIdIn(Collection<Long> caseIds);
+
+  @Query("SELECT t FROM CaseEntity t WHERE t.productIdentifier = :productIdentifier AND t.id > :afterId" +
+      " AND NOT EXISTS (SELECT s FROM CaseSummaryEntity s WHERE s.caseId = t.id) ORDER BY t.id")
+  List<CaseEntity> findCasesWithoutSummary(
+      @Param("productIdentifier") String productIdentifier,
+      @Param("afterId") Long afterId,
+      Pageable pageable);
+}
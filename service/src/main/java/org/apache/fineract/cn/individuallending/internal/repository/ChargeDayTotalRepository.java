@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * @author Myrle Krantz
+ */
+@Repository
+public interface ChargeDayTotalRepository extends JpaRepository<ChargeDayTotalEntity, Long> {
+  Optional<ChargeDayTotalEntity> findByCaseIdAndDesignatorAndActionNameAndBookedOn(
+      Long caseId, String designator, String actionName, LocalDateTime bookedOn);
+
+  /**
+   * @return null if nothing was booked on or after since.
+   */
+  @Query("SELECT SUM(t.total) FROM ChargeDayTotalEntity t " +
+      "WHERE t.caseId = :caseId AND t.designator = :designator AND t.actionName = :actionName AND t.bookedOn >= :since")
+  BigDecimal sumSince(
+      @Param("caseId") Long caseId,
+      @Param("designator") String designator,
+      @Param("actionName") String actionName,
+      @Param("since") LocalDateTime since);
+
+  @Modifying
+  @Query("DELETE FROM ChargeDayTotalEntity t " +
+      "WHERE t.caseId = :caseId AND t.designator = :designator AND t.actionName = :actionName")
+  int deleteByCaseIdAndDesignatorAndActionName(
+      @Param("caseId") Long caseId,
+      @Param("designator") String designator,
+      @Param("actionName") String actionName);
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
+
+/**
+ * @author Myrle Krantz
+ */
+@Entity
+@Table(name = "bastet_il_charge_totals")
+public class ChargeTotalEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+
+  @Column(name = "case_id")
+  private Long caseId;
+
+  @Column(name = "designator")
+  private String designator;
+
+  @Column(name = "action_name")
+  private String actionName;
+
+  /** The sum of the amounts booked to the account behind the designator for the action, counting only
+   * entries with a transaction date on or after countedSince.
+   */
+  @Column(name = "total")
+  private BigDecimal total;
+
+  @Column(name = "counted_since")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime countedSince;
+
+  @Column(name = "last_booked_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime lastBookedOn;
+
+  /** If set, every booking counted in the total with a transaction date on or after this day is also counted in
+   * the day totals of the case.
+   */
+  @Column(name = "counted_by_day_since")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime countedByDaySince;
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getCaseId() {
+    return caseId;
+  }
+
+  public void setCaseId(Long caseId) {
+    this.caseId = caseId;
+  }
+
+  public String getDesignator() {
+    return designator;
+  }
+
+  public void setDesignator(String designator) {
+    this.designator = designator;
+  }
+
+  public String getActionName() {
+    return actionName;
+  }
+
+  public void setActionName(String actionName) {
+    this.actionName = actionName;
+  }
+
+  public BigDecimal getTotal() {
+    return total;
+  }
+
+  public void setTotal(BigDecimal total) {
+    this.total = total;
+  }
+
+  public LocalDateTime getCountedSince() {
+    return countedSince;
+  }
+
+  public void setCountedSince(LocalDateTime countedSince) {
+    this.countedSince = countedSince;
+  }
+
+  public LocalDateTime getLastBookedOn() {
+    return lastBookedOn;
+  }
+
+  public void setLastBookedOn(LocalDateTime lastBookedOn) {
+    this.lastBookedOn = lastBookedOn;
+  }
+
+  public LocalDateTime getCountedByDaySince() {
+    return countedByDaySince;
+  }
+
+  public void setCountedByDaySince(LocalDateTime countedByDaySince) {
+    this.countedByDaySince = countedByDaySince;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ChargeTotalEntity that = (ChargeTotalEntity) o;
+    return Objects.equals(caseId, that.caseId) &&
+        Objects.equals(designator, that.designator) &&
+        Objects.equals(actionName, that.actionName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(caseId, designator, actionName);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author Myrle Krantz
+ */
+@Repository
+public interface ChargeTotalRepository extends JpaRepository<ChargeTotalEntity, Long> {
+  Optional<ChargeTotalEntity> findByCaseIdAndDesignatorAndActionName(Long caseId, String designator, String actionName);
+  List<ChargeTotalEntity> findByCaseId(Long caseId);
+  List<ChargeTotalEntity> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+  /**
+   * Inserts a seeded total unless the case already has a total for the designator and action, so that a total
+   * seeded concurrently doesn't fail the transaction.
+   *
+   * @return 0 if a total was already there.
+   */
+  @Modifying
+  @Query(value = "INSERT IGNORE INTO bastet_il_charge_totals (case_id, designator, action_name, total, counted_since)" +
+      " VALUES (:caseId, :designator, :actionName, :total, :countedSince)",
+      nativeQuery = true)
+  int insertIfAbsent(
+      @Param("caseId") Long caseId,
+      @Param("designator") String designator,
+      @Param("actionName") String actionName,
+      @Param("total") BigDecimal total,
+      @Param("countedSince") Timestamp countedSince);
+}
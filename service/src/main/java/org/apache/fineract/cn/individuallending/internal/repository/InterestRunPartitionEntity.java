@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
+
+/**
+ * @author Myrle Krantz
+ */
+@Entity
+@Table(name = "bastet_il_interest_run_parts")
+public class InterestRunPartitionEntity {
+  public enum State {
+    PENDING,
+    FINISHED
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+
+  @Column(name = "for_time")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime forTime;
+
+  /** Inclusive lower bound of the case ids in this partition.
+   */
+  @Column(name = "lower_case_id")
+  private Long lowerCaseId;
+
+  /** Inclusive upper bound of the case ids in this partition.
+   */
+  @Column(name = "upper_case_id")
+  private Long upperCaseId;
+
+  @Column(name = "case_count")
+  private Integer caseCount;
+
+  @Column(name = "processed_count")
+  private Integer processedCount;
+
+  @Column(name = "failed_count")
+  private Integer failedCount;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "current_state")
+  private State currentState;
+
+  @Column(name = "finished_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime finishedOn;
+
+  public InterestRunPartitionEntity() {
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public LocalDateTime getForTime() {
+    return forTime;
+  }
+
+  public void setForTime(LocalDateTime forTime) {
+    this.forTime = forTime;
+  }
+
+  public Long getLowerCaseId() {
+    return lowerCaseId;
+  }
+
+  public void setLowerCaseId(Long lowerCaseId) {
+    this.lowerCaseId = lowerCaseId;
+  }
+
+  public Long getUpperCaseId() {
+    return upperCaseId;
+  }
+
+  public void setUpperCaseId(Long upperCaseId) {
+    this.upperCaseId = upperCaseId;
+  }
+
+  public Integer getCaseCount() {
+    return caseCount;
+  }
+
+  public void setCaseCount(Integer caseCount) {
+    this.caseCount = caseCount;
+  }
+
+  public Integer getProcessedCount() {
+    return processedCount;
+  }
+
+  public void setProcessedCount(Integer processedCount) {
+    this.processedCount = processedCount;
+  }
+
+  public Integer getFailedCount() {
+    return failedCount;
+  }
+
+  public void setFailedCount(Integer failedCount) {
+    this.failedCount = failedCount;
+  }
+
+  public State getCurrentState() {
+    return currentState;
+  }
+
+  public void setCurrentState(State currentState) {
+    this.currentState = currentState;
+  }
+
+  public LocalDateTime getFinishedOn() {
+    return finishedOn;
+  }
+
+  public void setFinishedOn(LocalDateTime finishedOn) {
+    this.finishedOn = finishedOn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    InterestRunPartitionEntity that = (InterestRunPartitionEntity) o;
+    return Objects.equals(forTime, that.forTime) &&
+        Objects.equals(lowerCaseId, that.lowerCaseId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(forTime, lowerCaseId);
+  }
+}
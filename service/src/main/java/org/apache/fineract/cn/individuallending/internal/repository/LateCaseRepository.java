@@ -21,6 +21,8 @@ package org.apache.fineract.cn.individuallending.internal.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -29,5 +31,6 @@ import java.util.Optional;
 @Repository
 public interface LateCaseRepository extends JpaRepository<LateCaseEntity, Long> {
   Optional<LateCaseEntity> findByCaseId(Long caseId);
+  List<LateCaseEntity> findByCaseIdIn(Collection<Long> caseIds);
   void deleteByCaseId(Long caseId);
 }
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
+
+/**
+ * The number of cases of a product which became late on the same day, and the principal outstanding on them.
+ * Because rows are kept per day rather than per bucket, they age without being touched.
+ *
+ * @author Myrle Krantz
+ */
+@Entity
+@Table(name = "bastet_il_aging")
+public class PortfolioAgingEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+
+  @Column(name = "product_id")
+  private Long productId;
+
+  /** The start of the day on which the cases became late.
+   */
+  @Column(name = "late_since")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime lateSince;
+
+  @Column(name = "case_count")
+  private Long caseCount;
+
+  @Column(name = "principal_balance")
+  private BigDecimal principalBalance;
+
+  public PortfolioAgingEntity() {
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getProductId() {
+    return productId;
+  }
+
+  public void setProductId(Long productId) {
+    this.productId = productId;
+  }
+
+  public LocalDateTime getLateSince() {
+    return lateSince;
+  }
+
+  public void setLateSince(LocalDateTime lateSince) {
+    this.lateSince = lateSince;
+  }
+
+  public Long getCaseCount() {
+    return caseCount;
+  }
+
+  public void setCaseCount(Long caseCount) {
+    this.caseCount = caseCount;
+  }
+
+  public BigDecimal getPrincipalBalance() {
+    return principalBalance;
+  }
+
+  public void setPrincipalBalance(BigDecimal principalBalance) {
+    this.principalBalance = principalBalance;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    PortfolioAgingEntity that = (PortfolioAgingEntity) o;
+    return Objects.equals(productId, that.productId) &&
+        Objects.equals(lateSince, that.lateSince);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(productId, lateSince);
+  }
+}
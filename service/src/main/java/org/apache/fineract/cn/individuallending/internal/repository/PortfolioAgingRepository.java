@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * @author Myrle Krantz
+ */
+@Repository
+public interface PortfolioAgingRepository extends JpaRepository<PortfolioAgingEntity, Long> {
+  List<PortfolioAgingEntity> findByProductId(Long productId);
+
+  /**
+   * Adds to the totals for a day in a single statement, so that commands for different cases of the same product
+   * can change the same row concurrently without losing each other's changes.
+   */
+  @Modifying
+  @Query(value = "INSERT INTO bastet_il_aging (product_id, late_since, case_count, principal_balance)" +
+      " VALUES (:productId, :lateSince, :caseCount, :principalBalance)" +
+      " ON DUPLICATE KEY UPDATE case_count = case_count + VALUES(case_count)," +
+      " principal_balance = principal_balance + VALUES(principal_balance)",
+      nativeQuery = true)
+  int add(
+      @Param("productId") Long productId,
+      @Param("lateSince") Timestamp lateSince,
+      @Param("caseCount") long caseCount,
+      @Param("principalBalance") BigDecimal principalBalance);
+
+  @Modifying
+  @Query("DELETE FROM PortfolioAgingEntity t WHERE t.productId = :productId AND t.lateSince = :lateSince AND t.caseCount = 0")
+  int deleteIfEmpty(@Param("productId") Long productId, @Param("lateSince") LocalDateTime lateSince);
+
+  @Modifying
+  @Query("DELETE FROM PortfolioAgingEntity t")
+  int deleteAllInBulk();
+
+  @Modifying
+  @Query(value = "INSERT INTO bastet_il_aging (product_id, late_since, case_count, principal_balance)" +
+      " SELECT product_id, TIMESTAMP(DATE(late_since)), COUNT(*), SUM(principal_balance)" +
+      " FROM bastet_il_at_risk_cases GROUP BY product_id, TIMESTAMP(DATE(late_since))",
+      nativeQuery = true)
+  int insertFromAtRiskCases();
+}
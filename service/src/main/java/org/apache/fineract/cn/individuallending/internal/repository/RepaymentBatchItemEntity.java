@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentResult;
+import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
+
+/**
+ * @author Myrle Krantz
+ */
+@Entity
+@Table(name = "bastet_il_repay_items")
+public class RepaymentBatchItemEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+
+  @Column(name = "batch_id")
+  private Long batchId;
+
+  @Column(name = "position")
+  private Integer position;
+
+  @Column(name = "case_identifier")
+  private String caseIdentifier;
+
+  /** The repayment's command as json. */
+  @Column(name = "command")
+  private String command;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "current_state")
+  private RepaymentResult.State currentState;
+
+  @Column(name = "message")
+  private String message;
+
+  @Column(name = "processed_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime processedOn;
+
+  public RepaymentBatchItemEntity() {
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getBatchId() {
+    return batchId;
+  }
+
+  public void setBatchId(Long batchId) {
+    this.batchId = batchId;
+  }
+
+  public Integer getPosition() {
+    return position;
+  }
+
+  public void setPosition(Integer position) {
+    this.position = position;
+  }
+
+  public String getCaseIdentifier() {
+    return caseIdentifier;
+  }
+
+  public void setCaseIdentifier(String caseIdentifier) {
+    this.caseIdentifier = caseIdentifier;
+  }
+
+  public String getCommand() {
+    return command;
+  }
+
+  public void setCommand(String command) {
+    this.command = command;
+  }
+
+  public RepaymentResult.State getCurrentState() {
+    return currentState;
+  }
+
+  public void setCurrentState(RepaymentResult.State currentState) {
+    this.currentState = currentState;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public LocalDateTime getProcessedOn() {
+    return processedOn;
+  }
+
+  public void setProcessedOn(LocalDateTime processedOn) {
+    this.processedOn = processedOn;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    RepaymentBatchItemEntity that = (RepaymentBatchItemEntity) o;
+    return Objects.equals(batchId, that.batchId) &&
+        Objects.equals(position, that.position);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(batchId, position);
+  }
+}
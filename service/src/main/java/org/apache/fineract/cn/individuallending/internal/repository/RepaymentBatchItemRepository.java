@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.repository;
+
+import java.util.Collection;
+import java.util.List;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentResult;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * @author Myrle Krantz
+ */
+@Repository
+public interface RepaymentBatchItemRepository extends JpaRepository<RepaymentBatchItemEntity, Long> {
+  List<RepaymentBatchItemEntity> findByBatchIdAndCurrentStateOrderByPositionAsc(Long batchId, RepaymentResult.State currentState);
+  Page<RepaymentBatchItemEntity> findByBatchId(Long batchId, Pageable pageable);
+  Page<RepaymentBatchItemEntity> findByBatchIdAndCurrentStateIn(Long batchId, Collection<RepaymentResult.State> currentStates, Pageable pageable);
+  long countByBatchIdAndCurrentState(Long batchId, RepaymentResult.State currentState);
+}
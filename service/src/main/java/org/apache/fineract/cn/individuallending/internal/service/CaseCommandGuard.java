@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.CommandLockStatistics;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Serialises work on the same case, so that a command never reads balances which another command on the same case
+ * is in the middle of changing.  Work on different cases only waits for each other if their keys share a stripe.
+ * The locks are held by this instance of the service only.  Cases and their parameters are versioned, so that a
+ * command which changed a case at the same time in another instance is detected when committing.  Such commands
+ * are repeated in a new transaction a few times before giving up.
+ *
+ * @author Myrle Krantz
+ */
+@Component
+public class CaseCommandGuard {
+  private static final long SLOW_WAIT_MILLIS = 1000;
+
+  private final Striped<Lock> locks;
+  private final int stripeCount;
+  private final int retryCount;
+  private final long retryBackoffMillis;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger logger;
+  private final ConcurrentMap<String, Counters> countersByTenant = new ConcurrentHashMap<>();
+
+  private static class Counters {
+    private final AtomicLong acquisitionCount = new AtomicLong();
+    private final AtomicLong contendedAcquisitionCount = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maximumWaitMillis = new AtomicLong();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final AtomicLong conflictCount = new AtomicLong();
+    private final AtomicLong unresolvedConflictCount = new AtomicLong();
+  }
+
+  @Autowired
+  public CaseCommandGuard(
+      final PortfolioProperties portfolioProperties,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.stripeCount = portfolioProperties.getCaseLockStripeCount();
+    this.locks = Striped.lock(stripeCount);
+    this.retryCount = portfolioProperties.getCaseCommandRetryCount();
+    this.retryBackoffMillis = portfolioProperties.getCaseCommandRetryBackoffMillis();
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.logger = logger;
+  }
+
+  /**
+   * Executes a command on a case in its own transaction, with the case locked.  If the case was changed by a command
+   * in another instance in the meantime, the command is executed again after a short, growing pause.  A command which
+   * is executed in a transaction which was started elsewhere is not repeated, since that transaction can't be.
+   */
+  public <T> T execute(final String productIdentifier, final String caseIdentifier, final Supplier<T> command) {
+    final int allowedRetries = TransactionSynchronizationManager.isActualTransactionActive() ? 0 : retryCount;
+    for (int retry = 0; ; retry++) {
+      try {
+        return transactionTemplate.execute(status -> {
+          lockUntilCompletion(productIdentifier, caseIdentifier);
+          return command.get();
+        });
+      }
+      catch (final OptimisticLockingFailureException e) {
+        final Counters counters = counters();
+        counters.conflictCount.incrementAndGet();
+        if (retry >= allowedRetries) {
+          counters.unresolvedConflictCount.incrementAndGet();
+          logger.warn("Case '{}.{}' was changed by another command {} times in a row.",
+              productIdentifier, caseIdentifier, retry + 1, e);
+          throw ServiceException.conflict("Case ''{0}.{1}'' was changed by another command.  Please try again.",
+              productIdentifier, caseIdentifier);
+        }
+        logger.info("Case '{}.{}' was changed by another command.  Retrying.", productIdentifier, caseIdentifier);
+        backOff(retry, productIdentifier, caseIdentifier);
+      }
+    }
+  }
+
+  /**
+   * Locks the case until the current transaction has completed.  This should happen before anything about the case
+   * is read in the transaction, so that the transaction sees everything committed by the command before it.
+   */
+  public void lockUntilCompletion(final String productIdentifier, final String caseIdentifier) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive())
+      throw new IllegalStateException("Case '" + productIdentifier + "." + caseIdentifier + "' can only be locked in a transaction.");
+
+    final Lock lock = acquire(productIdentifier, caseIdentifier);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(final int status) {
+        lock.unlock();
+      }
+    });
+  }
+
+  /**
+   * Locks several cases of one product until the current transaction has completed.  The locks are always taken in
+   * the same order, so that two transactions locking overlapping sets of cases can't wait for each other forever.
+   */
+  public void lockAllUntilCompletion(final String productIdentifier, final Collection<String> caseIdentifiers) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive())
+      throw new IllegalStateException("Cases of product '" + productIdentifier + "' can only be locked in a transaction.");
+
+    final String tenantIdentifier = TenantContextHolder.checkedGetIdentifier();
+    final List<String> keys = caseIdentifiers.stream()
+        .map(caseIdentifier -> tenantIdentifier + "." + productIdentifier + "." + caseIdentifier)
+        .collect(Collectors.toList());
+    lockUntilCompletion(locks.bulkGet(keys), productIdentifier, "(" + caseIdentifiers.size() + " cases)");
+  }
+
+  /**
+   * Locks cases of any number of products until the current transaction has completed, in the same order as
+   * {@link #lockAllUntilCompletion}.
+   */
+  public void lockCasesUntilCompletion(final Collection<CaseEntity> cases) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive())
+      throw new IllegalStateException("Cases can only be locked in a transaction.");
+
+    final String tenantIdentifier = TenantContextHolder.checkedGetIdentifier();
+    final List<String> keys = cases.stream()
+        .map(x -> tenantIdentifier + "." + x.getProductIdentifier() + "." + x.getIdentifier())
+        .collect(Collectors.toList());
+    lockUntilCompletion(locks.bulkGet(keys), "*", "(" + cases.size() + " cases)");
+  }
+
+  /**
+   * Keeps commands on every case from starting, and waits for those in progress to finish, until the current
+   * transaction has completed.  This is meant for short work which replaces what commands change incrementally.
+   * Commands executed by other instances of the service are not held up.
+   */
+  public void lockEverythingUntilCompletion() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive())
+      throw new IllegalStateException("Cases can only be locked in a transaction.");
+
+    final List<Lock> allLocks = new ArrayList<>(stripeCount);
+    for (int i = 0; i < locks.size(); i++)
+      allLocks.add(locks.getAt(i));
+    lockUntilCompletion(allLocks, "*", "(all cases)");
+  }
+
+  public <T> T runLocked(final String productIdentifier, final String caseIdentifier, final Supplier<T> work) {
+    final Lock lock = acquire(productIdentifier, caseIdentifier);
+    try {
+      return work.get();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Statistics about the commands of the current tenant.  The stripes are shared by all tenants of this instance, so
+   * a tenant's commands can still wait for another tenant's commands whose cases share a stripe.
+   */
+  public CommandLockStatistics getStatistics() {
+    final Counters counters = counters();
+    final CommandLockStatistics ret = new CommandLockStatistics();
+    ret.setStripeCount(stripeCount);
+    ret.setAcquisitionCount(counters.acquisitionCount.get());
+    ret.setContendedAcquisitionCount(counters.contendedAcquisitionCount.get());
+    ret.setWaitingCount(counters.waitingCount.get());
+    ret.setTotalWaitMillis(counters.totalWaitMillis.get());
+    ret.setMaximumWaitMillis(counters.maximumWaitMillis.get());
+    ret.setConflictCount(counters.conflictCount.get());
+    ret.setUnresolvedConflictCount(counters.unresolvedConflictCount.get());
+    return ret;
+  }
+
+  private Counters counters() {
+    return countersByTenant.computeIfAbsent(TenantContextHolder.checkedGetIdentifier(), tenant -> new Counters());
+  }
+
+  private void backOff(final int retry, final String productIdentifier, final String caseIdentifier) {
+    final long backoffMillis = retryBackoffMillis << Math.min(retry, 10);
+    try {
+      Thread.sleep(backoffMillis + ThreadLocalRandom.current().nextLong(backoffMillis + 1));
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw ServiceException.conflict("Case ''{0}.{1}'' was changed by another command.  Please try again.",
+          productIdentifier, caseIdentifier);
+    }
+  }
+
+  private void lockUntilCompletion(
+      final Iterable<Lock> orderedLocks,
+      final String productIdentifier,
+      final String caseIdentifier) {
+    final Counters counters = counters();
+    final List<Lock> acquiredLocks = new ArrayList<>();
+    for (final Lock lock : orderedLocks) {
+      acquire(lock, counters, productIdentifier, caseIdentifier);
+      acquiredLocks.add(lock);
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(final int status) {
+        Lists.reverse(acquiredLocks).forEach(Lock::unlock);
+      }
+    });
+  }
+
+  private Lock acquire(final String productIdentifier, final String caseIdentifier) {
+    final Lock lock = locks.get(TenantContextHolder.checkedGetIdentifier() + "." + productIdentifier + "." + caseIdentifier);
+    acquire(lock, counters(), productIdentifier, caseIdentifier);
+    return lock;
+  }
+
+  private void acquire(
+      final Lock lock,
+      final Counters counters,
+      final String productIdentifier,
+      final String caseIdentifier) {
+    counters.acquisitionCount.incrementAndGet();
+    if (lock.tryLock())
+      return;
+
+    counters.contendedAcquisitionCount.incrementAndGet();
+    counters.waitingCount.incrementAndGet();
+    final long start = System.nanoTime();
+    try {
+      lock.lock();
+    }
+    finally {
+      counters.waitingCount.decrementAndGet();
+    }
+    final long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    counters.totalWaitMillis.addAndGet(waitMillis);
+    counters.maximumWaitMillis.accumulateAndGet(waitMillis, Math::max);
+    if (waitMillis >= SLOW_WAIT_MILLIS)
+      logger.warn("Waited {} ms for another command on case '{}.{}' to finish.", waitMillis, productIdentifier, caseIdentifier);
+  }
+}
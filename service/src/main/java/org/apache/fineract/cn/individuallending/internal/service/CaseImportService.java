@@ -0,0 +1,440 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import org.apache.commons.lang.StringUtils;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.CaseImport;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatchProgress;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportResult;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportResultPage;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.ImportBatchEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ImportBatchItemEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ImportBatchItemRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.ImportBatchRepository;
+import org.apache.fineract.cn.portfolio.api.v1.domain.ImportParameters;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.mapper.CaseMapper;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountIdentifierAllocator;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
+import org.apache.fineract.cn.portfolio.service.internal.util.ContextSnapshot;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports the cases of a batch, for example when migrating the loans of another system.  The imports are persisted
+ * before any of them is processed, and then split into chunks which are processed in parallel on a bounded pool.
+ *
+ * Each case is imported the same way as by the import command, see {@link ImportActivationService}.  First the
+ * ledgers of all the cases of a chunk are requested from accounting, and waited for together.  Then the accounts of
+ * each case are created in the ledgers, and assigned to the case.  Identifiers for them are chosen for the whole
+ * batch at once, so that the parent ledgers and the existing accounts aren't searched again for every case.  The
+ * account assignments are persisted with the import, which is the checkpoint from which a resumed batch continues.
+ * Then all the cases of a chunk whose accounts exist are activated in one transaction, and the commands recorded for
+ * them are written in one batch.  If that fails, the cases of the chunk are activated one at a time, so that one bad
+ * case doesn't fail the others.
+ *
+ * Unlike the import command, no event is emitted for the imported cases.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class CaseImportService {
+  private static final int MAXIMUM_MESSAGE_LENGTH = 1024;
+  private static final String INSERT_CASE_COMMAND =
+      "INSERT INTO bastet_case_commands (case_id, action_name, created_on, created_by, thoth_transaction_uq) " +
+          "VALUES (?, ?, ?, ?, ?)";
+
+  private final ImportBatchRepository importBatchRepository;
+  private final ImportBatchItemRepository importBatchItemRepository;
+  private final CaseRepository caseRepository;
+  private final CaseParametersRepository caseParametersRepository;
+  private final ImportActivationService importActivationService;
+  private final AccountingAdapter accountingAdapter;
+  private final CaseCommandGuard caseCommandGuard;
+  private final JdbcTemplate jdbcTemplate;
+  private final Gson gson;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger logger;
+  private final int chunkSize;
+  private final ExecutorService workers;
+  private final Set<String> batchesInProgress = ConcurrentHashMap.newKeySet();
+  private final LocalDateTimeConverter localDateTimeConverter = new LocalDateTimeConverter();
+
+  @Autowired
+  public CaseImportService(
+      final ImportBatchRepository importBatchRepository,
+      final ImportBatchItemRepository importBatchItemRepository,
+      final CaseRepository caseRepository,
+      final CaseParametersRepository caseParametersRepository,
+      final ImportActivationService importActivationService,
+      final AccountingAdapter accountingAdapter,
+      final CaseCommandGuard caseCommandGuard,
+      @SuppressWarnings("SpringJavaAutowiringInspection") final DataSource dataSource,
+      final PortfolioProperties portfolioProperties,
+      @Qualifier(ServiceConstants.GSON_NAME) final Gson gson,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.importBatchRepository = importBatchRepository;
+    this.importBatchItemRepository = importBatchItemRepository;
+    this.caseRepository = caseRepository;
+    this.caseParametersRepository = caseParametersRepository;
+    this.importActivationService = importActivationService;
+    this.accountingAdapter = accountingAdapter;
+    this.caseCommandGuard = caseCommandGuard;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.gson = gson;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.logger = logger;
+    this.chunkSize = portfolioProperties.getCaseImportChunkSize();
+    this.workers = Executors.newFixedThreadPool(
+        portfolioProperties.getCaseImportWorkerCount(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("portfolio-case-import-%d").build());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    //Imports which haven't been processed yet stay pending, and are processed once the batch is resumed.
+    workers.shutdownNow();
+  }
+
+  public void submit(final String productIdentifier, final ImportBatch importBatch) {
+    final Optional<ImportBatchEntity> existing
+        = importBatchRepository.findByProductIdentifierAndIdentifier(productIdentifier, importBatch.getIdentifier());
+    final ImportBatchEntity batch = existing.orElseGet(() -> transactionTemplate.execute(status ->
+        persist(productIdentifier, importBatch)));
+
+    final String batchKey = TenantContextHolder.checkedGetIdentifier() + "." + batch.getId();
+    if (!batchesInProgress.add(batchKey)) {
+      logger.info("Import batch '{}.{}' is already being processed.", productIdentifier, batch.getIdentifier());
+      return;
+    }
+
+    final List<ImportBatchItemEntity> pending = importBatchItemRepository
+        .findByBatchIdAndCurrentStateOrderByPositionAsc(batch.getId(), ImportResult.State.PENDING);
+    if (pending.isEmpty()) {
+      finish(batch.getId(), batchKey);
+      return;
+    }
+
+    final List<List<ImportBatchItemEntity>> chunks = Lists.partition(pending, chunkSize);
+    final AtomicInteger chunksRemaining = new AtomicInteger(chunks.size());
+    final AccountIdentifierAllocator identifierAllocator = accountingAdapter.createIdentifierAllocator();
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    chunks.forEach(chunk -> workers.submit(contextSnapshot.wrap(() -> {
+      try {
+        importChunk(productIdentifier, chunk, identifierAllocator);
+      }
+      catch (final RuntimeException e) {
+        logger.error("Importing a chunk of batch '{}.{}' failed.", productIdentifier, batch.getIdentifier(), e);
+      }
+      finally {
+        if (chunksRemaining.decrementAndGet() == 0)
+          finish(batch.getId(), batchKey);
+      }
+    })));
+  }
+
+  public Optional<ImportBatchProgress> getProgress(final String productIdentifier, final String batchIdentifier) {
+    return importBatchRepository.findByProductIdentifierAndIdentifier(productIdentifier, batchIdentifier)
+        .map(batch -> {
+          final ImportBatchProgress ret = new ImportBatchProgress();
+          ret.setIdentifier(batch.getIdentifier());
+          ret.setState(batch.getCurrentState().name());
+          ret.setCaseCount(batch.getCaseCount());
+          ret.setImportedCount(importBatchItemRepository.countByBatchIdAndCurrentState(
+              batch.getId(), ImportResult.State.IMPORTED));
+          ret.setFailedCount(importBatchItemRepository.countByBatchIdAndCurrentState(
+              batch.getId(), ImportResult.State.FAILED));
+          ret.setCreatedBy(batch.getCreatedBy());
+          ret.setCreatedOn(DateConverter.toIsoString(batch.getCreatedOn()));
+          ret.setFinishedOn(batch.getFinishedOn() == null ? null : DateConverter.toIsoString(batch.getFinishedOn()));
+          return ret;
+        });
+  }
+
+  public Optional<ImportResultPage> getResults(
+      final String productIdentifier,
+      final String batchIdentifier,
+      final Set<ImportResult.State> states,
+      final int pageIndex,
+      final int size) {
+    if (pageIndex < 0 || size < 1)
+      throw ServiceException.badRequest("Page ''{0}'' of size ''{1}'' does not exist.", pageIndex, size);
+
+    return importBatchRepository.findByProductIdentifierAndIdentifier(productIdentifier, batchIdentifier)
+        .map(batch -> {
+          final Pageable pageRequest = new PageRequest(pageIndex, size, Sort.Direction.ASC, "position");
+          final Page<ImportBatchItemEntity> items = states.isEmpty()
+              ? importBatchItemRepository.findByBatchId(batch.getId(), pageRequest)
+              : importBatchItemRepository.findByBatchIdAndCurrentStateIn(batch.getId(), states, pageRequest);
+
+          final ImportResultPage ret = new ImportResultPage();
+          ret.setElements(items.getContent().stream().map(CaseImportService::map).collect(Collectors.toList()));
+          ret.setTotalPages(items.getTotalPages());
+          ret.setTotalElements(items.getTotalElements());
+          return ret;
+        });
+  }
+
+  private ImportBatchEntity persist(final String productIdentifier, final ImportBatch importBatch) {
+    final ImportBatchEntity batch = new ImportBatchEntity();
+    batch.setIdentifier(importBatch.getIdentifier());
+    batch.setProductIdentifier(productIdentifier);
+    batch.setCaseCount(importBatch.getImports().size());
+    batch.setCurrentState(ImportBatchEntity.State.RUNNING);
+    batch.setCreatedBy(UserContextHolder.checkedGetUser());
+    batch.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
+    final ImportBatchEntity ret = importBatchRepository.save(batch);
+
+    final List<ImportBatchItemEntity> items = new ArrayList<>(importBatch.getImports().size());
+    for (int position = 0; position < importBatch.getImports().size(); position++) {
+      final CaseImport caseImport = importBatch.getImports().get(position);
+      final ImportBatchItemEntity item = new ImportBatchItemEntity();
+      item.setBatchId(ret.getId());
+      item.setPosition(position);
+      item.setCaseIdentifier(caseImport.getCaseIdentifier());
+      item.setImportParameters(gson.toJson(caseImport.getImportParameters()));
+      item.setCurrentState(ImportResult.State.PENDING);
+      items.add(item);
+    }
+    importBatchItemRepository.save(items);
+    return ret;
+  }
+
+  private void importChunk(
+      final String productIdentifier,
+      final List<ImportBatchItemEntity> chunk,
+      final AccountIdentifierAllocator identifierAllocator) {
+    final List<ImportBatchItemEntity> accountsCreated = new ArrayList<>(chunk.size());
+    final List<ImportBatchItemEntity> ledgersRequested = new ArrayList<>(chunk.size());
+    final List<AccountingAdapter.PendingLedger> pendingLedgers = new ArrayList<>();
+    for (final ImportBatchItemEntity item : chunk) {
+      if (item.getAccountAssignments() != null) {
+        accountsCreated.add(item);
+        continue;
+      }
+      try {
+        pendingLedgers.addAll(transactionTemplate.execute(status ->
+            startLedgerCreations(productIdentifier, item, identifierAllocator)));
+      }
+      catch (final RuntimeException e) {
+        //Interrupted imports stay pending, so that they are continued once the batch is resumed.
+        if (Thread.currentThread().isInterrupted())
+          return;
+        record(item, ImportResult.State.FAILED, e.getMessage());
+        continue;
+      }
+      ledgersRequested.add(item);
+    }
+
+    //The ledgers of all the cases of the chunk are created by accounting while waiting for any one of them.
+    try {
+      accountingAdapter.awaitLedgerCreations(pendingLedgers);
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    for (final ImportBatchItemEntity item : ledgersRequested) {
+      try {
+        transactionTemplate.execute(status -> createAccounts(productIdentifier, item, identifierAllocator));
+      }
+      catch (final RuntimeException e) {
+        if (Thread.currentThread().isInterrupted())
+          return;
+        record(item, ImportResult.State.FAILED, e.getMessage());
+        continue;
+      }
+      accountsCreated.add(item);
+    }
+    if (accountsCreated.isEmpty())
+      return;
+
+    try {
+      transactionTemplate.execute(status -> activate(productIdentifier, accountsCreated));
+    }
+    catch (final RuntimeException e) {
+      logger.info("Activating {} imported cases of product '{}' together failed.  Activating them one at a time.",
+          accountsCreated.size(), productIdentifier, e);
+      for (final ImportBatchItemEntity item : accountsCreated) {
+        try {
+          transactionTemplate.execute(status -> activate(productIdentifier, Lists.newArrayList(item)));
+        }
+        catch (final RuntimeException e2) {
+          record(item, ImportResult.State.FAILED, e2.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * The ledgers are assigned to the case right away, so that a resumed import doesn't request them again.
+   */
+  private List<AccountingAdapter.PendingLedger> startLedgerCreations(
+      final String productIdentifier,
+      final ImportBatchItemEntity item,
+      final AccountIdentifierAllocator identifierAllocator) {
+    final ImportParameters importParameters = gson.fromJson(item.getImportParameters(), ImportParameters.class);
+    caseCommandGuard.lockUntilCompletion(productIdentifier, item.getCaseIdentifier());
+    final DataContextOfAction dataContextOfAction = importActivationService.checkedGetImportableDataContext(
+        productIdentifier, item.getCaseIdentifier(), importParameters);
+    final List<AccountingAdapter.PendingLedger> ret
+        = importActivationService.startLedgerCreations(dataContextOfAction, identifierAllocator);
+    caseRepository.save(dataContextOfAction.getCustomerCaseEntity());
+    return ret;
+  }
+
+  private ImportBatchItemEntity createAccounts(
+      final String productIdentifier,
+      final ImportBatchItemEntity item,
+      final AccountIdentifierAllocator identifierAllocator) {
+    final ImportParameters importParameters = gson.fromJson(item.getImportParameters(), ImportParameters.class);
+    caseCommandGuard.lockUntilCompletion(productIdentifier, item.getCaseIdentifier());
+    final DataContextOfAction dataContextOfAction = importActivationService.checkedGetImportableDataContext(
+        productIdentifier, item.getCaseIdentifier(), importParameters);
+    importActivationService.createAccounts(
+        dataContextOfAction, importParameters.getCurrentBalances(), identifierAllocator);
+    final CaseEntity customerCase = caseRepository.save(dataContextOfAction.getCustomerCaseEntity());
+
+    item.setAccountAssignments(gson.toJson(customerCase.getAccountAssignments().stream()
+        .map(CaseMapper::mapAccountAssignmentEntity)
+        .collect(Collectors.toList())));
+    return importBatchItemRepository.save(item);
+  }
+
+  private List<ImportBatchItemEntity> activate(
+      final String productIdentifier,
+      final List<ImportBatchItemEntity> items) {
+    caseCommandGuard.lockAllUntilCompletion(productIdentifier,
+        items.stream().map(ImportBatchItemEntity::getCaseIdentifier).collect(Collectors.toList()));
+
+    final String user = UserContextHolder.checkedGetUser();
+    final List<CaseEntity> cases = new ArrayList<>(items.size());
+    final List<CaseParametersEntity> caseParameters = new ArrayList<>(items.size());
+    final List<Object[]> commands = new ArrayList<>(2 * items.size());
+    for (final ImportBatchItemEntity item : items) {
+      final ImportParameters importParameters = gson.fromJson(item.getImportParameters(), ImportParameters.class);
+      final DataContextOfAction dataContextOfAction = importActivationService.checkedGetImportableDataContext(
+          productIdentifier, item.getCaseIdentifier(), importParameters);
+      final Long caseId = dataContextOfAction.getCustomerCaseEntity().getId();
+
+      importActivationService.activate(dataContextOfAction, importParameters,
+          (action, when) -> commands.add(caseCommand(caseId, action, when, user)));
+      cases.add(dataContextOfAction.getCustomerCaseEntity());
+      caseParameters.add(dataContextOfAction.getCaseParametersEntity());
+
+      item.setCurrentState(ImportResult.State.IMPORTED);
+      item.setMessage(null);
+      item.setProcessedOn(LocalDateTime.now(Clock.systemUTC()));
+    }
+
+    jdbcTemplate.batchUpdate(INSERT_CASE_COMMAND, commands);
+    caseRepository.save(cases);
+    caseParametersRepository.save(caseParameters);
+    return importBatchItemRepository.save(items);
+  }
+
+  private Object[] caseCommand(final Long caseId, final Action action, final String when, final String user) {
+    return new Object[] {
+        caseId,
+        action.name(),
+        localDateTimeConverter.convertToDatabaseColumn(DateConverter.fromIsoString(when)),
+        user,
+        ""};
+  }
+
+  private void record(
+      final ImportBatchItemEntity item,
+      final ImportResult.State state,
+      final String message) {
+    item.setCurrentState(state);
+    item.setMessage(StringUtils.abbreviate(message, MAXIMUM_MESSAGE_LENGTH));
+    item.setProcessedOn(LocalDateTime.now(Clock.systemUTC()));
+    transactionTemplate.execute(status -> importBatchItemRepository.save(item));
+  }
+
+  private void finish(final Long batchId, final String batchKey) {
+    try {
+      transactionTemplate.execute(status -> {
+        final ImportBatchEntity batch = importBatchRepository.findOne(batchId);
+        //A batch with imports left, for example because the service was stopped, stays running until it's resumed.
+        if (batch.getCurrentState() == ImportBatchEntity.State.FINISHED ||
+            importBatchItemRepository.countByBatchIdAndCurrentState(batchId, ImportResult.State.PENDING) > 0)
+          return null;
+
+        batch.setCurrentState(ImportBatchEntity.State.FINISHED);
+        batch.setFinishedOn(LocalDateTime.now(Clock.systemUTC()));
+        return importBatchRepository.save(batch);
+      });
+    }
+    finally {
+      batchesInProgress.remove(batchKey);
+    }
+  }
+
+  private static ImportResult map(final ImportBatchItemEntity item) {
+    final ImportResult ret = new ImportResult();
+    ret.setPosition(item.getPosition());
+    ret.setCaseIdentifier(item.getCaseIdentifier());
+    ret.setState(item.getCurrentState().name());
+    ret.setMessage(item.getMessage());
+    ret.setProcessedOn(item.getProcessedOn() == null ? null : DateConverter.toIsoString(item.getProcessedOn()));
+    return ret;
+  }
+}
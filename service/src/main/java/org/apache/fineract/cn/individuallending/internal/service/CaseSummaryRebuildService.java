@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryRepository;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.RealRunningBalances;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
+import java.util.List;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rebuilds the summaries of the cases of a product which have none yet, for example because they were created
+ * before summaries were introduced, so that they don't have to wait for their next command.  Every case is rebuilt
+ * in a transaction of its own, with the case locked.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class CaseSummaryRebuildService {
+  private final CaseSummaryRepository caseSummaryRepository;
+  private final CaseSummaryService caseSummaryService;
+  private final DataContextService dataContextService;
+  private final AccountingAdapter accountingAdapter;
+  private final ChargeTotalsService chargeTotalsService;
+  private final CaseCommandGuard caseCommandGuard;
+  private final PortfolioProperties portfolioProperties;
+  private final Logger logger;
+
+  @Autowired
+  public CaseSummaryRebuildService(
+      final CaseSummaryRepository caseSummaryRepository,
+      final CaseSummaryService caseSummaryService,
+      final DataContextService dataContextService,
+      final AccountingAdapter accountingAdapter,
+      final ChargeTotalsService chargeTotalsService,
+      final CaseCommandGuard caseCommandGuard,
+      final PortfolioProperties portfolioProperties,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.caseSummaryRepository = caseSummaryRepository;
+    this.caseSummaryService = caseSummaryService;
+    this.dataContextService = dataContextService;
+    this.accountingAdapter = accountingAdapter;
+    this.chargeTotalsService = chargeTotalsService;
+    this.caseCommandGuard = caseCommandGuard;
+    this.portfolioProperties = portfolioProperties;
+    this.logger = logger;
+  }
+
+  /**
+   * @return the number of cases whose summaries were rebuilt.
+   */
+  public int rebuildMissing(final String productIdentifier) {
+    final int blockSize = portfolioProperties.getLatenessCheckBlockSize();
+    int rebuilt = 0;
+    int failed = 0;
+
+    Long afterCaseId = 0L;
+    while (afterCaseId != null) {
+      final List<CaseEntity> cases = caseSummaryRepository.findCasesWithoutSummary(
+          productIdentifier, afterCaseId, new PageRequest(0, blockSize));
+      for (final CaseEntity customerCase : cases) {
+        try {
+          if (caseCommandGuard.execute(productIdentifier, customerCase.getIdentifier(),
+              () -> rebuildCase(productIdentifier, customerCase.getIdentifier())))
+            rebuilt++;
+        }
+        catch (final ServiceException e) {
+          //Cases which failed are passed over, so that the rest of the product still gets its summaries.
+          failed++;
+          logger.warn("Rebuilding the summary of case '{}.{}' failed.",
+              productIdentifier, customerCase.getIdentifier(), e);
+        }
+      }
+      afterCaseId = cases.size() < blockSize ? null : cases.get(cases.size() - 1).getId();
+    }
+
+    logger.info("Rebuilt the summaries of {} cases of product '{}', {} failed.", rebuilt, productIdentifier, failed);
+    return rebuilt;
+  }
+
+  private boolean rebuildCase(final String productIdentifier, final String caseIdentifier) {
+    final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
+        productIdentifier, caseIdentifier, null);
+
+    //Balances in accounting are missing bookings of earlier commands which haven't been sent to it yet.
+    accountingAdapter.sendPendingBookings(
+        dataContextOfAction.getCustomerCaseEntity().getId(),
+        dataContextOfAction.getCompoundIdentifer());
+    return caseSummaryService.recordMissing(
+        dataContextOfAction,
+        new RealRunningBalances(accountingAdapter, chargeTotalsService, dataContextOfAction));
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.IndividualLendingPatternFactory;
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseSummary;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.mapper.CaseSummaryMapper;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseRepository;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.RunningBalances;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the summary of each case up to date with the commands executed on it, so that the balances of a loan
+ * can be shown without asking accounting.
+ *
+ * Summaries are changed by the balance adjustments of each command.  A case which has no summary yet, because it
+ * was created before summaries were introduced, or because its summary was deleted, gets one rebuilt from
+ * accounting the next time a command is executed on it, or when missing summaries are rebuilt for its product.
+ * The balances read from accounting for a rebuild are complete: the case is locked while they are read, and the
+ * bookings of earlier commands on it which hadn't reached accounting yet are sent before they are read.  Those of
+ * the current command only reach accounting once its transaction is committed, so its adjustments are applied to
+ * the rebuilt balances exactly once.  The portfolio at risk is brought up to date with every change to a summary.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class CaseSummaryService {
+  private static final Set<String> SUMMARIZED_ACCOUNT_DESIGNATORS = new HashSet<>(Arrays.asList(
+      AccountDesignators.CUSTOMER_LOAN_PRINCIPAL,
+      AccountDesignators.CUSTOMER_LOAN_INTEREST,
+      AccountDesignators.CUSTOMER_LOAN_FEES));
+
+  private final CaseSummaryRepository caseSummaryRepository;
+  private final CaseRepository caseRepository;
+  private final ProductRepository productRepository;
+  private final LateCaseRepository lateCaseRepository;
+  private final CaseCommandRepository caseCommandRepository;
+  private final RepaymentCalendarCache repaymentCalendarCache;
+  private final PortfolioAtRiskService portfolioAtRiskService;
+
+  @Autowired
+  public CaseSummaryService(
+      final CaseSummaryRepository caseSummaryRepository,
+      final CaseRepository caseRepository,
+      final ProductRepository productRepository,
+      final LateCaseRepository lateCaseRepository,
+      final CaseCommandRepository caseCommandRepository,
+      final RepaymentCalendarCache repaymentCalendarCache,
+      final PortfolioAtRiskService portfolioAtRiskService) {
+    this.caseSummaryRepository = caseSummaryRepository;
+    this.caseRepository = caseRepository;
+    this.productRepository = productRepository;
+    this.lateCaseRepository = lateCaseRepository;
+    this.caseCommandRepository = caseCommandRepository;
+    this.repaymentCalendarCache = repaymentCalendarCache;
+    this.portfolioAtRiskService = portfolioAtRiskService;
+  }
+
+  public Optional<CaseSummary> find(final String productIdentifier, final String caseIdentifier) {
+    final int minorCurrencyUnitDigits = productRepository.findByIdentifier(productIdentifier)
+        .map(ProductEntity::getMinorCurrencyUnitDigits)
+        .orElse(4);
+    return caseRepository.findByProductIdentifierAndIdentifier(productIdentifier, caseIdentifier)
+        .flatMap(caseEntity -> caseSummaryRepository.findByCaseId(caseEntity.getId()))
+        .map(caseSummary -> CaseSummaryMapper.map(caseSummary, minorCurrencyUnitDigits));
+  }
+
+  /**
+   * Brings the summary up to date with a command.  Must be called after the command has made its changes to the
+   * case, but before its bookings reach accounting, which happens only once the transaction is committed.
+   *
+   * @param runningBalances the balances the command's adjustments were calculated from.  They must have been read
+   *                        with the case locked, after its pending bookings were sent to accounting.
+   */
+  public void recordAction(
+      final DataContextOfAction dataContextOfAction,
+      final RunningBalances runningBalances,
+      final Map<String, BigDecimal> balanceAdjustments,
+      final Action action,
+      final String when) {
+    final CaseSummaryEntity caseSummary = caseSummaryRepository
+        .findByCaseId(dataContextOfAction.getCustomerCaseEntity().getId())
+        .orElseGet(() -> rebuild(dataContextOfAction, runningBalances));
+
+    caseSummary.setPrincipalBalance(adjust(caseSummary.getPrincipalBalance(),
+        AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, balanceAdjustments));
+    caseSummary.setInterestBalance(adjust(caseSummary.getInterestBalance(),
+        AccountDesignators.CUSTOMER_LOAN_INTEREST, balanceAdjustments));
+    caseSummary.setFeesBalance(adjust(caseSummary.getFeesBalance(),
+        AccountDesignators.CUSTOMER_LOAN_FEES, balanceAdjustments));
+
+    final LocalDateTime whenDateTime = DateConverter.fromIsoString(when);
+    if (action == Action.ACCEPT_PAYMENT) {
+      caseSummary.setLastPaymentOn(whenDateTime);
+      caseSummary.setLateSince(null);
+    }
+    else if (action == Action.MARK_LATE && caseSummary.getLateSince() == null) {
+      caseSummary.setLateSince(whenDateTime);
+    }
+
+    finish(dataContextOfAction, caseSummary, whenDateTime.toLocalDate());
+  }
+
+  /**
+   * Rebuilds the summary of a case which has none.  The same conditions apply to the balances as for
+   * {@link #recordAction}.
+   *
+   * @return true if the case had no summary.
+   */
+  public boolean recordMissing(
+      final DataContextOfAction dataContextOfAction,
+      final RunningBalances runningBalances) {
+    if (caseSummaryRepository.findByCaseId(dataContextOfAction.getCustomerCaseEntity().getId()).isPresent())
+      return false;
+
+    final CaseSummaryEntity caseSummary = rebuild(dataContextOfAction, runningBalances);
+    finish(dataContextOfAction, caseSummary, LocalDate.now(Clock.systemUTC()));
+    return true;
+  }
+
+  /**
+   * Starts the summary of an imported case from the balances it was imported with.
+   */
+  public void recordImport(
+      final DataContextOfAction dataContextOfAction,
+      final Map<String, BigDecimal> currentBalances,
+      final String when) {
+    final CaseSummaryEntity caseSummary = caseSummaryRepository
+        .findByCaseId(dataContextOfAction.getCustomerCaseEntity().getId())
+        .orElseGet(() -> newSummary(dataContextOfAction));
+
+    caseSummary.setPrincipalBalance(currentBalances.getOrDefault(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, BigDecimal.ZERO));
+    caseSummary.setInterestBalance(currentBalances.getOrDefault(AccountDesignators.CUSTOMER_LOAN_INTEREST, BigDecimal.ZERO));
+    caseSummary.setFeesBalance(currentBalances.getOrDefault(AccountDesignators.CUSTOMER_LOAN_FEES, BigDecimal.ZERO));
+
+    finish(dataContextOfAction, caseSummary, DateConverter.fromIsoString(when).toLocalDate());
+  }
+
+  private void finish(
+      final DataContextOfAction dataContextOfAction,
+      final CaseSummaryEntity caseSummary,
+      final LocalDate asOf) {
+    caseSummary.setPaymentSize(dataContextOfAction.getCaseParametersEntity().getPaymentSize());
+    caseSummary.setNextDueDate(getNextDueDate(dataContextOfAction, asOf));
+    caseSummary.setLastModifiedOn(LocalDateTime.now(Clock.systemUTC()));
+    caseSummaryRepository.save(caseSummary);
+
+    portfolioAtRiskService.recordCase(
+        dataContextOfAction.getProductEntity().getId(),
+        dataContextOfAction.getCustomerCaseEntity(),
+        caseSummary.getLateSince(),
+        caseSummary.getPrincipalBalance());
+  }
+
+  private CaseSummaryEntity rebuild(
+      final DataContextOfAction dataContextOfAction,
+      final RunningBalances runningBalances) {
+    final CaseSummaryEntity ret = newSummary(dataContextOfAction);
+    final Long caseId = dataContextOfAction.getCustomerCaseEntity().getId();
+
+    //Before approval there are no accounts, so there are no balances to read either.
+    final boolean accountsExist = dataContextOfAction.getDesignatorToAccountIdentifierMapper()
+        .map(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL).isPresent();
+    if (accountsExist) {
+      runningBalances.prefetchAccounts(SUMMARIZED_ACCOUNT_DESIGNATORS);
+      ret.setPrincipalBalance(runningBalances.getAccountBalance(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL).orElse(BigDecimal.ZERO));
+      ret.setInterestBalance(runningBalances.getAccountBalance(AccountDesignators.CUSTOMER_LOAN_INTEREST).orElse(BigDecimal.ZERO));
+      ret.setFeesBalance(runningBalances.getAccountBalance(AccountDesignators.CUSTOMER_LOAN_FEES).orElse(BigDecimal.ZERO));
+    }
+
+    ret.setLateSince(lateCaseRepository.findByCaseId(caseId).map(LateCaseEntity::getLateSince).orElse(null));
+    ret.setLastPaymentOn(caseCommandRepository
+        .findByActionNameAndCaseIdIn(Action.ACCEPT_PAYMENT.name(), Collections.singleton(caseId))
+        .stream()
+        .map(CaseCommandEntity::getCreatedOn)
+        .max(Comparator.naturalOrder())
+        .orElse(null));
+    return ret;
+  }
+
+  private static CaseSummaryEntity newSummary(final DataContextOfAction dataContextOfAction) {
+    final CaseSummaryEntity ret = new CaseSummaryEntity();
+    ret.setCaseId(dataContextOfAction.getCustomerCaseEntity().getId());
+    ret.setPrincipalBalance(BigDecimal.ZERO);
+    ret.setInterestBalance(BigDecimal.ZERO);
+    ret.setFeesBalance(BigDecimal.ZERO);
+    return ret;
+  }
+
+  private LocalDateTime getNextDueDate(
+      final DataContextOfAction dataContextOfAction,
+      final LocalDate asOf) {
+    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
+    if (Case.State.valueOf(customerCase.getCurrentState()) == Case.State.CLOSED ||
+        customerCase.getStartOfTerm() == null ||
+        customerCase.getEndOfTerm() == null)
+      return null;
+
+    return repaymentCalendarCache.getRepaymentCalendar(
+        customerCase.getId(),
+        customerCase.getStartOfTerm().toLocalDate(),
+        customerCase.getEndOfTerm().toLocalDate(),
+        dataContextOfAction.getCaseParameters().getPaymentCycle())
+        .getNextScheduledPayment(asOf)
+        .getWhen()
+        .atStartOfDay();
+  }
+
+  /**
+   * Balance adjustments are signed as they would be for accounting.  Applying them to a balance works the same
+   * way as it does for simulated balances.
+   */
+  static BigDecimal adjust(
+      final BigDecimal balance,
+      final String accountDesignator,
+      final Map<String, BigDecimal> balanceAdjustments) {
+    final BigDecimal adjustment = balanceAdjustments.get(accountDesignator);
+    if (adjustment == null)
+      return balance;
+
+    final BigDecimal accountSign = IndividualLendingPatternFactory.individualLendingTopology()
+        .getAccountSign(accountDesignator);
+    return balance.add(adjustment.multiply(accountSign));
+  }
+}
@@ -18,11 +18,15 @@
  */
 package org.apache.fineract.cn.individuallending.internal.service;
 
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.ChargeProportionalDesignator;
 import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
 import org.apache.fineract.cn.portfolio.service.internal.service.ConfigurableChargeDefinitionService;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
+import org.apache.fineract.cn.lang.TenantContextHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -33,12 +37,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.apache.fineract.cn.individuallending.api.v1.domain.product.ChargeIdentifiers.*;
 
 /**
+ * Charge definitions of products, cached per tenant and product for as long as the product's charge definitions
+ * are unchanged.  The returned maps, lists, and charge definitions are shared between callers and must not be changed.
+ *
  * @author Myrle Krantz
  */
 @Service
@@ -165,11 +173,20 @@ public class ChargeDefinitionService {
     return ret.stream();
   }
   private final ConfigurableChargeDefinitionService configurableChargeDefinitionService;
+  private final ChargeDefinitionVersions chargeDefinitionVersions;
+  private final ExpiringMap<String, ChargeDefinitionTable> chargeDefinitionTables;
 
   @Autowired
   public ChargeDefinitionService(
-      final ConfigurableChargeDefinitionService configurableChargeDefinitionService) {
+      final ConfigurableChargeDefinitionService configurableChargeDefinitionService,
+      final ChargeDefinitionVersions chargeDefinitionVersions) {
     this.configurableChargeDefinitionService = configurableChargeDefinitionService;
+    this.chargeDefinitionVersions = chargeDefinitionVersions;
+    this.chargeDefinitionTables = ExpiringMap.builder()
+        .maxSize(1000)
+        .expirationPolicy(ExpirationPolicy.ACCESSED)
+        .expiration(1, TimeUnit.HOURS)
+        .build();
   }
 
   private Stream<ChargeDefinition> getAllChargeDefinitions(final String productIdentifier) {
@@ -178,27 +195,39 @@ public class ChargeDefinitionService {
     return Stream.concat(configurableChargeDefinitions, derivedChargeDefinitions);
   }
 
+  /**
+   * The table is rebuilt from the database only if the product's charge definitions have changed since it was last
+   * built.
+   */
+  @Nonnull
+  public ChargeDefinitionTable getChargeDefinitionTable(final String productIdentifier) {
+    //The version is read first, so that a table read during a change is never taken for the changed one.
+    final long version = chargeDefinitionVersions.getVersion(productIdentifier);
+    final String key = TenantContextHolder.checkedGetIdentifier() + "." + productIdentifier;
+    final ChargeDefinitionTable cached = chargeDefinitionTables.get(key);
+    if (cached != null && cached.isFor(productIdentifier, version))
+      return cached;
+
+    final ChargeDefinitionTable ret = new ChargeDefinitionTable(
+        productIdentifier,
+        version,
+        getAllChargeDefinitions(productIdentifier).collect(Collectors.toList()));
+    chargeDefinitionTables.put(key, ret);
+    return ret;
+  }
+
   @Nonnull
   public Map<String, List<ChargeDefinition>> getChargeDefinitionsMappedByChargeAction(
       final String productIdentifier)
   {
-    final Stream<ChargeDefinition> chargeDefinitions = getAllChargeDefinitions(productIdentifier);
-
-    return chargeDefinitions
-        .collect(Collectors.groupingBy(ChargeDefinition::getChargeAction,
-            Collectors.mapping(x -> x, Collectors.toList())));
+    return getChargeDefinitionTable(productIdentifier).getChargeDefinitionsMappedByChargeAction();
   }
 
   @Nonnull
   public Map<String, List<ChargeDefinition>> getChargeDefinitionsMappedByAccrueAction(
       final String productIdentifier)
   {
-    final Stream<ChargeDefinition> chargeDefinitions = getAllChargeDefinitions(productIdentifier);
-
-    return chargeDefinitions
-        .filter(x -> x.getAccrueAction() != null)
-        .collect(Collectors.groupingBy(ChargeDefinition::getAccrueAction,
-            Collectors.mapping(x -> x, Collectors.toList())));
+    return getChargeDefinitionTable(productIdentifier).getChargeDefinitionsMappedByAccrueAction();
   }
 
   private static ChargeDefinition charge(
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledChargeComparator;
+import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The charge definitions of one product, grouped by charge action and by accrue action, with each group in the order
+ * in which proportional charges are applied.  A table is never changed after it is built, so it can be shared between
+ * threads.  The charge definitions in it are shared too, and must not be changed by their users.
+ *
+ * @author Myrle Krantz
+ */
+public final class ChargeDefinitionTable {
+  private static final Comparator<ChargeDefinition> APPLICATION_ORDER
+      = ((Comparator<ChargeDefinition>) ScheduledChargeComparator::proportionalityApplicationOrder)
+      .thenComparing(ChargeDefinition::getIdentifier);
+
+  private final String productIdentifier;
+  private final long version;
+  private final Map<String, List<ChargeDefinition>> chargeDefinitionsByChargeAction;
+  private final Map<String, List<ChargeDefinition>> chargeDefinitionsByAccrueAction;
+
+  ChargeDefinitionTable(
+      final String productIdentifier,
+      final long version,
+      final List<ChargeDefinition> chargeDefinitions) {
+    this.productIdentifier = productIdentifier;
+    this.version = version;
+    this.chargeDefinitionsByChargeAction = groupBy(chargeDefinitions, ChargeDefinition::getChargeAction);
+    this.chargeDefinitionsByAccrueAction = groupBy(
+        chargeDefinitions.stream().filter(x -> x.getAccrueAction() != null).collect(Collectors.toList()),
+        ChargeDefinition::getAccrueAction);
+  }
+
+  boolean isFor(final String productIdentifier, final long version) {
+    return this.productIdentifier.equals(productIdentifier) && this.version == version;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Map<String, List<ChargeDefinition>> getChargeDefinitionsMappedByChargeAction() {
+    return chargeDefinitionsByChargeAction;
+  }
+
+  public Map<String, List<ChargeDefinition>> getChargeDefinitionsMappedByAccrueAction() {
+    return chargeDefinitionsByAccrueAction;
+  }
+
+  private static Map<String, List<ChargeDefinition>> groupBy(
+      final List<ChargeDefinition> chargeDefinitions,
+      final Function<ChargeDefinition, String> action) {
+    return Collections.unmodifiableMap(chargeDefinitions.stream()
+        .sorted(APPLICATION_ORDER)
+        .collect(Collectors.groupingBy(action,
+            Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList))));
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeTotalEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeTotalRepository;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the charge totals with the entries in accounting, and corrects the totals which have drifted, for
+ * example because a command booked to accounting, but then failed before its transaction was committed.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class ChargeTotalsReconciliationService {
+  private final ChargeTotalRepository chargeTotalRepository;
+  private final ChargeTotalsService chargeTotalsService;
+  private final CaseRepository caseRepository;
+  private final CaseParametersRepository caseParametersRepository;
+  private final ProductRepository productRepository;
+  private final AccountingAdapter accountingAdapter;
+  private final PortfolioProperties portfolioProperties;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger logger;
+
+  @Autowired
+  public ChargeTotalsReconciliationService(
+      final ChargeTotalRepository chargeTotalRepository,
+      final ChargeTotalsService chargeTotalsService,
+      final CaseRepository caseRepository,
+      final CaseParametersRepository caseParametersRepository,
+      final ProductRepository productRepository,
+      final AccountingAdapter accountingAdapter,
+      final PortfolioProperties portfolioProperties,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.chargeTotalRepository = chargeTotalRepository;
+    this.chargeTotalsService = chargeTotalsService;
+    this.caseRepository = caseRepository;
+    this.caseParametersRepository = caseParametersRepository;
+    this.productRepository = productRepository;
+    this.accountingAdapter = accountingAdapter;
+    this.portfolioProperties = portfolioProperties;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.logger = logger;
+  }
+
+  /**
+   * @return the number of totals which did not match accounting, and were corrected.
+   */
+  public int reconcile() {
+    final Map<String, ProductEntity> productsByIdentifier = new HashMap<>();
+    int corrected = 0;
+
+    Long lastChargeTotalId = 0L;
+    while (lastChargeTotalId != null) {
+      final Long afterChargeTotalId = lastChargeTotalId;
+      final ReconciledBlock reconciledBlock = transactionTemplate.execute(status ->
+          reconcileBlock(afterChargeTotalId, productsByIdentifier));
+      corrected += reconciledBlock.corrected;
+      lastChargeTotalId = reconciledBlock.lastChargeTotalId;
+    }
+
+    logger.info("Charge total reconciliation finished, {} totals were corrected.", corrected);
+    return corrected;
+  }
+
+  private static class ReconciledBlock {
+    final @Nullable Long lastChargeTotalId;
+    final int corrected;
+
+    ReconciledBlock(final @Nullable Long lastChargeTotalId, final int corrected) {
+      this.lastChargeTotalId = lastChargeTotalId;
+      this.corrected = corrected;
+    }
+  }
+
+  private ReconciledBlock reconcileBlock(
+      final Long afterChargeTotalId,
+      final Map<String, ProductEntity> productsByIdentifier) {
+    final int blockSize = portfolioProperties.getLatenessCheckBlockSize();
+    final List<ChargeTotalEntity> chargeTotals = chargeTotalRepository.findByIdGreaterThanOrderByIdAsc(
+        afterChargeTotalId, new PageRequest(0, blockSize));
+    if (chargeTotals.isEmpty())
+      return new ReconciledBlock(null, 0);
+
+    final Map<Long, List<ChargeTotalEntity>> chargeTotalsByCaseId = chargeTotals.stream()
+        .collect(Collectors.groupingBy(ChargeTotalEntity::getCaseId));
+    final Map<Long, CaseParametersEntity> caseParametersByCaseId
+        = caseParametersRepository.findByCaseIdIn(chargeTotalsByCaseId.keySet())
+        .stream()
+        .collect(Collectors.toMap(CaseParametersEntity::getCaseId, Function.identity()));
+
+    final Map<String, ProductAccountAssignmentIndex> productAccountAssignmentIndexes = new HashMap<>();
+    int corrected = 0;
+    for (final Map.Entry<Long, List<ChargeTotalEntity>> caseChargeTotals : chargeTotalsByCaseId.entrySet()) {
+      final CaseEntity customerCase = caseRepository.findOne(caseChargeTotals.getKey());
+      final CaseParametersEntity caseParameters = caseParametersByCaseId.get(caseChargeTotals.getKey());
+      if (customerCase == null || caseParameters == null)
+        continue;
+
+      try {
+        final ProductEntity product = productsByIdentifier.computeIfAbsent(
+            customerCase.getProductIdentifier(), this::checkedGetProduct);
+        corrected += reconcileCase(
+            new DataContextOfAction(product, customerCase, caseParameters, null,
+                productAccountAssignmentIndexes.computeIfAbsent(
+                    product.getIdentifier(), x -> ProductAccountAssignmentIndex.of(product))),
+            caseChargeTotals.getValue());
+      }
+      catch (final ServiceException e) {
+        logger.warn("Reconciling the charge totals of case '{}.{}' failed.",
+            customerCase.getProductIdentifier(), customerCase.getIdentifier(), e);
+      }
+    }
+
+    final Long lastChargeTotalId = chargeTotals.size() < blockSize ? null : chargeTotals.get(chargeTotals.size() - 1).getId();
+    return new ReconciledBlock(lastChargeTotalId, corrected);
+  }
+
+  private int reconcileCase(
+      final DataContextOfAction dataContextOfAction,
+      final List<ChargeTotalEntity> chargeTotals) {
+    final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper
+        = dataContextOfAction.getDesignatorToAccountIdentifierMapper();
+
+    int corrected = 0;
+    for (final ChargeTotalEntity chargeTotal : chargeTotals) {
+      final BigDecimal sumInAccounting = accountingAdapter.sumMatchingEntriesSinceDate(
+          designatorToAccountIdentifierMapper.mapOrThrow(chargeTotal.getDesignator()),
+          chargeTotal.getCountedSince().toLocalDate(),
+          dataContextOfAction.getMessageForCharge(Action.valueOf(chargeTotal.getActionName())));
+      if (sumInAccounting.compareTo(chargeTotal.getTotal()) == 0)
+        continue;
+
+      logger.warn("Charge total for '{}' '{}' of case '{}' was {} but accounting has {}.",
+          chargeTotal.getDesignator(), chargeTotal.getActionName(), dataContextOfAction.getCompoundIdentifer(),
+          chargeTotal.getTotal(), sumInAccounting);
+      chargeTotal.setTotal(sumInAccounting);
+      chargeTotalsService.forgetDayTotals(chargeTotal);
+      chargeTotalRepository.save(chargeTotal);
+      corrected++;
+    }
+    return corrected;
+  }
+
+  private ProductEntity checkedGetProduct(final String productIdentifier) {
+    return productRepository.findByIdentifier(productIdentifier)
+        .orElseThrow(() -> ServiceException.notFound("Product not found ''{0}''.", productIdentifier));
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeDayTotalEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeDayTotalRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeTotalEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeTotalRepository;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps a running total per case, designator, and action of the amounts booked to accounting, so that
+ * sums of charges don't require reading the entire history of an account from accounting.
+ *
+ * Cases created after the totals were introduced have all of their bookings counted, and also per day of
+ * booking, so that the sum since any date can be answered.  For older cases, a total is seeded from accounting
+ * the first time it is requested, and is only valid for the date it was seeded for.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class ChargeTotalsService {
+  private final ChargeTotalRepository chargeTotalRepository;
+  private final ChargeDayTotalRepository chargeDayTotalRepository;
+
+  @Autowired
+  public ChargeTotalsService(
+      final ChargeTotalRepository chargeTotalRepository,
+      final ChargeDayTotalRepository chargeDayTotalRepository) {
+    this.chargeTotalRepository = chargeTotalRepository;
+    this.chargeDayTotalRepository = chargeDayTotalRepository;
+  }
+
+  /**
+   * @return the sum of the amounts booked for the action to the account behind the designator with a transaction
+   * date on or after since, or empty if that sum cannot be determined without asking accounting.
+   */
+  public Optional<BigDecimal> findTotalSince(
+      final DataContextOfAction dataContextOfAction,
+      final String accountDesignator,
+      final Action action,
+      final LocalDate since) {
+    final Long caseId = dataContextOfAction.getCustomerCaseEntity().getId();
+    if (caseId == null)
+      return Optional.empty();
+
+    final boolean complete = dataContextOfAction.getCaseParametersEntity().isChargeTotalsComplete();
+    final Optional<ChargeTotalEntity> chargeTotal
+        = chargeTotalRepository.findByCaseIdAndDesignatorAndActionName(caseId, accountDesignator, action.name());
+    if (!chargeTotal.isPresent())
+      return complete ? Optional.of(BigDecimal.ZERO) : Optional.empty();
+
+    final int minorCurrencyUnitDigits = dataContextOfAction.getProductEntity().getMinorCurrencyUnitDigits();
+    final LocalDate countedSince = chargeTotal.get().getCountedSince().toLocalDate();
+    //For complete cases, countedSince is the date of the first booking, so nothing was booked earlier.
+    if (since.isEqual(countedSince) || (complete && since.isBefore(countedSince)))
+      return Optional.of(asAccountingWouldSumIt(chargeTotal.get().getTotal(), minorCurrencyUnitDigits));
+
+    final LocalDateTime countedByDaySince = chargeTotal.get().getCountedByDaySince();
+    if (countedByDaySince == null || since.isBefore(countedByDaySince.toLocalDate()))
+      return Optional.empty();
+
+    final BigDecimal total = Optional.ofNullable(
+        chargeDayTotalRepository.sumSince(caseId, accountDesignator, action.name(), since.atStartOfDay()))
+        .orElse(BigDecimal.ZERO);
+    return Optional.of(asAccountingWouldSumIt(total, minorCurrencyUnitDigits));
+  }
+
+  /**
+   * Remembers a sum read from accounting, so that the next request for the same date can be answered locally.
+   */
+  public void seedTotal(
+      final DataContextOfAction dataContextOfAction,
+      final String accountDesignator,
+      final Action action,
+      final LocalDate since,
+      final BigDecimal total) {
+    final Long caseId = dataContextOfAction.getCustomerCaseEntity().getId();
+    if (caseId == null || dataContextOfAction.getCaseParametersEntity().isChargeTotalsComplete())
+      return;
+
+    final Optional<ChargeTotalEntity> existingChargeTotal
+        = chargeTotalRepository.findByCaseIdAndDesignatorAndActionName(caseId, accountDesignator, action.name());
+    if (!existingChargeTotal.isPresent()) {
+      //If a total was seeded in the meantime, it is as good as this one.
+      chargeTotalRepository.insertIfAbsent(
+          caseId, accountDesignator, action.name(), total, Timestamp.valueOf(since.atStartOfDay()));
+      return;
+    }
+
+    //A total counted from an earlier date can answer more questions, so it isn't replaced.
+    final ChargeTotalEntity chargeTotal = existingChargeTotal.get();
+    if (!since.isBefore(chargeTotal.getCountedSince().toLocalDate()))
+      return;
+
+    chargeTotal.setTotal(total);
+    chargeTotal.setCountedSince(since.atStartOfDay());
+    chargeTotalRepository.save(chargeTotal);
+  }
+
+  /**
+   * Adds a booking to the totals.  Must be called with the same balance adjustments and mapper which were
+   * used to book the charges to accounting.
+   */
+  public void recordBooking(
+      final DataContextOfAction dataContextOfAction,
+      final Map<String, BigDecimal> balanceAdjustments,
+      final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper,
+      final Action action,
+      final String transactionDate) {
+    final Long caseId = dataContextOfAction.getCustomerCaseEntity().getId();
+    final boolean complete = dataContextOfAction.getCaseParametersEntity().isChargeTotalsComplete();
+    final LocalDateTime bookedOn = DateConverter.fromIsoString(transactionDate);
+
+    //Accounting receives one entry per account, so the amounts are summed the same way here.
+    final Map<String, BigDecimal> amountsByAccount = balanceAdjustments.entrySet().stream()
+        .collect(Collectors.groupingBy(entry -> designatorToAccountIdentifierMapper.mapOrThrow(entry.getKey()),
+            Collectors.mapping(Map.Entry::getValue, Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))));
+
+    balanceAdjustments.keySet().forEach(accountDesignator -> {
+      final BigDecimal amount = amountsByAccount.get(designatorToAccountIdentifierMapper.mapOrThrow(accountDesignator)).abs();
+      if (amount.compareTo(BigDecimal.ZERO) == 0)
+        return;
+
+      final Optional<ChargeTotalEntity> existingChargeTotal
+          = chargeTotalRepository.findByCaseIdAndDesignatorAndActionName(caseId, accountDesignator, action.name());
+      if (!existingChargeTotal.isPresent() && !complete)
+        return; //Earlier bookings are unknown.  The total will be seeded from accounting when it is needed.
+
+      final ChargeTotalEntity chargeTotal = existingChargeTotal.orElseGet(() -> {
+        final ChargeTotalEntity ret = new ChargeTotalEntity();
+        ret.setCaseId(caseId);
+        ret.setDesignator(accountDesignator);
+        ret.setActionName(action.name());
+        ret.setTotal(BigDecimal.ZERO);
+        ret.setCountedSince(bookedOn.toLocalDate().atStartOfDay());
+        ret.setCountedByDaySince(bookedOn.toLocalDate().atStartOfDay());
+        return ret;
+      });
+      final LocalDate bookedOnDate = bookedOn.toLocalDate();
+      if (bookedOnDate.isBefore(chargeTotal.getCountedSince().toLocalDate())) {
+        if (!complete)
+          return; //Accounting wouldn't count this booking for the date the total was seeded for either.
+        chargeTotal.setCountedSince(bookedOnDate.atStartOfDay());
+      }
+      chargeTotal.setTotal(chargeTotal.getTotal().add(amount));
+      chargeTotal.setLastBookedOn(bookedOn);
+      if (chargeTotal.getCountedByDaySince() != null) {
+        if (bookedOnDate.isBefore(chargeTotal.getCountedByDaySince().toLocalDate()))
+          chargeTotal.setCountedByDaySince(bookedOnDate.atStartOfDay());
+        recordDayTotal(chargeTotal, bookedOnDate, amount);
+      }
+      chargeTotalRepository.save(chargeTotal);
+    });
+  }
+
+  /**
+   * Forgets the day totals of a total which was corrected, since they can't be corrected with it.  Sums since a
+   * date other than the one the total was counted since are then read from accounting again.
+   */
+  public void forgetDayTotals(final ChargeTotalEntity chargeTotal) {
+    if (chargeTotal.getCountedByDaySince() == null)
+      return;
+
+    chargeTotal.setCountedByDaySince(null);
+    chargeDayTotalRepository.deleteByCaseIdAndDesignatorAndActionName(
+        chargeTotal.getCaseId(), chargeTotal.getDesignator(), chargeTotal.getActionName());
+  }
+
+  private void recordDayTotal(
+      final ChargeTotalEntity chargeTotal,
+      final LocalDate bookedOnDate,
+      final BigDecimal amount) {
+    final ChargeDayTotalEntity chargeDayTotal = chargeDayTotalRepository
+        .findByCaseIdAndDesignatorAndActionNameAndBookedOn(
+            chargeTotal.getCaseId(), chargeTotal.getDesignator(), chargeTotal.getActionName(), bookedOnDate.atStartOfDay())
+        .orElseGet(() -> {
+          final ChargeDayTotalEntity ret = new ChargeDayTotalEntity();
+          ret.setCaseId(chargeTotal.getCaseId());
+          ret.setDesignator(chargeTotal.getDesignator());
+          ret.setActionName(chargeTotal.getActionName());
+          ret.setBookedOn(bookedOnDate.atStartOfDay());
+          ret.setTotal(BigDecimal.ZERO);
+          return ret;
+        });
+    chargeDayTotal.setTotal(chargeDayTotal.getTotal().add(amount));
+    chargeDayTotalRepository.save(chargeDayTotal);
+  }
+
+  /**
+   * Sums are returned with the digits of the product's currency, whether they come from the totals or from
+   * accounting, so that the results of calculations don't depend on where the sum came from.
+   */
+  public static BigDecimal asAccountingWouldSumIt(final BigDecimal total, final int minorCurrencyUnitDigits) {
+    return total.setScale(minorCurrencyUnitDigits, RoundingMode.HALF_EVEN);
+  }
+}
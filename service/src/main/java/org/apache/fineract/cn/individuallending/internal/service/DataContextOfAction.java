@@ -43,17 +43,34 @@ public class DataContextOfAction {
   private final CaseEntity customerCase;
   private final CaseParametersEntity caseParameters;
   private final List<AccountAssignment> oneTimeAccountAssignments;
+  private @Nullable ProductAccountAssignmentIndex productAccountAssignmentIndex;
+  private @Nullable DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper;
 
   public DataContextOfAction(
       final @Nonnull ProductEntity product,
       final @Nonnull CaseEntity customerCase,
       final @Nonnull CaseParametersEntity caseParameters,
       final @Nullable List<AccountAssignment> oneTimeAccountAssignments)
+  {
+    this(product, customerCase, caseParameters, oneTimeAccountAssignments, null);
+  }
+
+  /**
+   * @param productAccountAssignmentIndex the index of the product's account assignments, if one was already built
+   *                                      for another case of the product.  Otherwise it is built when it is needed.
+   */
+  public DataContextOfAction(
+      final @Nonnull ProductEntity product,
+      final @Nonnull CaseEntity customerCase,
+      final @Nonnull CaseParametersEntity caseParameters,
+      final @Nullable List<AccountAssignment> oneTimeAccountAssignments,
+      final @Nullable ProductAccountAssignmentIndex productAccountAssignmentIndex)
   {
     this.product = product;
     this.customerCase = customerCase;
     this.caseParameters = caseParameters;
     this.oneTimeAccountAssignments = oneTimeAccountAssignments == null ? Collections.emptyList() : oneTimeAccountAssignments;
+    this.productAccountAssignmentIndex = productAccountAssignmentIndex;
   }
 
   public @Nonnull ProductEntity getProductEntity() {
@@ -76,6 +93,21 @@ public class DataContextOfAction {
     return oneTimeAccountAssignments;
   }
 
+  @Nonnull ProductAccountAssignmentIndex getProductAccountAssignmentIndex() {
+    if (productAccountAssignmentIndex == null)
+      productAccountAssignmentIndex = ProductAccountAssignmentIndex.of(product);
+    return productAccountAssignmentIndex;
+  }
+
+  /**
+   * @return the mapper for this action, which is built the first time it is requested.
+   */
+  public @Nonnull DesignatorToAccountIdentifierMapper getDesignatorToAccountIdentifierMapper() {
+    if (designatorToAccountIdentifierMapper == null)
+      designatorToAccountIdentifierMapper = new DesignatorToAccountIdentifierMapper(this);
+    return designatorToAccountIdentifierMapper;
+  }
+
   public String getCompoundIdentifer() {
     return product.getIdentifier() + "." + customerCase.getIdentifier();
   }
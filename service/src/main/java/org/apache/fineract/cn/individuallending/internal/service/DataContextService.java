@@ -19,6 +19,8 @@
 package org.apache.fineract.cn.individuallending.internal.service;
 
 import com.google.gson.Gson;
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
 import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseParameters;
 import org.apache.fineract.cn.individuallending.internal.mapper.CaseParametersMapper;
 import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
@@ -32,8 +34,10 @@ import org.apache.fineract.cn.portfolio.service.internal.repository.CaseReposito
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.fineract.cn.lang.ServiceException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
@@ -47,6 +51,7 @@ public class DataContextService {
   private final CaseRepository caseRepository;
   private final CaseParametersRepository caseParametersRepository;
   private final Gson gson;
+  private final ExpiringMap<String, ProductAccountAssignmentIndex> productAccountAssignmentIndexes;
 
   @Autowired
   public DataContextService(
@@ -58,6 +63,11 @@ public class DataContextService {
     this.caseRepository = caseRepository;
     this.caseParametersRepository = caseParametersRepository;
     this.gson = gson;
+    this.productAccountAssignmentIndexes = ExpiringMap.builder()
+        .maxSize(1000)
+        .expirationPolicy(ExpirationPolicy.ACCESSED)
+        .expiration(1, TimeUnit.HOURS)
+        .build();
   }
 
   public DataContextOfAction checkedGetDataContext(
@@ -83,7 +93,8 @@ public class DataContextService {
         product,
         customerCase,
         caseParameters,
-        oneTimeAccountAssignments);
+        oneTimeAccountAssignments,
+        getProductAccountAssignmentIndex(product));
   }
 
   public DataContextOfAction checkedGetDataContext(
@@ -104,6 +115,22 @@ public class DataContextService {
         product,
         customerCase,
         caseParameters,
-        oneTimeAccountAssignments);
+        oneTimeAccountAssignments,
+        getProductAccountAssignmentIndex(product));
+  }
+
+  /**
+   * Product account assignments are the same for every case of a product, so their index is shared between
+   * commands for as long as the product is unchanged.
+   */
+  private ProductAccountAssignmentIndex getProductAccountAssignmentIndex(final ProductEntity product) {
+    final String key = TenantContextHolder.checkedGetIdentifier() + "." + product.getIdentifier();
+    final ProductAccountAssignmentIndex cached = productAccountAssignmentIndexes.get(key);
+    if (cached != null && cached.isFor(product))
+      return cached;
+
+    final ProductAccountAssignmentIndex ret = ProductAccountAssignmentIndex.of(product);
+    productAccountAssignmentIndexes.put(key, ret);
+    return ret;
   }
 }
@@ -22,10 +22,9 @@ import org.apache.fineract.cn.individuallending.IndividualLendingPatternFactory;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
 import org.apache.fineract.cn.portfolio.api.v1.domain.RequiredAccountAssignment;
-import org.apache.fineract.cn.portfolio.service.internal.mapper.CaseMapper;
-import org.apache.fineract.cn.portfolio.service.internal.mapper.ProductMapper;
 import org.apache.fineract.cn.portfolio.service.internal.repository.CaseAccountAssignmentEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductAccountAssignmentEntity;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -35,18 +34,27 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.fineract.cn.lang.ServiceException;
 
 /**
+ * Maps account designators to account identifiers.  One-time account assignments take precedence over case account
+ * assignments, which take precedence over product account assignments.  Lookups are answered from indexes.  The one
+ * for the product is shared between the cases of the product.  The one for the case is rebuilt when account
+ * assignments are added to the case, which happens while accounts are created for the case.
+ *
  * @author Myrle Krantz
  */
 public class DesignatorToAccountIdentifierMapper {
-  private final @Nonnull Set<ProductAccountAssignmentEntity> productAccountAssignments;
+  private final @Nonnull ProductAccountAssignmentIndex productAccountAssignmentIndex;
   private final @Nonnull Set<CaseAccountAssignmentEntity> caseAccountAssignments;
   private final @Nonnull List<AccountAssignment> oneTimeAccountAssignments;
+  private final @Nonnull Map<String, Optional<String>> oneTimeAccountIdentifiers;
+  private @Nullable Map<String, Optional<String>> caseAccountIdentifiers;
+  private int caseAccountIdentifiersBuiltFrom;
 
   public DesignatorToAccountIdentifierMapper(final @Nonnull DataContextOfAction dataContextOfAction) {
-    this(dataContextOfAction.getProductEntity().getAccountAssignments(),
+    this(dataContextOfAction.getProductAccountAssignmentIndex(),
         dataContextOfAction.getCustomerCaseEntity().getAccountAssignments(),
         dataContextOfAction.getOneTimeAccountAssignments());
   }
@@ -55,49 +63,67 @@ public class DesignatorToAccountIdentifierMapper {
       final @Nonnull Set<ProductAccountAssignmentEntity> productAccountAssignments,
       final @Nonnull Set<CaseAccountAssignmentEntity> caseAccountAssignments,
       final @Nonnull List<AccountAssignment> oneTimeAccountAssignments) {
+    this(ProductAccountAssignmentIndex.of(productAccountAssignments), caseAccountAssignments, oneTimeAccountAssignments);
+  }
 
-    this.productAccountAssignments = productAccountAssignments;
+  private DesignatorToAccountIdentifierMapper(
+      final @Nonnull ProductAccountAssignmentIndex productAccountAssignmentIndex,
+      final @Nonnull Set<CaseAccountAssignmentEntity> caseAccountAssignments,
+      final @Nonnull List<AccountAssignment> oneTimeAccountAssignments) {
+
+    this.productAccountAssignmentIndex = productAccountAssignmentIndex;
     this.caseAccountAssignments = caseAccountAssignments;
     this.oneTimeAccountAssignments = oneTimeAccountAssignments;
+    this.oneTimeAccountIdentifiers = new HashMap<>();
+    oneTimeAccountAssignments.forEach(x ->
+        oneTimeAccountIdentifiers.putIfAbsent(x.getDesignator(), Optional.ofNullable(x.getAccountIdentifier())));
   }
 
-  private Stream<AccountAssignment> allAccountAssignmentsAsStream() {
-    return Stream.concat(oneTimeAccountAssignments.stream(), fixedAccountAssignmentsAsStream());
-  }
-
-  private Stream<AccountAssignment> fixedAccountAssignmentsAsStream() {
-    return Stream.concat(caseAccountAssignments.stream().map(CaseMapper::mapAccountAssignmentEntity),
-        productAccountAssignmentsAsStream());
+  private Map<String, Optional<String>> getCaseAccountIdentifiers() {
+    //Account assignments are only ever added to a case, so a change in size is enough to notice a change.
+    if (caseAccountIdentifiers == null || caseAccountIdentifiersBuiltFrom != caseAccountAssignments.size()) {
+      final Map<String, Optional<String>> ret = new HashMap<>();
+      caseAccountAssignments.forEach(x -> ret.putIfAbsent(x.getDesignator(), Optional.ofNullable(x.getIdentifier())));
+      caseAccountIdentifiers = ret;
+      caseAccountIdentifiersBuiltFrom = caseAccountAssignments.size();
+    }
+    return caseAccountIdentifiers;
   }
 
   private Stream<AccountAssignment> productAccountAssignmentsAsStream() {
-    return productAccountAssignments.stream().map(ProductMapper::mapAccountAssignmentEntity);
-  }
-
-  private Optional<AccountAssignment> mapToAccountAssignment(final @Nonnull String accountDesignator) {
-    return allAccountAssignmentsAsStream()
-        .filter(x -> x.getDesignator().equals(accountDesignator))
-        .findFirst();
+    return productAccountAssignmentIndex.getAccountAssignments().stream();
   }
 
   private Optional<AccountAssignment> mapToProductAccountAssignment(final @Nonnull String accountDesignator) {
-    return productAccountAssignments.stream().map(ProductMapper::mapAccountAssignmentEntity)
-        .filter(x -> x.getDesignator().equals(accountDesignator))
-        .findFirst();
+    return productAccountAssignmentIndex.findAccountAssignment(accountDesignator);
   }
 
   Optional<AccountAssignment> mapToCaseAccountAssignment(final @Nonnull String accountDesignator) {
-    return caseAccountAssignments.stream().map(CaseMapper::mapAccountAssignmentEntity)
-        .filter(x -> x.getDesignator().equals(accountDesignator))
-        .findFirst();
+    final Optional<String> accountIdentifier = getCaseAccountIdentifiers().get(accountDesignator);
+    //noinspection OptionalAssignedToNull
+    if (accountIdentifier == null)
+      return Optional.empty();
+
+    final AccountAssignment ret = new AccountAssignment();
+    ret.setDesignator(accountDesignator);
+    ret.setAccountIdentifier(accountIdentifier.orElse(null));
+    return Optional.of(ret);
   }
 
   public Optional<String> map(final @Nonnull String accountDesignator) {
-    final Set<String> accountAssignmentGroups = IndividualLendingPatternFactory.individualLendingPattern().getAccountAssignmentGroups();
-    if (accountAssignmentGroups.contains(accountDesignator))
+    if (IndividualLendingPatternFactory.individualLendingTopology().isGroup(accountDesignator))
       return Optional.empty();
-    return mapToAccountAssignment(accountDesignator)
-        .map(AccountAssignment::getAccountIdentifier);
+
+    //The first assignment found for the designator decides, even if it is to a ledger rather than an account.
+    Optional<String> ret = oneTimeAccountIdentifiers.get(accountDesignator);
+    //noinspection OptionalAssignedToNull
+    if (ret == null)
+      ret = getCaseAccountIdentifiers().get(accountDesignator);
+    //noinspection OptionalAssignedToNull
+    if (ret == null)
+      ret = productAccountAssignmentIndex.findAccountIdentifier(accountDesignator);
+    //noinspection OptionalAssignedToNull
+    return ret == null ? Optional.empty() : ret;
   }
 
   public String mapOrThrow(final @Nonnull String accountDesignator) {
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.IndividualLendingPatternFactory;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledActionHelpers;
+import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.api.v1.domain.ImportParameters;
+import org.apache.fineract.cn.portfolio.service.internal.mapper.CaseMapper;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseAccountAssignmentEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.TaskInstanceRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountIdentifierAllocator;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Imports cases, whether one at a time by the import command, or many at once in an import batch.  The accounts of
+ * approved cases are created here too.  The accounts of a case are created in two steps, so that the ledgers of many
+ * cases can be created before waiting for any of them: first the case specific ledgers are requested from
+ * accounting, and then, once accounting has created them, the accounts.  The account assignments created are added
+ * to the case, and the changed case is left for the caller to save, as are the case parameters changed on activation.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class ImportActivationService {
+  private final DataContextService dataContextService;
+  private final TaskInstanceRepository taskInstanceRepository;
+  private final AccountingAdapter accountingAdapter;
+  private final CaseSummaryService caseSummaryService;
+  private final RepaymentCalendarCache repaymentCalendarCache;
+
+  @Autowired
+  public ImportActivationService(
+      final DataContextService dataContextService,
+      final TaskInstanceRepository taskInstanceRepository,
+      final AccountingAdapter accountingAdapter,
+      final CaseSummaryService caseSummaryService,
+      final RepaymentCalendarCache repaymentCalendarCache) {
+    this.dataContextService = dataContextService;
+    this.taskInstanceRepository = taskInstanceRepository;
+    this.accountingAdapter = accountingAdapter;
+    this.caseSummaryService = caseSummaryService;
+    this.repaymentCalendarCache = repaymentCalendarCache;
+  }
+
+  public DataContextOfAction checkedGetImportableDataContext(
+      final String productIdentifier,
+      final String caseIdentifier,
+      final ImportParameters importParameters) {
+    final DataContextOfAction dataContextOfAction = dataContextService.checkedGetDataContext(
+        productIdentifier, caseIdentifier, importParameters.getCaseAccountAssignments());
+    IndividualLendingPatternFactory.checkActionCanBeExecuted(
+        Case.State.valueOf(dataContextOfAction.getCustomerCaseEntity().getCurrentState()), Action.IMPORT);
+
+    if (taskInstanceRepository.areTasksOutstanding(productIdentifier, caseIdentifier, Action.IMPORT.name()))
+      throw ServiceException.conflict("Cannot execute action ''{0}'' for case ''{1}.{2}'' because tasks are incomplete.",
+          Action.IMPORT.name(), productIdentifier, caseIdentifier);
+    return dataContextOfAction;
+  }
+
+  /**
+   * Requests the ledgers of the case's account assignment groups from accounting.  Groups which were already
+   * assigned a ledger, by an import which was interrupted after this step, are skipped.
+   */
+  public List<AccountingAdapter.PendingLedger> startLedgerCreations(
+      final DataContextOfAction dataContextOfAction,
+      final AccountIdentifierAllocator identifierAllocator) {
+    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
+    final String customerIdentifier = dataContextOfAction.getCaseParametersEntity().getCustomerIdentifier();
+    final Set<String> assignedDesignators = customerCase.getAccountAssignments().stream()
+        .map(CaseAccountAssignmentEntity::getDesignator)
+        .collect(Collectors.toSet());
+
+    return dataContextOfAction.getDesignatorToAccountIdentifierMapper().getGroupsNeedingLedgers()
+        .filter(groupNeedingLedger -> !assignedDesignators.contains(groupNeedingLedger.getGroupName()))
+        .map(groupNeedingLedger -> {
+          final AccountingAdapter.PendingLedger pendingLedger = accountingAdapter.startLedgerCreation(
+              customerIdentifier,
+              groupNeedingLedger.getGroupName(),
+              groupNeedingLedger.getParentLedger(),
+              identifierAllocator);
+          final AccountAssignment accountAssignment
+              = new AccountAssignment(groupNeedingLedger.getGroupName(), pendingLedger.getIdentifier());
+          customerCase.getAccountAssignments().add(CaseMapper.map(accountAssignment, customerCase));
+          return pendingLedger;
+        })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Creates the accounts of the case, in the ledgers assigned to its groups if there are any.  Those ledgers must
+   * have been created by accounting already.
+   */
+  public List<AccountAssignment> createAccounts(
+      final DataContextOfAction dataContextOfAction,
+      final Map<String, BigDecimal> currentBalances,
+      final AccountIdentifierAllocator identifierAllocator) {
+    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
+    final String customerIdentifier = dataContextOfAction.getCaseParametersEntity().getCustomerIdentifier();
+
+    return dataContextOfAction.getDesignatorToAccountIdentifierMapper().getLedgersNeedingAccounts()
+        .map(ledger -> {
+          final BigDecimal currentBalance = currentBalances.getOrDefault(ledger.getDesignator(), BigDecimal.ZERO);
+          final AccountAssignment accountAssignment = new AccountAssignment(ledger.getDesignator(),
+              accountingAdapter.createOrFindCaseAccountForLedgerAssignment(
+                  customerIdentifier, ledger, currentBalance, identifierAllocator));
+          customerCase.getAccountAssignments().add(CaseMapper.map(accountAssignment, customerCase));
+          return accountAssignment;
+        })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Activates a case whose accounts were created.  The commands to record for it are passed to the recorder with the
+   * time they happened, so that a batch can record the commands of many cases at once.
+   */
+  public void activate(
+      final DataContextOfAction dataContextOfAction,
+      final ImportParameters importParameters,
+      final BiConsumer<Action, String> commandRecorder) {
+    commandRecorder.accept(Action.DISBURSE, importParameters.getStartOfTerm());
+    commandRecorder.accept(Action.IMPORT, importParameters.getCreatedOn());
+
+    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
+    final LocalDate startOfTerm = DateConverter.fromIsoString(importParameters.getStartOfTerm()).toLocalDate();
+    final LocalDateTime endOfTerm = ScheduledActionHelpers.getRoughEndDate(startOfTerm, dataContextOfAction.getCaseParameters())
+        .atTime(LocalTime.MIDNIGHT);
+    customerCase.setStartOfTerm(startOfTerm.atTime(LocalTime.MIDNIGHT));
+    customerCase.setEndOfTerm(endOfTerm);
+    customerCase.setCurrentState(Case.State.ACTIVE.name());
+    repaymentCalendarCache.invalidate(customerCase.getId());
+
+    final CaseParametersEntity caseParameters = dataContextOfAction.getCaseParametersEntity();
+    caseParameters.setPaymentSize(importParameters.getPaymentSize());
+
+    caseSummaryService.recordImport(dataContextOfAction,
+        importParameters.getCurrentBalances(),
+        importParameters.getCreatedOn());
+  }
+}
@@ -18,32 +18,25 @@
  */
 package org.apache.fineract.cn.individuallending.internal.service;
 
-import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.ChargeName;
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseParameters;
 import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPayment;
 import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPaymentPage;
-import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
 import org.apache.fineract.cn.individuallending.internal.service.costcomponent.CostComponentService;
-import org.apache.fineract.cn.individuallending.internal.service.costcomponent.PaymentBuilder;
-import org.apache.fineract.cn.individuallending.internal.service.costcomponent.SimulatedRunningBalances;
-import org.apache.fineract.cn.individuallending.internal.service.schedule.Period;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendar;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledAction;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledActionHelpers;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledCharge;
-import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledChargeComparator;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledChargesService;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import org.apache.fineract.cn.lang.ServiceException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -55,6 +48,9 @@ import org.springframework.stereotype.Service;
 @Service
 public class IndividualLoanService {
   private final ScheduledChargesService scheduledChargesService;
+  private final RepaymentCalendarCache repaymentCalendarCache;
+  private final PlannedPaymentScheduleCache plannedPaymentScheduleCache;
+  private final ChargeDefinitionVersions chargeDefinitionVersions;
 
   public static class PlannedPaymentWindow {
     final int pageIndex;
@@ -73,19 +69,57 @@ public class IndividualLoanService {
   }
 
   @Autowired
-  public IndividualLoanService(final ScheduledChargesService scheduledChargesService) {
+  public IndividualLoanService(
+      final ScheduledChargesService scheduledChargesService,
+      final RepaymentCalendarCache repaymentCalendarCache,
+      final PlannedPaymentScheduleCache plannedPaymentScheduleCache,
+      final ChargeDefinitionVersions chargeDefinitionVersions) {
     this.scheduledChargesService = scheduledChargesService;
+    this.repaymentCalendarCache = repaymentCalendarCache;
+    this.plannedPaymentScheduleCache = plannedPaymentScheduleCache;
+    this.chargeDefinitionVersions = chargeDefinitionVersions;
   }
 
+  /**
+   * Only the payments up to the end of the requested page are calculated.  For persisted cases, the schedule is
+   * cached, so that requesting the next page continues the calculation instead of repeating it.
+   */
   public PlannedPaymentPage getPlannedPaymentsPage(
       final DataContextOfAction dataContextOfAction,
       final PlannedPaymentWindow plannedPaymentWindow) {
-    final int minorCurrencyUnitDigits = dataContextOfAction.getProductEntity().getMinorCurrencyUnitDigits();
     final LocalDate initialDisbursalDate = plannedPaymentWindow.requestedInitialDisbursalDate
         .orElse(Optional.ofNullable(dataContextOfAction.getCustomerCaseEntity().getStartOfTerm()).map(LocalDateTime::toLocalDate)
             .orElseGet(() -> LocalDate.now(ZoneId.of("UTC"))));
 
-    final List<ScheduledAction> scheduledActions = ScheduledActionHelpers.getHypotheticalScheduledActions(initialDisbursalDate, dataContextOfAction.getCaseParameters());
+    //The version is read before the charge definitions, so that a schedule is never cached under a newer version.
+    final PlannedPaymentSchedule.Parameters parameters = new PlannedPaymentSchedule.Parameters(
+        initialDisbursalDate,
+        dataContextOfAction.getCaseParameters(),
+        dataContextOfAction.getInterest(),
+        dataContextOfAction.getPaymentSize().orElse(null),
+        dataContextOfAction.getProductEntity().getMinorCurrencyUnitDigits(),
+        chargeDefinitionVersions.getVersion(dataContextOfAction.getProductEntity().getIdentifier()));
+
+    final PlannedPaymentSchedule plannedPaymentSchedule = plannedPaymentScheduleCache.getPlannedPaymentSchedule(
+        dataContextOfAction.getCustomerCaseEntity().getId(),
+        parameters,
+        () -> calculatePlannedPaymentSchedule(dataContextOfAction, parameters));
+
+    return constructPage(plannedPaymentWindow.pageIndex, plannedPaymentWindow.size, plannedPaymentSchedule);
+  }
+
+  private PlannedPaymentSchedule calculatePlannedPaymentSchedule(
+      final DataContextOfAction dataContextOfAction,
+      final PlannedPaymentSchedule.Parameters parameters) {
+    final int minorCurrencyUnitDigits = dataContextOfAction.getProductEntity().getMinorCurrencyUnitDigits();
+    final LocalDate initialDisbursalDate = parameters.getInitialDisbursalDate();
+    final CaseParameters caseParameters = parameters.getCaseParameters();
+    final RepaymentCalendar repaymentCalendar = repaymentCalendarCache.getRepaymentCalendar(
+        dataContextOfAction.getCustomerCaseEntity().getId(),
+        initialDisbursalDate,
+        ScheduledActionHelpers.getRoughEndDate(initialDisbursalDate, caseParameters),
+        caseParameters.getPaymentCycle());
+    final List<ScheduledAction> scheduledActions = ScheduledActionHelpers.getHypotheticalScheduledActions(repaymentCalendar);
 
     final Set<Action> actionsScheduled = scheduledActions.stream().map(ScheduledAction::getAction).collect(Collectors.toSet());
 
@@ -101,123 +135,31 @@ public class IndividualLoanService {
             minorCurrencyUnitDigits,
             scheduledCharges));
 
-    final List<PlannedPayment> plannedPaymentsElements = getPlannedPaymentsElements(
+    return new PlannedPaymentSchedule(
+        parameters,
         dataContextOfAction.getCaseParametersEntity().getBalanceRangeMaximum(),
-        minorCurrencyUnitDigits,
         actionsScheduled,
         scheduledCharges,
-        loanPaymentSize,
-        dataContextOfAction.getInterest());
-
-    final Set<ChargeName> chargeNames = scheduledCharges.stream()
-            .map(IndividualLoanService::chargeNameFromChargeDefinition)
-            .collect(Collectors.toSet());
-
-    return constructPage(plannedPaymentWindow.pageIndex, plannedPaymentWindow.size, plannedPaymentsElements, chargeNames);
+        loanPaymentSize);
   }
 
   private static PlannedPaymentPage constructPage(
           final int pageIndex,
           final int size,
-          final List<PlannedPayment> plannedPaymentsElements,
-          final Set<ChargeName> chargeNames) {
+          final PlannedPaymentSchedule plannedPaymentSchedule) {
     final int fromIndex = size*pageIndex;
-    final int toIndex = Math.min(size*(pageIndex+1), plannedPaymentsElements.size());
+    final int toIndex = Math.min(size*(pageIndex+1), plannedPaymentSchedule.size());
     if (toIndex < fromIndex)
       throw ServiceException.badRequest("Page number ''{0}'' out of range.", pageIndex);
-    final List<PlannedPayment> elements = plannedPaymentsElements.subList(fromIndex, toIndex);
+    final List<PlannedPayment> elements = plannedPaymentSchedule.getPlannedPayments(fromIndex, toIndex);
 
     final PlannedPaymentPage ret = new PlannedPaymentPage();
     ret.setElements(elements);
-    ret.setChargeNames(chargeNames);
-    ret.setTotalElements((long) plannedPaymentsElements.size());
-    final int partialPage = Math.floorMod(plannedPaymentsElements.size(), size) == 0 ? 0 : 1;
-    ret.setTotalPages(Math.floorDiv(plannedPaymentsElements.size(), size)+ partialPage);
+    ret.setChargeNames(plannedPaymentSchedule.getChargeNames());
+    ret.setTotalElements((long) plannedPaymentSchedule.size());
+    final int partialPage = Math.floorMod(plannedPaymentSchedule.size(), size) == 0 ? 0 : 1;
+    ret.setTotalPages(Math.floorDiv(plannedPaymentSchedule.size(), size)+ partialPage);
 
     return ret;
   }
-
-  private static ChargeName chargeNameFromChargeDefinition(final ScheduledCharge scheduledCharge) {
-    return new ChargeName(scheduledCharge.getChargeDefinition().getIdentifier(), scheduledCharge.getChargeDefinition().getName());
-  }
-
-  static private List<PlannedPayment> getPlannedPaymentsElements(
-      final BigDecimal initialBalance,
-      final int minorCurrencyUnitDigits,
-      final Set<Action> actionsScheduled,
-      final List<ScheduledCharge> scheduledCharges,
-      final BigDecimal loanPaymentSize,
-      final BigDecimal interest) {
-    final Map<Period, SortedSet<ScheduledCharge>> orderedScheduledChargesGroupedByPeriod
-        = scheduledCharges.stream()
-        .filter(scheduledCharge -> chargeIsNotAccruedOrAccruesAtActionScheduled(actionsScheduled, scheduledCharge))
-        .collect(Collectors.groupingBy(IndividualLoanService::getPeriodFromScheduledCharge,
-            Collectors.mapping(x -> x,
-                Collector.of(
-                    () -> new TreeSet<>(new ScheduledChargeComparator()),
-                    SortedSet::add,
-                    (left, right) -> { left.addAll(right); return left; }))));
-
-    final List<Period> sortedRepaymentPeriods
-        = orderedScheduledChargesGroupedByPeriod.keySet().stream()
-        .sorted()
-        .collect(Collector.of(ArrayList::new, List::add, (left, right) -> { left.addAll(right); return left; }));
-
-    final SimulatedRunningBalances balances = new SimulatedRunningBalances();
-    final List<PlannedPayment> plannedPayments = new ArrayList<>();
-    for (int i = 0; i < sortedRepaymentPeriods.size(); i++)
-    {
-      final Period repaymentPeriod = sortedRepaymentPeriods.get(i);
-      final BigDecimal requestedRepayment;
-      final BigDecimal requestedDisbursal;
-      if (i == 0)
-      { //First "period" is actually just the OPEN/APPROVE/DISBURSAL action set.
-        requestedRepayment = BigDecimal.ZERO;
-        requestedDisbursal = initialBalance.setScale(minorCurrencyUnitDigits, BigDecimal.ROUND_HALF_EVEN);
-      }
-      else if (i == sortedRepaymentPeriods.size() - 1)
-      { //Last repayment period: Fill the proposed payment out to the remaining balance of the loan.
-        requestedRepayment = loanPaymentSize.multiply(BigDecimal.valueOf(2));
-        requestedDisbursal = BigDecimal.ZERO;
-      }
-      else {
-        requestedRepayment = loanPaymentSize;
-        requestedDisbursal = BigDecimal.ZERO;
-      }
-
-      balances.adjustBalance(AccountDesignators.ENTRY, requestedRepayment);
-
-      final SortedSet<ScheduledCharge> scheduledChargesInPeriod = orderedScheduledChargesGroupedByPeriod.get(repaymentPeriod);
-      final PaymentBuilder paymentBuilder =
-              CostComponentService.getCostComponentsForScheduledCharges(
-                  scheduledChargesInPeriod,
-                  initialBalance,
-                  balances,
-                  loanPaymentSize,
-                  requestedDisbursal,
-                  requestedRepayment,
-                  interest,
-                  minorCurrencyUnitDigits,
-                  true);
-
-      plannedPayments.add(paymentBuilder.accumulatePlannedPayment(balances, repaymentPeriod.getEndDate()));
-    }
-    return plannedPayments;
-  }
-
-  private static boolean chargeIsNotAccruedOrAccruesAtActionScheduled(
-      final Set<Action> actionsScheduled,
-      final ScheduledCharge scheduledCharge) {
-    // For example to prevent late charges from showing up on planned payments.
-    return scheduledCharge.getChargeDefinition().getAccrueAction() == null ||
-        actionsScheduled.contains(Action.valueOf(scheduledCharge.getChargeDefinition().getAccrueAction()));
-  }
-
-  private static Period getPeriodFromScheduledCharge(final ScheduledCharge scheduledCharge) {
-    final ScheduledAction scheduledAction = scheduledCharge.getScheduledAction();
-    if (ScheduledActionHelpers.actionHasNoActionPeriod(scheduledAction.getAction()))
-      return new Period(null, null);
-    else
-      return scheduledAction.getRepaymentPeriod();
-  }
 }
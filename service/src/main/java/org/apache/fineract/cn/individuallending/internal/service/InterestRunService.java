@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.InterestRunProgress;
+import org.apache.fineract.cn.individuallending.api.v1.events.IndividualLoanCommandEvent;
+import org.apache.fineract.cn.individuallending.internal.command.ApplyInterestCommand;
+import org.apache.fineract.cn.individuallending.internal.repository.InterestRunPartitionEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.InterestRunPartitionRepository;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.ContextSnapshot;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.apache.fineract.cn.command.gateway.CommandGateway;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Applies interest to all active cases by splitting them into key ranges of case ids.  Each range
+ * is handled on a bounded worker pool.  Planning and progress are persisted in short transactions of their own,
+ * so that no transaction is held open while waiting for the interest commands, and so that a run which was
+ * interrupted picks up with the unfinished ranges the next time it is started.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class InterestRunService {
+  private static final Set<String> ACTIVE_STATES = Collections.singleton(Case.State.ACTIVE.name());
+  private static final int PROGRESS_RECORDING_INTERVAL = 50;
+
+  private final CaseRepository caseRepository;
+  private final CaseCommandRepository caseCommandRepository;
+  private final InterestRunPartitionRepository interestRunPartitionRepository;
+  private final PortfolioProperties portfolioProperties;
+  private final CommandGateway commandGateway;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger logger;
+
+  @Autowired
+  public InterestRunService(
+      final CaseRepository caseRepository,
+      final CaseCommandRepository caseCommandRepository,
+      final InterestRunPartitionRepository interestRunPartitionRepository,
+      final PortfolioProperties portfolioProperties,
+      final CommandGateway commandGateway,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.caseRepository = caseRepository;
+    this.caseCommandRepository = caseCommandRepository;
+    this.interestRunPartitionRepository = interestRunPartitionRepository;
+    this.portfolioProperties = portfolioProperties;
+    this.commandGateway = commandGateway;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    //Progress must be visible to the workers and survive a crash, even if the caller has a transaction of its own.
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.logger = logger;
+  }
+
+  public void run(final String forTime) {
+    final LocalDateTime forDateTime = DateConverter.fromIsoString(forTime);
+    final List<Long> unfinishedPartitionIds = transactionTemplate.execute(status -> {
+      planPartitions(forDateTime);
+      //Unfinished partitions from earlier runs are included so that a crash does not cause interest to be skipped.
+      return interestRunPartitionRepository
+          .findByCurrentStateOrderByForTimeAscLowerCaseIdAsc(InterestRunPartitionEntity.State.PENDING)
+          .stream()
+          .map(InterestRunPartitionEntity::getId)
+          .collect(Collectors.toList());
+    });
+    if (unfinishedPartitionIds.isEmpty())
+      return;
+
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    final ExecutorService workers = Executors.newFixedThreadPool(
+        Math.min(portfolioProperties.getInterestRunWorkerCount(), unfinishedPartitionIds.size()));
+    try {
+      final List<Future<?>> partitionResults = unfinishedPartitionIds.stream()
+          .map(partitionId -> workers.submit(contextSnapshot.wrap(() -> runPartition(partitionId))))
+          .collect(Collectors.toList());
+
+      for (final Future<?> partitionResult : partitionResults) {
+        try {
+          partitionResult.get();
+        }
+        catch (final ExecutionException e) {
+          logger.error("Interest run partition for '{}' failed, it will be retried on the next run.", forTime, e.getCause());
+        }
+      }
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      workers.shutdownNow();
+    }
+    finally {
+      workers.shutdown();
+    }
+
+    logger.info("Interest run finished with progress {}.", getProgress(forTime));
+  }
+
+  public InterestRunProgress getProgress(final String forTime) {
+    final List<InterestRunPartitionEntity> partitions
+        = interestRunPartitionRepository.findByForTimeOrderByLowerCaseId(DateConverter.fromIsoString(forTime));
+
+    final InterestRunProgress ret = new InterestRunProgress();
+    ret.setForTime(forTime);
+    ret.setPartitionCount(partitions.size());
+    ret.setFinishedPartitionCount((int) partitions.stream()
+        .filter(x -> x.getCurrentState() == InterestRunPartitionEntity.State.FINISHED)
+        .count());
+    ret.setCaseCount(partitions.stream().mapToLong(InterestRunPartitionEntity::getCaseCount).sum());
+    ret.setProcessedCaseCount(partitions.stream().mapToLong(InterestRunPartitionEntity::getProcessedCount).sum());
+    ret.setFailedCaseCount(partitions.stream().mapToLong(InterestRunPartitionEntity::getFailedCount).sum());
+    return ret;
+  }
+
+  void planPartitions(final LocalDateTime forDateTime) {
+    if (!interestRunPartitionRepository.findByForTimeOrderByLowerCaseId(forDateTime).isEmpty())
+      return; //Already planned, the run is being resumed.
+
+    final int partitionSize = portfolioProperties.getInterestRunPartitionSize();
+    final List<InterestRunPartitionEntity> partitions = new ArrayList<>();
+    long lastUpperCaseId = 0L;
+    while (true) {
+      final List<Long> caseIds = caseRepository.findIdsByCurrentStateInAndIdGreaterThan(
+          ACTIVE_STATES,
+          lastUpperCaseId,
+          new PageRequest(0, partitionSize));
+      if (caseIds.size() < partitionSize) {
+        //The last range is open-ended, so that cases activated after planning are not left out.
+        partitions.add(partition(forDateTime, lastUpperCaseId + 1, Long.MAX_VALUE, caseIds.size()));
+        break;
+      }
+
+      //Ranges are contiguous so that no case id falls between two of them.
+      final long upperCaseId = caseIds.get(caseIds.size() - 1);
+      partitions.add(partition(forDateTime, lastUpperCaseId + 1, upperCaseId, caseIds.size()));
+      lastUpperCaseId = upperCaseId;
+    }
+
+    interestRunPartitionRepository.save(partitions);
+  }
+
+  private static InterestRunPartitionEntity partition(
+      final LocalDateTime forDateTime,
+      final long lowerCaseId,
+      final long upperCaseId,
+      final int caseCount) {
+    final InterestRunPartitionEntity ret = new InterestRunPartitionEntity();
+    ret.setForTime(forDateTime);
+    ret.setLowerCaseId(lowerCaseId);
+    ret.setUpperCaseId(upperCaseId);
+    ret.setCaseCount(caseCount);
+    ret.setProcessedCount(0);
+    ret.setFailedCount(0);
+    ret.setCurrentState(InterestRunPartitionEntity.State.PENDING);
+    return ret;
+  }
+
+  /**
+   * A partition in which interest could not be applied to some of the cases stays pending, so that those cases are
+   * retried on the next run.  The cases which interest was applied to are skipped then.
+   */
+  void runPartition(final Long partitionId) {
+    //The cases are read in a short transaction, so that no transaction is held open while waiting for the commands.
+    final PlannedPartition plannedPartition = transactionTemplate.execute(status -> {
+      final InterestRunPartitionEntity partition = interestRunPartitionRepository.findOne(partitionId);
+      if (partition == null || partition.getCurrentState() == InterestRunPartitionEntity.State.FINISHED)
+        return null;
+
+      //Cases which already had interest applied before a crash are not charged twice.
+      final Set<Long> alreadyApplied = caseCommandRepository.findCaseIdsByActionNameAndCreatedOnAndCaseIdBetween(
+          Action.APPLY_INTEREST.name(),
+          partition.getForTime(),
+          partition.getLowerCaseId(),
+          partition.getUpperCaseId());
+      final List<CaseEntity> activeCases = caseRepository.findByCurrentStateInAndIdBetweenOrderByIdAsc(
+          ACTIVE_STATES,
+          partition.getLowerCaseId(),
+          partition.getUpperCaseId());
+      return new PlannedPartition(
+          DateConverter.toIsoString(partition.getForTime()),
+          partition.getLowerCaseId(),
+          partition.getUpperCaseId(),
+          alreadyApplied,
+          activeCases);
+    });
+    if (plannedPartition == null)
+      return;
+
+    int processed = 0;
+    int failed = 0;
+    for (final CaseEntity activeCase : plannedPartition.activeCases) {
+      if (plannedPartition.alreadyApplied.contains(activeCase.getId())) {
+        processed++;
+        continue;
+      }
+
+      final ApplyInterestCommand applyInterestCommand = new ApplyInterestCommand(
+          activeCase.getProductIdentifier(),
+          activeCase.getIdentifier(),
+          plannedPartition.forTime);
+      try {
+        commandGateway.process(applyInterestCommand, IndividualLoanCommandEvent.class).get();
+        processed++;
+      }
+      catch (final ExecutionException e) {
+        failed++;
+        logger.warn("Applying interest to case '{}.{}' failed.",
+            activeCase.getProductIdentifier(), activeCase.getIdentifier(), e.getCause());
+      }
+      catch (final InterruptedException e) {
+        //The partition stays pending, and the cases which were already processed are skipped when it is resumed.
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      if ((processed + failed) % PROGRESS_RECORDING_INTERVAL == 0)
+        recordProgress(partitionId, plannedPartition.activeCases.size(), processed, failed, false);
+    }
+
+    if (failed > 0)
+      logger.warn("Interest could not be applied to {} cases with ids between {} and {} for '{}', they will be " +
+          "retried on the next run.", failed, plannedPartition.lowerCaseId, plannedPartition.upperCaseId,
+          plannedPartition.forTime);
+    recordProgress(partitionId, plannedPartition.activeCases.size(), processed, failed, failed == 0);
+  }
+
+  private void recordProgress(
+      final Long partitionId,
+      final int caseCount,
+      final int processed,
+      final int failed,
+      final boolean finished) {
+    transactionTemplate.execute(status -> {
+      final InterestRunPartitionEntity partition = interestRunPartitionRepository.findOne(partitionId);
+      partition.setCaseCount(caseCount);
+      partition.setProcessedCount(processed);
+      partition.setFailedCount(failed);
+      if (finished) {
+        partition.setCurrentState(InterestRunPartitionEntity.State.FINISHED);
+        partition.setFinishedOn(LocalDateTime.now(Clock.systemUTC()));
+      }
+      return interestRunPartitionRepository.save(partition);
+    });
+  }
+
+  private static class PlannedPartition {
+    private final String forTime;
+    private final Long lowerCaseId;
+    private final Long upperCaseId;
+    private final Set<Long> alreadyApplied;
+    private final List<CaseEntity> activeCases;
+
+    private PlannedPartition(
+        final String forTime,
+        final Long lowerCaseId,
+        final Long upperCaseId,
+        final Set<Long> alreadyApplied,
+        final List<CaseEntity> activeCases) {
+      this.forTime = forTime;
+      this.lowerCaseId = lowerCaseId;
+      this.upperCaseId = upperCaseId;
+      this.alreadyApplied = alreadyApplied;
+      this.activeCases = activeCases;
+    }
+  }
+}
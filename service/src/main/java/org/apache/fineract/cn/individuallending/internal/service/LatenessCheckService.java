@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.command.MarkInArrearsCommand;
+import org.apache.fineract.cn.individuallending.internal.command.MarkLateCommand;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.LossProvisionStepEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.LossProvisionStepRepository;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.RealRunningBalances;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.Period;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledActionHelpers;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.fineract.cn.command.internal.CommandBus;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Determines which active cases have become late, or have been late long enough to move into the next
+ * step of arrears.  Cases are handled in blocks, and the data needed to decide whether a case could
+ * have changed is loaded for the entire block at once.  Balances are only requested from accounting
+ * for cases which could have changed.  A case which was current can only become late once a repayment
+ * has fallen due, and a case which is late can only move into arrears on a day for which the product
+ * has a loss provision step.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class LatenessCheckService {
+  private static final Set<String> ACTIVE_STATES = Collections.singleton(Case.State.ACTIVE.name());
+
+  private final CaseRepository caseRepository;
+  private final CaseParametersRepository caseParametersRepository;
+  private final CaseCommandRepository caseCommandRepository;
+  private final LateCaseRepository lateCaseRepository;
+  private final ProductRepository productRepository;
+  private final LossProvisionStepRepository lossProvisionStepRepository;
+  private final AccountingAdapter accountingAdapter;
+  private final ChargeTotalsService chargeTotalsService;
+  private final RepaymentCalendarCache repaymentCalendarCache;
+  private final CommandBus commandBus;
+  private final CaseCommandGuard caseCommandGuard;
+  private final PortfolioProperties portfolioProperties;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger logger;
+
+  @Autowired
+  public LatenessCheckService(
+      final CaseRepository caseRepository,
+      final CaseParametersRepository caseParametersRepository,
+      final CaseCommandRepository caseCommandRepository,
+      final LateCaseRepository lateCaseRepository,
+      final ProductRepository productRepository,
+      final LossProvisionStepRepository lossProvisionStepRepository,
+      final AccountingAdapter accountingAdapter,
+      final ChargeTotalsService chargeTotalsService,
+      final RepaymentCalendarCache repaymentCalendarCache,
+      final CommandBus commandBus,
+      final CaseCommandGuard caseCommandGuard,
+      final PortfolioProperties portfolioProperties,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.caseRepository = caseRepository;
+    this.caseParametersRepository = caseParametersRepository;
+    this.caseCommandRepository = caseCommandRepository;
+    this.lateCaseRepository = lateCaseRepository;
+    this.productRepository = productRepository;
+    this.lossProvisionStepRepository = lossProvisionStepRepository;
+    this.accountingAdapter = accountingAdapter;
+    this.chargeTotalsService = chargeTotalsService;
+    this.repaymentCalendarCache = repaymentCalendarCache;
+    this.commandBus = commandBus;
+    this.caseCommandGuard = caseCommandGuard;
+    this.portfolioProperties = portfolioProperties;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.logger = logger;
+  }
+
+  public void checkActiveCases(final String forTime) {
+    final LocalDateTime forDateTime = DateConverter.fromIsoString(forTime);
+    final Map<Long, Set<Integer>> lossProvisionDaysByProductId = new HashMap<>();
+
+    Long lastCaseId = 0L;
+    while (lastCaseId != null) {
+      final Long afterCaseId = lastCaseId;
+      lastCaseId = transactionTemplate.execute(status ->
+          checkBlock(afterCaseId, forTime, forDateTime, lossProvisionDaysByProductId));
+    }
+  }
+
+  private @Nullable Long checkBlock(
+      final Long afterCaseId,
+      final String forTime,
+      final LocalDateTime forDateTime,
+      final Map<Long, Set<Integer>> lossProvisionDaysByProductId) {
+    final int blockSize = portfolioProperties.getLatenessCheckBlockSize();
+    final List<CaseEntity> activeCases = caseRepository.findByCurrentStateInAndIdGreaterThanOrderByIdAsc(
+        ACTIVE_STATES, afterCaseId, new PageRequest(0, blockSize));
+    if (activeCases.isEmpty())
+      return null;
+
+    final Set<Long> caseIds = activeCases.stream().map(CaseEntity::getId).collect(Collectors.toSet());
+    final Map<Long, CaseParametersEntity> caseParametersByCaseId = caseParametersRepository.findByCaseIdIn(caseIds)
+        .stream()
+        .collect(Collectors.toMap(CaseParametersEntity::getCaseId, Function.identity()));
+    final Map<Long, LocalDateTime> mostRecentDisbursementByCaseId = caseCommandRepository
+        .findByActionNameAndCaseIdIn(Action.DISBURSE.name(), caseIds)
+        .stream()
+        .collect(Collectors.toMap(
+            CaseCommandEntity::getCaseId,
+            CaseCommandEntity::getCreatedOn,
+            BinaryOperator.maxBy(Comparator.naturalOrder())));
+    final Map<Long, LocalDateTime> lateSinceByCaseId = lateCaseRepository.findByCaseIdIn(caseIds)
+        .stream()
+        .collect(Collectors.toMap(LateCaseEntity::getCaseId, LateCaseEntity::getLateSince));
+    final Map<String, ProductEntity> productsByIdentifier = new HashMap<>();
+    final Map<String, ProductAccountAssignmentIndex> productAccountAssignmentIndexes = new HashMap<>();
+    final Set<Long> currentCaseIds = new HashSet<>();
+
+    for (final CaseEntity activeCase : activeCases) {
+      final CaseParametersEntity caseParameters = caseParametersByCaseId.get(activeCase.getId());
+      final LocalDateTime mostRecentDisbursement = mostRecentDisbursementByCaseId.get(activeCase.getId());
+      if (caseParameters == null || mostRecentDisbursement == null) {
+        logger.warn("No last disbursal date for '{}.{}' could be determined.  Therefore it cannot be checked for lateness.",
+            activeCase.getProductIdentifier(), activeCase.getIdentifier());
+        continue;
+      }
+
+      final Optional<LocalDateTime> lateSince = Optional.ofNullable(lateSinceByCaseId.get(activeCase.getId()));
+
+      try {
+        final ProductEntity product = productsByIdentifier.computeIfAbsent(
+            activeCase.getProductIdentifier(), this::checkedGetProduct);
+        final Set<Integer> lossProvisionDays = lossProvisionDaysByProductId.computeIfAbsent(
+            product.getId(), this::getLossProvisionDays);
+
+        //Balances are not read while a command on the same case is booking.
+        final boolean commandDispatched = caseCommandGuard.runLocked(
+            activeCase.getProductIdentifier(), activeCase.getIdentifier(), () -> checkCase(
+                new DataContextOfAction(product, activeCase, caseParameters, null,
+                    productAccountAssignmentIndexes.computeIfAbsent(
+                        product.getIdentifier(), x -> ProductAccountAssignmentIndex.of(product))),
+                mostRecentDisbursement,
+                lateSince,
+                lossProvisionDays,
+                forTime,
+                forDateTime));
+        if (!lateSince.isPresent() && !commandDispatched)
+          currentCaseIds.add(activeCase.getId());
+      }
+      catch (final RuntimeException e) {
+        //One broken case must not keep the rest of the block from being checked.
+        logger.warn("Checking case '{}.{}' for lateness failed.",
+            activeCase.getProductIdentifier(), activeCase.getIdentifier(), e);
+      }
+    }
+
+    if (!currentCaseIds.isEmpty())
+      caseParametersRepository.updateLatenessCheckedOn(currentCaseIds, forDateTime);
+
+    if (activeCases.size() < blockSize)
+      return null;
+    else
+      return activeCases.get(activeCases.size() - 1).getId();
+  }
+
+  private boolean checkCase(
+      final DataContextOfAction dataContextOfAction,
+      final LocalDateTime mostRecentDisbursement,
+      @SuppressWarnings("OptionalUsedAsFieldOrParameterType") final Optional<LocalDateTime> lateSince,
+      final Set<Integer> lossProvisionDays,
+      final String forTime,
+      final LocalDateTime forDateTime) {
+    final int daysLate = lateSince.map(x -> daysLate(x, forDateTime)).orElse(0);
+    if (lateSince.isPresent() && (daysLate <= 1 || !lossProvisionDays.contains(daysLate)))
+      return false;
+
+    final CaseEntity customerCase = dataContextOfAction.getCustomerCaseEntity();
+    final LocalDate startOfTerm = mostRecentDisbursement.toLocalDate();
+    final LocalDate endOfTerm = Optional.ofNullable(customerCase.getEndOfTerm())
+        .map(LocalDateTime::toLocalDate)
+        .orElseGet(() -> ScheduledActionHelpers.getRoughEndDate(startOfTerm, dataContextOfAction.getCaseParameters()));
+    final List<Period> repaymentPeriods = repaymentCalendarCache.getRepaymentCalendar(
+        customerCase.getId(),
+        startOfTerm,
+        endOfTerm,
+        dataContextOfAction.getCaseParameters().getPaymentCycle())
+        .getRepaymentPeriods(forDateTime.toLocalDate())
+        .collect(Collectors.toList());
+
+    if (!lateSince.isPresent() &&
+        !repaymentFellDueSince(repaymentPeriods, dataContextOfAction.getCaseParametersEntity().getLatenessCheckedOn()))
+      return false;
+
+    accountingAdapter.sendPendingBookings(customerCase.getId(), dataContextOfAction.getCompoundIdentifer());
+    final RealRunningBalances balances = new RealRunningBalances(accountingAdapter, chargeTotalsService, dataContextOfAction, true);
+
+    final BigDecimal currentBalance = balances.getAccountBalance(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL).orElse(BigDecimal.ZERO);
+    if (currentBalance.compareTo(BigDecimal.ZERO) == 0) //No late fees if the current balance is zilch.
+      return false;
+
+    final long repaymentPeriodsBetweenBeginningAndToday = repaymentPeriods.size() - 1;
+
+    final BigDecimal expectedPaymentSum = dataContextOfAction
+        .getCaseParametersEntity()
+        .getPaymentSize()
+        .multiply(BigDecimal.valueOf(repaymentPeriodsBetweenBeginningAndToday));
+
+    final BigDecimal principalPaymentSum = balances.getSumOfChargesForActionSinceDate(
+        AccountDesignators.CUSTOMER_LOAN_PRINCIPAL,
+        Action.ACCEPT_PAYMENT,
+        mostRecentDisbursement);
+    final BigDecimal interestPaymentSum = balances.getSumOfChargesForActionSinceDate(
+        AccountDesignators.CUSTOMER_LOAN_INTEREST,
+        Action.ACCEPT_PAYMENT,
+        mostRecentDisbursement);
+    final BigDecimal feesPaymentSum = balances.getSumOfChargesForActionSinceDate(
+        AccountDesignators.CUSTOMER_LOAN_FEES,
+        Action.ACCEPT_PAYMENT,
+        mostRecentDisbursement);
+    final BigDecimal lateFeesSum = balances.getSumOfChargesForActionSinceDate(
+        AccountDesignators.LATE_FEE_INCOME,
+        Action.ACCEPT_PAYMENT,
+        mostRecentDisbursement);
+    final BigDecimal paymentsSum = principalPaymentSum.add(interestPaymentSum).add(feesPaymentSum.subtract(lateFeesSum));
+
+    if (paymentsSum.compareTo(expectedPaymentSum) >= 0)
+      return false;
+
+    final String productIdentifier = dataContextOfAction.getProductEntity().getIdentifier();
+    final String caseIdentifier = dataContextOfAction.getCustomerCaseEntity().getIdentifier();
+    if (!lateSince.isPresent())
+      commandBus.dispatch(new MarkLateCommand(productIdentifier, caseIdentifier, forTime));
+    else
+      commandBus.dispatch(new MarkInArrearsCommand(productIdentifier, caseIdentifier, forTime, daysLate));
+    return true;
+  }
+
+  /**
+   * Repayments which fell due before the last check were already accounted for in that check.  Repayments
+   * are due on the first day of every repayment period except the first.
+   */
+  static boolean repaymentFellDueSince(
+      final List<Period> repaymentPeriods,
+      final @Nullable LocalDateTime latenessCheckedOn) {
+    if (latenessCheckedOn == null)
+      return true;
+
+    final LocalDate latenessCheckedOnDate = latenessCheckedOn.toLocalDate();
+    return repaymentPeriods.stream()
+        .skip(1)
+        .anyMatch(x -> !x.getBeginDate().isBefore(latenessCheckedOnDate));
+  }
+
+  private static int daysLate(final LocalDateTime lateSince, final LocalDateTime forDateTime) {
+    try {
+      return Math.toIntExact(lateSince.until(forDateTime, ChronoUnit.DAYS)) + 1;
+    }
+    catch (final ArithmeticException e) {
+      return -1;
+    }
+  }
+
+  private ProductEntity checkedGetProduct(final String productIdentifier) {
+    return productRepository.findByIdentifier(productIdentifier)
+        .orElseThrow(() -> ServiceException.notFound("Product not found ''{0}''.", productIdentifier));
+  }
+
+  private Set<Integer> getLossProvisionDays(final Long productId) {
+    return lossProvisionStepRepository.findByProductId(productId)
+        .map(LossProvisionStepEntity::getDaysLate)
+        .collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseParameters;
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.ChargeName;
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPayment;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.CostComponentService;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.PaymentBuilder;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.SimulatedPayment;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.SimulatedRunningBalances;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.Period;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledAction;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledActionHelpers;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledCharge;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledChargeComparator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * The planned payments of a case.  Every payment depends on the balances left by the payments before it, but never
+ * on the ones after it.  So payments are only calculated as far as they are requested, and a page at the beginning
+ * of a long schedule doesn't require calculating the rest of it.  Later requests continue where earlier ones stopped.
+ *
+ * @author Myrle Krantz
+ */
+class PlannedPaymentSchedule {
+  /**
+   * Everything a schedule is calculated from other than the charge definitions themselves, which are represented by
+   * their version.  A schedule can be reused for as long as its parameters are equal.
+   */
+  static final class Parameters {
+    private final LocalDate initialDisbursalDate;
+    private final CaseParameters caseParameters;
+    private final BigDecimal interest;
+    private final @Nullable BigDecimal paymentSize;
+    private final int minorCurrencyUnitDigits;
+    private final long chargeDefinitionVersion;
+
+    Parameters(
+        final @Nonnull LocalDate initialDisbursalDate,
+        final @Nonnull CaseParameters caseParameters,
+        final BigDecimal interest,
+        final @Nullable BigDecimal paymentSize,
+        final int minorCurrencyUnitDigits,
+        final long chargeDefinitionVersion) {
+      this.initialDisbursalDate = initialDisbursalDate;
+      this.caseParameters = caseParameters;
+      this.interest = interest;
+      this.paymentSize = paymentSize;
+      this.minorCurrencyUnitDigits = minorCurrencyUnitDigits;
+      this.chargeDefinitionVersion = chargeDefinitionVersion;
+    }
+
+    LocalDate getInitialDisbursalDate() {
+      return initialDisbursalDate;
+    }
+
+    CaseParameters getCaseParameters() {
+      return caseParameters;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      final Parameters that = (Parameters) o;
+      return minorCurrencyUnitDigits == that.minorCurrencyUnitDigits &&
+          chargeDefinitionVersion == that.chargeDefinitionVersion &&
+          Objects.equals(initialDisbursalDate, that.initialDisbursalDate) &&
+          Objects.equals(caseParameters, that.caseParameters) &&
+          Objects.equals(interest, that.interest) &&
+          Objects.equals(paymentSize, that.paymentSize);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(initialDisbursalDate, caseParameters, interest, paymentSize, minorCurrencyUnitDigits, chargeDefinitionVersion);
+    }
+  }
+
+  private final Parameters parameters;
+  private final BigDecimal initialBalance;
+  private final BigDecimal loanPaymentSize;
+  private final Set<ChargeName> chargeNames;
+  private final List<Period> sortedRepaymentPeriods;
+  private final int weight;
+  //The charges of a period are dropped once its payment has been calculated.
+  private final Map<Period, SortedSet<ScheduledCharge>> orderedScheduledChargesGroupedByPeriod;
+  private final SimulatedRunningBalances balances;
+  //Kept in the compact form they are calculated in, and only turned into PlannedPayments when they are requested.
+  private final List<SimulatedPayment> plannedPayments;
+
+  PlannedPaymentSchedule(
+      final Parameters parameters,
+      final BigDecimal initialBalance,
+      final Set<Action> actionsScheduled,
+      final List<ScheduledCharge> scheduledCharges,
+      final BigDecimal loanPaymentSize) {
+    this.parameters = parameters;
+    this.initialBalance = initialBalance;
+    this.loanPaymentSize = loanPaymentSize;
+    this.chargeNames = scheduledCharges.stream()
+        .map(PlannedPaymentSchedule::chargeNameFromChargeDefinition)
+        .collect(Collectors.toSet());
+    this.orderedScheduledChargesGroupedByPeriod = scheduledCharges.stream()
+        .filter(scheduledCharge -> chargeIsNotAccruedOrAccruesAtActionScheduled(actionsScheduled, scheduledCharge))
+        .collect(Collectors.groupingBy(PlannedPaymentSchedule::getPeriodFromScheduledCharge,
+            Collectors.mapping(x -> x,
+                Collector.of(
+                    () -> new TreeSet<>(new ScheduledChargeComparator()),
+                    SortedSet::add,
+                    (left, right) -> { left.addAll(right); return left; }))));
+    this.sortedRepaymentPeriods = orderedScheduledChargesGroupedByPeriod.keySet().stream()
+        .sorted()
+        .collect(Collector.of(ArrayList::new, List::add, (left, right) -> { left.addAll(right); return left; }));
+    //Roughly proportional to the memory used, whether the charges are still waiting or have become payments.
+    this.weight = scheduledCharges.size() + sortedRepaymentPeriods.size();
+    this.balances = new SimulatedRunningBalances();
+    this.plannedPayments = new ArrayList<>(sortedRepaymentPeriods.size());
+  }
+
+  Parameters getParameters() {
+    return parameters;
+  }
+
+  Set<ChargeName> getChargeNames() {
+    return chargeNames;
+  }
+
+  int size() {
+    return sortedRepaymentPeriods.size();
+  }
+
+  int getWeight() {
+    return weight;
+  }
+
+  /**
+   * @return the planned payments from fromIndex inclusive to toIndex exclusive, calculating any which haven't been
+   * calculated yet.
+   */
+  synchronized List<PlannedPayment> getPlannedPayments(final int fromIndex, final int toIndex) {
+    while (plannedPayments.size() < toIndex)
+      plannedPayments.add(calculatePlannedPayment(plannedPayments.size()));
+
+    return plannedPayments.subList(fromIndex, toIndex).stream()
+        .map(SimulatedPayment::toPlannedPayment)
+        .collect(Collectors.toList());
+  }
+
+  private SimulatedPayment calculatePlannedPayment(final int i) {
+    final int minorCurrencyUnitDigits = parameters.minorCurrencyUnitDigits;
+    final Period repaymentPeriod = sortedRepaymentPeriods.get(i);
+    final BigDecimal requestedRepayment;
+    final BigDecimal requestedDisbursal;
+    if (i == 0)
+    { //First "period" is actually just the OPEN/APPROVE/DISBURSAL action set.
+      requestedRepayment = BigDecimal.ZERO;
+      requestedDisbursal = initialBalance.setScale(minorCurrencyUnitDigits, BigDecimal.ROUND_HALF_EVEN);
+    }
+    else if (i == sortedRepaymentPeriods.size() - 1)
+    { //Last repayment period: Fill the proposed payment out to the remaining balance of the loan.
+      requestedRepayment = loanPaymentSize.multiply(BigDecimal.valueOf(2));
+      requestedDisbursal = BigDecimal.ZERO;
+    }
+    else {
+      requestedRepayment = loanPaymentSize;
+      requestedDisbursal = BigDecimal.ZERO;
+    }
+
+    balances.adjustBalance(AccountDesignators.ENTRY, requestedRepayment);
+
+    final SortedSet<ScheduledCharge> scheduledChargesInPeriod = orderedScheduledChargesGroupedByPeriod.remove(repaymentPeriod);
+    final PaymentBuilder paymentBuilder =
+        CostComponentService.getCostComponentsForScheduledCharges(
+            scheduledChargesInPeriod,
+            initialBalance,
+            balances,
+            loanPaymentSize,
+            requestedDisbursal,
+            requestedRepayment,
+            parameters.interest,
+            minorCurrencyUnitDigits,
+            true);
+
+    return paymentBuilder.accumulatePlannedPayment(balances, repaymentPeriod.getEndDate());
+  }
+
+  private static ChargeName chargeNameFromChargeDefinition(final ScheduledCharge scheduledCharge) {
+    return new ChargeName(scheduledCharge.getChargeDefinition().getIdentifier(), scheduledCharge.getChargeDefinition().getName());
+  }
+
+  private static boolean chargeIsNotAccruedOrAccruesAtActionScheduled(
+      final Set<Action> actionsScheduled,
+      final ScheduledCharge scheduledCharge) {
+    // For example to prevent late charges from showing up on planned payments.
+    return scheduledCharge.getChargeDefinition().getAccrueAction() == null ||
+        actionsScheduled.contains(Action.valueOf(scheduledCharge.getChargeDefinition().getAccrueAction()));
+  }
+
+  private static Period getPeriodFromScheduledCharge(final ScheduledCharge scheduledCharge) {
+    final ScheduledAction scheduledAction = scheduledCharge.getScheduledAction();
+    if (ScheduledActionHelpers.actionHasNoActionPeriod(scheduledAction.getAction()))
+      return new Period(null, null);
+    else
+      return scheduledAction.getRepaymentPeriod();
+  }
+}
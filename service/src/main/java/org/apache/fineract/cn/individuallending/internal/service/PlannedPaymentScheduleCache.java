@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Payment schedules of recently viewed cases, so that paging through a schedule doesn't calculate it again for every
+ * page.  A cached schedule is only used if it was calculated from the same parameters and version of the product's
+ * charge definitions, so a stale schedule is recalculated rather than returned, and eventually evicted.  The least
+ * recently used schedules are evicted first once the configured weight is reached.
+ *
+ * @author Myrle Krantz
+ */
+@Component
+public class PlannedPaymentScheduleCache {
+  private final Cache<String, PlannedPaymentSchedule> plannedPaymentSchedules;
+
+  @Autowired
+  public PlannedPaymentScheduleCache(final PortfolioProperties portfolioProperties) {
+    this.plannedPaymentSchedules = CacheBuilder.newBuilder()
+        .maximumWeight(portfolioProperties.getPlannedPaymentCacheWeight())
+        .weigher((String key, PlannedPaymentSchedule value) -> value.getWeight())
+        .expireAfterAccess(30, TimeUnit.MINUTES)
+        .build();
+  }
+
+  PlannedPaymentSchedule getPlannedPaymentSchedule(
+      final @Nullable Long caseId,
+      final PlannedPaymentSchedule.Parameters parameters,
+      final Supplier<PlannedPaymentSchedule> calculation) {
+    if (caseId == null) //Not yet persisted, for example a schedule for proposed case parameters.
+      return calculation.get();
+
+    final String key = key(caseId);
+    final PlannedPaymentSchedule cached = plannedPaymentSchedules.getIfPresent(key);
+    if (cached != null && cached.getParameters().equals(parameters))
+      return cached;
+
+    final PlannedPaymentSchedule ret = calculation.get();
+    plannedPaymentSchedules.put(key, ret);
+    return ret;
+  }
+
+  public void invalidate(final @Nullable Long caseId) {
+    if (caseId != null)
+      plannedPaymentSchedules.invalidate(key(caseId));
+  }
+
+  private static String key(final long caseId) {
+    return TenantContextHolder.checkedGetIdentifier() + "." + caseId;
+  }
+}
@@ -0,0 +1,451 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AtRiskCase;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AtRiskCasePage;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.PortfolioAtRisk;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.PortfolioAtRiskBucket;
+import org.apache.fineract.cn.individuallending.internal.repository.AtRiskCaseEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.AtRiskCaseRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.PortfolioAgingEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.PortfolioAgingRepository;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.ContextSnapshot;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the portfolio at risk of each product up to date with the commands executed on its cases.
+ *
+ * The principal of every late active case is recorded together with the date on which it became late.  The
+ * totals per product are kept per day on which cases became late, so that they age without being changed, and
+ * the totals of a bucket are the sum of a product's days, independent of the number of cases.  Commands change
+ * both incrementally as part of their transaction.  A full recompute rebuilds the late cases from the case
+ * summaries in parallel over ranges of case ids, and then rebuilds the daily totals from the late cases.  It
+ * locks the cases of a range while rebuilding them, and keeps all commands waiting while rebuilding the daily
+ * totals, so that no change made by a command in the meantime is lost or counted twice.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class PortfolioAtRiskService {
+  public static final List<Integer> BUCKET_DAYS_LATE = Collections.unmodifiableList(Arrays.asList(1, 30, 60, 90));
+  private static final Set<String> ACTIVE_STATES = Collections.singleton(Case.State.ACTIVE.name());
+
+  private final AtRiskCaseRepository atRiskCaseRepository;
+  private final PortfolioAgingRepository portfolioAgingRepository;
+  private final CaseRepository caseRepository;
+  private final ProductRepository productRepository;
+  private final LateCaseRepository lateCaseRepository;
+  private final CaseSummaryRepository caseSummaryRepository;
+  private final PortfolioProperties portfolioProperties;
+  private final CaseCommandGuard caseCommandGuard;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger logger;
+
+  @Autowired
+  public PortfolioAtRiskService(
+      final AtRiskCaseRepository atRiskCaseRepository,
+      final PortfolioAgingRepository portfolioAgingRepository,
+      final CaseRepository caseRepository,
+      final ProductRepository productRepository,
+      final LateCaseRepository lateCaseRepository,
+      final CaseSummaryRepository caseSummaryRepository,
+      final PortfolioProperties portfolioProperties,
+      final CaseCommandGuard caseCommandGuard,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.atRiskCaseRepository = atRiskCaseRepository;
+    this.portfolioAgingRepository = portfolioAgingRepository;
+    this.caseRepository = caseRepository;
+    this.productRepository = productRepository;
+    this.lateCaseRepository = lateCaseRepository;
+    this.caseSummaryRepository = caseSummaryRepository;
+    this.portfolioProperties = portfolioProperties;
+    this.caseCommandGuard = caseCommandGuard;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.logger = logger;
+  }
+
+  public PortfolioAtRisk getPortfolioAtRisk(final String productIdentifier, final LocalDate asOf) {
+    final ProductEntity product = checkedGetProduct(productIdentifier);
+
+    final PortfolioAtRisk ret = new PortfolioAtRisk();
+    ret.setProductIdentifier(productIdentifier);
+    ret.setAsOf(DateConverter.toIsoString(asOf.atStartOfDay()));
+    ret.setBuckets(getBuckets(
+        portfolioAgingRepository.findByProductId(product.getId()),
+        asOf,
+        product.getMinorCurrencyUnitDigits()));
+    return ret;
+  }
+
+  public AtRiskCasePage getAtRiskCases(
+      final String productIdentifier,
+      final int daysLate,
+      final LocalDate asOf,
+      final int pageIndex,
+      final int size) {
+    if (daysLate < 1)
+      throw ServiceException.badRequest("Days late must be at least 1, but was ''{0}''.", daysLate);
+    if (pageIndex < 0 || size < 1)
+      throw ServiceException.badRequest("Page ''{0}'' of size ''{1}'' does not exist.", pageIndex, size);
+
+    final ProductEntity product = checkedGetProduct(productIdentifier);
+    final Page<AtRiskCaseEntity> atRiskCases = atRiskCaseRepository.findByProductIdAndLateSinceBefore(
+        product.getId(),
+        lateBefore(asOf, daysLate),
+        new PageRequest(pageIndex, size, Sort.Direction.ASC, "lateSince", "caseId"));
+    final Map<Long, String> caseIdentifiers = caseRepository.findAll(atRiskCases.getContent().stream()
+        .map(AtRiskCaseEntity::getCaseId)
+        .collect(Collectors.toList()))
+        .stream()
+        .collect(Collectors.toMap(CaseEntity::getId, CaseEntity::getIdentifier));
+
+    final AtRiskCasePage ret = new AtRiskCasePage();
+    ret.setElements(atRiskCases.getContent().stream()
+        .map(x -> {
+          final AtRiskCase atRiskCase = new AtRiskCase();
+          atRiskCase.setCaseIdentifier(caseIdentifiers.get(x.getCaseId()));
+          atRiskCase.setLateSince(DateConverter.toIsoString(x.getLateSince()));
+          atRiskCase.setDaysLate(daysLate(x.getLateSince().toLocalDate(), asOf));
+          atRiskCase.setPrincipalBalance(x.getPrincipalBalance()
+              .setScale(product.getMinorCurrencyUnitDigits(), BigDecimal.ROUND_HALF_EVEN));
+          return atRiskCase;
+        })
+        .collect(Collectors.toList()));
+    ret.setTotalPages(atRiskCases.getTotalPages());
+    ret.setTotalElements(atRiskCases.getTotalElements());
+    return ret;
+  }
+
+  /**
+   * Brings the portfolio at risk up to date with the state, lateness, and principal of a case after a command.
+   */
+  public void recordCase(
+      final Long productId,
+      final CaseEntity customerCase,
+      @Nullable final LocalDateTime lateSince,
+      final BigDecimal principalBalance) {
+    final Optional<AtRiskCaseEntity> previous = atRiskCaseRepository.findByCaseId(customerCase.getId());
+    final boolean atRisk = isAtRisk(customerCase.getCurrentState(), lateSince, principalBalance);
+    if (!atRisk && !previous.isPresent())
+      return;
+
+    if (previous.isPresent()) {
+      final AtRiskCaseEntity previousAtRiskCase = previous.get();
+      if (atRisk && previousAtRiskCase.getLateSince().toLocalDate().equals(lateSince.toLocalDate())) {
+        final BigDecimal change = principalBalance.subtract(previousAtRiskCase.getPrincipalBalance());
+        if (change.compareTo(BigDecimal.ZERO) != 0)
+          addToAging(productId, lateSince, 0, change);
+      }
+      else {
+        removeFromAging(previousAtRiskCase);
+        if (atRisk)
+          addToAging(productId, lateSince, 1, principalBalance);
+      }
+    }
+    else {
+      addToAging(productId, lateSince, 1, principalBalance);
+    }
+
+    if (atRisk) {
+      final AtRiskCaseEntity atRiskCase = previous.orElseGet(AtRiskCaseEntity::new);
+      atRiskCase.setProductId(productId);
+      atRiskCase.setCaseId(customerCase.getId());
+      atRiskCase.setLateSince(lateSince);
+      atRiskCase.setPrincipalBalance(principalBalance);
+      atRiskCaseRepository.save(atRiskCase);
+    }
+    else {
+      atRiskCaseRepository.delete(previous.get());
+    }
+  }
+
+  public void recompute() {
+    final List<long[]> caseIdRanges = transactionTemplate.execute(status -> planCaseIdRanges());
+    final Map<String, Long> productIds = new ConcurrentHashMap<>();
+
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    final ExecutorService workers = Executors.newFixedThreadPool(
+        Math.min(portfolioProperties.getPortfolioAtRiskWorkerCount(), caseIdRanges.size()));
+    int failedRanges = 0;
+    try {
+      final List<Future<?>> rangeResults = caseIdRanges.stream()
+          .map(range -> workers.submit(contextSnapshot.wrap(() -> recomputeRange(range[0], range[1], productIds))))
+          .collect(Collectors.toList());
+
+      for (final Future<?> rangeResult : rangeResults) {
+        try {
+          rangeResult.get();
+        }
+        catch (final ExecutionException e) {
+          failedRanges++;
+          logger.error("Recomputing the portfolio at risk failed for a range of cases.", e.getCause());
+        }
+      }
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      workers.shutdownNow();
+      return;
+    }
+    finally {
+      workers.shutdown();
+    }
+
+    transactionTemplate.execute(status -> {
+      caseCommandGuard.lockEverythingUntilCompletion();
+      portfolioAgingRepository.deleteAllInBulk();
+      return portfolioAgingRepository.insertFromAtRiskCases();
+    });
+
+    logger.info("Portfolio at risk recomputed over {} ranges of cases, {} of which failed.",
+        caseIdRanges.size(), failedRanges);
+  }
+
+  /**
+   * Ranges are contiguous and the last one is open, so that every late case falls into one of them.
+   */
+  private List<long[]> planCaseIdRanges() {
+    final int partitionSize = portfolioProperties.getPortfolioAtRiskPartitionSize();
+    final List<long[]> ret = new ArrayList<>();
+    long lastUpperCaseId = 0L;
+    while (true) {
+      final List<Long> caseIds = caseRepository.findIdsByCurrentStateInAndIdGreaterThan(
+          ACTIVE_STATES,
+          lastUpperCaseId,
+          new PageRequest(0, partitionSize));
+      if (caseIds.size() < partitionSize)
+        break;
+
+      final long upperCaseId = caseIds.get(caseIds.size() - 1);
+      ret.add(new long[]{lastUpperCaseId + 1, upperCaseId});
+      lastUpperCaseId = upperCaseId;
+    }
+    ret.add(new long[]{lastUpperCaseId + 1, Long.MAX_VALUE});
+    return ret;
+  }
+
+  /**
+   * The cases of the range are locked before anything about them is read.  Cases which only became active after
+   * the range was looked at are left to the commands executed on them.
+   */
+  private Void recomputeRange(
+      final long lowerCaseId,
+      final long upperCaseId,
+      final Map<String, Long> productIds) {
+    final List<CaseEntity> casesToLock = transactionTemplate.execute(status -> findCasesInRange(lowerCaseId, upperCaseId));
+    final Set<Long> lockedCaseIds = casesToLock.stream().map(CaseEntity::getId).collect(Collectors.toSet());
+    return transactionTemplate.execute(status -> {
+      caseCommandGuard.lockCasesUntilCompletion(casesToLock);
+      return recomputeLockedCases(lowerCaseId, upperCaseId, lockedCaseIds, productIds);
+    });
+  }
+
+  private List<CaseEntity> findCasesInRange(final long lowerCaseId, final long upperCaseId) {
+    final List<CaseEntity> activeCases = caseRepository.findByCurrentStateInAndIdBetweenOrderByIdAsc(
+        ACTIVE_STATES, lowerCaseId, upperCaseId);
+    final Set<Long> activeCaseIds = activeCases.stream().map(CaseEntity::getId).collect(Collectors.toSet());
+    final List<Long> inactiveAtRiskCaseIds = atRiskCaseRepository.findByCaseIdBetween(lowerCaseId, upperCaseId)
+        .stream()
+        .map(AtRiskCaseEntity::getCaseId)
+        .filter(caseId -> !activeCaseIds.contains(caseId))
+        .collect(Collectors.toList());
+    if (inactiveAtRiskCaseIds.isEmpty())
+      return activeCases;
+
+    final List<CaseEntity> ret = new ArrayList<>(activeCases);
+    ret.addAll(caseRepository.findAll(inactiveAtRiskCaseIds));
+    return ret;
+  }
+
+  private Void recomputeLockedCases(
+      final long lowerCaseId,
+      final long upperCaseId,
+      final Set<Long> lockedCaseIds,
+      final Map<String, Long> productIds) {
+    final List<CaseEntity> activeCases = caseRepository.findByCurrentStateInAndIdBetweenOrderByIdAsc(
+        ACTIVE_STATES, lowerCaseId, upperCaseId)
+        .stream()
+        .filter(x -> lockedCaseIds.contains(x.getId()))
+        .collect(Collectors.toList());
+    final Set<Long> caseIds = activeCases.stream().map(CaseEntity::getId).collect(Collectors.toSet());
+    final Map<Long, LocalDateTime> lateSinceByCaseId = caseIds.isEmpty()
+        ? Collections.emptyMap()
+        : lateCaseRepository.findByCaseIdIn(caseIds)
+            .stream()
+            .collect(Collectors.toMap(LateCaseEntity::getCaseId, LateCaseEntity::getLateSince));
+    final Map<Long, BigDecimal> principalByCaseId = lateSinceByCaseId.isEmpty()
+        ? Collections.emptyMap()
+        : caseSummaryRepository.findByCaseIdIn(lateSinceByCaseId.keySet())
+            .stream()
+            .collect(Collectors.toMap(CaseSummaryEntity::getCaseId, CaseSummaryEntity::getPrincipalBalance));
+    final Map<Long, AtRiskCaseEntity> previousByCaseId = atRiskCaseRepository
+        .findByCaseIdBetween(lowerCaseId, upperCaseId)
+        .stream()
+        .filter(x -> lockedCaseIds.contains(x.getCaseId()))
+        .collect(Collectors.toMap(AtRiskCaseEntity::getCaseId, Function.identity()));
+
+    final List<AtRiskCaseEntity> atRiskCases = new ArrayList<>();
+    int withoutSummary = 0;
+    for (final CaseEntity activeCase : activeCases) {
+      final LocalDateTime lateSince = lateSinceByCaseId.get(activeCase.getId());
+      if (lateSince == null)
+        continue;
+
+      //Interest is applied to active cases daily, and doing so creates their summary.
+      final BigDecimal principalBalance = principalByCaseId.get(activeCase.getId());
+      if (principalBalance == null) {
+        withoutSummary++;
+        continue;
+      }
+      if (!isAtRisk(activeCase.getCurrentState(), lateSince, principalBalance))
+        continue;
+
+      final AtRiskCaseEntity atRiskCase = Optional.ofNullable(previousByCaseId.remove(activeCase.getId()))
+          .orElseGet(AtRiskCaseEntity::new);
+      atRiskCase.setProductId(productIds.computeIfAbsent(activeCase.getProductIdentifier(),
+          x -> checkedGetProduct(x).getId()));
+      atRiskCase.setCaseId(activeCase.getId());
+      atRiskCase.setLateSince(lateSince);
+      atRiskCase.setPrincipalBalance(principalBalance);
+      atRiskCases.add(atRiskCase);
+    }
+
+    if (!previousByCaseId.isEmpty())
+      atRiskCaseRepository.deleteByCaseIdIn(previousByCaseId.keySet());
+    atRiskCaseRepository.save(atRiskCases);
+
+    if (withoutSummary > 0)
+      logger.warn("{} late cases with ids between {} and {} have no summary yet, and are not included in the portfolio at risk.",
+          withoutSummary, lowerCaseId, upperCaseId);
+    return null;
+  }
+
+  private void addToAging(
+      final Long productId,
+      final LocalDateTime lateSince,
+      final long caseCount,
+      final BigDecimal principalBalance) {
+    portfolioAgingRepository.add(
+        productId,
+        Timestamp.valueOf(lateSince.toLocalDate().atStartOfDay()),
+        caseCount,
+        principalBalance);
+  }
+
+  private void removeFromAging(final AtRiskCaseEntity atRiskCase) {
+    final LocalDateTime lateOn = atRiskCase.getLateSince().toLocalDate().atStartOfDay();
+    addToAging(atRiskCase.getProductId(), lateOn, -1, atRiskCase.getPrincipalBalance().negate());
+    portfolioAgingRepository.deleteIfEmpty(atRiskCase.getProductId(), lateOn);
+  }
+
+  private ProductEntity checkedGetProduct(final String productIdentifier) {
+    return productRepository.findByIdentifier(productIdentifier)
+        .orElseThrow(() -> ServiceException.notFound("Product not found ''{0}''.", productIdentifier));
+  }
+
+  static boolean isAtRisk(
+      final String currentState,
+      @Nullable final LocalDateTime lateSince,
+      final BigDecimal principalBalance) {
+    return ACTIVE_STATES.contains(currentState) &&
+        lateSince != null &&
+        principalBalance.compareTo(BigDecimal.ZERO) > 0;
+  }
+
+  static List<PortfolioAtRiskBucket> getBuckets(
+      final List<PortfolioAgingEntity> agingByDay,
+      final LocalDate asOf,
+      final int minorCurrencyUnitDigits) {
+    return BUCKET_DAYS_LATE.stream()
+        .map(bucketDaysLate -> {
+          final LocalDateTime lateBefore = lateBefore(asOf, bucketDaysLate);
+          final List<PortfolioAgingEntity> inBucket = agingByDay.stream()
+              .filter(x -> x.getLateSince().isBefore(lateBefore))
+              .collect(Collectors.toList());
+
+          final PortfolioAtRiskBucket ret = new PortfolioAtRiskBucket();
+          ret.setDaysLate(bucketDaysLate);
+          ret.setCaseCount(inBucket.stream().mapToLong(PortfolioAgingEntity::getCaseCount).sum());
+          ret.setPrincipalBalance(inBucket.stream()
+              .map(PortfolioAgingEntity::getPrincipalBalance)
+              .reduce(BigDecimal.ZERO, BigDecimal::add)
+              .setScale(minorCurrencyUnitDigits, BigDecimal.ROUND_HALF_EVEN));
+          return ret;
+        })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * A case counts as one day late on the day it became late, the same way the lateness check counts it.
+   * It is therefore at least {@code daysLate} days late as of a date if it became late before the day after
+   * {@code asOf - (daysLate - 1)}.
+   */
+  static LocalDateTime lateBefore(final LocalDate asOf, final int daysLate) {
+    return asOf.minusDays(daysLate - 1).plusDays(1).atStartOfDay();
+  }
+
+  static int daysLate(final LocalDate lateSince, final LocalDate asOf) {
+    return Math.toIntExact(ChronoUnit.DAYS.between(lateSince, asOf)) + 1;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
+import org.apache.fineract.cn.portfolio.service.internal.mapper.ProductMapper;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductAccountAssignmentEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The account assignments of one product, indexed by designator.  The index is the same for every case of the
+ * product, so it is built once and shared between cases for as long as the product is unchanged.  It is never changed
+ * after it is built, and the account assignments in it must not be changed by their users either.
+ *
+ * @author Myrle Krantz
+ */
+public final class ProductAccountAssignmentIndex {
+  private final @Nullable Long productId;
+  private final @Nullable LocalDateTime lastModifiedOn;
+  private final int accountAssignmentCount;
+  private final Map<String, AccountAssignment> accountAssignments;
+  //Optionals are created up front, so that lookups don't allocate.  Empty if the assignment is to a ledger.
+  private final Map<String, Optional<String>> accountIdentifiers;
+
+  private ProductAccountAssignmentIndex(
+      final @Nullable Long productId,
+      final @Nullable LocalDateTime lastModifiedOn,
+      final @Nonnull Set<ProductAccountAssignmentEntity> productAccountAssignments) {
+    this.productId = productId;
+    this.lastModifiedOn = lastModifiedOn;
+    this.accountAssignmentCount = productAccountAssignments.size();
+    final Map<String, AccountAssignment> accountAssignments = new LinkedHashMap<>();
+    final Map<String, Optional<String>> accountIdentifiers = new LinkedHashMap<>();
+    productAccountAssignments.stream().map(ProductMapper::mapAccountAssignmentEntity).forEach(accountAssignment -> {
+      if (accountAssignments.putIfAbsent(accountAssignment.getDesignator(), accountAssignment) == null)
+        accountIdentifiers.put(accountAssignment.getDesignator(), Optional.ofNullable(accountAssignment.getAccountIdentifier()));
+    });
+    this.accountAssignments = Collections.unmodifiableMap(accountAssignments);
+    this.accountIdentifiers = Collections.unmodifiableMap(accountIdentifiers);
+  }
+
+  public static ProductAccountAssignmentIndex of(final @Nonnull ProductEntity product) {
+    return new ProductAccountAssignmentIndex(product.getId(), product.getLastModifiedOn(), product.getAccountAssignments());
+  }
+
+  static ProductAccountAssignmentIndex of(final @Nonnull Set<ProductAccountAssignmentEntity> productAccountAssignments) {
+    return new ProductAccountAssignmentIndex(null, null, productAccountAssignments);
+  }
+
+  boolean isFor(final @Nonnull ProductEntity product) {
+    return productId != null
+        && productId.equals(product.getId())
+        && Objects.equals(lastModifiedOn, product.getLastModifiedOn())
+        && accountAssignmentCount == product.getAccountAssignments().size();
+  }
+
+  /**
+   * @return the account identifier assigned to the designator, empty if the designator is assigned to a ledger, or
+   * null if the product has no assignment for the designator.
+   */
+  @Nullable Optional<String> findAccountIdentifier(final @Nonnull String accountDesignator) {
+    return accountIdentifiers.get(accountDesignator);
+  }
+
+  Optional<AccountAssignment> findAccountAssignment(final @Nonnull String accountDesignator) {
+    return Optional.ofNullable(accountAssignments.get(accountDesignator));
+  }
+
+  Collection<AccountAssignment> getAccountAssignments() {
+    return accountAssignments.values();
+  }
+}
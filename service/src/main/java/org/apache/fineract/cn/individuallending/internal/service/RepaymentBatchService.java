@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import org.apache.commons.lang.StringUtils;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Repayment;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentBatchProgress;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentResult;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentResultPage;
+import org.apache.fineract.cn.individuallending.api.v1.events.IndividualLoanCommandEvent;
+import org.apache.fineract.cn.individuallending.internal.command.AcceptPaymentCommand;
+import org.apache.fineract.cn.individuallending.internal.repository.RepaymentBatchEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.RepaymentBatchItemEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.RepaymentBatchItemRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.RepaymentBatchRepository;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Command;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.ContextSnapshot;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.command.gateway.CommandGateway;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Accepts the repayments of a batch.  The repayments are persisted before any of them is accepted, and then
+ * partitioned by case.  The repayments of a case are accepted one after the other in the order of the batch, while
+ * different cases are handled in parallel on a bounded pool.  The result of each repayment is persisted as soon as
+ * it is known.  A repayment which fails doesn't keep later repayments of the same case from being accepted.
+ *
+ * A batch which is submitted again under the same identifier is resumed: repayments which haven't been processed
+ * yet are accepted, and its repayments are not added a second time.  Every repayment is booked under a transaction
+ * uniqueifier derived from its place in the batch.  Because a repayment could have been accepted without its result
+ * being persisted, repayments of a resumed batch whose uniqueifier was already recorded for the case are not
+ * accepted again.
+ *
+ * @author Myrle Krantz
+ */
+@Service
+public class RepaymentBatchService {
+  private static final int MAXIMUM_MESSAGE_LENGTH = 1024;
+
+  private final RepaymentBatchRepository repaymentBatchRepository;
+  private final RepaymentBatchItemRepository repaymentBatchItemRepository;
+  private final CaseRepository caseRepository;
+  private final CaseCommandRepository caseCommandRepository;
+  private final CommandGateway commandGateway;
+  private final Gson gson;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger logger;
+  private final ExecutorService workers;
+  private final Set<String> batchesInProgress = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  public RepaymentBatchService(
+      final RepaymentBatchRepository repaymentBatchRepository,
+      final RepaymentBatchItemRepository repaymentBatchItemRepository,
+      final CaseRepository caseRepository,
+      final CaseCommandRepository caseCommandRepository,
+      final CommandGateway commandGateway,
+      final PortfolioProperties portfolioProperties,
+      @Qualifier(ServiceConstants.GSON_NAME) final Gson gson,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.repaymentBatchRepository = repaymentBatchRepository;
+    this.repaymentBatchItemRepository = repaymentBatchItemRepository;
+    this.caseRepository = caseRepository;
+    this.caseCommandRepository = caseCommandRepository;
+    this.commandGateway = commandGateway;
+    this.gson = gson;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.logger = logger;
+    this.workers = Executors.newFixedThreadPool(
+        portfolioProperties.getRepaymentBatchWorkerCount(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("portfolio-repayment-batch-%d").build());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    //Repayments which haven't been processed yet stay pending, and are accepted once the batch is resumed.
+    workers.shutdownNow();
+  }
+
+  public void submit(final String productIdentifier, final RepaymentBatch repaymentBatch) {
+    final Optional<RepaymentBatchEntity> existing
+        = repaymentBatchRepository.findByProductIdentifierAndIdentifier(productIdentifier, repaymentBatch.getIdentifier());
+    final boolean resumed = existing.isPresent();
+    if (!resumed)
+      checkNoRepaymentRepeated(repaymentBatch);
+    final RepaymentBatchEntity batch = existing.orElseGet(() -> transactionTemplate.execute(status ->
+        persist(productIdentifier, repaymentBatch)));
+
+    final String batchKey = TenantContextHolder.checkedGetIdentifier() + "." + batch.getId();
+    if (!batchesInProgress.add(batchKey)) {
+      logger.info("Repayment batch '{}.{}' is already being processed.", productIdentifier, batch.getIdentifier());
+      return;
+    }
+
+    final Map<String, List<RepaymentBatchItemEntity>> pendingByCase = repaymentBatchItemRepository
+        .findByBatchIdAndCurrentStateOrderByPositionAsc(batch.getId(), RepaymentResult.State.PENDING)
+        .stream()
+        .collect(Collectors.groupingBy(RepaymentBatchItemEntity::getCaseIdentifier, LinkedHashMap::new, Collectors.toList()));
+    if (pendingByCase.isEmpty()) {
+      finish(batch.getId(), batchKey);
+      return;
+    }
+
+    final AtomicInteger casesRemaining = new AtomicInteger(pendingByCase.size());
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    pendingByCase.forEach((caseIdentifier, items) -> workers.submit(contextSnapshot.wrap(() -> {
+      try {
+        acceptRepaymentsOfCase(productIdentifier, caseIdentifier, items, resumed);
+      }
+      catch (final RuntimeException e) {
+        logger.error("Accepting repayments for case '{}.{}' failed.", productIdentifier, caseIdentifier, e);
+      }
+      finally {
+        if (casesRemaining.decrementAndGet() == 0)
+          finish(batch.getId(), batchKey);
+      }
+    })));
+  }
+
+  public Optional<RepaymentBatchProgress> getProgress(final String productIdentifier, final String batchIdentifier) {
+    return repaymentBatchRepository.findByProductIdentifierAndIdentifier(productIdentifier, batchIdentifier)
+        .map(batch -> {
+          final RepaymentBatchProgress ret = new RepaymentBatchProgress();
+          ret.setIdentifier(batch.getIdentifier());
+          ret.setState(batch.getCurrentState().name());
+          ret.setRepaymentCount(batch.getRepaymentCount());
+          ret.setAcceptedCount(repaymentBatchItemRepository.countByBatchIdAndCurrentState(
+              batch.getId(), RepaymentResult.State.ACCEPTED));
+          ret.setFailedCount(repaymentBatchItemRepository.countByBatchIdAndCurrentState(
+              batch.getId(), RepaymentResult.State.FAILED));
+          ret.setCreatedBy(batch.getCreatedBy());
+          ret.setCreatedOn(DateConverter.toIsoString(batch.getCreatedOn()));
+          ret.setFinishedOn(batch.getFinishedOn() == null ? null : DateConverter.toIsoString(batch.getFinishedOn()));
+          return ret;
+        });
+  }
+
+  public Optional<RepaymentResultPage> getResults(
+      final String productIdentifier,
+      final String batchIdentifier,
+      final Set<RepaymentResult.State> states,
+      final int pageIndex,
+      final int size) {
+    if (pageIndex < 0 || size < 1)
+      throw ServiceException.badRequest("Page ''{0}'' of size ''{1}'' does not exist.", pageIndex, size);
+
+    return repaymentBatchRepository.findByProductIdentifierAndIdentifier(productIdentifier, batchIdentifier)
+        .map(batch -> {
+          final Pageable pageRequest = new PageRequest(pageIndex, size, Sort.Direction.ASC, "position");
+          final Page<RepaymentBatchItemEntity> items = states.isEmpty()
+              ? repaymentBatchItemRepository.findByBatchId(batch.getId(), pageRequest)
+              : repaymentBatchItemRepository.findByBatchIdAndCurrentStateIn(batch.getId(), states, pageRequest);
+
+          final RepaymentResultPage ret = new RepaymentResultPage();
+          ret.setElements(items.getContent().stream().map(RepaymentBatchService::map).collect(Collectors.toList()));
+          ret.setTotalPages(items.getTotalPages());
+          ret.setTotalElements(items.getTotalElements());
+          return ret;
+        });
+  }
+
+  private static void checkNoRepaymentRepeated(final RepaymentBatch repaymentBatch) {
+    final Set<String> seen = new HashSet<>();
+    for (final Repayment repayment : repaymentBatch.getRepayments()) {
+      if (!seen.add(repayment.getCaseIdentifier() + "@" + repayment.getCommand().getCreatedOn()))
+        throw ServiceException.badRequest(
+            "Repayment batch ''{0}'' contains more than one repayment for case ''{1}'' created on ''{2}''.",
+            repaymentBatch.getIdentifier(), repayment.getCaseIdentifier(), repayment.getCommand().getCreatedOn());
+    }
+  }
+
+  private RepaymentBatchEntity persist(final String productIdentifier, final RepaymentBatch repaymentBatch) {
+    final RepaymentBatchEntity batch = new RepaymentBatchEntity();
+    batch.setIdentifier(repaymentBatch.getIdentifier());
+    batch.setProductIdentifier(productIdentifier);
+    batch.setRepaymentCount(repaymentBatch.getRepayments().size());
+    batch.setCurrentState(RepaymentBatchEntity.State.RUNNING);
+    batch.setCreatedBy(UserContextHolder.checkedGetUser());
+    batch.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
+    final RepaymentBatchEntity ret = repaymentBatchRepository.save(batch);
+
+    final List<RepaymentBatchItemEntity> items = new ArrayList<>(repaymentBatch.getRepayments().size());
+    for (int position = 0; position < repaymentBatch.getRepayments().size(); position++) {
+      final Repayment repayment = repaymentBatch.getRepayments().get(position);
+      final RepaymentBatchItemEntity item = new RepaymentBatchItemEntity();
+      item.setBatchId(ret.getId());
+      item.setPosition(position);
+      item.setCaseIdentifier(repayment.getCaseIdentifier());
+      item.setCommand(gson.toJson(repayment.getCommand()));
+      item.setCurrentState(RepaymentResult.State.PENDING);
+      items.add(item);
+    }
+    repaymentBatchItemRepository.save(items);
+    return ret;
+  }
+
+  private void acceptRepaymentsOfCase(
+      final String productIdentifier,
+      final String caseIdentifier,
+      final List<RepaymentBatchItemEntity> items,
+      final boolean resumed) {
+    final Set<String> alreadyAccepted = resumed
+        ? getAcceptedTransactionUniqueifiers(productIdentifier, caseIdentifier, items)
+        : Collections.emptySet();
+
+    for (final RepaymentBatchItemEntity item : items) {
+      final String transactionUniqueifier = transactionUniqueifier(item);
+      if (alreadyAccepted.contains(transactionUniqueifier)) {
+        record(item, RepaymentResult.State.ACCEPTED, "Accepted before the batch was resumed.");
+        continue;
+      }
+
+      final Command command = gson.fromJson(item.getCommand(), Command.class);
+      try {
+        commandGateway.process(new AcceptPaymentCommand(productIdentifier, caseIdentifier, command, transactionUniqueifier),
+            IndividualLoanCommandEvent.class).get();
+        record(item, RepaymentResult.State.ACCEPTED, null);
+      }
+      catch (final ExecutionException e) {
+        record(item, RepaymentResult.State.FAILED, e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+      }
+      catch (final RuntimeException e) {
+        //A repayment which couldn't even be submitted mustn't keep the later repayments of the case from being accepted.
+        record(item, RepaymentResult.State.FAILED, e.getMessage());
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private Set<String> getAcceptedTransactionUniqueifiers(
+      final String productIdentifier,
+      final String caseIdentifier,
+      final List<RepaymentBatchItemEntity> items) {
+    final Set<String> transactionUniqueifiers = items.stream()
+        .map(RepaymentBatchService::transactionUniqueifier)
+        .collect(Collectors.toSet());
+    return caseRepository.findByProductIdentifierAndIdentifier(productIdentifier, caseIdentifier)
+        .map(CaseEntity::getId)
+        .map(caseId -> caseCommandRepository
+            .findByCaseIdAndActionNameAndTransactionUniqueifierIn(caseId, Action.ACCEPT_PAYMENT.name(), transactionUniqueifiers)
+            .stream()
+            .map(CaseCommandEntity::getTransactionUniqueifier)
+            .collect(Collectors.toSet()))
+        .orElse(Collections.emptySet());
+  }
+
+  /**
+   * Item identifiers are unique, so this is too.  It is well within the 26 characters recorded commands have room for.
+   */
+  static String transactionUniqueifier(final RepaymentBatchItemEntity item) {
+    return "rb" + Long.toString(item.getId(), Character.MAX_RADIX);
+  }
+
+  private void record(
+      final RepaymentBatchItemEntity item,
+      final RepaymentResult.State state,
+      final String message) {
+    item.setCurrentState(state);
+    item.setMessage(StringUtils.abbreviate(message, MAXIMUM_MESSAGE_LENGTH));
+    item.setProcessedOn(LocalDateTime.now(Clock.systemUTC()));
+    transactionTemplate.execute(status -> repaymentBatchItemRepository.save(item));
+  }
+
+  private void finish(final Long batchId, final String batchKey) {
+    try {
+      transactionTemplate.execute(status -> {
+        final RepaymentBatchEntity batch = repaymentBatchRepository.findOne(batchId);
+        //A batch with repayments left, for example because the service was stopped, stays running until it's resumed.
+        if (batch.getCurrentState() == RepaymentBatchEntity.State.FINISHED ||
+            repaymentBatchItemRepository.countByBatchIdAndCurrentState(batchId, RepaymentResult.State.PENDING) > 0)
+          return null;
+
+        batch.setCurrentState(RepaymentBatchEntity.State.FINISHED);
+        batch.setFinishedOn(LocalDateTime.now(Clock.systemUTC()));
+        return repaymentBatchRepository.save(batch);
+      });
+    }
+    finally {
+      batchesInProgress.remove(batchKey);
+    }
+  }
+
+  private static RepaymentResult map(final RepaymentBatchItemEntity item) {
+    final RepaymentResult ret = new RepaymentResult();
+    ret.setPosition(item.getPosition());
+    ret.setCaseIdentifier(item.getCaseIdentifier());
+    ret.setState(item.getCurrentState().name());
+    ret.setMessage(item.getMessage());
+    ret.setProcessedOn(item.getProcessedOn() == null ? null : DateConverter.toIsoString(item.getProcessedOn()));
+    return ret;
+  }
+}
@@ -21,8 +21,8 @@ package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
 import org.apache.fineract.cn.individuallending.internal.service.DataContextOfAction;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledAction;
-import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledActionHelpers;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledCharge;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledChargesService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,11 +40,14 @@ import java.util.List;
 @Service
 public class AcceptPaymentBuilderService implements PaymentBuilderService {
   private final ScheduledChargesService scheduledChargesService;
+  private final RepaymentCalendarCache repaymentCalendarCache;
 
   @Autowired
   public AcceptPaymentBuilderService(
-      final ScheduledChargesService scheduledChargesService) {
+      final ScheduledChargesService scheduledChargesService,
+      final RepaymentCalendarCache repaymentCalendarCache) {
     this.scheduledChargesService = scheduledChargesService;
+    this.repaymentCalendarCache = repaymentCalendarCache;
   }
 
   @Override
@@ -58,17 +61,18 @@ public class AcceptPaymentBuilderService implements PaymentBuilderService {
     final CaseParametersEntity caseParameters = dataContextOfAction.getCaseParametersEntity();
     final String productIdentifier = dataContextOfAction.getProductEntity().getIdentifier();
     final int minorCurrencyUnitDigits = dataContextOfAction.getProductEntity().getMinorCurrencyUnitDigits();
-    final ScheduledAction scheduledAction
-        = ScheduledActionHelpers.getNextScheduledPayment(
+    final ScheduledAction scheduledAction = repaymentCalendarCache.getRepaymentCalendar(
+        dataContextOfAction.getCustomerCaseEntity().getId(),
         startOfTerm.toLocalDate(),
-        forDate,
         dataContextOfAction.getCustomerCaseEntity().getEndOfTerm().toLocalDate(),
-        dataContextOfAction.getCaseParameters()
-    );
+        dataContextOfAction.getCaseParameters().getPaymentCycle())
+        .getNextScheduledPayment(forDate);
 
     final List<ScheduledCharge> scheduledChargesForThisAction = scheduledChargesService.getScheduledCharges(
         productIdentifier,
         Collections.singletonList(scheduledAction));
+    runningBalances.prefetchAccounts(
+        CostComponentService.getAccountDesignatorsReadForScheduledCharges(scheduledChargesForThisAction));
 
     final BigDecimal loanPaymentSize;
 
@@ -60,6 +60,8 @@ public class ApplyInterestPaymentBuilderService implements PaymentBuilderService
     final List<ScheduledCharge> scheduledCharges = scheduledChargesService.getScheduledCharges(
         productIdentifier,
         Collections.singletonList(interestAction));
+    runningBalances.prefetchAccounts(
+        CostComponentService.getAccountDesignatorsReadForScheduledCharges(scheduledCharges));
 
     return CostComponentService.getCostComponentsForScheduledCharges(
         scheduledCharges,
@@ -25,6 +25,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * @author Myrle Krantz
@@ -72,4 +73,9 @@ public class AvailableRunningBalancesWithLimits implements RunningBalances {
   public Optional<LocalDateTime> getStartOfTerm() {
     return decoratedRunningBalances.getStartOfTerm();
   }
+
+  @Override
+  public void prefetchAccounts(final Set<String> accountDesignators) {
+    decoratedRunningBalances.prefetchAccounts(accountDesignators);
+  }
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
+
+import org.apache.fineract.cn.individuallending.IndividualLendingPatternFactory;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Sums per account designator, kept in an array indexed by the designator's ordinal in the topology of the
+ * individual lending pattern.  Designators without an ordinal are kept in a map on the side.
+ *
+ * Snapshots are copy-on-write: taking one copies only the array of references, and a sum is copied the first time
+ * it is changed after a snapshot shares it.  Snapshots can't be changed.
+ *
+ * @author Myrle Krantz
+ */
+final class BalanceVector {
+  private static final DesignatorTopology TOPOLOGY = IndividualLendingPatternFactory.individualLendingTopology();
+
+  private final FixedPointSum[] sums;
+  private Map<String, FixedPointSum> unregisteredSums;
+  private final boolean[] shared;
+  private boolean unregisteredShared;
+  private final boolean frozen;
+
+  BalanceVector() {
+    this.sums = new FixedPointSum[TOPOLOGY.size()];
+    this.unregisteredSums = Collections.emptyMap();
+    this.shared = new boolean[TOPOLOGY.size()];
+    this.unregisteredShared = true; //The empty map can't be changed.
+    this.frozen = false;
+  }
+
+  private BalanceVector(final FixedPointSum[] sums, final Map<String, FixedPointSum> unregisteredSums) {
+    this.sums = sums;
+    this.unregisteredSums = unregisteredSums;
+    this.shared = null;
+    this.unregisteredShared = true;
+    this.frozen = true;
+  }
+
+  /**
+   * @return the sum for the designator, or null if nothing was added for it.  Must not be changed by the caller.
+   */
+  FixedPointSum get(final String accountDesignator) {
+    final int ordinal = TOPOLOGY.ordinalOf(accountDesignator);
+    return ordinal == DesignatorTopology.NO_ORDINAL ? unregisteredSums.get(accountDesignator) : sums[ordinal];
+  }
+
+  /**
+   * @return the sum for the designator, which this vector alone holds and which may be changed.
+   */
+  FixedPointSum getForChange(final String accountDesignator) {
+    if (frozen)
+      throw new IllegalStateException("A snapshot of balances can't be changed.");
+
+    final int ordinal = TOPOLOGY.ordinalOf(accountDesignator);
+    if (ordinal != DesignatorTopology.NO_ORDINAL) {
+      final FixedPointSum current = sums[ordinal];
+      if (current == null)
+        sums[ordinal] = new FixedPointSum();
+      else if (shared[ordinal])
+        sums[ordinal] = current.copy();
+      shared[ordinal] = false;
+      return sums[ordinal];
+    }
+
+    if (unregisteredShared) {
+      final Map<String, FixedPointSum> copy = new HashMap<>();
+      unregisteredSums.forEach((designator, sum) -> copy.put(designator, sum.copy()));
+      unregisteredSums = copy;
+      unregisteredShared = false;
+    }
+    return unregisteredSums.computeIfAbsent(accountDesignator, x -> new FixedPointSum());
+  }
+
+  BalanceVector snapshot() {
+    if (frozen)
+      return this;
+
+    for (int i = 0; i < shared.length; i++)
+      shared[i] = sums[i] != null;
+    unregisteredShared = true;
+    return new BalanceVector(sums.clone(), unregisteredSums);
+  }
+
+  /**
+   * Calls the consumer for every designator something was added for, in the order of the designator ordinals.
+   */
+  void forEach(final BiConsumer<String, FixedPointSum> consumer) {
+    for (int i = 0; i < sums.length; i++) {
+      if (sums[i] != null)
+        consumer.accept(TOPOLOGY.designatorOf(i), sums[i]);
+    }
+    unregisteredSums.forEach(consumer);
+  }
+
+  Map<String, BigDecimal> toMap(final boolean includeZeros) {
+    final Map<String, BigDecimal> ret = new HashMap<>();
+    forEach((accountDesignator, sum) -> {
+      if (includeZeros || !sum.isZero())
+        ret.put(accountDesignator, sum.toBigDecimal());
+    });
+    return ret;
+  }
+}
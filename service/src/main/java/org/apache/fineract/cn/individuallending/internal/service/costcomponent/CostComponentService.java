@@ -32,9 +32,12 @@ import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Myrle Krantz
@@ -92,6 +95,22 @@ public class CostComponentService {
     return paymentBuilder;
   }
 
+  /**
+   * @return the designators of the accounts which may be read while calculating the costs of the scheduled charges.
+   */
+  static Set<String> getAccountDesignatorsReadForScheduledCharges(final Collection<ScheduledCharge> scheduledCharges) {
+    final Set<String> accountDesignators = scheduledCharges.stream()
+        .map(ScheduledCharge::getChargeDefinition)
+        .flatMap(chargeDefinition -> Stream.of(
+            chargeDefinition.getFromAccountDesignator(),
+            chargeDefinition.getToAccountDesignator(),
+            chargeDefinition.getAccrualAccountDesignator()))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    accountDesignators.add(AccountDesignators.CUSTOMER_LOAN_GROUP);
+    return PaymentBuilder.expandAccountDesignators(accountDesignators);
+  }
+
   private static BigDecimal getAmountProportionalTo(
       final ScheduledCharge scheduledCharge,
       final BigDecimal maximumBalance,
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
+
+import org.apache.fineract.cn.portfolio.api.v1.domain.Pattern;
+import org.apache.fineract.cn.portfolio.api.v1.domain.RequiredAccountAssignment;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.fineract.cn.accounting.api.v1.domain.AccountType;
+
+/**
+ * The account designators of a pattern, and how they are grouped, worked out once when the pattern is defined rather
+ * than every time a payment is built or a balance is read.  Each required account gets a dense ordinal, so that
+ * balances can be kept in arrays, and each group is a bitset over those ordinals.  Designators which the pattern
+ * doesn't require have no ordinal.
+ *
+ * @author Myrle Krantz
+ */
+public final class DesignatorTopology {
+  public static final int NO_ORDINAL = -1;
+
+  private final String[] designators;
+  private final BigDecimal[] accountSigns;
+  private final Map<String, Integer> ordinals;
+  private final Map<String, Long> groupMemberships;
+  private final Map<String, Set<String>> groupMembers;
+
+  private DesignatorTopology(final Pattern pattern) {
+    final List<RequiredAccountAssignment> requiredAccounts = pattern.getAccountAssignmentsRequired().stream()
+        .sorted(Comparator.comparing(RequiredAccountAssignment::getAccountDesignator))
+        .collect(Collectors.toList());
+    if (requiredAccounts.size() > Long.SIZE)
+      throw new IllegalArgumentException("Group memberships are kept as a long, so a pattern can't require more than "
+          + Long.SIZE + " accounts.");
+
+    this.designators = new String[requiredAccounts.size()];
+    this.accountSigns = new BigDecimal[requiredAccounts.size()];
+    this.ordinals = new HashMap<>();
+    this.groupMemberships = new HashMap<>();
+    final Map<String, Set<String>> groupMembers = new HashMap<>();
+    pattern.getAccountAssignmentGroups().forEach(group -> {
+      groupMemberships.put(group, 0L);
+      groupMembers.put(group, new HashSet<>());
+    });
+
+    for (int i = 0; i < requiredAccounts.size(); i++) {
+      final RequiredAccountAssignment requiredAccount = requiredAccounts.get(i);
+      designators[i] = requiredAccount.getAccountDesignator();
+      accountSigns[i] = signOf(AccountType.valueOf(requiredAccount.getAccountType()));
+      ordinals.put(designators[i], i);
+      final String group = requiredAccount.getGroup();
+      if (group != null && groupMemberships.containsKey(group)) {
+        groupMemberships.put(group, groupMemberships.get(group) | (1L << i));
+        groupMembers.get(group).add(designators[i]);
+      }
+    }
+
+    this.groupMembers = groupMembers.entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> Collections.unmodifiableSet(entry.getValue())));
+  }
+
+  public static DesignatorTopology of(final Pattern pattern) {
+    return new DesignatorTopology(pattern);
+  }
+
+  public int size() {
+    return designators.length;
+  }
+
+  public int ordinalOf(final String accountDesignator) {
+    final Integer ret = ordinals.get(accountDesignator);
+    return ret == null ? NO_ORDINAL : ret;
+  }
+
+  public String designatorOf(final int ordinal) {
+    return designators[ordinal];
+  }
+
+  public boolean isGroup(final String designator) {
+    return groupMemberships.containsKey(designator);
+  }
+
+  /**
+   * @return a bitset over the ordinals of the accounts in the group, or 0 if the designator isn't a group.
+   */
+  public long getGroupMembership(final String group) {
+    return groupMemberships.getOrDefault(group, 0L);
+  }
+
+  /**
+   * @return the sign of the designator's account as determined by the account type the pattern requires for it, or
+   * null if the pattern doesn't require an account for the designator.
+   */
+  public BigDecimal getAccountSign(final String accountDesignator) {
+    final int ordinal = ordinalOf(accountDesignator);
+    return ordinal == NO_ORDINAL ? null : accountSigns[ordinal];
+  }
+
+  /**
+   * @return the designators, with the accounts of any groups among them added.
+   */
+  public Set<String> expand(final Set<String> accountDesignators) {
+    final Set<String> ret = new HashSet<>(accountDesignators);
+    accountDesignators.forEach(designator -> {
+      final Set<String> members = groupMembers.get(designator);
+      if (members != null)
+        ret.addAll(members);
+    });
+    return ret;
+  }
+
+  private static BigDecimal signOf(final AccountType accountType) {
+    switch (accountType) {
+      case ASSET:
+      case EXPENSE:
+        return RunningBalances.NEGATIVE;
+      default:
+        return RunningBalances.POSITIVE;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
+
+import java.math.BigDecimal;
+
+/**
+ * A running sum of amounts, kept as a long scaled to the largest scale of the amounts added so far.  Amounts in the
+ * cost component engine have at most the product's minor currency unit digits plus the running calculation precision
+ * after the decimal point, so adding them allocates nothing as long as the sum fits in a long.  If it doesn't, the sum
+ * falls back to BigDecimal.
+ *
+ * The result is the same as that of summing with BigDecimal.add starting from BigDecimal.ZERO, including its scale.
+ *
+ * @author Myrle Krantz
+ */
+final class FixedPointSum {
+  private static final int MAX_LONG_PRECISION = 18;
+  private static final long[] POWERS_OF_TEN = new long[MAX_LONG_PRECISION + 1];
+  static {
+    POWERS_OF_TEN[0] = 1L;
+    for (int i = 1; i <= MAX_LONG_PRECISION; i++)
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+  }
+
+  private long unscaledValue;
+  private int scale;
+  private BigDecimal overflow; //Only set once the sum no longer fits in a long.
+
+  FixedPointSum() {
+    this.unscaledValue = 0L;
+    this.scale = 0;
+    this.overflow = null;
+  }
+
+  FixedPointSum copy() {
+    final FixedPointSum ret = new FixedPointSum();
+    ret.unscaledValue = unscaledValue;
+    ret.scale = scale;
+    ret.overflow = overflow;
+    return ret;
+  }
+
+  void add(final BigDecimal amount) {
+    if (overflow == null && amount.precision() <= MAX_LONG_PRECISION
+        && addScaled(amount.unscaledValue().longValue(), amount.scale()))
+      return;
+    overflow = toBigDecimal().add(amount);
+  }
+
+  void subtract(final BigDecimal amount) {
+    if (overflow == null && amount.precision() <= MAX_LONG_PRECISION
+        && addScaled(-amount.unscaledValue().longValue(), amount.scale()))
+      return;
+    overflow = toBigDecimal().subtract(amount);
+  }
+
+  void add(final FixedPointSum other) {
+    if (overflow == null && other.overflow == null && addScaled(other.unscaledValue, other.scale))
+      return;
+    overflow = toBigDecimal().add(other.toBigDecimal());
+  }
+
+  void subtract(final FixedPointSum other) {
+    if (overflow == null && other.overflow == null && other.unscaledValue != Long.MIN_VALUE
+        && addScaled(-other.unscaledValue, other.scale))
+      return;
+    overflow = toBigDecimal().subtract(other.toBigDecimal());
+  }
+
+  boolean isZero() {
+    return overflow == null ? unscaledValue == 0L : overflow.signum() == 0;
+  }
+
+  BigDecimal toBigDecimal() {
+    return overflow == null ? BigDecimal.valueOf(unscaledValue, scale) : overflow;
+  }
+
+  /**
+   * @return false, leaving the sum unchanged, if the result doesn't fit in a long.
+   */
+  private boolean addScaled(final long otherUnscaledValue, final int otherScale) {
+    try {
+      if (otherScale == scale) {
+        unscaledValue = Math.addExact(unscaledValue, otherUnscaledValue);
+      }
+      else if (otherScale > scale) {
+        final long rescaled = Math.multiplyExact(unscaledValue, powerOfTen((long) otherScale - scale));
+        unscaledValue = Math.addExact(rescaled, otherUnscaledValue);
+        scale = otherScale;
+      }
+      else {
+        final long otherRescaled = Math.multiplyExact(otherUnscaledValue, powerOfTen((long) scale - otherScale));
+        unscaledValue = Math.addExact(unscaledValue, otherRescaled);
+      }
+      return true;
+    }
+    catch (final ArithmeticException e) {
+      return false;
+    }
+  }
+
+  private static long powerOfTen(final long exponent) {
+    if (exponent > MAX_LONG_PRECISION)
+      throw new ArithmeticException("Scale difference too large for a long.");
+    return POWERS_OF_TEN[(int) exponent];
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toString();
+  }
+}
@@ -18,20 +18,15 @@
  */
 package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
 
-import com.google.common.collect.Sets;
 import org.apache.fineract.cn.individuallending.IndividualLendingPatternFactory;
-import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPayment;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CostComponent;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Payment;
-import org.apache.fineract.cn.portfolio.api.v1.domain.RequiredAccountAssignment;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,21 +42,19 @@ public class PaymentBuilder {
   private final RunningBalances prePaymentBalances;
   private final Map<ChargeDefinition, CostComponent> costComponents;
 
-  private final Map<String, BigDecimal> balanceAdjustments;
+  private final BalanceVector balanceAdjustments;
   private final boolean accrualAccounting;
 
   PaymentBuilder(final RunningBalances prePaymentBalances,
                  final boolean accrualAccounting) {
     this.prePaymentBalances = prePaymentBalances;
     this.costComponents = new HashMap<>();
-    this.balanceAdjustments = new HashMap<>();
+    this.balanceAdjustments = new BalanceVector();
     this.accrualAccounting = accrualAccounting;
   }
 
   private Map<String, BigDecimal> copyBalanceAdjustments() {
-    return balanceAdjustments.entrySet().stream()
-        .filter(x -> x.getValue().compareTo(BigDecimal.ZERO) != 0)
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    return balanceAdjustments.toMap(false);
   }
 
   public Payment buildPayment(
@@ -70,11 +63,11 @@ public class PaymentBuilder {
       final @Nullable LocalDate forDate)
   {
     if (!forAccountDesignators.isEmpty()) {
+      final Set<String> expandedForAccountDesignators = expandAccountDesignators(forAccountDesignators);
       final Stream<Map.Entry<ChargeDefinition, CostComponent>> costComponentStream = stream()
           .filter(costComponentEntry -> chargeReferencesAccountDesignators(
               costComponentEntry.getKey(),
-              action,
-              forAccountDesignators));
+              expandedForAccountDesignators));
 
       final List<CostComponent> costComponentList = costComponentStream
           .map(costComponentEntry -> new CostComponent(
@@ -83,7 +76,7 @@ public class PaymentBuilder {
           .collect(Collectors.toList());
 
       final Payment ret = new Payment(costComponentList, copyBalanceAdjustments());
-      ret.setDate(forDate == null ? null : DateConverter.toIsoString(forDate.atStartOfDay()));
+      ret.setDate(toIsoString(forDate));
       return ret;
     }
     else {
@@ -93,37 +86,54 @@ public class PaymentBuilder {
   }
 
   private Payment buildPayment(final @Nullable LocalDate forDate) {
-    final Stream<Map.Entry<ChargeDefinition, CostComponent>> costComponentStream  = stream();
+    final Payment ret = new Payment(buildCostComponentList(), copyBalanceAdjustments());
+    ret.setDate(toIsoString(forDate));
+    return ret;
+  }
 
-    final List<CostComponent> costComponentList = costComponentStream
+  private List<CostComponent> buildCostComponentList() {
+    return stream()
         .map(costComponentEntry -> new CostComponent(
             costComponentEntry.getKey().getIdentifier(),
             costComponentEntry.getValue().getAmount()))
         .collect(Collectors.toList());
-
-    final Payment ret = new Payment(costComponentList, copyBalanceAdjustments());
-    ret.setDate(forDate == null ? null : DateConverter.toIsoString(forDate.atStartOfDay()));
-    return ret;
   }
 
-  public PlannedPayment accumulatePlannedPayment(
+  /**
+   * Applies the payment to the balances.  The builder must not be used afterwards.
+   */
+  public SimulatedPayment accumulatePlannedPayment(
       final SimulatedRunningBalances balances,
       final @Nullable LocalDate forDate) {
-    final Payment payment = buildPayment(forDate);
     balanceAdjustments.forEach(balances::adjustBalance);
-    final Map<String, BigDecimal> balancesCopy = balances.snapshot();
 
-    return new PlannedPayment(payment, balancesCopy);
+    return new SimulatedPayment(
+        buildCostComponentList(),
+        balanceAdjustments.snapshot(),
+        balances.snapshot(),
+        toIsoString(forDate));
   }
 
+  /**
+   * @return a copy of the balance adjustments, including those which add up to zero.
+   */
   public Map<String, BigDecimal> getBalanceAdjustments() {
-    return balanceAdjustments;
+    return balanceAdjustments.toMap(true);
+  }
+
+  public BigDecimal getBalanceAdjustment(final String accountDesignator) {
+    final FixedPointSum balanceAdjustment = balanceAdjustments.get(accountDesignator);
+    return balanceAdjustment == null ? BigDecimal.ZERO : balanceAdjustment.toBigDecimal();
   }
 
   public BigDecimal getBalanceAdjustment(final String... accountDesignators) {
-    return Arrays.stream(accountDesignators)
-        .map(accountDesignator -> balanceAdjustments.getOrDefault(accountDesignator, BigDecimal.ZERO))
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
+    final FixedPointSum ret = new FixedPointSum();
+    for (final String accountDesignator : accountDesignators) {
+      final FixedPointSum balanceAdjustment = balanceAdjustments.get(accountDesignator);
+      if (balanceAdjustment != null)
+        ret.add(balanceAdjustment);
+    }
+    return ret.toBigDecimal();
   }
 
   void adjustBalances(
@@ -160,17 +170,19 @@ public class PaymentBuilder {
       final String fromAccountDesignator,
       final String toAccountDesignator,
       final BigDecimal plannedCharge) {
-    final BigDecimal expectedImpactOnDebitAccount = plannedCharge.subtract(this.getBalanceAdjustment(fromAccountDesignator));
+    final BigDecimal fromAccountAdjustment = this.getBalanceAdjustment(fromAccountDesignator);
+    final BigDecimal expectedImpactOnDebitAccount = plannedCharge.subtract(fromAccountAdjustment);
     final BigDecimal maxImpactOnDebitAccount = prePaymentBalances.getMaxDebit(fromAccountDesignator, expectedImpactOnDebitAccount);
     final BigDecimal maxDebit = (!fromAccountDesignator.equals(AccountDesignators.PRODUCT_LOSS_ALLOWANCE)) ?
-        maxImpactOnDebitAccount.add(this.getBalanceAdjustment(fromAccountDesignator)).max(BigDecimal.ZERO) :
-        maxImpactOnDebitAccount.add(this.getBalanceAdjustment(fromAccountDesignator));
+        maxImpactOnDebitAccount.add(fromAccountAdjustment).max(BigDecimal.ZERO) :
+        maxImpactOnDebitAccount.add(fromAccountAdjustment);
 
-    final BigDecimal expectedImpactOnCreditAccount = plannedCharge.add(this.getBalanceAdjustment(toAccountDesignator));
+    final BigDecimal toAccountAdjustment = this.getBalanceAdjustment(toAccountDesignator);
+    final BigDecimal expectedImpactOnCreditAccount = plannedCharge.add(toAccountAdjustment);
     final BigDecimal maxImpactOnCreditAccount = prePaymentBalances.getMaxCredit(toAccountDesignator, expectedImpactOnCreditAccount);
     final BigDecimal maxCredit = (!toAccountDesignator.equals(AccountDesignators.GENERAL_LOSS_ALLOWANCE)) ?
-        maxImpactOnCreditAccount.subtract(this.getBalanceAdjustment(toAccountDesignator)).max(BigDecimal.ZERO) :
-        maxImpactOnCreditAccount.subtract(this.getBalanceAdjustment(toAccountDesignator));
+        maxImpactOnCreditAccount.subtract(toAccountAdjustment).max(BigDecimal.ZERO) :
+        maxImpactOnCreditAccount.subtract(toAccountAdjustment);
     return maxCredit.min(maxDebit);
   }
 
@@ -181,9 +193,7 @@ public class PaymentBuilder {
   private void addToBalance(
       final String accountDesignator,
       final BigDecimal chargeAmount) {
-    final BigDecimal currentAdjustment = balanceAdjustments.getOrDefault(accountDesignator, BigDecimal.ZERO);
-    final BigDecimal newAdjustment = currentAdjustment.add(chargeAmount);
-    balanceAdjustments.put(accountDesignator, newAdjustment);
+    balanceAdjustments.getForChange(accountDesignator).add(chargeAmount);
   }
 
   private void addToCostComponent(
@@ -202,38 +212,19 @@ public class PaymentBuilder {
 
   private static boolean chargeReferencesAccountDesignators(
       final ChargeDefinition chargeDefinition,
-      final Action action,
-      final Set<String> forAccountDesignators) {
-    final Set<String> accountsToCompare = Sets.newHashSet(
-        chargeDefinition.getFromAccountDesignator(),
-        chargeDefinition.getToAccountDesignator()
-    );
-    if (chargeDefinition.getAccrualAccountDesignator() != null)
-      accountsToCompare.add(chargeDefinition.getAccrualAccountDesignator());
-
-    final Set<String> expandedForAccountDesignators = expandAccountDesignators(forAccountDesignators);
-
-    return !Sets.intersection(accountsToCompare, expandedForAccountDesignators).isEmpty();
+      final Set<String> expandedForAccountDesignators) {
+    return expandedForAccountDesignators.contains(chargeDefinition.getFromAccountDesignator()) ||
+        expandedForAccountDesignators.contains(chargeDefinition.getToAccountDesignator()) ||
+        (chargeDefinition.getAccrualAccountDesignator() != null &&
+            expandedForAccountDesignators.contains(chargeDefinition.getAccrualAccountDesignator()));
   }
 
   static Set<String> expandAccountDesignators(final Set<String> accountDesignators) {
-    final Set<RequiredAccountAssignment> accountAssignmentsRequired = IndividualLendingPatternFactory.individualLendingPattern().getAccountAssignmentsRequired();
-    final Map<String, List<RequiredAccountAssignment>> accountAssignmentsByGroup = accountAssignmentsRequired.stream()
-        .filter(x -> x.getGroup() != null)
-        .collect(Collectors.groupingBy(RequiredAccountAssignment::getGroup, Collectors.toList()));
-    final Set<String> groupExpansions = accountDesignators.stream()
-        .flatMap(accountDesignator -> {
-          final List<RequiredAccountAssignment> group = accountAssignmentsByGroup.get(accountDesignator);
-          if (group != null)
-            return group.stream();
-          else
-            return Stream.empty();
-        })
-        .map(RequiredAccountAssignment::getAccountDesignator)
-        .collect(Collectors.toSet());
-    final Set<String> ret = new HashSet<>(accountDesignators);
-    ret.addAll(groupExpansions);
-    return ret;
+    return IndividualLendingPatternFactory.individualLendingTopology().expand(accountDesignators);
+  }
+
+  private static String toIsoString(final @Nullable LocalDate forDate) {
+    return forDate == null ? null : DateConverter.toIsoString(forDate.atStartOfDay());
   }
 
   private static CostComponent constructEmptyCostComponent(final ChargeDefinition chargeDefinition) {
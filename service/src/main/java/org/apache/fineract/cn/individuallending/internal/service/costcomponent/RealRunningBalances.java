@@ -20,15 +20,22 @@ package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
 
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.service.ChargeTotalsService;
 import org.apache.fineract.cn.individuallending.internal.service.DataContextOfAction;
 import org.apache.fineract.cn.individuallending.internal.service.DesignatorToAccountIdentifierMapper;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountMetadata;
 import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import net.jodah.expiringmap.ExpirationPolicy;
 import net.jodah.expiringmap.ExpiringMap;
 import org.apache.fineract.cn.accounting.api.v1.domain.Account;
@@ -39,41 +46,76 @@ import org.apache.fineract.cn.accounting.api.v1.domain.AccountType;
  */
 public class RealRunningBalances implements RunningBalances {
   private final AccountingAdapter accountingAdapter;
+  private final ChargeTotalsService chargeTotalsService;
   private final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper;
   private final DataContextOfAction dataContextOfAction;
   private final ExpiringMap<String, Optional<Account>> accountCache;
+  private final boolean seedChargeTotals;
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   private Optional<LocalDateTime> startOfTerm;
 
   public RealRunningBalances(
       final AccountingAdapter accountingAdapter,
+      final ChargeTotalsService chargeTotalsService,
       final DataContextOfAction dataContextOfAction) {
+    this(accountingAdapter, chargeTotalsService, dataContextOfAction, false);
+  }
+
+  /**
+   * @param seedChargeTotals whether sums read from accounting are remembered in the charge totals.  Only pass true
+   *                         while holding the lock on the case, so that two readers can't seed the same total.
+   */
+  public RealRunningBalances(
+      final AccountingAdapter accountingAdapter,
+      final ChargeTotalsService chargeTotalsService,
+      final DataContextOfAction dataContextOfAction,
+      final boolean seedChargeTotals) {
     this.accountingAdapter = accountingAdapter;
+    this.chargeTotalsService = chargeTotalsService;
     this.designatorToAccountIdentifierMapper =
-        new DesignatorToAccountIdentifierMapper(dataContextOfAction);
+        dataContextOfAction.getDesignatorToAccountIdentifierMapper();
     this.dataContextOfAction = dataContextOfAction;
     this.accountCache = ExpiringMap.builder()
         .maxSize(40)
         .expirationPolicy(ExpirationPolicy.CREATED)
         .expiration(60,TimeUnit.SECONDS)
-        .entryLoader((String accountDesignator) -> {
-          final Optional<String> accountIdentifier;
-          if (accountDesignator.equals(AccountDesignators.ENTRY) || accountDesignator.equals(AccountDesignators.EXPENSE)) {
-            accountIdentifier = designatorToAccountIdentifierMapper.map(accountDesignator);
-          }
-          else {
-            accountIdentifier = Optional.of(designatorToAccountIdentifierMapper.mapOrThrow(accountDesignator));
-          }
-          return accountIdentifier.map(accountingAdapter::getAccount);
-        })
+        .entryLoader((String accountDesignator) -> mapAccountDesignator(accountDesignator).map(accountingAdapter::getAccount))
         .build();
     this.startOfTerm = Optional.empty();
+    this.seedChargeTotals = seedChargeTotals;
+  }
+
+  private Optional<String> mapAccountDesignator(final String accountDesignator) {
+    if (accountDesignator.equals(AccountDesignators.ENTRY) || accountDesignator.equals(AccountDesignators.EXPENSE)) {
+      return designatorToAccountIdentifierMapper.map(accountDesignator);
+    }
+    else {
+      return Optional.of(designatorToAccountIdentifierMapper.mapOrThrow(accountDesignator));
+    }
+  }
+
+  @Override
+  public void prefetchAccounts(final Set<String> accountDesignators) {
+    //Designators which can't be mapped are left to the entry loader, so that they only fail if they are really used.
+    final Map<String, List<String>> accountDesignatorsByIdentifier = accountDesignators.stream()
+        .filter(accountDesignator -> !accountCache.containsKey(accountDesignator))
+        .map(accountDesignator -> designatorToAccountIdentifierMapper.map(accountDesignator)
+            .map(accountIdentifier -> new AbstractMap.SimpleEntry<>(accountIdentifier, accountDesignator)))
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .collect(Collectors.groupingBy(Map.Entry::getKey,
+            Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+    if (accountDesignatorsByIdentifier.size() <= 1)
+      return;
+
+    accountingAdapter.getAccounts(accountDesignatorsByIdentifier.keySet()).forEach((accountIdentifier, account) ->
+        accountDesignatorsByIdentifier.get(accountIdentifier).forEach(accountDesignator ->
+            accountCache.put(accountDesignator, Optional.of(account))));
   }
 
   @Override
   public BigDecimal getAccountSign(final String accountDesignator) {
-    return accountCache.get(accountDesignator)
-        .map(Account::getType)
+    return getAccountType(accountDesignator)
         .map(AccountType::valueOf)
         .flatMap(x -> {
           switch (x)
@@ -101,6 +143,15 @@ public class RealRunningBalances implements RunningBalances {
         );
   }
 
+  private Optional<String> getAccountType(final String accountDesignator) {
+    if (accountCache.containsKey(accountDesignator))
+      return accountCache.get(accountDesignator).map(Account::getType);
+    //The type doesn't change with bookings, so it doesn't have to be read with the balance.
+    return mapAccountDesignator(accountDesignator)
+        .map(accountingAdapter::getAccountMetadata)
+        .map(AccountMetadata::getType);
+  }
+
   @Override
   public Optional<BigDecimal> getAccountBalance(final String accountDesignator) {
     return accountCache.get(accountDesignator).map(Account::getBalance).map(BigDecimal::valueOf);
@@ -108,18 +159,16 @@ public class RealRunningBalances implements RunningBalances {
 
   @Override
   public BigDecimal getAccruedBalanceForCharge(final ChargeDefinition chargeDefinition) {
-    final String accrualAccountIdentifier = designatorToAccountIdentifierMapper.mapOrThrow(chargeDefinition.getAccrualAccountDesignator());
-
     final LocalDate startOfTermLocalDate = getStartOfTermOrThrow(dataContextOfAction).toLocalDate();
 
-    final BigDecimal amountAccrued = accountingAdapter.sumMatchingEntriesSinceDate(
-        accrualAccountIdentifier,
-        startOfTermLocalDate,
-        dataContextOfAction.getMessageForCharge(Action.valueOf(chargeDefinition.getAccrueAction())));
-    final BigDecimal amountApplied = accountingAdapter.sumMatchingEntriesSinceDate(
-        accrualAccountIdentifier,
-        startOfTermLocalDate,
-        dataContextOfAction.getMessageForCharge(Action.valueOf(chargeDefinition.getChargeAction())));
+    final BigDecimal amountAccrued = getSumOfChargesForActionSinceDate(
+        chargeDefinition.getAccrualAccountDesignator(),
+        Action.valueOf(chargeDefinition.getAccrueAction()),
+        startOfTermLocalDate);
+    final BigDecimal amountApplied = getSumOfChargesForActionSinceDate(
+        chargeDefinition.getAccrualAccountDesignator(),
+        Action.valueOf(chargeDefinition.getChargeAction()),
+        startOfTermLocalDate);
     return amountAccrued.subtract(amountApplied);
   }
 
@@ -149,11 +198,24 @@ public class RealRunningBalances implements RunningBalances {
       final String accountDesignator,
       final Action action,
       final LocalDateTime since) {
-    final String accountIdentifier = designatorToAccountIdentifierMapper.mapOrThrow(accountDesignator);
-    return accountingAdapter.sumMatchingEntriesSinceDate(
-        accountIdentifier,
-        since.toLocalDate(),
-        dataContextOfAction.getMessageForCharge(action));
+    return getSumOfChargesForActionSinceDate(accountDesignator, action, since.toLocalDate());
+  }
 
+  private BigDecimal getSumOfChargesForActionSinceDate(
+      final String accountDesignator,
+      final Action action,
+      final LocalDate since) {
+    final String accountIdentifier = designatorToAccountIdentifierMapper.mapOrThrow(accountDesignator);
+    return chargeTotalsService.findTotalSince(dataContextOfAction, accountDesignator, action, since)
+        .orElseGet(() -> {
+          final BigDecimal sum = accountingAdapter.sumMatchingEntriesSinceDate(
+              accountIdentifier,
+              since,
+              dataContextOfAction.getMessageForCharge(action));
+          if (seedChargeTotals)
+            chargeTotalsService.seedTotal(dataContextOfAction, accountDesignator, action, since, sum);
+          return ChargeTotalsService.asAccountingWouldSumIt(
+              sum, dataContextOfAction.getProductEntity().getMinorCurrencyUnitDigits());
+        });
   }
 }
@@ -22,11 +22,10 @@ import org.apache.fineract.cn.individuallending.IndividualLendingPatternFactory;
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
 import org.apache.fineract.cn.individuallending.internal.service.DataContextOfAction;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
-import org.apache.fineract.cn.portfolio.api.v1.domain.Pattern;
-import org.apache.fineract.cn.portfolio.api.v1.domain.RequiredAccountAssignment;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.Set;
 import org.apache.fineract.cn.lang.ServiceException;
 
 /**
@@ -50,6 +49,13 @@ public interface RunningBalances {
 
   Optional<LocalDateTime> getStartOfTerm();
 
+  /**
+   * Gives implementations which read balances from elsewhere the chance to read all the accounts which will be needed
+   * at once, instead of one by one as they are asked for.
+   */
+  default void prefetchAccounts(final Set<String> accountDesignators) {
+  }
+
   default boolean isAccountNegative(final String accountDesignator) {
     return getAccountSign(accountDesignator).signum() == -1;
   }
@@ -63,27 +69,21 @@ public interface RunningBalances {
   }
 
   default Optional<BigDecimal> getLedgerBalance(final String ledgerDesignator) {
-    final Pattern individualLendingPattern = IndividualLendingPatternFactory.individualLendingPattern();
-    return individualLendingPattern.getAccountAssignmentsRequired().stream()
-        .filter(requiredAccountAssignment -> ledgerDesignator.equals(requiredAccountAssignment.getGroup()))
-        .map(RequiredAccountAssignment::getAccountDesignator)
-        .map(this::getAccountBalance)
-        .reduce(Optional.empty(), (x, y) -> {
-          if (x.isPresent() && y.isPresent())
-            return Optional.of(x.get().add(y.get()));
-          else if (x.isPresent())
-            return x;
-          else //noinspection OptionalIsPresent
-            if (y.isPresent())
-            return y;
-          else
-            return Optional.empty();
-        });
+    final DesignatorTopology topology = IndividualLendingPatternFactory.individualLendingTopology();
+    long members = topology.getGroupMembership(ledgerDesignator);
+    BigDecimal ret = null;
+    while (members != 0) {
+      final int ordinal = Long.numberOfTrailingZeros(members);
+      members &= members - 1;
+      final Optional<BigDecimal> accountBalance = getAccountBalance(topology.designatorOf(ordinal));
+      if (accountBalance.isPresent())
+        ret = (ret == null) ? accountBalance.get() : ret.add(accountBalance.get());
+    }
+    return Optional.ofNullable(ret);
   }
 
   default Optional<BigDecimal> getBalance(final String designator) {
-    final Pattern individualLendingPattern = IndividualLendingPatternFactory.individualLendingPattern();
-    if (individualLendingPattern.getAccountAssignmentGroups().contains(designator))
+    if (IndividualLendingPatternFactory.individualLendingTopology().isGroup(designator))
       return getLedgerBalance(designator);
     else
       return getAccountBalance(designator);
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.PlannedPayment;
+import org.apache.fineract.cn.portfolio.api.v1.domain.CostComponent;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Payment;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * A planned payment in the compact form it is calculated in.  The balance adjustments and balances are only
+ * turned into the maps of a PlannedPayment when the payment is handed out.
+ *
+ * @author Myrle Krantz
+ */
+public final class SimulatedPayment {
+  private final List<CostComponent> costComponents;
+  private final BalanceVector balanceAdjustments;
+  private final BalanceVector balances;
+  private final @Nullable String date;
+
+  SimulatedPayment(
+      final List<CostComponent> costComponents,
+      final BalanceVector balanceAdjustments,
+      final BalanceVector balances,
+      final @Nullable String date) {
+    this.costComponents = costComponents;
+    this.balanceAdjustments = balanceAdjustments;
+    this.balances = balances;
+    this.date = date;
+  }
+
+  public PlannedPayment toPlannedPayment() {
+    final Payment payment = new Payment(costComponents, balanceAdjustments.toMap(false));
+    payment.setDate(date);
+    return new PlannedPayment(payment, balances.toMap(true));
+  }
+}
@@ -18,39 +18,19 @@
  */
 package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
 
-import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.apache.fineract.cn.individuallending.IndividualLendingPatternFactory;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
 
 import java.math.BigDecimal;
 import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 
 /**
  * @author Myrle Krantz
  */
 public class SimulatedRunningBalances implements RunningBalances {
-  private final static Map<String, BigDecimal> ACCOUNT_SIGNS = new HashMap<String, BigDecimal>() {{
-    this.put(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, NEGATIVE);
-    this.put(AccountDesignators.CUSTOMER_LOAN_FEES, NEGATIVE);
-    this.put(AccountDesignators.CUSTOMER_LOAN_INTEREST, NEGATIVE);
-    this.put(AccountDesignators.LOAN_FUNDS_SOURCE, NEGATIVE);
-    this.put(AccountDesignators.PROCESSING_FEE_INCOME, POSITIVE);
-    this.put(AccountDesignators.ORIGINATION_FEE_INCOME, POSITIVE);
-    this.put(AccountDesignators.DISBURSEMENT_FEE_INCOME, POSITIVE);
-    this.put(AccountDesignators.INTEREST_INCOME, POSITIVE);
-    this.put(AccountDesignators.INTEREST_ACCRUAL, POSITIVE);
-    this.put(AccountDesignators.LATE_FEE_INCOME, POSITIVE);
-    this.put(AccountDesignators.LATE_FEE_ACCRUAL, POSITIVE);
-    this.put(AccountDesignators.PRODUCT_LOSS_ALLOWANCE, NEGATIVE);
-    this.put(AccountDesignators.GENERAL_LOSS_ALLOWANCE, NEGATIVE);
-    this.put(AccountDesignators.EXPENSE, NEGATIVE);
-    this.put(AccountDesignators.ENTRY, POSITIVE);
-    //TODO: derive signs from IndividualLendingPatternFactory.individualLendingRequiredAccounts instead.
-  }};
-  final private Map<String, BigDecimal> balances = new HashMap<>();
+  private final BalanceVector balances = new BalanceVector();
   private final LocalDateTime startOfTerm;
 
   public SimulatedRunningBalances() {
@@ -63,18 +43,19 @@ public class SimulatedRunningBalances implements RunningBalances {
 
   @Override
   public BigDecimal getAccountSign(final String accountDesignator) {
-    return ACCOUNT_SIGNS.get(accountDesignator);
+    return IndividualLendingPatternFactory.individualLendingTopology().getAccountSign(accountDesignator);
   }
 
   @Override
   public Optional<BigDecimal> getAccountBalance(final String accountDesignator) {
-    return Optional.ofNullable(balances.get(accountDesignator));
+    return Optional.ofNullable(balances.get(accountDesignator)).map(FixedPointSum::toBigDecimal);
   }
 
   @Override
   public BigDecimal getAccruedBalanceForCharge(
       final ChargeDefinition chargeDefinition) {
-    return balances.getOrDefault(chargeDefinition.getAccrualAccountDesignator(), BigDecimal.ZERO);
+    final FixedPointSum accruedBalance = balances.get(chargeDefinition.getAccrualAccountDesignator());
+    return accruedBalance == null ? BigDecimal.ZERO : accruedBalance.toBigDecimal();
     //This is not accurate for all cases, but good enough for the cases it's used in.
   }
 
@@ -84,13 +65,22 @@ public class SimulatedRunningBalances implements RunningBalances {
   }
 
   public void adjustBalance(final String accountDesignator, final BigDecimal amount) {
-    final BigDecimal currentValue = balances.getOrDefault(accountDesignator, BigDecimal.ZERO);
-    final BigDecimal newValue = isAccountNegative(accountDesignator) ? currentValue.add(amount.negate())
-        : currentValue.add(amount);
-    balances.put(accountDesignator, newValue);
+    final FixedPointSum balance = balances.getForChange(accountDesignator);
+    if (isAccountNegative(accountDesignator))
+      balance.subtract(amount);
+    else
+      balance.add(amount);
   }
 
-  Map<String, BigDecimal> snapshot() {
-    return new HashMap<>(balances);
+  void adjustBalance(final String accountDesignator, final FixedPointSum amount) {
+    final FixedPointSum balance = balances.getForChange(accountDesignator);
+    if (isAccountNegative(accountDesignator))
+      balance.subtract(amount);
+    else
+      balance.add(amount);
+  }
+
+  BalanceVector snapshot() {
+    return balances.snapshot();
   }
 }
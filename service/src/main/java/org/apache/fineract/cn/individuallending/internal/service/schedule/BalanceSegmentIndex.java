@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.schedule;
+
+import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
+import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentEntity;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * The balance segments of one product, as intervals per segment set.  A segment reaches from its lower bound up to
+ * the lower bound of the next segment in the set, and the highest segment is unbounded.  An index is never changed
+ * after it is built, so charge ranges can be resolved from it concurrently and without reading the database.
+ *
+ * @author Myrle Krantz
+ */
+public final class BalanceSegmentIndex {
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private static class Segment {
+    final BigDecimal lowerBound;
+    final Optional<BigDecimal> upperBound;
+
+    private Segment(final BigDecimal lowerBound, final Optional<BigDecimal> upperBound) {
+      this.lowerBound = lowerBound;
+      this.upperBound = upperBound;
+    }
+  }
+
+  private final String productIdentifier;
+  private final long version;
+  private final Map<String, Map<String, Segment>> segmentSets;
+
+  private BalanceSegmentIndex(
+      final String productIdentifier,
+      final long version,
+      final Map<String, Map<String, Segment>> segmentSets) {
+    this.productIdentifier = productIdentifier;
+    this.version = version;
+    this.segmentSets = segmentSets;
+  }
+
+  static BalanceSegmentIndex build(
+      final String productIdentifier,
+      final long version,
+      final List<BalanceSegmentEntity> balanceSegments) {
+    final Map<String, List<BalanceSegmentEntity>> balanceSegmentsBySet = balanceSegments.stream()
+        .collect(Collectors.groupingBy(BalanceSegmentEntity::getSegmentSetIdentifier));
+
+    final Map<String, Map<String, Segment>> segmentSets = new HashMap<>();
+    balanceSegmentsBySet.forEach((segmentSetIdentifier, segmentSet) -> {
+      final List<BalanceSegmentEntity> sorted = segmentSet.stream()
+          .sorted(Comparator.comparing(BalanceSegmentEntity::getLowerBound))
+          .collect(Collectors.toList());
+
+      final Map<String, Segment> segments = new HashMap<>();
+      for (int i = 0; i < sorted.size(); i++) {
+        segments.put(sorted.get(i).getSegmentIdentifier(), new Segment(
+            sorted.get(i).getLowerBound(),
+            Optional.ofNullable(i + 1 < sorted.size() ? sorted.get(i + 1).getLowerBound() : null)));
+      }
+      segmentSets.put(segmentSetIdentifier, Collections.unmodifiableMap(segments));
+    });
+
+    return new BalanceSegmentIndex(productIdentifier, version, Collections.unmodifiableMap(segmentSets));
+  }
+
+  boolean isFor(final String productIdentifier, final long version) {
+    return this.productIdentifier.equals(productIdentifier) && this.version == version;
+  }
+
+  public Optional<ChargeRange> findChargeRange(final ChargeDefinition chargeDefinition) {
+    if ((chargeDefinition.getForSegmentSet() == null) ||
+        (chargeDefinition.getFromSegment() == null) ||
+        (chargeDefinition.getToSegment() == null))
+      return Optional.empty();
+
+    final Map<String, Segment> segments = segmentSets.get(chargeDefinition.getForSegmentSet());
+    if (segments == null)
+      return Optional.empty();
+
+    final Segment fromSegment = segments.get(chargeDefinition.getFromSegment());
+    final Segment toSegment = segments.get(chargeDefinition.getToSegment());
+    if (fromSegment == null || toSegment == null)
+      return Optional.empty();
+
+    return Optional.of(new ChargeRange(fromSegment.lowerBound, toSegment.upperBound));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.schedule;
+
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance segment indexes of recently used products.  An index is stamped with the version of the product's charge
+ * definitions it was built for, and is rebuilt with one query for all of the product's segment sets once that version
+ * has changed.
+ *
+ * @author Myrle Krantz
+ */
+@Component
+public class BalanceSegmentIndexCache {
+  private final BalanceSegmentRepository balanceSegmentRepository;
+  private final ChargeDefinitionVersions chargeDefinitionVersions;
+  private final ExpiringMap<String, BalanceSegmentIndex> balanceSegmentIndexes;
+
+  @Autowired
+  public BalanceSegmentIndexCache(
+      final BalanceSegmentRepository balanceSegmentRepository,
+      final ChargeDefinitionVersions chargeDefinitionVersions) {
+    this.balanceSegmentRepository = balanceSegmentRepository;
+    this.chargeDefinitionVersions = chargeDefinitionVersions;
+    this.balanceSegmentIndexes = ExpiringMap.builder()
+        .maxSize(1000)
+        .expirationPolicy(ExpirationPolicy.ACCESSED)
+        .expiration(1, TimeUnit.HOURS)
+        .build();
+  }
+
+  @Nonnull
+  public BalanceSegmentIndex getBalanceSegmentIndex(final String productIdentifier) {
+    //The version is read first, so that an index read during a change is never taken for the changed one.
+    final long version = chargeDefinitionVersions.getVersion(productIdentifier);
+    final String key = key(productIdentifier);
+    final BalanceSegmentIndex cached = balanceSegmentIndexes.get(key);
+    if (cached != null && cached.isFor(productIdentifier, version))
+      return cached;
+
+    final BalanceSegmentIndex ret = BalanceSegmentIndex.build(
+        productIdentifier,
+        version,
+        balanceSegmentRepository.findByProductIdentifierOrderByLowerBound(productIdentifier));
+    balanceSegmentIndexes.put(key, ret);
+    return ret;
+  }
+
+  /**
+   * Builds the product's index as soon as the segment sets changed by the current transaction are committed, so
+   * that scheduling charges doesn't have to wait for it.  Must be called after the product's charge definitions
+   * version was changed, so that the index is built for the version that follows the commit.
+   */
+  public void rebuildAfterCommit(final String productIdentifier) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      getBalanceSegmentIndex(productIdentifier);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(final int status) {
+        if (status == TransactionSynchronization.STATUS_COMMITTED)
+          getBalanceSegmentIndex(productIdentifier);
+      }
+    });
+  }
+
+  private static String key(final String productIdentifier) {
+    return TenantContextHolder.checkedGetIdentifier() + "." + productIdentifier;
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.schedule;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.portfolio.api.v1.domain.PaymentCycle;
+
+import javax.annotation.Nonnull;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The repayment dates of a loan, calculated once from its payment cycle, start of term, and end of term.  Dates are
+ * kept as epoch days, so that the repayment period containing a date can be found by binary search.  The repayment
+ * periods are the same as the ones ScheduledActionHelpers.generateRepaymentPeriods produces.
+ *
+ * @author Myrle Krantz
+ */
+public final class RepaymentCalendar {
+  private final PaymentCycle paymentCycle;
+  private final int endOfTermEpochDay;
+  /** The start of term followed by the end date of every repayment period.  The last of these is the first payment
+   * date which is not before the end of term. */
+  private final int[] paymentEpochDays;
+
+  private RepaymentCalendar(
+      final PaymentCycle paymentCycle,
+      final int endOfTermEpochDay,
+      final int[] paymentEpochDays) {
+    this.paymentCycle = paymentCycle;
+    this.endOfTermEpochDay = endOfTermEpochDay;
+    this.paymentEpochDays = paymentEpochDays;
+  }
+
+  public static RepaymentCalendar build(
+      final @Nonnull LocalDate startOfTerm,
+      final @Nonnull LocalDate endOfTerm,
+      final @Nonnull PaymentCycle paymentCycle) {
+    final PaymentCycle paymentCycleCopy = new PaymentCycle(
+        paymentCycle.getTemporalUnit(),
+        paymentCycle.getPeriod(),
+        paymentCycle.getAlignmentDay(),
+        paymentCycle.getAlignmentWeek(),
+        paymentCycle.getAlignmentMonth());
+
+    int[] paymentEpochDays = new int[32];
+    int paymentDateCount = 0;
+    paymentEpochDays[paymentDateCount++] = toEpochDay(startOfTerm);
+    LocalDate nextPaymentDate = ScheduledActionHelpers.generateNextPaymentDate(paymentCycleCopy, startOfTerm);
+    while (true) {
+      if (paymentDateCount == paymentEpochDays.length)
+        paymentEpochDays = Arrays.copyOf(paymentEpochDays, paymentDateCount * 2);
+      paymentEpochDays[paymentDateCount++] = toEpochDay(nextPaymentDate);
+      if (!nextPaymentDate.isBefore(endOfTerm))
+        break;
+      nextPaymentDate = ScheduledActionHelpers.generateNextPaymentDate(paymentCycleCopy, nextPaymentDate);
+    }
+
+    return new RepaymentCalendar(
+        paymentCycleCopy,
+        toEpochDay(endOfTerm),
+        Arrays.copyOf(paymentEpochDays, paymentDateCount));
+  }
+
+  public LocalDate getStartOfTerm() {
+    return getPaymentDate(0);
+  }
+
+  public LocalDate getEndOfTerm() {
+    return LocalDate.ofEpochDay(endOfTermEpochDay);
+  }
+
+  public int getRepaymentPeriodCount() {
+    return paymentEpochDays.length - 1;
+  }
+
+  /**
+   * @return true if this calendar is the one which would be built for these parameters.
+   */
+  public boolean isFor(
+      final @Nonnull LocalDate startOfTerm,
+      final @Nonnull LocalDate endOfTerm,
+      final @Nonnull PaymentCycle paymentCycle) {
+    return paymentEpochDays[0] == startOfTerm.toEpochDay() &&
+        endOfTermEpochDay == endOfTerm.toEpochDay() &&
+        Objects.equals(this.paymentCycle, paymentCycle);
+  }
+
+  /**
+   * @return the repayment periods from the start of term until the end of term.
+   */
+  public Stream<Period> getRepaymentPeriods() {
+    return getRepaymentPeriods(paymentEpochDays.length - 1);
+  }
+
+  /**
+   * @return the repayment periods from the start of term until the given date, the last of which ends on or after it.
+   */
+  public Stream<Period> getRepaymentPeriods(final @Nonnull LocalDate until) {
+    final int lastPaymentIndex = indexOfFirstPaymentOnOrAfter(until);
+    if (lastPaymentIndex > 0)
+      return getRepaymentPeriods(lastPaymentIndex);
+
+    //Payment dates only depend on the previous payment date, so the schedule can be continued from where it stops.
+    final int lastIndex = paymentEpochDays.length - 1;
+    return Stream.concat(
+        IntStream.rangeClosed(1, lastIndex).mapToObj(i -> new Period(getPaymentDate(i - 1), getPaymentDate(i))),
+        ScheduledActionHelpers.generateRepaymentPeriods(getPaymentDate(lastIndex), until, paymentCycle));
+  }
+
+  /**
+   * The same as ScheduledActionHelpers.getNextScheduledPayment for this calendar's start and end of term.
+   */
+  public ScheduledAction getNextScheduledPayment(final @Nonnull LocalDate fromDate) {
+    final int paymentIndex = indexOfFirstPaymentOnOrAfter(fromDate);
+    final Period repaymentPeriod;
+    if (paymentIndex > 0 && fromDate.toEpochDay() <= endOfTermEpochDay) {
+      repaymentPeriod = getRepaymentPeriod(paymentIndex, paymentIndex == paymentEpochDays.length - 1);
+    }
+    else {
+      repaymentPeriod = ScheduledActionHelpers.getRepaymentPeriodEndingOnOrAfter(
+          getStartOfTerm(), fromDate, fromDate.isAfter(getEndOfTerm()) ? fromDate : getEndOfTerm(), paymentCycle);
+    }
+    return new ScheduledAction(Action.ACCEPT_PAYMENT, repaymentPeriod.getEndDate(), repaymentPeriod, repaymentPeriod);
+  }
+
+  private Stream<Period> getRepaymentPeriods(final int lastPaymentIndex) {
+    return IntStream.rangeClosed(1, lastPaymentIndex)
+        .mapToObj(i -> getRepaymentPeriod(i, i == lastPaymentIndex));
+  }
+
+  private Period getRepaymentPeriod(final int paymentIndex, final boolean lastPeriod) {
+    return new Period(getPaymentDate(paymentIndex - 1), getPaymentDate(paymentIndex), lastPeriod);
+  }
+
+  /**
+   * @return the index of the first payment date on or after the given date, or -1 if the calendar ends before it.
+   * The start of term is not a payment date.
+   */
+  private int indexOfFirstPaymentOnOrAfter(final LocalDate date) {
+    final long epochDay = date.toEpochDay();
+    if (epochDay > paymentEpochDays[paymentEpochDays.length - 1])
+      return -1;
+    if (epochDay <= paymentEpochDays[0])
+      return 1;
+
+    final int found = Arrays.binarySearch(paymentEpochDays, 1, paymentEpochDays.length, (int) epochDay);
+    return found >= 0 ? found : -found - 1;
+  }
+
+  private LocalDate getPaymentDate(final int paymentIndex) {
+    return LocalDate.ofEpochDay(paymentEpochDays[paymentIndex]);
+  }
+
+  private static int toEpochDay(final LocalDate date) {
+    return Math.toIntExact(date.toEpochDay());
+  }
+}
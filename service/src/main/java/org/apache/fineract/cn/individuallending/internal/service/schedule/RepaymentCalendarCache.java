@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.schedule;
+
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.apache.fineract.cn.portfolio.api.v1.domain.PaymentCycle;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repayment calendars of recently used cases.  Callers don't all count the term from the same day: accepting a
+ * payment counts it from the most recent disbursement, while other callers count it from the case's start of term.
+ * Each case therefore keeps a calendar per start of term, so that these callers don't keep replacing each other's
+ * calendars.  A cached calendar is only used if it was also built for the same end of term and payment cycle, so a
+ * stale calendar is rebuilt rather than returned.  Changes to a case's parameters or start of term should still
+ * invalidate it, so that the memory is freed early.
+ *
+ * @author Myrle Krantz
+ */
+@Component
+public class RepaymentCalendarCache {
+  //More start dates than this for one case would mean the callers disagree about more than the disbursement.
+  private static final int MAXIMUM_CALENDARS_PER_CASE = 4;
+
+  private final ExpiringMap<String, Map<LocalDate, RepaymentCalendar>> repaymentCalendars;
+
+  public RepaymentCalendarCache() {
+    this.repaymentCalendars = ExpiringMap.builder()
+        .maxSize(5000)
+        .expirationPolicy(ExpirationPolicy.ACCESSED)
+        .expiration(30, TimeUnit.MINUTES)
+        .build();
+  }
+
+  public RepaymentCalendar getRepaymentCalendar(
+      final @Nullable Long caseId,
+      final @Nonnull LocalDate startOfTerm,
+      final @Nonnull LocalDate endOfTerm,
+      final @Nonnull PaymentCycle paymentCycle) {
+    if (caseId == null) //Not yet persisted, so it can't be invalidated either.
+      return RepaymentCalendar.build(startOfTerm, endOfTerm, paymentCycle);
+
+    final String key = key(caseId);
+    Map<LocalDate, RepaymentCalendar> calendarsOfCase = repaymentCalendars.get(key);
+    if (calendarsOfCase == null) {
+      calendarsOfCase = new ConcurrentHashMap<>();
+      final Map<LocalDate, RepaymentCalendar> existing = repaymentCalendars.putIfAbsent(key, calendarsOfCase);
+      if (existing != null)
+        calendarsOfCase = existing;
+    }
+
+    final RepaymentCalendar cached = calendarsOfCase.get(startOfTerm);
+    if (cached != null && cached.isFor(startOfTerm, endOfTerm, paymentCycle))
+      return cached;
+
+    final RepaymentCalendar ret = RepaymentCalendar.build(startOfTerm, endOfTerm, paymentCycle);
+    if (calendarsOfCase.size() >= MAXIMUM_CALENDARS_PER_CASE && !calendarsOfCase.containsKey(startOfTerm))
+      calendarsOfCase.clear();
+    calendarsOfCase.put(startOfTerm, ret);
+    return ret;
+  }
+
+  public void invalidate(final @Nullable Long caseId) {
+    if (caseId != null)
+      repaymentCalendars.remove(key(caseId));
+  }
+
+  private static String key(final long caseId) {
+    return TenantContextHolder.checkedGetIdentifier() + "." + caseId;
+  }
+}
@@ -50,9 +50,17 @@ public class ScheduledActionHelpers {
                                                         final @Nonnull CaseParameters caseParameters)
   {
     final LocalDate endOfTerm = getRoughEndDate(startOfTerm, caseParameters);
+    return getHypotheticalScheduledActions(
+        RepaymentCalendar.build(startOfTerm, endOfTerm, caseParameters.getPaymentCycle()));
+  }
+
+  public static List<ScheduledAction> getHypotheticalScheduledActions(final @Nonnull RepaymentCalendar repaymentCalendar)
+  {
+    final LocalDate startOfTerm = repaymentCalendar.getStartOfTerm();
+    final LocalDate endOfTerm = repaymentCalendar.getEndOfTerm();
     return Stream.concat( Stream.concat(
           preTermActions().map(action -> new ScheduledAction(action, startOfTerm)),
-          getHypotheticalScheduledActionsForDisbursedLoan(startOfTerm, endOfTerm, caseParameters)),
+          repaymentCalendar.getRepaymentPeriods().flatMap(ScheduledActionHelpers::generateScheduledActionsForRepaymentPeriod)),
           postTermActions().map(action -> new ScheduledAction(action, endOfTerm)))
         .collect(Collectors.toList());
   }
@@ -63,20 +71,89 @@ public class ScheduledActionHelpers {
                                                         final @Nonnull CaseParameters caseParameters) {
     final LocalDate effectiveEndOfTerm = fromDate.isAfter(endOfTerm) ? fromDate : endOfTerm;
 
-    return getHypotheticalScheduledActionsForDisbursedLoan(startOfTerm, effectiveEndOfTerm, caseParameters)
-        .filter(x -> x.getAction().equals(Action.ACCEPT_PAYMENT))
-        .filter(x -> x.actionIsOnOrAfter(fromDate))
-        .findFirst()
-        .orElseGet(() -> new ScheduledAction(Action.ACCEPT_PAYMENT, fromDate));
+    final Period repaymentPeriod = getRepaymentPeriodEndingOnOrAfter(
+        startOfTerm, fromDate, effectiveEndOfTerm, caseParameters.getPaymentCycle());
+    return new ScheduledAction(Action.ACCEPT_PAYMENT, repaymentPeriod.getEndDate(), repaymentPeriod, repaymentPeriod);
   }
 
-  private static Stream<ScheduledAction> getHypotheticalScheduledActionsForDisbursedLoan(
-      final @Nonnull LocalDate startOfTerm,
-      final @Nonnull LocalDate endOfTerm,
-      final @Nonnull CaseParameters caseParameters)
-  {
-    return generateRepaymentPeriods(startOfTerm, endOfTerm, caseParameters)
-        .flatMap(ScheduledActionHelpers::generateScheduledActionsForRepaymentPeriod);
+  /**
+   * Finds the first repayment period which ends on or after fromDate, without generating the repayment periods before
+   * it wherever the payment dates can be calculated directly.  This is the same period generateRepaymentPeriods would
+   * produce for it.  fromDate must not be after endOfTerm.
+   */
+  static Period getRepaymentPeriodEndingOnOrAfter(final @Nonnull LocalDate startOfTerm,
+                                                  final @Nonnull LocalDate fromDate,
+                                                  final @Nonnull LocalDate endOfTerm,
+                                                  final @Nonnull PaymentCycle paymentCycle) {
+    if (!paymentDatesCanBeCalculatedDirectly(startOfTerm, paymentCycle)) {
+      LocalDate lastPaymentDate = startOfTerm;
+      LocalDate nextPaymentDate = generateNextPaymentDate(paymentCycle, lastPaymentDate);
+      while (nextPaymentDate.isBefore(fromDate)) {
+        lastPaymentDate = nextPaymentDate;
+        nextPaymentDate = generateNextPaymentDate(paymentCycle, lastPaymentDate);
+      }
+      return new Period(lastPaymentDate, nextPaymentDate, !nextPaymentDate.isBefore(endOfTerm));
+    }
+
+    final long cyclesUntilFromDate = paymentCycle.getTemporalUnit().between(startOfTerm, fromDate) / paymentCycle.getPeriod();
+    long paymentNumber = Math.max(1, cyclesUntilFromDate);
+    while (paymentNumber > 1 && !getPaymentDate(startOfTerm, paymentNumber - 1, paymentCycle).isBefore(fromDate))
+      paymentNumber--;
+    LocalDate paymentDate = getPaymentDate(startOfTerm, paymentNumber, paymentCycle);
+    while (paymentDate.isBefore(fromDate)) {
+      paymentNumber++;
+      paymentDate = getPaymentDate(startOfTerm, paymentNumber, paymentCycle);
+    }
+
+    final LocalDate previousPaymentDate = getPaymentDate(startOfTerm, paymentNumber - 1, paymentCycle);
+    return new Period(previousPaymentDate, paymentDate, !paymentDate.isBefore(endOfTerm));
+  }
+
+  /**
+   * Payment dates depend only on how many payment cycles have passed since the start of term, unless they are not
+   * aligned and the start of term is a day of the month which doesn't exist in every month.  In that case a payment
+   * date which was moved to the end of a shorter month stays there for all the following payments.  Alignments outside
+   * the unit they are aligned in also move payment dates from one cycle into the next.
+   */
+  private static boolean paymentDatesCanBeCalculatedDirectly(final LocalDate startOfTerm, final PaymentCycle paymentCycle) {
+    final ChronoUnit temporalUnit = paymentCycle.getTemporalUnit();
+    if (temporalUnit != ChronoUnit.YEARS && temporalUnit != ChronoUnit.MONTHS &&
+        temporalUnit != ChronoUnit.WEEKS && temporalUnit != ChronoUnit.DAYS)
+      return false;
+
+    if (!isAligned(paymentCycle) || temporalUnit == ChronoUnit.DAYS)
+      return temporalUnit == ChronoUnit.DAYS || temporalUnit == ChronoUnit.WEEKS || startOfTerm.getDayOfMonth() <= 28;
+
+    final Integer alignmentDay = paymentCycle.getAlignmentDay();
+    final Integer alignmentMonth = paymentCycle.getAlignmentMonth();
+    final boolean alignedInDaysOfWeek = (paymentCycle.getAlignmentWeek() != null) || (temporalUnit == ChronoUnit.WEEKS);
+    return (alignmentDay == null || (alignmentDay >= 0 && (!alignedInDaysOfWeek || alignmentDay <= 6))) &&
+        (alignmentMonth == null || (alignmentMonth >= 0 && alignmentMonth <= 11));
+  }
+
+  private static boolean isAligned(final PaymentCycle paymentCycle) {
+    return paymentCycle.getAlignmentMonth() != null ||
+        paymentCycle.getAlignmentWeek() != null ||
+        paymentCycle.getAlignmentDay() != null;
+  }
+
+  private static LocalDate getPaymentDate(final LocalDate startOfTerm,
+                                          final long paymentNumber,
+                                          final PaymentCycle paymentCycle) {
+    if (paymentNumber == 0)
+      return startOfTerm;
+
+    final LocalDate unalignedPaymentDate = startOfTerm.plus(
+        paymentNumber * paymentCycle.getPeriod(),
+        paymentCycle.getTemporalUnit());
+    if (!isAligned(paymentCycle))
+      return unalignedPaymentDate;
+
+    //The same as generateNextPaymentDate, but without adding another cycle to the date first.
+    return alignPaymentDate(
+        orientPaymentDate(unalignedPaymentDate, getMaximumSpecifiedAlignmentChronoUnit(paymentCycle), paymentCycle),
+        getMaximumAlignmentChronoUnit(paymentCycle),
+        paymentCycle);
   }
 
   /** 'Rough' end date, because if the repayment period takes the last period after that end date, then the repayment
@@ -111,43 +188,52 @@ public class ScheduledActionHelpers {
       final LocalDate startOfTerm,
       final LocalDate endOfTerm,
       final CaseParameters caseParameters) {
+    return generateRepaymentPeriods(startOfTerm, endOfTerm, caseParameters.getPaymentCycle());
+  }
 
+  static Stream<Period> generateRepaymentPeriods(
+      final LocalDate startOfTerm,
+      final LocalDate endOfTerm,
+      final PaymentCycle paymentCycle) {
     final List<Period> ret = new ArrayList<>();
     LocalDate lastPaymentDate = startOfTerm;
-    LocalDate nextPaymentDate = generateNextPaymentDate(caseParameters, lastPaymentDate);
+    LocalDate nextPaymentDate = generateNextPaymentDate(paymentCycle, lastPaymentDate);
     while (nextPaymentDate.isBefore(endOfTerm))
     {
       final Period period = new Period(lastPaymentDate, nextPaymentDate);
       ret.add(period);
       lastPaymentDate = nextPaymentDate;
-      nextPaymentDate = generateNextPaymentDate(caseParameters, lastPaymentDate);
+      nextPaymentDate = generateNextPaymentDate(paymentCycle, lastPaymentDate);
     }
     ret.add(new Period(lastPaymentDate, nextPaymentDate, true));
 
     return ret.stream();
   }
 
-  private static LocalDate generateNextPaymentDate(final CaseParameters caseParameters, final LocalDate lastPaymentDate) {
-    final PaymentCycle paymentCycle = caseParameters.getPaymentCycle();
+  static LocalDate generateNextPaymentDate(final PaymentCycle paymentCycle, final LocalDate lastPaymentDate) {
+    final ChronoUnit maximumSpecifiedAlignmentChronoUnit = getMaximumSpecifiedAlignmentChronoUnit(paymentCycle);
+    final ChronoUnit maximumAlignmentChronoUnit = getMaximumAlignmentChronoUnit(paymentCycle);
 
-    final ChronoUnit maximumSpecifiedAlignmentChronoUnit =
-            paymentCycle.getAlignmentMonth() != null ? ChronoUnit.MONTHS :
+    final LocalDate incrementedPaymentDate = incrementPaymentDate(lastPaymentDate, paymentCycle);
+    final LocalDate orientedPaymentDate = orientPaymentDate(incrementedPaymentDate, maximumSpecifiedAlignmentChronoUnit, paymentCycle);
+    return alignPaymentDate(orientedPaymentDate, maximumAlignmentChronoUnit, paymentCycle);
+  }
+
+  private static ChronoUnit getMaximumSpecifiedAlignmentChronoUnit(final PaymentCycle paymentCycle) {
+    return paymentCycle.getAlignmentMonth() != null ? ChronoUnit.MONTHS :
             paymentCycle.getAlignmentWeek() != null ? ChronoUnit.WEEKS :
             paymentCycle.getAlignmentDay() != null ? ChronoUnit.DAYS :
             ChronoUnit.HOURS;
+  }
 
+  private static ChronoUnit getMaximumAlignmentChronoUnit(final PaymentCycle paymentCycle) {
     final ChronoUnit maximumPossibleAlignmentChronoUnit =
             paymentCycle.getTemporalUnit().equals(ChronoUnit.YEARS) ? ChronoUnit.MONTHS :
             paymentCycle.getTemporalUnit().equals(ChronoUnit.MONTHS) ? ChronoUnit.WEEKS :
             paymentCycle.getTemporalUnit().equals(ChronoUnit.WEEKS) ? ChronoUnit.DAYS :
             ChronoUnit.HOURS; //Hours as a placeholder.
 
-    final ChronoUnit maximumAlignmentChronoUnit = min(maximumSpecifiedAlignmentChronoUnit, maximumPossibleAlignmentChronoUnit);
-
-
-    final LocalDate incrementedPaymentDate = incrementPaymentDate(lastPaymentDate, paymentCycle);
-    final LocalDate orientedPaymentDate = orientPaymentDate(incrementedPaymentDate, maximumSpecifiedAlignmentChronoUnit, paymentCycle);
-    return alignPaymentDate(orientedPaymentDate, maximumAlignmentChronoUnit, paymentCycle);
+    return min(getMaximumSpecifiedAlignmentChronoUnit(paymentCycle), maximumPossibleAlignmentChronoUnit);
   }
 
   private static LocalDate incrementPaymentDate(final LocalDate paymentDate, final PaymentCycle paymentCycle) {
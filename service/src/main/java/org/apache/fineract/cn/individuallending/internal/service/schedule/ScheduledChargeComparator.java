@@ -51,7 +51,7 @@ public class ScheduledChargeComparator implements Comparator<ScheduledCharge>
     return o1.getChargeDefinition().getIdentifier().compareTo(o2.getChargeDefinition().getIdentifier());
   }
 
-  static int proportionalityApplicationOrder(final ChargeDefinition o1, final ChargeDefinition o2) {
+  public static int proportionalityApplicationOrder(final ChargeDefinition o1, final ChargeDefinition o2) {
     final Optional<ChargeProportionalDesignator> aProportionalToDesignator
         = ChargeProportionalDesignator.fromString(o1.getProportionalTo());
     final Optional<ChargeProportionalDesignator> bProportionalToDesignator
@@ -20,14 +20,10 @@ package org.apache.fineract.cn.individuallending.internal.service.schedule;
 
 import org.apache.fineract.cn.individuallending.internal.service.ChargeDefinitionService;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
-import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentEntity;
-import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
-import java.math.BigDecimal;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -40,14 +36,14 @@ import java.util.stream.Stream;
 @Service
 public class ScheduledChargesService {
   private final ChargeDefinitionService chargeDefinitionService;
-  private final BalanceSegmentRepository balanceSegmentRepository;
+  private final BalanceSegmentIndexCache balanceSegmentIndexCache;
 
   @Autowired
   public ScheduledChargesService(
       final ChargeDefinitionService chargeDefinitionService,
-      final BalanceSegmentRepository balanceSegmentRepository) {
+      final BalanceSegmentIndexCache balanceSegmentIndexCache) {
     this.chargeDefinitionService = chargeDefinitionService;
-    this.balanceSegmentRepository = balanceSegmentRepository;
+    this.balanceSegmentIndexCache = balanceSegmentIndexCache;
   }
 
   public List<ScheduledCharge> getScheduledCharges(
@@ -71,6 +67,15 @@ public class ScheduledChargesService {
       final List<ScheduledAction> scheduledActions,
       final Map<String, List<ChargeDefinition>> chargeDefinitionsMappedByChargeAction,
       final Map<String, List<ChargeDefinition>> chargeDefinitionsMappedByAccrueAction) {
+    //The index is only needed if one of the product's charges is for a segment set.
+    final BalanceSegmentIndex balanceSegmentIndex = Stream.concat(
+        chargeDefinitionsMappedByChargeAction.values().stream(),
+        chargeDefinitionsMappedByAccrueAction.values().stream())
+        .flatMap(List::stream)
+        .anyMatch(x -> x.getForSegmentSet() != null)
+        ? balanceSegmentIndexCache.getBalanceSegmentIndex(productIdentifier)
+        : null;
+
     return scheduledActions.stream()
         .flatMap(scheduledAction ->
             getChargeDefinitionStream(
@@ -80,69 +85,14 @@ public class ScheduledChargesService {
                 .map(chargeDefinition -> new ScheduledCharge(
                     scheduledAction,
                     chargeDefinition,
-                    findChargeRange(productIdentifier, chargeDefinition))))
+                    balanceSegmentIndex == null
+                        ? Optional.empty()
+                        : balanceSegmentIndex.findChargeRange(chargeDefinition))))
         .collect(Collectors.toList());
   }
 
-  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-  private static class Segment {
-    final String identifier;
-    final BigDecimal lowerBound;
-    final Optional<BigDecimal> upperBound;
-
-    private Segment(final String segmentIdentifier,
-            final BigDecimal lowerBound,
-            final Optional<BigDecimal> upperBound) {
-      this.identifier = segmentIdentifier;
-      this.lowerBound = lowerBound;
-      this.upperBound = upperBound;
-    }
-
-    BigDecimal getLowerBound() {
-      return lowerBound;
-    }
-
-    Optional<BigDecimal> getUpperBound() {
-      return upperBound;
-    }
-
-    @Override
-    public String toString() {
-      return "Segment{" +
-          "identifier='" + identifier + '\'' +
-          ", lowerBound=" + lowerBound +
-          ", upperBound=" + upperBound +
-          '}';
-    }
-  }
-
   Optional<ChargeRange> findChargeRange(final String productIdentifier, final ChargeDefinition chargeDefinition) {
-    if ((chargeDefinition.getForSegmentSet() == null) ||
-        (chargeDefinition.getFromSegment() == null) ||
-        (chargeDefinition.getToSegment() == null))
-      return Optional.empty();
-
-    final List<BalanceSegmentEntity> segmentSet = balanceSegmentRepository.findByProductIdentifierAndSegmentSetIdentifier(productIdentifier, chargeDefinition.getForSegmentSet())
-        .sorted(Comparator.comparing(BalanceSegmentEntity::getLowerBound))
-        .collect(Collectors.toList());
-
-    final Map<String, Segment> segments = Stream.iterate(0, i -> i + 1).limit(segmentSet.size())
-        .map(i -> new Segment(
-            segmentSet.get(i).getSegmentIdentifier(),
-            segmentSet.get(i).getLowerBound(),
-            Optional.ofNullable(i + 1 < segmentSet.size() ?
-                segmentSet.get(i + 1).getLowerBound() :
-                null)
-        ))
-        .collect(Collectors.toMap(x -> x.identifier, x -> x));
-
-
-    final Optional<Segment> fromSegment = Optional.ofNullable(segments.get(chargeDefinition.getFromSegment()));
-    final Optional<Segment> toSegment = Optional.ofNullable(segments.get(chargeDefinition.getToSegment()));
-    if (!fromSegment.isPresent() || !toSegment.isPresent())
-      return Optional.empty();
-
-    return Optional.of(new ChargeRange(fromSegment.get().getLowerBound(), toSegment.get().getUpperBound()));
+    return balanceSegmentIndexCache.getBalanceSegmentIndex(productIdentifier).findChargeRange(chargeDefinition);
   }
 
   private static Stream<ChargeDefinition> getChargeDefinitionStream(
@@ -161,8 +111,7 @@ public class ScheduledChargesService {
     if (accrueMapping == null)
       accrueMapping = Stream.empty();
 
-    return Stream.concat(
-        accrueMapping.sorted(ScheduledChargeComparator::proportionalityApplicationOrder),
-        chargeMapping.sorted(ScheduledChargeComparator::proportionalityApplicationOrder));
+    //The charge definition table already holds them in the order in which they are applied.
+    return Stream.concat(accrueMapping, chargeMapping);
   }
 }
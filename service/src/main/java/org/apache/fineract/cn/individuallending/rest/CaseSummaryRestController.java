@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.rest;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseSummary;
+import org.apache.fineract.cn.individuallending.internal.service.CaseSummaryRebuildService;
+import org.apache.fineract.cn.individuallending.internal.service.CaseSummaryService;
+import org.apache.fineract.cn.portfolio.api.v1.PermittableGroupIds;
+import org.apache.fineract.cn.portfolio.service.internal.service.ProductService;
+import org.apache.fineract.cn.anubis.annotation.AcceptedTokenType;
+import org.apache.fineract.cn.anubis.annotation.Permittable;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings("unused")
+@RestController
+@RequestMapping("/individuallending/products/{productidentifier}")
+public class CaseSummaryRestController {
+  private final ProductService productService;
+  private final CaseSummaryService caseSummaryService;
+  private final CaseSummaryRebuildService caseSummaryRebuildService;
+
+  @Autowired
+  public CaseSummaryRestController(
+      final ProductService productService,
+      final CaseSummaryService caseSummaryService,
+      final CaseSummaryRebuildService caseSummaryRebuildService) {
+    this.productService = productService;
+    this.caseSummaryService = caseSummaryService;
+    this.caseSummaryRebuildService = caseSummaryRebuildService;
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CASE_MANAGEMENT)
+  @RequestMapping(
+      value = "/cases/{caseidentifier}/summary",
+      method = RequestMethod.GET,
+      consumes = MediaType.ALL_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public @ResponseBody
+  CaseSummary getCaseSummary(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("caseidentifier") final String caseIdentifier) {
+    return caseSummaryService.find(productIdentifier, caseIdentifier)
+        .orElseThrow(() -> ServiceException.notFound(
+            "No summary for case ''{0}.{1}'' exists.", productIdentifier, caseIdentifier));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.PRODUCT_OPERATIONS_MANAGEMENT)
+  @RequestMapping(
+      value = "/casesummaries",
+      method = RequestMethod.POST,
+      consumes = MediaType.ALL_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public @ResponseBody
+  ResponseEntity<Void> rebuildMissingCaseSummaries(
+      @PathVariable("productidentifier") final String productIdentifier) {
+    if (!productService.existsByIdentifier(productIdentifier))
+      throw ServiceException.notFound("Product with identifier ''{0}'' doesn''t exist.", productIdentifier);
+
+    caseSummaryRebuildService.rebuildMissing(productIdentifier);
+
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+}
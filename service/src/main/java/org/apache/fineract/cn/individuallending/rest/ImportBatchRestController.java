@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.rest;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatchProgress;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportResult;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportResultPage;
+import org.apache.fineract.cn.individuallending.internal.service.CaseImportService;
+import org.apache.fineract.cn.portfolio.api.v1.PermittableGroupIds;
+import org.apache.fineract.cn.portfolio.service.internal.service.ProductService;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.validation.Valid;
+import org.apache.fineract.cn.anubis.annotation.AcceptedTokenType;
+import org.apache.fineract.cn.anubis.annotation.Permittable;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings("unused")
+@RestController
+@RequestMapping("/individuallending/products/{productidentifier}/importbatches")
+public class ImportBatchRestController {
+  private final ProductService productService;
+  private final CaseImportService caseImportService;
+
+  @Autowired
+  public ImportBatchRestController(
+      final ProductService productService,
+      final CaseImportService caseImportService) {
+    this.productService = productService;
+    this.caseImportService = caseImportService;
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CASE_STATUS)
+  @RequestMapping(
+      method = RequestMethod.POST,
+      consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public @ResponseBody
+  ResponseEntity<Void> submitImportBatch(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @RequestBody @Valid final ImportBatch importBatch) {
+    if (!productService.existsByIdentifier(productIdentifier))
+      throw ServiceException.notFound("Product with identifier ''{0}'' doesn''t exist.", productIdentifier);
+
+    caseImportService.submit(productIdentifier, importBatch);
+
+    return new ResponseEntity<>(HttpStatus.ACCEPTED);
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CASE_STATUS)
+  @RequestMapping(
+      value = "/{batchidentifier}",
+      method = RequestMethod.GET,
+      consumes = MediaType.ALL_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public @ResponseBody
+  ImportBatchProgress getImportBatchProgress(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("batchidentifier") final String batchIdentifier) {
+    return caseImportService.getProgress(productIdentifier, batchIdentifier)
+        .orElseThrow(() -> batchNotFound(productIdentifier, batchIdentifier));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CASE_STATUS)
+  @RequestMapping(
+      value = "/{batchidentifier}/results",
+      method = RequestMethod.GET,
+      consumes = MediaType.ALL_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public @ResponseBody
+  ImportResultPage getImportResults(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("batchidentifier") final String batchIdentifier,
+      @RequestParam(value = "state", required = false) final Set<String> states,
+      @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+      @RequestParam(value = "size", required = false) final Integer size) {
+    return caseImportService.getResults(
+        productIdentifier,
+        batchIdentifier,
+        parseStates(states),
+        pageIndex != null ? pageIndex : 0,
+        size != null ? size : 20)
+        .orElseThrow(() -> batchNotFound(productIdentifier, batchIdentifier));
+  }
+
+  private static Set<ImportResult.State> parseStates(final Set<String> states) {
+    try {
+      return states == null
+          ? Collections.emptySet()
+          : states.stream().map(ImportResult.State::valueOf).collect(Collectors.toSet());
+    }
+    catch (final IllegalArgumentException e) {
+      throw ServiceException.badRequest("Import states ''{0}'' are not valid.", states);
+    }
+  }
+
+  private static ServiceException batchNotFound(final String productIdentifier, final String batchIdentifier) {
+    return ServiceException.notFound("Import batch ''{0}.{1}'' doesn''t exist.", productIdentifier, batchIdentifier);
+  }
+}
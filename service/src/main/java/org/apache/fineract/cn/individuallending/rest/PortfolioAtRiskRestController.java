@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.rest;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AtRiskCasePage;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.PortfolioAtRisk;
+import org.apache.fineract.cn.individuallending.internal.service.PortfolioAtRiskService;
+import org.apache.fineract.cn.portfolio.api.v1.PermittableGroupIds;
+import java.time.Clock;
+import java.time.LocalDate;
+import org.apache.fineract.cn.anubis.annotation.AcceptedTokenType;
+import org.apache.fineract.cn.anubis.annotation.Permittable;
+import org.apache.fineract.cn.lang.DateConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Myrle Krantz
+ */
+@SuppressWarnings("unused")
+@RestController
+@RequestMapping("/individuallending/products/{productidentifier}/portfolioatrisk")
+public class PortfolioAtRiskRestController {
+  private final PortfolioAtRiskService portfolioAtRiskService;
+
+  @Autowired
+  public PortfolioAtRiskRestController(final PortfolioAtRiskService portfolioAtRiskService) {
+    this.portfolioAtRiskService = portfolioAtRiskService;
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.PRODUCT_OPERATIONS_MANAGEMENT)
+  @RequestMapping(
+      method = RequestMethod.GET,
+      consumes = MediaType.ALL_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public @ResponseBody
+  PortfolioAtRisk getPortfolioAtRisk(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @RequestParam(value = "asOf", required = false) final String asOf) {
+    return portfolioAtRiskService.getPortfolioAtRisk(productIdentifier, getAsOfDate(asOf));
+  }
+
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.PRODUCT_OPERATIONS_MANAGEMENT)
+  @RequestMapping(
+      value = "/{dayslate}/cases",
+      method = RequestMethod.GET,
+      consumes = MediaType.ALL_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public @ResponseBody
+  AtRiskCasePage getAtRiskCases(
+      @PathVariable("productidentifier") final String productIdentifier,
+      @PathVariable("dayslate") final Integer daysLate,
+      @RequestParam(value = "asOf", required = false) final String asOf,
+      @RequestParam(value = "pageIndex", required = false) final Integer pageIndex,
+      @RequestParam(value = "size", required = false) final Integer size) {
+    return portfolioAtRiskService.getAtRiskCases(
+        productIdentifier,
+        daysLate,
+        getAsOfDate(asOf),
+        pageIndex != null ? pageIndex : 0,
+        size != null ? size : 20);
+  }
+
+  private static LocalDate getAsOfDate(final String asOf) {
+    return asOf == null
+        ? LocalDate.now(Clock.systemUTC())
+        : DateConverter.fromIsoString(asOf).toLocalDate();
+  }
+}
@@ -41,6 +41,69 @@ public class PortfolioProperties {
   @Range(min=0, max=23)
   private int checkForLatenessInTimeSlot = 0;
 
+  @Range(min=1, max=100000)
+  private int interestRunPartitionSize = 500;
+
+  @Range(min=1, max=64)
+  private int interestRunWorkerCount = 4;
+
+  @Range(min=1, max=100000)
+  private int latenessCheckBlockSize = 2000;
+
+  /** -1 means that charge totals are not reconciled with accounting. */
+  @Range(min=-1, max=23)
+  private int reconcileChargeTotalsInTimeSlot = -1;
+
+  /** -1 means that the portfolio at risk is only maintained incrementally, and never recomputed. */
+  @Range(min=-1, max=23)
+  private int recomputePortfolioAtRiskInTimeSlot = -1;
+
+  @Range(min=1, max=100000)
+  private int portfolioAtRiskPartitionSize = 2000;
+
+  @Range(min=1, max=64)
+  private int portfolioAtRiskWorkerCount = 4;
+
+  @Range(min=1, max=64)
+  private int repaymentBatchWorkerCount = 4;
+
+  @Range(min=1, max=64)
+  private int journalEntrySenderCount = 4;
+
+  /** Accounts are fetched from accounting in parallel, but this many at a time at most. */
+  @Range(min=1, max=64)
+  private int accountFetcherCount = 8;
+
+  /** Imported cases are created in accounting in parallel, but this many at a time at most. */
+  @Range(min=1, max=64)
+  private int caseImportWorkerCount = 8;
+
+  /** The number of imported cases which are activated in one transaction. */
+  @Range(min=1, max=10000)
+  private int caseImportChunkSize = 100;
+
+  /** Commands on cases whose keys share a stripe wait for each other. */
+  @Range(min=1, max=65536)
+  private int caseLockStripeCount = 1024;
+
+  /** How often a command is repeated if the case was changed by another command at the same time. */
+  @Range(min=0, max=10)
+  private int caseCommandRetryCount = 3;
+
+  /** The pause before the first repetition.  It doubles with every further repetition. */
+  @Range(min=0, max=10000)
+  private long caseCommandRetryBackoffMillis = 20;
+
+  /**
+   * If true, a command waits until its journal entries have been sent to accounting once.  Otherwise they are sent
+   * in the background, and the next command on the same case sends what is still pending before reading balances.
+   */
+  private boolean awaitJournalEntryDelivery = false;
+
+  /** Roughly the number of charges and periods held by cached payment schedules.  0 means nothing is cached. */
+  @Range(min=0, max=100000000)
+  private int plannedPaymentCacheWeight = 1000000;
+
   public PortfolioProperties() {
   }
 
@@ -67,4 +130,140 @@ public class PortfolioProperties {
   public void setCheckForLatenessInTimeSlot(int checkForLatenessInTimeSlot) {
     this.checkForLatenessInTimeSlot = checkForLatenessInTimeSlot;
   }
+
+  public int getInterestRunPartitionSize() {
+    return interestRunPartitionSize;
+  }
+
+  public void setInterestRunPartitionSize(int interestRunPartitionSize) {
+    this.interestRunPartitionSize = interestRunPartitionSize;
+  }
+
+  public int getInterestRunWorkerCount() {
+    return interestRunWorkerCount;
+  }
+
+  public void setInterestRunWorkerCount(int interestRunWorkerCount) {
+    this.interestRunWorkerCount = interestRunWorkerCount;
+  }
+
+  public int getLatenessCheckBlockSize() {
+    return latenessCheckBlockSize;
+  }
+
+  public void setLatenessCheckBlockSize(int latenessCheckBlockSize) {
+    this.latenessCheckBlockSize = latenessCheckBlockSize;
+  }
+
+  public int getReconcileChargeTotalsInTimeSlot() {
+    return reconcileChargeTotalsInTimeSlot;
+  }
+
+  public void setReconcileChargeTotalsInTimeSlot(int reconcileChargeTotalsInTimeSlot) {
+    this.reconcileChargeTotalsInTimeSlot = reconcileChargeTotalsInTimeSlot;
+  }
+
+  public int getRecomputePortfolioAtRiskInTimeSlot() {
+    return recomputePortfolioAtRiskInTimeSlot;
+  }
+
+  public void setRecomputePortfolioAtRiskInTimeSlot(int recomputePortfolioAtRiskInTimeSlot) {
+    this.recomputePortfolioAtRiskInTimeSlot = recomputePortfolioAtRiskInTimeSlot;
+  }
+
+  public int getPortfolioAtRiskPartitionSize() {
+    return portfolioAtRiskPartitionSize;
+  }
+
+  public void setPortfolioAtRiskPartitionSize(int portfolioAtRiskPartitionSize) {
+    this.portfolioAtRiskPartitionSize = portfolioAtRiskPartitionSize;
+  }
+
+  public int getPortfolioAtRiskWorkerCount() {
+    return portfolioAtRiskWorkerCount;
+  }
+
+  public void setPortfolioAtRiskWorkerCount(int portfolioAtRiskWorkerCount) {
+    this.portfolioAtRiskWorkerCount = portfolioAtRiskWorkerCount;
+  }
+
+  public int getRepaymentBatchWorkerCount() {
+    return repaymentBatchWorkerCount;
+  }
+
+  public void setRepaymentBatchWorkerCount(int repaymentBatchWorkerCount) {
+    this.repaymentBatchWorkerCount = repaymentBatchWorkerCount;
+  }
+
+  public int getJournalEntrySenderCount() {
+    return journalEntrySenderCount;
+  }
+
+  public void setJournalEntrySenderCount(int journalEntrySenderCount) {
+    this.journalEntrySenderCount = journalEntrySenderCount;
+  }
+
+  public int getAccountFetcherCount() {
+    return accountFetcherCount;
+  }
+
+  public void setAccountFetcherCount(int accountFetcherCount) {
+    this.accountFetcherCount = accountFetcherCount;
+  }
+
+  public int getCaseImportWorkerCount() {
+    return caseImportWorkerCount;
+  }
+
+  public void setCaseImportWorkerCount(int caseImportWorkerCount) {
+    this.caseImportWorkerCount = caseImportWorkerCount;
+  }
+
+  public int getCaseImportChunkSize() {
+    return caseImportChunkSize;
+  }
+
+  public void setCaseImportChunkSize(int caseImportChunkSize) {
+    this.caseImportChunkSize = caseImportChunkSize;
+  }
+
+  public int getCaseLockStripeCount() {
+    return caseLockStripeCount;
+  }
+
+  public void setCaseLockStripeCount(int caseLockStripeCount) {
+    this.caseLockStripeCount = caseLockStripeCount;
+  }
+
+  public int getCaseCommandRetryCount() {
+    return caseCommandRetryCount;
+  }
+
+  public void setCaseCommandRetryCount(int caseCommandRetryCount) {
+    this.caseCommandRetryCount = caseCommandRetryCount;
+  }
+
+  public long getCaseCommandRetryBackoffMillis() {
+    return caseCommandRetryBackoffMillis;
+  }
+
+  public void setCaseCommandRetryBackoffMillis(long caseCommandRetryBackoffMillis) {
+    this.caseCommandRetryBackoffMillis = caseCommandRetryBackoffMillis;
+  }
+
+  public boolean isAwaitJournalEntryDelivery() {
+    return awaitJournalEntryDelivery;
+  }
+
+  public void setAwaitJournalEntryDelivery(boolean awaitJournalEntryDelivery) {
+    this.awaitJournalEntryDelivery = awaitJournalEntryDelivery;
+  }
+
+  public int getPlannedPaymentCacheWeight() {
+    return plannedPaymentCacheWeight;
+  }
+
+  public void setPlannedPaymentCacheWeight(int plannedPaymentCacheWeight) {
+    this.plannedPaymentCacheWeight = plannedPaymentCacheWeight;
+  }
 }
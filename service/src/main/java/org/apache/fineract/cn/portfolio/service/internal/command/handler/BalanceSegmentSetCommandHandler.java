@@ -18,6 +18,7 @@
  */
 package org.apache.fineract.cn.portfolio.service.internal.command.handler;
 
+import org.apache.fineract.cn.individuallending.internal.service.schedule.BalanceSegmentIndexCache;
 import org.apache.fineract.cn.portfolio.api.v1.events.BalanceSegmentSetEvent;
 import org.apache.fineract.cn.portfolio.api.v1.events.EventConstants;
 import org.apache.fineract.cn.portfolio.service.internal.command.ChangeBalanceSegmentSetCommand;
@@ -28,6 +29,7 @@ import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegme
 import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentRepository;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.fineract.cn.command.annotation.Aggregate;
@@ -45,13 +47,19 @@ import org.springframework.transaction.annotation.Transactional;
 public class BalanceSegmentSetCommandHandler {
   private final BalanceSegmentRepository balanceSegmentRepository;
   private final ProductRepository productRepository;
+  private final ChargeDefinitionVersions chargeDefinitionVersions;
+  private final BalanceSegmentIndexCache balanceSegmentIndexCache;
 
   @Autowired
   public BalanceSegmentSetCommandHandler(
       final BalanceSegmentRepository balanceSegmentRepository,
-      final ProductRepository productRepository) {
+      final ProductRepository productRepository,
+      final ChargeDefinitionVersions chargeDefinitionVersions,
+      final BalanceSegmentIndexCache balanceSegmentIndexCache) {
     this.balanceSegmentRepository = balanceSegmentRepository;
     this.productRepository = productRepository;
+    this.chargeDefinitionVersions = chargeDefinitionVersions;
+    this.balanceSegmentIndexCache = balanceSegmentIndexCache;
   }
 
   @Transactional
@@ -65,6 +73,9 @@ public class BalanceSegmentSetCommandHandler {
         createBalanceSegmentSetCommand.getInstance(), product);
 
     balanceSegmentRepository.save(balanceSegmentSetEntities);
+    //Charge ranges are calculated from the segments.
+    chargeDefinitionVersions.changed(createBalanceSegmentSetCommand.getProductIdentifier());
+    balanceSegmentIndexCache.rebuildAfterCommit(createBalanceSegmentSetCommand.getProductIdentifier());
 
     return new BalanceSegmentSetEvent(
         createBalanceSegmentSetCommand.getProductIdentifier(),
@@ -93,6 +104,8 @@ public class BalanceSegmentSetCommandHandler {
         changeBalanceSegmentSetCommand.getInstance(), product);
 
     balanceSegmentRepository.save(balanceSegmentSetEntities);
+    chargeDefinitionVersions.changed(changeBalanceSegmentSetCommand.getProductIdentifier());
+    balanceSegmentIndexCache.rebuildAfterCommit(changeBalanceSegmentSetCommand.getProductIdentifier());
 
     return new BalanceSegmentSetEvent(
         changeBalanceSegmentSetCommand.getProductIdentifier(),
@@ -113,6 +126,7 @@ public class BalanceSegmentSetCommandHandler {
           deleteBalanceSegmentSetCommand.getBalanceSegmentSetIdentifier());
 
     balanceSegmentRepository.deleteInBatch(balanceSegmentSets);
+    chargeDefinitionVersions.changed(deleteBalanceSegmentSetCommand.getProductIdentifier());
 
     return new BalanceSegmentSetEvent(
         deleteBalanceSegmentSetCommand.getProductIdentifier(),
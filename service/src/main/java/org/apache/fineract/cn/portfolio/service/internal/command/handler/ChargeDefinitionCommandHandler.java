@@ -31,6 +31,7 @@ import org.apache.fineract.cn.portfolio.service.internal.repository.ChargeDefini
 import org.apache.fineract.cn.portfolio.service.internal.repository.ChargeDefinitionRepository;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
 import java.util.Optional;
 import org.apache.fineract.cn.command.annotation.Aggregate;
 import org.apache.fineract.cn.command.annotation.CommandHandler;
@@ -48,15 +49,18 @@ public class ChargeDefinitionCommandHandler {
   private final ProductRepository productRepository;
   private final ChargeDefinitionRepository chargeDefinitionRepository;
   private final BalanceSegmentRepository balanceSegmentRepository;
+  private final ChargeDefinitionVersions chargeDefinitionVersions;
 
   @Autowired
   public ChargeDefinitionCommandHandler(
       final ProductRepository productRepository,
       final ChargeDefinitionRepository chargeDefinitionRepository,
-      final BalanceSegmentRepository balanceSegmentRepository) {
+      final BalanceSegmentRepository balanceSegmentRepository,
+      final ChargeDefinitionVersions chargeDefinitionVersions) {
     this.productRepository = productRepository;
     this.chargeDefinitionRepository = chargeDefinitionRepository;
     this.balanceSegmentRepository = balanceSegmentRepository;
+    this.chargeDefinitionVersions = chargeDefinitionVersions;
   }
 
   @SuppressWarnings("unused")
@@ -76,6 +80,7 @@ public class ChargeDefinitionCommandHandler {
     final ChargeDefinitionEntity chargeDefinitionEntity =
             ChargeDefinitionMapper.map(productEntity, chargeDefinition, segmentRange.fromSegment, segmentRange.toSegment);
     chargeDefinitionRepository.save(chargeDefinitionEntity);
+    chargeDefinitionVersions.changed(productIdentifier);
 
     return new ChargeDefinitionEvent(
             command.getProductIdentifier(),
@@ -101,6 +106,7 @@ public class ChargeDefinitionCommandHandler {
     chargeDefinitionEntity.setId(existingChargeDefinition.getId());
     chargeDefinitionEntity.setId(existingChargeDefinition.getId());
     chargeDefinitionRepository.save(chargeDefinitionEntity);
+    chargeDefinitionVersions.changed(productIdentifier);
 
     return new ChargeDefinitionEvent(
             command.getProductIdentifier(),
@@ -119,6 +125,7 @@ public class ChargeDefinitionCommandHandler {
                     command.getProductIdentifier(), command.getChargeDefinitionIdentifier()));
 
     chargeDefinitionRepository.delete(toDelete);
+    chargeDefinitionVersions.changed(command.getProductIdentifier());
 
     return new ChargeDefinitionEvent(
             command.getProductIdentifier(),
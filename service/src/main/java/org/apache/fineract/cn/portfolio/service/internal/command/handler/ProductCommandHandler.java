@@ -37,6 +37,7 @@ import org.apache.fineract.cn.portfolio.service.internal.repository.ProductAccou
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
 import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
 import org.apache.fineract.cn.products.spi.PatternFactory;
 import java.util.Map;
 import java.util.Optional;
@@ -63,6 +64,7 @@ public class ProductCommandHandler {
   private final ProductRepository productRepository;
   private final ChargeDefinitionRepository chargeDefinitionRepository;
   private final AccountingAdapter accountingAdapter;
+  private final ChargeDefinitionVersions chargeDefinitionVersions;
 
   @Autowired
   public ProductCommandHandler(
@@ -70,13 +72,15 @@ public class ProductCommandHandler {
           final CaseRepository caseRepository,
           final ProductRepository productRepository,
           final ChargeDefinitionRepository chargeDefinitionRepository,
-          final AccountingAdapter accountingAdapter) {
+          final AccountingAdapter accountingAdapter,
+          final ChargeDefinitionVersions chargeDefinitionVersions) {
     super();
     this.patternFactoryRegistry = patternFactoryRegistry;
     this.caseRepository = caseRepository;
     this.productRepository = productRepository;
     this.chargeDefinitionRepository = chargeDefinitionRepository;
     this.accountingAdapter = accountingAdapter;
+    this.chargeDefinitionVersions = chargeDefinitionVersions;
   }
 
   @Transactional
@@ -90,6 +94,8 @@ public class ProductCommandHandler {
     this.productRepository.save(productEntity);
 
     patternFactory.defaultConfigurableCharges().forEach(charge -> createChargeDefinition(productEntity, charge));
+    //A product with the same identifier may have existed before.
+    chargeDefinitionVersions.changed(productEntity.getIdentifier());
 
     return createProductCommand.getInstance().getIdentifier();
   }
@@ -117,6 +123,7 @@ public class ProductCommandHandler {
     final ProductEntity newEntity = ProductMapper.mapOverOldEntity(instance, oldEntity);
 
     productRepository.save(newEntity);
+    chargeDefinitionVersions.changed(instance.getIdentifier());
 
     return changeProductCommand.getInstance().getIdentifier();
   }
@@ -136,6 +143,7 @@ public class ProductCommandHandler {
       throw ServiceException.conflict("Cannot delete product with identifier ''{0}'', because there are already cases defined on it.", productIdentifier);
 
     productRepository.delete(product);
+    chargeDefinitionVersions.changed(productIdentifier);
 
     return deleteProductCommand.getProductIdentifier();
   }
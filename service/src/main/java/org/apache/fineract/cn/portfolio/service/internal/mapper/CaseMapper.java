@@ -110,6 +110,7 @@ public class CaseMapper {
     newEntity.setId(oldEntity.getId());
     newEntity.setCreatedBy(oldEntity.getCreatedBy());
     newEntity.setCreatedOn(oldEntity.getCreatedOn());
+    newEntity.setVersion(oldEntity.getVersion());
 
     final Set<CaseAccountAssignmentEntity> oldAccountAssignmentEntities = oldEntity.getAccountAssignments();
     final Map<String, CaseAccountAssignmentEntity> accountAssignmentsMap
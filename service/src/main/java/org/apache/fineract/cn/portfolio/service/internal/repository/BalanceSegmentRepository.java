@@ -21,6 +21,7 @@ package org.apache.fineract.cn.portfolio.service.internal.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -34,4 +35,7 @@ public interface BalanceSegmentRepository extends JpaRepository<BalanceSegmentEn
   Optional<BalanceSegmentEntity> findByProductIdentifierAndSegmentSetIdentifierAndSegmentIdentifier(String productIdentifier, String segmentSetIdentifier, String segmentIdentifier);
 
   Stream<BalanceSegmentEntity> findByProductIdentifier(String productIdentifier);
+
+  //Not a stream, so that it can also be read outside of a transaction.
+  List<BalanceSegmentEntity> findByProductIdentifierOrderByLowerBound(String productIdentifier);
 }
@@ -21,12 +21,31 @@ package org.apache.fineract.cn.portfolio.service.internal.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 /**
  * @author Myrle Krantz
  */
 @Repository
 public interface CaseCommandRepository extends JpaRepository<CaseCommandEntity, Long> {
   Page<CaseCommandEntity> findByCaseIdAndActionName(Long caseId, String actionName, Pageable pageable);
+
+  List<CaseCommandEntity> findByActionNameAndCaseIdIn(String actionName, Collection<Long> caseIds);
+
+  List<CaseCommandEntity> findByCaseIdAndActionNameAndTransactionUniqueifierIn(
+      Long caseId, String actionName, Collection<String> transactionUniqueifiers);
+
+  @Query("SELECT t.caseId FROM CaseCommandEntity t WHERE t.actionName = :actionName AND t.createdOn = :createdOn AND t.caseId BETWEEN :lowerCaseId AND :upperCaseId")
+  Set<Long> findCaseIdsByActionNameAndCreatedOnAndCaseIdBetween(
+      @Param("actionName") String actionName,
+      @Param("createdOn") LocalDateTime createdOn,
+      @Param("lowerCaseId") Long lowerCaseId,
+      @Param("upperCaseId") Long upperCaseId);
 }
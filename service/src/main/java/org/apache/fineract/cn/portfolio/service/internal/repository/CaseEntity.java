@@ -32,6 +32,7 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
 
 /**
@@ -86,6 +87,10 @@ public class CaseEntity {
   @Column(name = "last_modified_by")
   private String lastModifiedBy;
 
+  @Version
+  @Column(name = "version")
+  private Long version;
+
   public CaseEntity() {
   }
 
@@ -194,6 +199,14 @@ public class CaseEntity {
     this.lastModifiedBy = lastModifiedBy;
   }
 
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
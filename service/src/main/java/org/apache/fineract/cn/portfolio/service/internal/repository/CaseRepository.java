@@ -22,24 +22,75 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 
 /**
  * @author Myrle Krantz
  */
 @Repository
 public interface CaseRepository extends JpaRepository<CaseEntity, Long> {
+  int EXPORT_FETCH_SIZE = 500;
+
   Optional<CaseEntity> findByProductIdentifierAndIdentifier(String productIdentifier, String identifier);
   Page<CaseEntity> findByProductIdentifierAndCurrentStateIn(String productIdentifier, Collection<String> currentStates, Pageable pageRequest);
 
+  List<CaseEntity> findByProductIdentifierAndCurrentStateInOrderByLastModifiedOnDescIdDesc(
+      String productIdentifier,
+      Collection<String> currentStates,
+      Pageable pageable);
+
+  @Query("SELECT t FROM CaseEntity t WHERE t.productIdentifier = :productIdentifier AND t.currentState IN :currentStates" +
+      " AND (t.lastModifiedOn < :lastModifiedOn OR (t.lastModifiedOn = :lastModifiedOn AND t.id < :id))" +
+      " ORDER BY t.lastModifiedOn DESC, t.id DESC")
+  List<CaseEntity> findByProductIdentifierAndCurrentStateInAfter(
+      @Param("productIdentifier") String productIdentifier,
+      @Param("currentStates") Collection<String> currentStates,
+      @Param("lastModifiedOn") LocalDateTime lastModifiedOn,
+      @Param("id") Long id,
+      Pageable pageable);
+
+  long countByProductIdentifierAndCurrentStateIn(String productIdentifier, Collection<String> currentStates);
+
+  @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+  @Query("SELECT t FROM CaseEntity t WHERE t.productIdentifier = :productIdentifier AND t.currentState IN :currentStates" +
+      " ORDER BY t.lastModifiedOn, t.id")
+  Stream<CaseEntity> streamByProductIdentifierAndCurrentStateIn(
+      @Param("productIdentifier") String productIdentifier,
+      @Param("currentStates") Collection<String> currentStates);
+
+  @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+  @Query("SELECT t FROM CaseEntity t WHERE t.productIdentifier = :productIdentifier AND t.currentState IN :currentStates" +
+      " AND t.lastModifiedOn >= :modifiedSince ORDER BY t.lastModifiedOn, t.id")
+  Stream<CaseEntity> streamByProductIdentifierAndCurrentStateInAndLastModifiedOnSince(
+      @Param("productIdentifier") String productIdentifier,
+      @Param("currentStates") Collection<String> currentStates,
+      @Param("modifiedSince") LocalDateTime modifiedSince);
+
   //TODO: It should be possible to delete the @Query once we've updated to spring-data-release train ingalls.
   @Query("SELECT COUNT(t) > 0  FROM CaseEntity t WHERE t.productIdentifier = :productIdentifier")
   boolean existsByProductIdentifier(@Param("productIdentifier") String productIdentifier);
 
+  @Query("SELECT DISTINCT t FROM CaseEntity t LEFT JOIN FETCH t.accountAssignments WHERE t.id IN :ids")
+  List<CaseEntity> findWithAccountAssignmentsByIdIn(@Param("ids") Collection<Long> ids);
+
   Stream<CaseEntity> findByCurrentStateIn(Collection<String> currentStates);
+
+  @Query("SELECT t.id FROM CaseEntity t WHERE t.currentState IN :currentStates AND t.id > :afterId ORDER BY t.id")
+  List<Long> findIdsByCurrentStateInAndIdGreaterThan(
+      @Param("currentStates") Collection<String> currentStates,
+      @Param("afterId") Long afterId,
+      Pageable pageable);
+
+  List<CaseEntity> findByCurrentStateInAndIdBetweenOrderByIdAsc(Collection<String> currentStates, Long lowerId, Long upperId);
+
+  List<CaseEntity> findByCurrentStateInAndIdGreaterThanOrderByIdAsc(Collection<String> currentStates, Long afterId, Pageable pageable);
 }
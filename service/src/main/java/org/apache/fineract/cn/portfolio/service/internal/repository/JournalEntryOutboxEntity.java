@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.repository;
+
+import java.time.LocalDateTime;
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import org.apache.fineract.cn.mariadb.util.LocalDateTimeConverter;
+
+/**
+ * A journal entry which was booked by a command, but hasn't been accepted by accounting yet.
+ *
+ * @author Myrle Krantz
+ */
+@SuppressWarnings("unused")
+@Entity
+@Table(name = "bastet_journal_outbox")
+public class JournalEntryOutboxEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @Column(name = "id")
+  private Long id;
+
+  @Column(name = "case_id")
+  private Long caseId;
+
+  @Column(name = "transaction_identifier")
+  private String transactionIdentifier;
+
+  @Column(name = "journal_entry")
+  private String journalEntry;
+
+  @Column(name = "attempt_count")
+  private int attemptCount;
+
+  @Column(name = "created_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime createdOn;
+
+  @Column(name = "last_attempted_on")
+  @Convert(converter = LocalDateTimeConverter.class)
+  private LocalDateTime lastAttemptedOn;
+
+  @Column(name = "last_error")
+  private String lastError;
+
+  public JournalEntryOutboxEntity() {
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public Long getCaseId() {
+    return caseId;
+  }
+
+  public void setCaseId(Long caseId) {
+    this.caseId = caseId;
+  }
+
+  public String getTransactionIdentifier() {
+    return transactionIdentifier;
+  }
+
+  public void setTransactionIdentifier(String transactionIdentifier) {
+    this.transactionIdentifier = transactionIdentifier;
+  }
+
+  public String getJournalEntry() {
+    return journalEntry;
+  }
+
+  public void setJournalEntry(String journalEntry) {
+    this.journalEntry = journalEntry;
+  }
+
+  public int getAttemptCount() {
+    return attemptCount;
+  }
+
+  public void setAttemptCount(int attemptCount) {
+    this.attemptCount = attemptCount;
+  }
+
+  public LocalDateTime getCreatedOn() {
+    return createdOn;
+  }
+
+  public void setCreatedOn(LocalDateTime createdOn) {
+    this.createdOn = createdOn;
+  }
+
+  public LocalDateTime getLastAttemptedOn() {
+    return lastAttemptedOn;
+  }
+
+  public void setLastAttemptedOn(LocalDateTime lastAttemptedOn) {
+    this.lastAttemptedOn = lastAttemptedOn;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+}
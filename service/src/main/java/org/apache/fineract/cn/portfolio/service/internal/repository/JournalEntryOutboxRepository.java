@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author Myrle Krantz
+ */
+@Repository
+public interface JournalEntryOutboxRepository extends JpaRepository<JournalEntryOutboxEntity, Long> {
+  /**
+   * Locks the entry, so that it isn't sent by two senders at once.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT t FROM JournalEntryOutboxEntity t WHERE t.id = :id")
+  Optional<JournalEntryOutboxEntity> findByIdForUpdate(@Param("id") Long id);
+
+  @Query("SELECT t.id FROM JournalEntryOutboxEntity t WHERE t.id > :afterId ORDER BY t.id")
+  List<Long> findIdsByIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+
+  @Query("SELECT t.id FROM JournalEntryOutboxEntity t WHERE t.caseId = :caseId ORDER BY t.id")
+  List<Long> findIdsByCaseId(@Param("caseId") Long caseId);
+}
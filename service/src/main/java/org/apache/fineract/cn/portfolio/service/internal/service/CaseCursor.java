@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import org.apache.fineract.cn.lang.ServiceException;
+
+/**
+ * The position of the last case on a page of cases ordered by last modification and id.  It is handed to clients
+ * as an opaque token, so that the format can change without breaking them.
+ *
+ * @author Myrle Krantz
+ */
+final class CaseCursor {
+  private static final byte VERSION = 1;
+  private static final int ENCODED_LENGTH = 1 + Long.BYTES + Long.BYTES;
+
+  private final LocalDateTime lastModifiedOn;
+  private final Long id;
+
+  CaseCursor(final LocalDateTime lastModifiedOn, final Long id) {
+    this.lastModifiedOn = lastModifiedOn;
+    this.id = id;
+  }
+
+  LocalDateTime getLastModifiedOn() {
+    return lastModifiedOn;
+  }
+
+  Long getId() {
+    return id;
+  }
+
+  String encode() {
+    final ByteBuffer buffer = ByteBuffer.allocate(ENCODED_LENGTH);
+    buffer.put(VERSION);
+    buffer.putLong(lastModifiedOn.toInstant(ZoneOffset.UTC).toEpochMilli());
+    buffer.putLong(id);
+    return new String(Base64.getUrlEncoder().withoutPadding().encode(buffer.array()), StandardCharsets.US_ASCII);
+  }
+
+  static CaseCursor decode(final String pageToken) {
+    final byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(pageToken);
+    }
+    catch (final IllegalArgumentException e) {
+      throw ServiceException.badRequest("Page token ''{0}'' is not valid.", pageToken);
+    }
+
+    if (bytes.length != ENCODED_LENGTH || bytes[0] != VERSION)
+      throw ServiceException.badRequest("Page token ''{0}'' is not valid.", pageToken);
+
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, ENCODED_LENGTH - 1);
+    final LocalDateTime lastModifiedOn = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+    return new CaseCursor(lastModifiedOn, buffer.getLong());
+  }
+}
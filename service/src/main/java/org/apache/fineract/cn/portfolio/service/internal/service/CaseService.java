@@ -19,6 +19,7 @@
 package org.apache.fineract.cn.portfolio.service.internal.service;
 
 import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.api.v1.domain.CaseCursorPage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CasePage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CaseStatus;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Payment;
@@ -32,12 +33,22 @@ import org.apache.fineract.cn.products.spi.PatternFactory;
 import org.apache.fineract.cn.products.spi.ProductCommandDispatcher;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import org.apache.fineract.cn.lang.ServiceException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -45,6 +56,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * @author Myrle Krantz
@@ -55,6 +67,9 @@ public class CaseService {
   private final ProductRepository productRepository;
   private final CaseRepository caseRepository;
 
+  @PersistenceContext
+  private EntityManager entityManager;
+
   @Autowired
   public CaseService(
           final PatternFactoryRegistry patternFactoryRegistry,
@@ -71,23 +86,131 @@ public class CaseService {
                                   final int size) {
     final Pageable pageRequest = new PageRequest(pageIndex, size, Sort.Direction.DESC, "lastModifiedOn");
 
+    final List<String> currentStates = getCurrentStates(includeClosed);
+
+    final Page<CaseEntity> ret = caseRepository.findByProductIdentifierAndCurrentStateIn(productIdentifier, currentStates, pageRequest);
+
+    return new CasePage(mapList(productIdentifier, ret.getContent()), ret.getTotalPages(), ret.getTotalElements());
+  }
+
+  /**
+   * Reads the page of cases following the position described by pageToken, or the first page if there is no token.
+   * Pages are found by seeking in the listing index, so that reading a page late in the listing costs no more than
+   * reading the first one.
+   */
+  public CaseCursorPage findEntitiesAfter(final String productIdentifier,
+                                          final Boolean includeClosed,
+                                          final String pageToken,
+                                          final int size,
+                                          final boolean includeTotal) {
+    if (size < 1)
+      throw ServiceException.badRequest("Page size must be at least 1, but was ''{0}''.", size);
+
+    final List<String> currentStates = getCurrentStates(includeClosed != null && includeClosed);
+    //One case more than requested is read to find out whether there is a next page.
+    final Pageable pageRequest = new PageRequest(0, size + 1);
+
+    final List<CaseEntity> found;
+    if (pageToken == null || pageToken.isEmpty()) {
+      found = caseRepository.findByProductIdentifierAndCurrentStateInOrderByLastModifiedOnDescIdDesc(
+          productIdentifier, currentStates, pageRequest);
+    }
+    else {
+      final CaseCursor after = CaseCursor.decode(pageToken);
+      found = caseRepository.findByProductIdentifierAndCurrentStateInAfter(
+          productIdentifier, currentStates, after.getLastModifiedOn(), after.getId(), pageRequest);
+    }
+
+    final boolean hasNextPage = found.size() > size;
+    final List<CaseEntity> page = hasNextPage ? found.subList(0, size) : found;
+    final String nextPageToken;
+    if (hasNextPage) {
+      final CaseEntity last = page.get(page.size() - 1);
+      nextPageToken = new CaseCursor(last.getLastModifiedOn(), last.getId()).encode();
+    }
+    else {
+      nextPageToken = null;
+    }
+
+    final Long totalElements = includeTotal
+        ? caseRepository.countByProductIdentifierAndCurrentStateIn(productIdentifier, currentStates)
+        : null;
+
+    return new CaseCursorPage(mapList(productIdentifier, page), nextPageToken, totalElements);
+  }
+
+  /**
+   * Hands every case of the product in one of the given states to the sink, ordered by last modification.  Cases are
+   * read from a server side cursor, and mapped in blocks of the cursor's fetch size.  The persistence context is
+   * cleared after each block, so that the memory used doesn't depend on the number of cases in the product.
+   */
+  @Transactional(readOnly = true)
+  public void exportEntities(final String productIdentifier,
+                             final Collection<String> currentStates,
+                             final @Nullable LocalDateTime modifiedSince,
+                             final Consumer<Case> sink) {
+    final ProductEntity product = productRepository.findByIdentifier(productIdentifier)
+        .orElseThrow(() -> ServiceException.notFound("Product with identifier ''{0}'' doesn''t exist.", productIdentifier));
+    final PatternFactory patternFactory = patternFactoryRegistry.getPatternFactoryForPackage(product.getPatternPackage())
+        .orElseThrow(() -> ServiceException.notFound("Product with identifier ''{0}'' doesn''t exist.", productIdentifier));
+
+    try (final Stream<CaseEntity> cases = (modifiedSince == null)
+        ? caseRepository.streamByProductIdentifierAndCurrentStateIn(productIdentifier, currentStates)
+        : caseRepository.streamByProductIdentifierAndCurrentStateInAndLastModifiedOnSince(
+            productIdentifier, currentStates, modifiedSince)) {
+      final List<CaseEntity> block = new ArrayList<>(CaseRepository.EXPORT_FETCH_SIZE);
+      final Iterator<CaseEntity> iterator = cases.iterator();
+      while (iterator.hasNext()) {
+        block.add(iterator.next());
+        if (block.size() == CaseRepository.EXPORT_FETCH_SIZE || !iterator.hasNext()) {
+          mapList(product, patternFactory, block).forEach(sink);
+          block.clear();
+          entityManager.clear();
+        }
+      }
+    }
+  }
+
+  private static List<String> getCurrentStates(final boolean includeClosed) {
     Stream<Case.State> currentStatesStream = Arrays.stream(Case.State.values());
     if (!includeClosed)
       currentStatesStream = currentStatesStream.filter(x -> x != Case.State.CLOSED);
-    final List<String> currentStates = currentStatesStream.map(Enum::name).collect(Collectors.toList());
+    return currentStatesStream.map(Enum::name).collect(Collectors.toList());
+  }
 
-    final Page<CaseEntity> ret = caseRepository.findByProductIdentifierAndCurrentStateIn(productIdentifier, currentStates, pageRequest);
-    final int minorCurrencyUnitDigits = getMinorCurrencyUnitDigits(productIdentifier);
+  /**
+   * Maps cases of one product.  The product is read once, and the account assignments and parameters of all of the
+   * cases are each read in one query, rather than reading them again for every case.  Cases without parameters are
+   * left out.
+   */
+  private List<Case> mapList(final String productIdentifier,
+                             final List<CaseEntity> in) {
+    if (in.isEmpty())
+      return Collections.emptyList();
 
-    return new CasePage(mapList(ret.getContent(), minorCurrencyUnitDigits), ret.getTotalPages(), ret.getTotalElements());
+    final Optional<ProductEntity> product = productRepository.findByIdentifier(productIdentifier);
+    final Optional<PatternFactory> patternFactory = product
+        .map(ProductEntity::getPatternPackage)
+        .flatMap(patternFactoryRegistry::getPatternFactoryForPackage);
+    if (!patternFactory.isPresent())
+      return Collections.emptyList();
+
+    return mapList(product.get(), patternFactory.get(), in);
   }
 
-  private List<Case> mapList(final List<CaseEntity> in,
-                             final int minorCurrencyUnitDigits) {
-    return in.stream()
-            .map(caseEntity -> map(caseEntity, minorCurrencyUnitDigits))
-            .filter(Optional::isPresent)
-            .map(Optional::get)
+  private List<Case> mapList(final ProductEntity product,
+                             final PatternFactory patternFactory,
+                             final List<CaseEntity> in) {
+    final List<Long> caseIds = in.stream().map(CaseEntity::getId).collect(Collectors.toList());
+    final Map<Long, CaseEntity> casesWithAccountAssignments = caseRepository.findWithAccountAssignmentsByIdIn(caseIds)
+        .stream()
+        .collect(Collectors.toMap(CaseEntity::getId, Function.identity()));
+    final int minorCurrencyUnitDigits = Optional.ofNullable(product.getMinorCurrencyUnitDigits()).orElse(4);
+    final Map<Long, String> parametersByCaseId = patternFactory.getParameters(caseIds, minorCurrencyUnitDigits);
+
+    return caseIds.stream()
+            .filter(caseId -> casesWithAccountAssignments.containsKey(caseId) && parametersByCaseId.containsKey(caseId))
+            .map(caseId -> CaseMapper.map(casesWithAccountAssignments.get(caseId), parametersByCaseId.get(caseId)))
             .collect(Collectors.toList());
   }
 
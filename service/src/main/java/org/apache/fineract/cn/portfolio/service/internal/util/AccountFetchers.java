@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The threads on which accounts are fetched from accounting in parallel.  Accounting has no call which returns
+ * several accounts by identifier, so they are fetched concurrently instead.
+ *
+ * @author Myrle Krantz
+ */
+@Component
+public class AccountFetchers {
+  private final ExecutorService executorService;
+
+  @Autowired
+  public AccountFetchers(final PortfolioProperties portfolioProperties) {
+    this(portfolioProperties.getAccountFetcherCount());
+  }
+
+  AccountFetchers(final int fetcherCount) {
+    this.executorService = Executors.newFixedThreadPool(
+        fetcherCount,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("portfolio-account-fetch-%d").build());
+  }
+
+  <T> Future<T> submit(final Callable<T> fetch) {
+    return executorService.submit(fetch);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executorService.shutdownNow();
+  }
+}
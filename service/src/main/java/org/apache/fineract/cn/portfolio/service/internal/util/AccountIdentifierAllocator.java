@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.commons.lang.StringUtils;
+import org.apache.fineract.cn.accounting.api.v1.client.LedgerManager;
+import org.apache.fineract.cn.accounting.api.v1.domain.Ledger;
+
+/**
+ * Chooses the identifiers of the ledgers and accounts created for many cases at once.  Each ledger is fetched from
+ * accounting only once, and identifiers already handed out are not handed out again, so that the cases of a batch
+ * don't have to search for a free identifier one request at a time.  An identifier can still turn out to be taken by
+ * a ledger or account created elsewhere in the meantime.  The caller then asks for the next one.
+ *
+ * @author Myrle Krantz
+ */
+public class AccountIdentifierAllocator {
+  private final LedgerManager ledgerManager;
+  private final Map<String, Ledger> ledgers = new HashMap<>();
+  private final Map<String, Set<String>> allocatedSubLedgerIdentifiers = new HashMap<>();
+  private final Map<String, Long> accountCounts = new HashMap<>();
+  private final Map<String, Long> lastAccountIndexes = new HashMap<>();
+
+  AccountIdentifierAllocator(final LedgerManager ledgerManager) {
+    this.ledgerManager = ledgerManager;
+  }
+
+  synchronized Ledger getLedger(final String ledgerIdentifier) {
+    final Ledger ret = ledgers.get(ledgerIdentifier);
+    if (ret != null)
+      return ret;
+    final Ledger ledger = ledgerManager.findLedger(ledgerIdentifier);
+    ledgers.put(ledgerIdentifier, ledger);
+    return ledger;
+  }
+
+  synchronized void rememberLedger(final Ledger ledger) {
+    ledgers.put(ledger.getIdentifier(), ledger);
+  }
+
+  synchronized String nextLedgerIdentifier(
+      final String customerIdentifier,
+      final String groupName,
+      final String parentLedgerIdentifier) {
+    Set<String> allocated = allocatedSubLedgerIdentifiers.get(parentLedgerIdentifier);
+    if (allocated == null) {
+      final Ledger parentLedger = getLedger(parentLedgerIdentifier);
+      allocated = (parentLedger.getSubLedgers() == null ? Collections.<Ledger>emptyList() : parentLedger.getSubLedgers())
+          .stream().map(Ledger::getIdentifier).collect(Collectors.toSet());
+      allocatedSubLedgerIdentifiers.put(parentLedgerIdentifier, allocated);
+    }
+
+    final String prefix = StringUtils.left(customerIdentifier, 22) + "." + StringUtils.left(groupName, 3) + ".";
+    for (long index = 1; ; index++) {
+      final String identifier = prefix + String.format("%05d", index);
+      if (allocated.add(identifier))
+        return identifier;
+    }
+  }
+
+  /**
+   * The first identifier tried for a customer and designator is guessed from the number of accounts already in the
+   * ledger, so that a customer's later cases don't have to try every identifier taken by their earlier cases.
+   */
+  synchronized String nextCaseAccountIdentifier(
+      final String customerIdentifier,
+      final String designator,
+      final String ledgerIdentifier) {
+    final String prefix = StringUtils.left(customerIdentifier, 22) + "." + StringUtils.left(designator, 3) + ".";
+    lastAccountIndexes.computeIfAbsent(prefix, x -> getAccountCount(ledgerIdentifier));
+    final long index = lastAccountIndexes.merge(prefix, 1L, Long::sum);
+    return prefix + String.format("%05d", index);
+  }
+
+  private long getAccountCount(final String ledgerIdentifier) {
+    return accountCounts.computeIfAbsent(ledgerIdentifier, x ->
+        ledgerManager.fetchAccountsOfLedger(ledgerIdentifier, null, null, null, null).getTotalElements());
+  }
+}
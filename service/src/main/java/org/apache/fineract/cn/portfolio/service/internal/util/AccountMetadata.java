@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import org.apache.fineract.cn.accounting.api.v1.domain.Account;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The parts of an account which don't change with bookings, so that they can be kept between commands.
+ *
+ * @author Myrle Krantz
+ */
+public final class AccountMetadata {
+  private final String identifier;
+  private final String type;
+  private final String ledger;
+  private final Set<String> holders;
+
+  AccountMetadata(final Account account) {
+    this.identifier = account.getIdentifier();
+    this.type = account.getType();
+    this.ledger = account.getLedger();
+    this.holders = account.getHolders() == null
+        ? Collections.emptySet()
+        : Collections.unmodifiableSet(new HashSet<>(account.getHolders()));
+  }
+
+  public String getIdentifier() {
+    return identifier;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public String getLedger() {
+    return ledger;
+  }
+
+  public Set<String> getHolders() {
+    return holders;
+  }
+
+  @Override
+  public String toString() {
+    return "AccountMetadata{" +
+        "identifier='" + identifier + '\'' +
+        ", type='" + type + '\'' +
+        ", ledger='" + ledger + '\'' +
+        ", holders=" + holders +
+        '}';
+  }
+}
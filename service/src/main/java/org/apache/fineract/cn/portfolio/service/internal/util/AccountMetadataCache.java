@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+import org.apache.fineract.cn.accounting.api.v1.domain.Account;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Account metadata for all tenants, shared between commands.  Product accounts are used by every case of a product,
+ * so without this their types would be requested from accounting again for every case in a beat.  The least recently
+ * used accounts are evicted first.  Changes in accounting are announced via AccountingListener.  Balances are never
+ * kept here, since they change with every booking.
+ *
+ * @author Myrle Krantz
+ */
+@Component
+public class AccountMetadataCache {
+  private static final int MAXIMUM_SIZE = 10000;
+
+  private final ExpiringMap<String, AccountMetadata> accountMetadata;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong invalidationCount = new AtomicLong();
+
+  public AccountMetadataCache() {
+    this.accountMetadata = ExpiringMap.builder()
+        .maxSize(MAXIMUM_SIZE)
+        .expirationPolicy(ExpirationPolicy.ACCESSED)
+        //In case an event from accounting is missed.
+        .expiration(1, TimeUnit.HOURS)
+        .build();
+  }
+
+  Optional<AccountMetadata> find(final String accountIdentifier) {
+    final AccountMetadata ret = accountMetadata.get(key(TenantContextHolder.checkedGetIdentifier(), accountIdentifier));
+    if (ret == null)
+      missCount.incrementAndGet();
+    else
+      hitCount.incrementAndGet();
+    return Optional.ofNullable(ret);
+  }
+
+  AccountMetadata remember(final Account account) {
+    final AccountMetadata ret = new AccountMetadata(account);
+    accountMetadata.put(key(TenantContextHolder.checkedGetIdentifier(), account.getIdentifier()), ret);
+    return ret;
+  }
+
+  void invalidate(final String tenantIdentifier, final String accountIdentifier) {
+    if (accountMetadata.remove(key(tenantIdentifier, accountIdentifier)) != null)
+      invalidationCount.incrementAndGet();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getInvalidationCount() {
+    return invalidationCount.get();
+  }
+
+  public int getSize() {
+    return accountMetadata.size();
+  }
+
+  private static String key(final String tenantIdentifier, final String accountIdentifier) {
+    return tenantIdentifier + "." + accountIdentifier;
+  }
+}
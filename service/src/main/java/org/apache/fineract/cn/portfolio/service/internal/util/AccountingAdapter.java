@@ -29,27 +29,29 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.fineract.cn.accounting.api.v1.client.AccountAlreadyExistsException;
 import org.apache.fineract.cn.accounting.api.v1.client.AccountNotFoundException;
-import org.apache.fineract.cn.accounting.api.v1.client.JournalEntryAlreadyExistsException;
 import org.apache.fineract.cn.accounting.api.v1.client.LedgerAlreadyExistsException;
 import org.apache.fineract.cn.accounting.api.v1.client.LedgerManager;
 import org.apache.fineract.cn.accounting.api.v1.client.LedgerNotFoundException;
 import org.apache.fineract.cn.accounting.api.v1.domain.Account;
 import org.apache.fineract.cn.accounting.api.v1.domain.AccountEntry;
-import org.apache.fineract.cn.accounting.api.v1.domain.AccountPage;
 import org.apache.fineract.cn.accounting.api.v1.domain.Creditor;
 import org.apache.fineract.cn.accounting.api.v1.domain.Debtor;
 import org.apache.fineract.cn.accounting.api.v1.domain.JournalEntry;
@@ -69,23 +71,46 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class AccountingAdapter {
-
-
   public enum IdentifierType {LEDGER, ACCOUNT}
 
+  private static final long LEDGER_CREATION_WAIT_SECONDS = 10;
+
   private final LedgerManager ledgerManager;
   private final AccountingListener accountingListener;
+  private final AccountMetadataCache accountMetadataCache;
+  private final JournalEntryOutbox journalEntryOutbox;
+  private final AccountFetchers accountFetchers;
   private final Logger logger;
 
   @Autowired
   public AccountingAdapter(@SuppressWarnings("SpringJavaAutowiringInspection") final LedgerManager ledgerManager,
                            final AccountingListener accountingListener,
+                           final AccountMetadataCache accountMetadataCache,
+                           final JournalEntryOutbox journalEntryOutbox,
+                           final AccountFetchers accountFetchers,
                            @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
     this.ledgerManager = ledgerManager;
     this.accountingListener = accountingListener;
+    this.accountMetadataCache = accountMetadataCache;
+    this.journalEntryOutbox = journalEntryOutbox;
+    this.accountFetchers = accountFetchers;
     this.logger = logger;
   }
 
+  public static class PendingLedger {
+    private final String identifier;
+    private final EventExpectation expectation;
+
+    PendingLedger(final String identifier, final EventExpectation expectation) {
+      this.identifier = identifier;
+      this.expectation = expectation;
+    }
+
+    public String getIdentifier() {
+      return identifier;
+    }
+  }
+
   private static class BalanceAdjustment {
     final private String accountIdentifier; //*Not* designator.
     final private BigDecimal adjustment;
@@ -105,12 +130,14 @@ public class AccountingAdapter {
   }
 
   public Optional<String> bookCharges(
+      final Long caseId,
       final Map<String, BigDecimal> balanceAdjustments,
       final DesignatorToAccountIdentifierMapper designatorToAccountIdentifierMapper,
       final String note,
       final String transactionDate,
       final String message,
-      final String transactionType) {
+      final String transactionType,
+      final String transactionUniqueifier) {
     final JournalEntry journalEntry = getJournalEntry(
         balanceAdjustments,
         designatorToAccountIdentifierMapper,
@@ -124,16 +151,29 @@ public class AccountingAdapter {
     if (journalEntry.getCreditors().isEmpty() && journalEntry.getDebtors().isEmpty())
       return Optional.empty();
 
-    while (true) {
-      try {
-        final String transactionUniqueifier = RandomStringUtils.random(26, true, true);
-        journalEntry.setTransactionIdentifier(formulateTransactionIdentifier(message, transactionUniqueifier));
-        ledgerManager.createJournalEntry(journalEntry);
-        return Optional.of(transactionUniqueifier);
-      } catch (final JournalEntryAlreadyExistsException ignore) {
-        //Try again with a new uniqueifier.
-      }
-    }
+    journalEntry.setTransactionIdentifier(formulateTransactionIdentifier(message, transactionUniqueifier));
+    journalEntryOutbox.enqueue(caseId, journalEntry);
+    return Optional.of(transactionUniqueifier);
+  }
+
+  /**
+   * Identifies the booking of one command.  It is stored with the command and its journal entry, so sending the
+   * entry again leads to the same transaction identifier.
+   */
+  public static String newTransactionUniqueifier() {
+    return RandomStringUtils.random(26, true, true);
+  }
+
+  /**
+   * Sends bookings of the case which haven't reached accounting yet.
+   *
+   * @throws ServiceException conflict, if they still can't be sent, since the balances of the case in accounting
+   * would then be missing them.
+   */
+  public void sendPendingBookings(final Long caseId, final String caseIdentifier) {
+    if (!journalEntryOutbox.sendPendingOf(caseId))
+      throw ServiceException.conflict(
+          "Bookings of case ''{0}'' haven''t reached accounting yet.  Please try again later.", caseIdentifier);
   }
 
   private static String formulateTransactionIdentifier(
@@ -223,6 +263,7 @@ public class AccountingAdapter {
       final Account account = ledgerManager.findAccount(accountIdentifier);
       if (account == null || account.getBalance() == null || account.getType() == null)
         throw ServiceException.internalError("Could not find the account with identifier ''{0}''", accountIdentifier);
+      accountMetadataCache.remember(account);
       return account;
     }
     catch (final AccountNotFoundException e) {
@@ -230,42 +271,51 @@ public class AccountingAdapter {
     }
   }
 
-  public String createLedger(
-      final String customerIdentifier,
-      final String groupName,
-      final String parentLedger) throws InterruptedException {
-    final Ledger ledger = ledgerManager.findLedger(parentLedger);
-    final List<Ledger> subLedgers = ledger.getSubLedgers() == null ? Collections.emptyList() : ledger.getSubLedgers();
+  /**
+   * @return the type, ledger, and holders of the account, from the cache if it was read recently.
+   */
+  public AccountMetadata getAccountMetadata(final String accountIdentifier) {
+    return accountMetadataCache.find(accountIdentifier)
+        .orElseGet(() -> new AccountMetadata(getAccount(accountIdentifier)));
+  }
 
-    final Ledger generatedLedger = new Ledger();
-    generatedLedger.setShowAccountsInChart(true);
-    generatedLedger.setParentLedgerIdentifier(parentLedger);
-    generatedLedger.setType(ledger.getType());
-    final IdentiferWithIndex ledgerIdentifer = createLedgerIdentifier(customerIdentifier, groupName, subLedgers);
-    generatedLedger.setIdentifier(ledgerIdentifer.getIdentifier());
-    generatedLedger.setDescription("Individual loan case specific ledger");
-    generatedLedger.setName(ledgerIdentifer.getIdentifier());
+  /**
+   * @return the accounts by identifier.  Accounts are requested in parallel, so that the time taken is roughly the
+   * time taken for the slowest of them, rather than the sum.
+   */
+  public Map<String, Account> getAccounts(final Set<String> accountIdentifiers) {
+    if (accountIdentifiers.size() <= 1)
+      return accountIdentifiers.stream().collect(Collectors.toMap(Function.identity(), this::getAccount));
 
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    final Map<String, Future<Account>> accountFutures = accountIdentifiers.stream()
+        .collect(Collectors.toMap(Function.identity(),
+            accountIdentifier -> accountFetchers.submit(contextSnapshot.wrap(() -> getAccount(accountIdentifier)))));
 
-    final EventExpectation expectation = accountingListener.expectLedgerCreation(generatedLedger.getIdentifier());
-    boolean created = false;
-    while (!created) {
-      try {
-        logger.info("Attempting to create ledger with identifier '{}'", ledgerIdentifer.getIdentifier());
-        ledgerManager.addSubLedger(parentLedger, generatedLedger);
-        created = true;
-      } catch (final LedgerAlreadyExistsException e) {
-        ledgerIdentifer.incrementIndex();
-        generatedLedger.setIdentifier(ledgerIdentifer.getIdentifier());
-        generatedLedger.setName(ledgerIdentifer.getIdentifier());
-      }
+    final Map<String, Account> ret = new HashMap<>();
+    try {
+      for (final Map.Entry<String, Future<Account>> accountFuture : accountFutures.entrySet())
+        ret.put(accountFuture.getKey(), accountFuture.getValue().get());
+      return ret;
+    }
+    catch (final ExecutionException e) {
+      accountFutures.values().forEach(x -> x.cancel(true));
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw ServiceException.internalError("Could not fetch the accounts ''{0}''", accountIdentifiers);
     }
-    final boolean ledgerCreationDetected = expectation.waitForOccurrence(10, TimeUnit.SECONDS);
-    if (!ledgerCreationDetected)
-      logger.warn("Waited 5 seconds for creation of ledger '{}', but it was not detected. This could cause subsequent " +
-              "account creations to fail. Is there something wrong with the accounting service? Is ActiveMQ setup properly?",
-          generatedLedger.getIdentifier());
-    return ledgerIdentifer.getIdentifier();
+    catch (final InterruptedException e) {
+      accountFutures.values().forEach(x -> x.cancel(true));
+      Thread.currentThread().interrupt();
+      throw ServiceException.internalError("Interrupted while fetching the accounts ''{0}''", accountIdentifiers);
+    }
+  }
+
+  public String createLedger(
+      final String customerIdentifier,
+      final String groupName,
+      final String parentLedger) throws InterruptedException {
+    return createLedger(customerIdentifier, groupName, parentLedger, createIdentifierAllocator());
   }
 
   public String createProductAccountForLedgerAssignment(
@@ -305,6 +355,81 @@ public class AccountingAdapter {
       final String customerIdentifier,
       final AccountAssignment ledgerAssignment,
       final BigDecimal currentBalance) {
+    return createOrFindCaseAccountForLedgerAssignment(
+        customerIdentifier, ledgerAssignment, currentBalance, createIdentifierAllocator());
+  }
+
+  public AccountIdentifierAllocator createIdentifierAllocator() {
+    return new AccountIdentifierAllocator(ledgerManager);
+  }
+
+  public String createLedger(
+      final String customerIdentifier,
+      final String groupName,
+      final String parentLedger,
+      final AccountIdentifierAllocator identifierAllocator) throws InterruptedException {
+    final PendingLedger ret = startLedgerCreation(customerIdentifier, groupName, parentLedger, identifierAllocator);
+    awaitLedgerCreations(Collections.singletonList(ret));
+    return ret.getIdentifier();
+  }
+
+  /**
+   * Asks accounting to create a ledger, without waiting for accounting to have created it.  Accounts can only be
+   * created in the ledger once it has been, see {@link #awaitLedgerCreations}.
+   */
+  public PendingLedger startLedgerCreation(
+      final String customerIdentifier,
+      final String groupName,
+      final String parentLedger,
+      final AccountIdentifierAllocator identifierAllocator) {
+    final Ledger ledger = identifierAllocator.getLedger(parentLedger);
+
+    final Ledger generatedLedger = new Ledger();
+    generatedLedger.setShowAccountsInChart(true);
+    generatedLedger.setParentLedgerIdentifier(parentLedger);
+    generatedLedger.setType(ledger.getType());
+    generatedLedger.setDescription("Individual loan case specific ledger");
+
+    EventExpectation expectation = null;
+    boolean created = false;
+    while (!created) {
+      final String ledgerIdentifier = identifierAllocator.nextLedgerIdentifier(customerIdentifier, groupName, parentLedger);
+      generatedLedger.setIdentifier(ledgerIdentifier);
+      generatedLedger.setName(ledgerIdentifier);
+      expectation = accountingListener.expectLedgerCreation(ledgerIdentifier);
+      try {
+        logger.info("Attempting to create ledger with identifier '{}'", ledgerIdentifier);
+        ledgerManager.addSubLedger(parentLedger, generatedLedger);
+        created = true;
+      } catch (final LedgerAlreadyExistsException e) {
+        logger.info("Ledger '{}' already exists, trying the next identifier.", ledgerIdentifier);
+      }
+    }
+    identifierAllocator.rememberLedger(generatedLedger);
+    return new PendingLedger(generatedLedger.getIdentifier(), expectation);
+  }
+
+  /**
+   * Waits until accounting has created the ledgers, but no longer for all of them together than for one of them.
+   */
+  public void awaitLedgerCreations(final Collection<PendingLedger> pendingLedgers) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(LEDGER_CREATION_WAIT_SECONDS);
+    for (final PendingLedger pendingLedger : pendingLedgers) {
+      //Waiting for zero milliseconds would wait forever.
+      final long remainingMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+      if (!pendingLedger.expectation.waitForOccurrence(remainingMillis, TimeUnit.MILLISECONDS))
+        logger.warn("Waited {} seconds for creation of ledger '{}', but it was not detected. This could cause " +
+                "subsequent account creations to fail. Is there something wrong with the accounting service? Is " +
+                "ActiveMQ setup properly?",
+            LEDGER_CREATION_WAIT_SECONDS, pendingLedger.getIdentifier());
+    }
+  }
+
+  public String createOrFindCaseAccountForLedgerAssignment(
+      final String customerIdentifier,
+      final AccountAssignment ledgerAssignment,
+      final BigDecimal currentBalance,
+      final AccountIdentifierAllocator identifierAllocator) {
     if (ledgerAssignment.getAccountIdentifier() != null) try
     {
       final Account existingAccount = ledgerManager.findAccount(ledgerAssignment.getAccountIdentifier());
@@ -313,71 +438,30 @@ public class AccountingAdapter {
     catch (final AccountNotFoundException ignored) {
       //If the "existing" account doesn't exist after all, create a new one.
     }
-    final Ledger ledger = ledgerManager.findLedger(ledgerAssignment.getLedgerIdentifier());
-    final AccountPage accountsOfLedger = ledgerManager.fetchAccountsOfLedger(ledger.getIdentifier(), null, null, null, null);
+    final Ledger ledger = identifierAllocator.getLedger(ledgerAssignment.getLedgerIdentifier());
 
     final Account generatedAccount = new Account();
     generatedAccount.setBalance(currentBalance.doubleValue());
     generatedAccount.setType(ledger.getType());
     generatedAccount.setState(Account.State.OPEN.name());
     generatedAccount.setHolders(Sets.newHashSet(customerIdentifier));
-    long guestimatedAccountIndex = accountsOfLedger.getTotalElements() + 1;
     generatedAccount.setLedger(ledger.getIdentifier());
-    final Optional<String> createdAccountNumber =
-        Stream.iterate(guestimatedAccountIndex, i -> i + 1).limit(99999 - guestimatedAccountIndex)
-        .map(i -> {
-          final String accountNumber = createCaseAccountNumber(customerIdentifier, ledgerAssignment.getDesignator(), i);
-          generatedAccount.setIdentifier(accountNumber);
-          generatedAccount.setName(accountNumber);
-          generatedAccount.setAlternativeAccountNumber(ledgerAssignment.getAlternativeAccountNumber());
-          try {
-            ledgerManager.createAccount(generatedAccount);
-            return Optional.of(accountNumber);
-          } catch (final AccountAlreadyExistsException e) {
-            logger.error("Account '{}' could not be created because it already exists.", accountNumber);
-            return Optional.<String>empty();
-          }
-        })
-        .filter(Optional::isPresent).map(Optional::get)
-        .findFirst();
-
-    return createdAccountNumber.orElseThrow(() ->
-        ServiceException.conflict("Failed to create an account for customer ''{0}'' and ''{1}'', in ledger ''{2}''.",
-            customerIdentifier, ledgerAssignment.getDesignator(), ledgerAssignment.getLedgerIdentifier()));
-  }
-
-  private static class IdentiferWithIndex {
-    private long index;
-    private final String prefix;
-
-    IdentiferWithIndex(long index, String prefix) {
-      this.index = index;
-      this.prefix = prefix;
-    }
-
-    String getIdentifier() {
-      return prefix + String.format("%05d", index);
-    }
-
-    void incrementIndex() {
-      index++;
+    generatedAccount.setAlternativeAccountNumber(ledgerAssignment.getAlternativeAccountNumber());
+    for (int attempt = 0; attempt < 99999; attempt++) {
+      final String accountNumber = identifierAllocator.nextCaseAccountIdentifier(
+          customerIdentifier, ledgerAssignment.getDesignator(), ledger.getIdentifier());
+      generatedAccount.setIdentifier(accountNumber);
+      generatedAccount.setName(accountNumber);
+      try {
+        ledgerManager.createAccount(generatedAccount);
+        return accountNumber;
+      } catch (final AccountAlreadyExistsException e) {
+        logger.info("Account '{}' already exists, trying the next identifier.", accountNumber);
+      }
     }
-  }
 
-  private IdentiferWithIndex createLedgerIdentifier(
-      final String customerIdentifier,
-      final String groupName,
-      final List<Ledger> subLedgers) {
-    final String partialCustomerIdentifer = StringUtils.left(customerIdentifier, 22);
-    final String partialGroupName = StringUtils.left(groupName, 3);
-    final Set<String> subLedgerIdentifiers = subLedgers.stream().map(Ledger::getIdentifier).collect(Collectors.toSet());
-    final String generatedIdentifierPrefix = partialCustomerIdentifer + "." + partialGroupName + ".";
-    final IdentiferWithIndex ret = new IdentiferWithIndex(0, generatedIdentifierPrefix);
-    while (true) {
-      ret.incrementIndex();
-      if (!subLedgerIdentifiers.contains(ret.getIdentifier()))
-        return ret;
-    }
+    throw ServiceException.conflict("Failed to create an account for customer ''{0}'' and ''{1}'', in ledger ''{2}''.",
+        customerIdentifier, ledgerAssignment.getDesignator(), ledgerAssignment.getLedgerIdentifier());
   }
 
   private String createProductAccountNumber(final String productIdentifier, final String designator, final long accountIndex) {
@@ -385,12 +469,6 @@ public class AccountingAdapter {
         + "." + String.format("%05d", accountIndex);
   }
 
-  private String createCaseAccountNumber(final String customerIdentifier, final String designator, final long accountIndex) {
-    return StringUtils.left(customerIdentifier, 22) + "." + StringUtils.left(designator, 3)
-            + "." + String.format("%05d", accountIndex);
-  }
-
-
   public static Set<String> accountAssignmentsRequiredButNotProvided(
           final Set<AccountAssignment> accountAssignments,
           final Stream<ChargeDefinition> chargeDefinitionEntities) {
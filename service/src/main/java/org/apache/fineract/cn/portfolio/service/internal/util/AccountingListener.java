@@ -24,6 +24,7 @@ import org.apache.fineract.cn.lang.config.TenantHeaderFilter;
 import org.apache.fineract.cn.lang.listening.EventExpectation;
 import org.apache.fineract.cn.lang.listening.EventKey;
 import org.apache.fineract.cn.lang.listening.TenantedEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
@@ -34,6 +35,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class AccountingListener {
   private final TenantedEventListener eventListener = new TenantedEventListener();
+  private final AccountMetadataCache accountMetadataCache;
+
+  @Autowired
+  public AccountingListener(final AccountMetadataCache accountMetadataCache) {
+    this.accountMetadataCache = accountMetadataCache;
+  }
 
   @JmsListener(
       destination = EventConstants.DESTINATION,
@@ -45,6 +52,26 @@ public class AccountingListener {
     this.eventListener.notify(new EventKey(tenant, EventConstants.POST_LEDGER, payload));
   }
 
+  @JmsListener(
+      destination = EventConstants.DESTINATION,
+      selector = EventConstants.SELECTOR_PUT_ACCOUNT,
+      subscription = EventConstants.DESTINATION
+  )
+  public void onPutAccount(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                           final String payload) {
+    accountMetadataCache.invalidate(tenant, payload);
+  }
+
+  @JmsListener(
+      destination = EventConstants.DESTINATION,
+      selector = EventConstants.SELECTOR_DELETE_ACCOUNT,
+      subscription = EventConstants.DESTINATION
+  )
+  public void onDeleteAccount(@Header(TenantHeaderFilter.TENANT_HEADER) final String tenant,
+                              final String payload) {
+    accountMetadataCache.invalidate(tenant, payload);
+  }
+
 
   EventExpectation expectLedgerCreation(final String ledgerIdentifier) {
     return eventListener.expect(new EventKey(TenantContextHolder.checkedGetIdentifier(), EventConstants.POST_LEDGER, ledgerIdentifier));
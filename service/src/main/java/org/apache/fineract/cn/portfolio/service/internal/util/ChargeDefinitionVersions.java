@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The version of the charge definitions of each product, including the balance segments they refer to.  Anything
+ * calculated from a product's charge definitions can be remembered together with the version it was calculated for,
+ * and reused for as long as the version hasn't changed.
+ *
+ * A version is changed both when the charge definitions are changed, and when the transaction which changed them
+ * completes.  So something calculated from the charge definitions while the transaction was open, whether from the
+ * state before or after it, is never used afterwards.  Readers must get the version before reading the charge
+ * definitions, so that a result is never remembered under a newer version than the one it was calculated from.
+ *
+ * @author Myrle Krantz
+ */
+@Component
+public class ChargeDefinitionVersions {
+  private final AtomicLong lastVersion = new AtomicLong();
+  //Entries are never removed, so that a version can't fall back to one which was already handed out.
+  private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+  public ChargeDefinitionVersions() {
+  }
+
+  public long getVersion(final String productIdentifier) {
+    return versions.getOrDefault(key(productIdentifier), 0L);
+  }
+
+  public void changed(final String productIdentifier) {
+    final String key = key(productIdentifier);
+    versions.put(key, lastVersion.incrementAndGet());
+    if (!TransactionSynchronizationManager.isSynchronizationActive())
+      return;
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(final int status) {
+        versions.put(key, lastVersion.incrementAndGet());
+      }
+    });
+  }
+
+  private static String key(final String productIdentifier) {
+    return TenantContextHolder.checkedGetIdentifier() + "." + productIdentifier;
+  }
+}
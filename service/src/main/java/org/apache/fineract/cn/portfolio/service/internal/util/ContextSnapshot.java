@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import org.apache.fineract.cn.api.util.UserContext;
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+
+/**
+ * Captures the tenant and user of the calling thread, so that work handed to a worker pool
+ * is executed on behalf of the same tenant and user.
+ *
+ * @author Myrle Krantz
+ */
+public final class ContextSnapshot {
+  private final String tenantIdentifier;
+  private final Optional<UserContext> userContext;
+
+  private ContextSnapshot(final String tenantIdentifier, final Optional<UserContext> userContext) {
+    this.tenantIdentifier = tenantIdentifier;
+    this.userContext = userContext;
+  }
+
+  public static ContextSnapshot capture() {
+    return new ContextSnapshot(TenantContextHolder.checkedGetIdentifier(), UserContextHolder.getUserContext());
+  }
+
+  public Runnable wrap(final Runnable runnable) {
+    return () -> {
+      final Optional<String> previousTenant = TenantContextHolder.identifier();
+      final Optional<UserContext> previousUser = UserContextHolder.getUserContext();
+      enter(tenantIdentifier, userContext);
+      try {
+        runnable.run();
+      }
+      finally {
+        enter(previousTenant.orElse(null), previousUser);
+      }
+    };
+  }
+
+  public <T> Callable<T> wrap(final Callable<T> callable) {
+    return () -> {
+      final Optional<String> previousTenant = TenantContextHolder.identifier();
+      final Optional<UserContext> previousUser = UserContextHolder.getUserContext();
+      enter(tenantIdentifier, userContext);
+      try {
+        return callable.call();
+      }
+      finally {
+        enter(previousTenant.orElse(null), previousUser);
+      }
+    };
+  }
+
+  private static void enter(
+      final String tenantIdentifier,
+      @SuppressWarnings("OptionalUsedAsFieldOrParameterType") final Optional<UserContext> userContext) {
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+    if (tenantIdentifier != null)
+      TenantContextHolder.setIdentifier(tenantIdentifier);
+    userContext.ifPresent(UserContextHolder::setUserContext);
+  }
+}
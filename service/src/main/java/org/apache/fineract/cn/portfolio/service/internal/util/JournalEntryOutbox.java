@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import org.apache.commons.lang.StringUtils;
+import org.apache.fineract.cn.accounting.api.v1.client.JournalEntryAlreadyExistsException;
+import org.apache.fineract.cn.accounting.api.v1.client.LedgerManager;
+import org.apache.fineract.cn.accounting.api.v1.domain.JournalEntry;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.JournalEntryOutboxEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.JournalEntryOutboxRepository;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Journal entries are written to the outbox in the transaction of the command which booked them, and sent to
+ * accounting once that transaction has committed, before the case is unlocked.  Commands can be set to leave sending
+ * to a bounded pool of senders instead of waiting for accounting.  Entries which can't be sent are retried a few
+ * times, and after that on every beat, or by the next command on the same case, which sends them before it reads the
+ * case's balances.  An entry keeps its transaction identifier however often it is sent, so an entry which accounting
+ * already has is not booked twice.
+ *
+ * @author Myrle Krantz
+ */
+@Component
+public class JournalEntryOutbox {
+  private static final int IMMEDIATE_ATTEMPTS = 3;
+  private static final long FIRST_RETRY_DELAY_MILLIS = 200;
+  private static final int PENDING_BLOCK_SIZE = 500;
+  private static final int MAXIMUM_ERROR_LENGTH = 1024;
+
+  private final JournalEntryOutboxRepository journalEntryOutboxRepository;
+  private final LedgerManager ledgerManager;
+  private final PortfolioProperties portfolioProperties;
+  private final Gson gson;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger logger;
+  private final ExecutorService senders;
+
+  @Autowired
+  public JournalEntryOutbox(
+      final JournalEntryOutboxRepository journalEntryOutboxRepository,
+      @SuppressWarnings("SpringJavaAutowiringInspection") final LedgerManager ledgerManager,
+      final PortfolioProperties portfolioProperties,
+      @Qualifier(ServiceConstants.GSON_NAME) final Gson gson,
+      final PlatformTransactionManager transactionManager,
+      @Qualifier(ServiceConstants.LOGGER_NAME) final Logger logger) {
+    this.journalEntryOutboxRepository = journalEntryOutboxRepository;
+    this.ledgerManager = ledgerManager;
+    this.portfolioProperties = portfolioProperties;
+    this.gson = gson;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    //Sending happens after the command's transaction has committed, and each entry's result must be kept on its own.
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.logger = logger;
+    this.senders = Executors.newFixedThreadPool(
+        portfolioProperties.getJournalEntrySenderCount(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("portfolio-journal-entry-sender-%d").build());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    //Entries which haven't been sent yet stay in the outbox, and are sent on the next beat.
+    senders.shutdownNow();
+  }
+
+  /**
+   * Must be called in the transaction which records the command booking the entry.
+   */
+  void enqueue(final Long caseId, final JournalEntry journalEntry) {
+    final JournalEntryOutboxEntity outboxEntry = new JournalEntryOutboxEntity();
+    outboxEntry.setCaseId(caseId);
+    outboxEntry.setTransactionIdentifier(journalEntry.getTransactionIdentifier());
+    outboxEntry.setJournalEntry(gson.toJson(journalEntry));
+    outboxEntry.setAttemptCount(0);
+    outboxEntry.setCreatedOn(LocalDateTime.now(Clock.systemUTC()));
+    final Long outboxEntryId = journalEntryOutboxRepository.save(outboxEntry).getId();
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      dispatch(outboxEntryId);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        dispatch(outboxEntryId);
+      }
+    });
+  }
+
+  /**
+   * Sends everything left in the outbox, for example by senders which failed or by a service instance which stopped.
+   */
+  public void sendPending() {
+    final ContextSnapshot contextSnapshot = ContextSnapshot.capture();
+    long lastOutboxEntryId = 0L;
+    while (true) {
+      final List<Long> outboxEntryIds = journalEntryOutboxRepository.findIdsByIdGreaterThan(
+          lastOutboxEntryId,
+          new PageRequest(0, PENDING_BLOCK_SIZE));
+      if (outboxEntryIds.isEmpty())
+        return;
+
+      final List<Future<?>> results = outboxEntryIds.stream()
+          .map(outboxEntryId -> senders.submit(contextSnapshot.wrap(() -> send(outboxEntryId))))
+          .collect(Collectors.toList());
+      for (final Future<?> result : results) {
+        try {
+          result.get();
+        }
+        catch (final ExecutionException e) {
+          logger.warn("Sending a journal entry from the outbox failed.", e.getCause());
+        }
+        catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+
+      lastOutboxEntryId = outboxEntryIds.get(outboxEntryIds.size() - 1);
+      if (outboxEntryIds.size() < PENDING_BLOCK_SIZE)
+        return;
+    }
+  }
+
+  /**
+   * Sends what is left in the outbox for a case, for example because sending failed, or because a sender hasn't got
+   * to it yet.  Balances of the case read from accounting are only complete if this returns true.
+   */
+  public boolean sendPendingOf(final Long caseId) {
+    for (final Long outboxEntryId : journalEntryOutboxRepository.findIdsByCaseId(caseId)) {
+      final Boolean sent = transactionTemplate.execute(status -> trySend(outboxEntryId));
+      if (sent == null || !sent)
+        return false;
+    }
+    return true;
+  }
+
+  private void dispatch(final Long outboxEntryId) {
+    if (portfolioProperties.isAwaitJournalEntryDelivery())
+      send(outboxEntryId);
+    else
+      senders.submit(ContextSnapshot.capture().wrap(() -> send(outboxEntryId)));
+  }
+
+  private void send(final Long outboxEntryId) {
+    for (int attempt = 0; attempt < IMMEDIATE_ATTEMPTS; attempt++) {
+      if (attempt > 0) {
+        try {
+          Thread.sleep(FIRST_RETRY_DELAY_MILLIS << (attempt - 1));
+        }
+        catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+
+      final Boolean sent = transactionTemplate.execute(status -> trySend(outboxEntryId));
+      if (sent != null && sent)
+        return;
+    }
+    logger.warn("Journal entry '{}' could not be sent to accounting.  It will be sent again on the next beat.", outboxEntryId);
+  }
+
+  private boolean trySend(final Long outboxEntryId) {
+    final Optional<JournalEntryOutboxEntity> outboxEntry = journalEntryOutboxRepository.findByIdForUpdate(outboxEntryId);
+    if (!outboxEntry.isPresent())
+      return true; //Already sent by another sender.
+
+    try {
+      ledgerManager.createJournalEntry(gson.fromJson(outboxEntry.get().getJournalEntry(), JournalEntry.class));
+    }
+    catch (final JournalEntryAlreadyExistsException ignored) {
+      //Accounting received this entry before, but the outbox entry wasn't removed afterwards.
+    }
+    catch (final RuntimeException e) {
+      outboxEntry.get().setAttemptCount(outboxEntry.get().getAttemptCount() + 1);
+      outboxEntry.get().setLastAttemptedOn(LocalDateTime.now(Clock.systemUTC()));
+      outboxEntry.get().setLastError(StringUtils.abbreviate(String.valueOf(e.getMessage()), MAXIMUM_ERROR_LENGTH));
+      journalEntryOutboxRepository.save(outboxEntry.get());
+      return false;
+    }
+
+    journalEntryOutboxRepository.delete(outboxEntry.get());
+    return true;
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.fineract.cn.portfolio.service.rest;
 import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
 import org.apache.fineract.cn.portfolio.api.v1.PermittableGroupIds;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.api.v1.domain.CaseCursorPage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CasePage;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CaseStatus;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Command;
@@ -101,6 +102,23 @@ public class CaseRestController {
     return caseService.findAllEntities(productIdentifier, includeClosed,  pageIndex, size);
   }
 
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CASE_MANAGEMENT)
+  @RequestMapping(
+          method = RequestMethod.GET,
+          params = "!pageIndex",
+          consumes = MediaType.ALL_VALUE,
+          produces = MediaType.APPLICATION_JSON_VALUE
+  )
+  public @ResponseBody CaseCursorPage getCasesForProduct(@PathVariable("productidentifier") final String productIdentifier,
+                                 @RequestParam(value = "includeClosed", required = false) final Boolean includeClosed,
+                                 @RequestParam(value = "pageToken", required = false) final String pageToken,
+                                 @RequestParam("size") final Integer size,
+                                 @RequestParam(value = "includeTotal", required = false) final Boolean includeTotal)
+  {
+    return caseService.findEntitiesAfter(productIdentifier, includeClosed, pageToken, size,
+        includeTotal != null && includeTotal);
+  }
+
   @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CASE_MANAGEMENT)
   @RequestMapping(
           method = RequestMethod.POST,
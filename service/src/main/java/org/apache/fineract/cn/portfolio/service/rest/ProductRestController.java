@@ -19,13 +19,16 @@
 package org.apache.fineract.cn.portfolio.service.rest;
 
 import org.apache.fineract.cn.portfolio.api.v1.PermittableGroupIds;
+import com.google.gson.Gson;
 import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Pattern;
 import org.apache.fineract.cn.portfolio.api.v1.domain.Product;
 import org.apache.fineract.cn.portfolio.api.v1.domain.ProductPage;
 import org.apache.fineract.cn.portfolio.api.v1.validation.CheckValidSortColumn;
 import org.apache.fineract.cn.portfolio.api.v1.validation.CheckValidSortDirection;
 import org.apache.fineract.cn.portfolio.api.v1.validation.ValidSortDirection;
+import org.apache.fineract.cn.portfolio.service.ServiceConstants;
 import org.apache.fineract.cn.portfolio.service.internal.command.ChangeEnablingOfProductCommand;
 import org.apache.fineract.cn.portfolio.service.internal.command.ChangeProductCommand;
 import org.apache.fineract.cn.portfolio.service.internal.command.CreateProductCommand;
@@ -33,17 +36,29 @@ import org.apache.fineract.cn.portfolio.service.internal.command.DeleteProductCo
 import org.apache.fineract.cn.portfolio.service.internal.service.CaseService;
 import org.apache.fineract.cn.portfolio.service.internal.service.PatternService;
 import org.apache.fineract.cn.portfolio.service.internal.service.ProductService;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import org.apache.fineract.cn.anubis.annotation.AcceptedTokenType;
 import org.apache.fineract.cn.anubis.annotation.Permittable;
 import org.apache.fineract.cn.api.util.UserContextHolder;
 import org.apache.fineract.cn.command.gateway.CommandGateway;
+import org.apache.fineract.cn.lang.DateConverter;
 import org.apache.fineract.cn.lang.ServiceException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -62,22 +77,26 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController //
 @RequestMapping("/products") //
 public class ProductRestController {
+  private final static String NDJSON_VALUE = "application/x-ndjson";
   private final static Set<String> VALID_SORT_COLUMNS = new HashSet<>(Arrays.asList("lastModifiedOn", "identifier", "name", "enabled"));
 
   private final CommandGateway commandGateway;
   private final CaseService caseService;
   private final ProductService productService;
   private final PatternService patternService;
+  private final Gson gson;
 
   @Autowired public ProductRestController(final CommandGateway commandGateway,
                                           final CaseService caseService,
                                           final ProductService productService,
-                                          final PatternService patternService) {
+                                          final PatternService patternService,
+                                          @Qualifier(ServiceConstants.GSON_NAME) final Gson gson) {
     super();
     this.commandGateway = commandGateway;
     this.caseService = caseService;
     this.productService = productService;
     this.patternService = patternService;
+    this.gson = gson;
 
   }
 
@@ -203,6 +222,52 @@ public class ProductRestController {
     return ResponseEntity.ok(productService.getIncompleteAccountAssignments(productIdentifier));
   }
 
+  @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.CASE_MANAGEMENT)
+  @RequestMapping(
+          value = "/{productidentifier}/caseexport",
+          method = RequestMethod.GET,
+          consumes = MediaType.ALL_VALUE,
+          produces = NDJSON_VALUE)
+  public void exportCases(@PathVariable("productidentifier") final String productIdentifier,
+                          @RequestParam(value = "state", required = false) final Set<String> states,
+                          @RequestParam(value = "modifiedSince", required = false) final String modifiedSince,
+                          final HttpServletResponse response) throws IOException
+  {
+    final Set<String> currentStates;
+    if (states == null || states.isEmpty()) {
+      currentStates = Arrays.stream(Case.State.values()).map(Enum::name).collect(Collectors.toSet());
+    }
+    else {
+      states.forEach(state -> {
+        if (Arrays.stream(Case.State.values()).noneMatch(x -> x.name().equals(state)))
+          throw ServiceException.badRequest("Invalid state ''{0}''.", state);
+      });
+      currentStates = states;
+    }
+
+    final LocalDateTime modifiedSinceDateTime;
+    try {
+      modifiedSinceDateTime = modifiedSince == null ? null : DateConverter.fromIsoString(modifiedSince);
+    }
+    catch (final DateTimeParseException e) {
+      throw ServiceException.badRequest("Invalid modifiedSince ''{0}''.", modifiedSince);
+    }
+
+    response.setContentType(NDJSON_VALUE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+    caseService.exportEntities(productIdentifier, currentStates, modifiedSinceDateTime, caseInstance -> {
+      try {
+        gson.toJson(caseInstance, writer);
+        writer.write('\n');
+      }
+      catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    writer.flush();
+  }
+
   @Permittable(value = AcceptedTokenType.TENANT, groupId = PermittableGroupIds.PRODUCT_OPERATIONS_MANAGEMENT)
   @RequestMapping(
           value = "/{productidentifier}/enabled",
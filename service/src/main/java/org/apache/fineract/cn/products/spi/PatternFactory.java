@@ -26,6 +26,8 @@ import org.apache.fineract.cn.portfolio.api.v1.domain.Payment;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -40,6 +42,10 @@ public interface PatternFactory {
   void persistParameters(Long caseId, String parameters);
   void changeParameters(Long caseId, String parameters);
   Optional<String> getParameters(Long caseId, int minorCurrencyUnitDigits);
+  /**
+   * @return the parameters of all of the cases which have them, keyed by case id, read all at once.
+   */
+  Map<Long, String> getParameters(Collection<Long> caseIds, int minorCurrencyUnitDigits);
   Set<String> getNextActionsForState(Case.State state);
   Payment getCostComponentsForAction(
       String productIdentifier,
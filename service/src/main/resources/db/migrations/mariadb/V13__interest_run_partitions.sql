@@ -0,0 +1,33 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+CREATE TABLE bastet_il_interest_run_parts (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  for_time                 TIMESTAMP(3)   NOT NULL,
+  lower_case_id            BIGINT         NOT NULL,
+  upper_case_id            BIGINT         NOT NULL,
+  case_count               INT            NOT NULL,
+  processed_count          INT            NOT NULL,
+  failed_count             INT            NOT NULL,
+  current_state            VARCHAR(32)    NOT NULL,
+  finished_on              TIMESTAMP(3)   NULL DEFAULT NULL,
+
+  CONSTRAINT bastet_il_interest_run_parts_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_il_interest_run_parts_uq UNIQUE (for_time, lower_case_id)
+);
@@ -0,0 +1,34 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+ALTER TABLE bastet_il_cases ADD COLUMN charge_totals_complete BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE bastet_il_charge_totals (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  case_id                  BIGINT         NOT NULL,
+  designator               VARCHAR(32)    NOT NULL,
+  action_name              VARCHAR(32)    NOT NULL,
+  total                    DECIMAL(19,4)  NOT NULL,
+  counted_since            TIMESTAMP(3)   NOT NULL,
+  last_booked_on           TIMESTAMP(3)   NULL DEFAULT NULL,
+
+  CONSTRAINT bastet_il_charge_totals_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_il_charge_totals_uq UNIQUE (case_id, designator, action_name),
+  CONSTRAINT bastet_il_charge_totals_fk FOREIGN KEY (case_id) REFERENCES bastet_cases (id)
+);
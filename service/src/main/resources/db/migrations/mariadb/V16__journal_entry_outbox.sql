@@ -0,0 +1,31 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+CREATE TABLE bastet_journal_outbox (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  transaction_identifier   VARCHAR(255)   NOT NULL,
+  journal_entry            MEDIUMTEXT     NOT NULL,
+  attempt_count            INT            NOT NULL,
+  created_on               TIMESTAMP(3)   NOT NULL,
+  last_attempted_on        TIMESTAMP(3)   NULL DEFAULT NULL,
+  last_error               VARCHAR(1024)  NULL DEFAULT NULL,
+
+  CONSTRAINT bastet_journal_outbox_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_journal_outbox_uq UNIQUE (transaction_identifier)
+);
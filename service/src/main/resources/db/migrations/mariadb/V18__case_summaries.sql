@@ -0,0 +1,35 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+CREATE TABLE bastet_il_case_summaries (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  case_id                  BIGINT         NOT NULL,
+  principal_balance        DECIMAL(19,4)  NOT NULL,
+  interest_balance         DECIMAL(19,4)  NOT NULL,
+  fees_balance             DECIMAL(19,4)  NOT NULL,
+  payment_size             DECIMAL(19,4)  NULL DEFAULT NULL,
+  late_since               TIMESTAMP(3)   NULL DEFAULT NULL,
+  next_due_date            TIMESTAMP(3)   NULL DEFAULT NULL,
+  last_payment_on          TIMESTAMP(3)   NULL DEFAULT NULL,
+  last_modified_on         TIMESTAMP(3)   NOT NULL,
+
+  CONSTRAINT bastet_il_case_summaries_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_il_case_summaries_uq UNIQUE (case_id),
+  CONSTRAINT bastet_il_case_summaries_fk FOREIGN KEY (case_id) REFERENCES bastet_cases (id)
+);
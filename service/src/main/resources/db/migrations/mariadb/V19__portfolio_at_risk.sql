@@ -0,0 +1,43 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+CREATE TABLE bastet_il_at_risk_cases (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  product_id               BIGINT         NOT NULL,
+  case_id                  BIGINT         NOT NULL,
+  late_since               TIMESTAMP(3)   NOT NULL,
+  principal_balance        DECIMAL(19,4)  NOT NULL,
+
+  CONSTRAINT bastet_il_at_risk_cases_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_il_at_risk_cases_uq UNIQUE (case_id),
+  CONSTRAINT bastet_il_at_risk_cases_fk FOREIGN KEY (case_id) REFERENCES bastet_cases (id)
+);
+
+CREATE INDEX bastet_il_at_risk_cases_late_idx ON bastet_il_at_risk_cases (product_id, late_since, case_id);
+
+CREATE TABLE bastet_il_aging (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  product_id               BIGINT         NOT NULL,
+  late_since               TIMESTAMP(3)   NOT NULL,
+  case_count               BIGINT         NOT NULL,
+  principal_balance        DECIMAL(19,4)  NOT NULL,
+
+  CONSTRAINT bastet_il_aging_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_il_aging_uq UNIQUE (product_id, late_since)
+);
@@ -0,0 +1,49 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+CREATE TABLE bastet_il_repay_batches (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  identifier               VARCHAR(32)    NOT NULL,
+  product_identifier       VARCHAR(32)    NOT NULL,
+  repayment_count          INT            NOT NULL,
+  current_state            VARCHAR(32)    NOT NULL,
+  created_by               VARCHAR(32)    NOT NULL,
+  created_on               TIMESTAMP(3)   NOT NULL,
+  finished_on              TIMESTAMP(3)   NULL DEFAULT NULL,
+
+  CONSTRAINT bastet_il_repay_batches_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_il_repay_batches_uq UNIQUE (product_identifier, identifier)
+);
+
+CREATE TABLE bastet_il_repay_items (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  batch_id                 BIGINT         NOT NULL,
+  position                 INT            NOT NULL,
+  case_identifier          VARCHAR(32)    NOT NULL,
+  command                  TEXT           NOT NULL,
+  current_state            VARCHAR(32)    NOT NULL,
+  message                  VARCHAR(1024)  NULL DEFAULT NULL,
+  processed_on             TIMESTAMP(3)   NULL DEFAULT NULL,
+
+  CONSTRAINT bastet_il_repay_items_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_il_repay_items_uq UNIQUE (batch_id, position),
+  CONSTRAINT bastet_il_repay_items_fk FOREIGN KEY (batch_id) REFERENCES bastet_il_repay_batches (id)
+);
+
+CREATE INDEX bastet_il_repay_items_state_idx ON bastet_il_repay_items (batch_id, current_state, position);
@@ -0,0 +1,33 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+ALTER TABLE bastet_il_charge_totals ADD COLUMN counted_by_day_since TIMESTAMP(3) NULL DEFAULT NULL;
+
+CREATE TABLE bastet_il_charge_day_totals (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  case_id                  BIGINT         NOT NULL,
+  designator               VARCHAR(32)    NOT NULL,
+  action_name              VARCHAR(32)    NOT NULL,
+  booked_on                TIMESTAMP(3)   NOT NULL,
+  total                    DECIMAL(19,4)  NOT NULL,
+
+  CONSTRAINT bastet_il_charge_day_totals_pk PRIMARY KEY (id),
+  CONSTRAINT bastet_il_charge_day_totals_uq UNIQUE (case_id, designator, action_name, booked_on),
+  CONSTRAINT bastet_il_charge_day_totals_fk FOREIGN KEY (case_id) REFERENCES bastet_cases (id)
+);
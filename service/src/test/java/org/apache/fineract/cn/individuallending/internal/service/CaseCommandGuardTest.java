@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.CommandLockStatistics;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/**
+ * @author Myrle Krantz
+ */
+public class CaseCommandGuardTest {
+  private static final String TENANT = "tenant";
+  private static final String OTHER_TENANT = "other";
+
+  private PortfolioProperties portfolioProperties;
+  private CaseCommandGuard testSubject;
+  private ExecutorService executor;
+
+  @Before
+  public void prepare() {
+    TenantContextHolder.setIdentifier(TENANT);
+    portfolioProperties = new PortfolioProperties();
+    portfolioProperties.setCaseCommandRetryBackoffMillis(0);
+    testSubject = new CaseCommandGuard(portfolioProperties, new NoOpTransactionManager(), Mockito.mock(Logger.class));
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void cleanup() {
+    executor.shutdownNow();
+    if (TransactionSynchronizationManager.isSynchronizationActive())
+      TransactionSynchronizationManager.clearSynchronization();
+    TenantContextHolder.clear();
+  }
+
+  @Test
+  public void commandsOnSameCaseAreSerialised() throws Exception {
+    final CountDownLatch firstEntered = new CountDownLatch(1);
+    final CountDownLatch releaseFirst = new CountDownLatch(1);
+    final Future<Boolean> first = runLocked("case1", () -> {
+      firstEntered.countDown();
+      await(releaseFirst);
+      return true;
+    });
+    Assert.assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+
+    final Future<Boolean> second = runLocked("case1", () -> true);
+    assertNotDone(second);
+    Assert.assertEquals(Integer.valueOf(1), testSubject.getStatistics().getWaitingCount());
+
+    releaseFirst.countDown();
+    Assert.assertTrue(first.get(5, TimeUnit.SECONDS));
+    Assert.assertTrue(second.get(5, TimeUnit.SECONDS));
+
+    final CommandLockStatistics statistics = testSubject.getStatistics();
+    Assert.assertEquals(Long.valueOf(2), statistics.getAcquisitionCount());
+    Assert.assertEquals(Long.valueOf(1), statistics.getContendedAcquisitionCount());
+    Assert.assertEquals(Integer.valueOf(0), statistics.getWaitingCount());
+  }
+
+  @Test
+  public void commandsOnDifferentCasesRunInParallel() throws Exception {
+    final CountDownLatch firstEntered = new CountDownLatch(1);
+    final CountDownLatch releaseFirst = new CountDownLatch(1);
+    final Future<Boolean> first = runLocked("case1", () -> {
+      firstEntered.countDown();
+      await(releaseFirst);
+      return true;
+    });
+    Assert.assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+
+    Assert.assertTrue(runLocked("case3", () -> true).get(5, TimeUnit.SECONDS));
+
+    releaseFirst.countDown();
+    Assert.assertTrue(first.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(Long.valueOf(0), testSubject.getStatistics().getContendedAcquisitionCount());
+  }
+
+  @Test
+  public void statisticsAreKeptPerTenant() throws Exception {
+    Assert.assertTrue(runLocked("case1", () -> true).get(5, TimeUnit.SECONDS));
+    Assert.assertTrue(executor.submit(() -> {
+      TenantContextHolder.setIdentifier(OTHER_TENANT);
+      try {
+        testSubject.runLocked("product", "case1", () -> true);
+        testSubject.runLocked("product", "case2", () -> true);
+        return testSubject.getStatistics().getAcquisitionCount() == 2L;
+      }
+      finally {
+        TenantContextHolder.clear();
+      }
+    }).get(5, TimeUnit.SECONDS));
+
+    Assert.assertEquals(Long.valueOf(1), testSubject.getStatistics().getAcquisitionCount());
+  }
+
+  @Test
+  public void caseIsLockedUntilTransactionCompletes() throws Exception {
+    TransactionSynchronizationManager.initSynchronization();
+    testSubject.lockUntilCompletion("product", "case1");
+
+    final Future<Boolean> second = runLocked("case1", () -> true);
+    assertNotDone(second);
+
+    TransactionSynchronizationUtils.invokeAfterCompletion(
+        TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+    Assert.assertTrue(second.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void lockingOutsideOfTransactionIsRefused() {
+    testSubject.lockUntilCompletion("product", "case1");
+  }
+
+  @Test
+  public void commandIsRepeatedAfterConflict() {
+    final AtomicInteger attempts = new AtomicInteger();
+    final Boolean result = testSubject.execute("product", "case1", () -> {
+      if (attempts.incrementAndGet() == 1)
+        throw new OptimisticLockingFailureException("case1 was changed");
+      return true;
+    });
+
+    Assert.assertTrue(result);
+    Assert.assertEquals(2, attempts.get());
+    final CommandLockStatistics statistics = testSubject.getStatistics();
+    Assert.assertEquals(Long.valueOf(1), statistics.getConflictCount());
+    Assert.assertEquals(Long.valueOf(0), statistics.getUnresolvedConflictCount());
+    Assert.assertEquals(Long.valueOf(2), statistics.getAcquisitionCount());
+  }
+
+  @Test
+  public void conflictIsReportedOnceRetriesAreUsedUp() {
+    final AtomicInteger attempts = new AtomicInteger();
+    try {
+      testSubject.execute("product", "case1", () -> {
+        attempts.incrementAndGet();
+        throw new OptimisticLockingFailureException("case1 was changed");
+      });
+      Assert.fail("A conflict should have been reported.");
+    }
+    catch (final ServiceException ignored) {
+    }
+
+    Assert.assertEquals(portfolioProperties.getCaseCommandRetryCount() + 1, attempts.get());
+    final CommandLockStatistics statistics = testSubject.getStatistics();
+    Assert.assertEquals(Long.valueOf(attempts.get()), statistics.getConflictCount());
+    Assert.assertEquals(Long.valueOf(1), statistics.getUnresolvedConflictCount());
+  }
+
+  @Test
+  public void otherFailuresAreNotRepeated() {
+    final AtomicInteger attempts = new AtomicInteger();
+    try {
+      testSubject.execute("product", "case1", () -> {
+        attempts.incrementAndGet();
+        throw ServiceException.badRequest("Not today.");
+      });
+      Assert.fail("The failure should have been passed on.");
+    }
+    catch (final ServiceException ignored) {
+    }
+
+    Assert.assertEquals(1, attempts.get());
+    Assert.assertEquals(Long.valueOf(0), testSubject.getStatistics().getConflictCount());
+  }
+
+  private Future<Boolean> runLocked(final String caseIdentifier, final Supplier<Boolean> work) {
+    return executor.submit(() -> {
+      TenantContextHolder.setIdentifier(TENANT);
+      try {
+        return testSubject.runLocked("product", caseIdentifier, work);
+      }
+      finally {
+        TenantContextHolder.clear();
+      }
+    });
+  }
+
+  private static void assertNotDone(final Future<Boolean> future) throws Exception {
+    try {
+      future.get(200, TimeUnit.MILLISECONDS);
+      Assert.fail("Command should have been waiting for the case.");
+    }
+    catch (final TimeoutException ignored) {
+    }
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import com.google.gson.Gson;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.CaseImport;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.ImportResult;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.ImportBatchEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ImportBatchItemEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ImportBatchItemRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.ImportBatchRepository;
+import org.apache.fineract.cn.portfolio.api.v1.domain.ImportParameters;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountIdentifierAllocator;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+
+/**
+ * @author Myrle Krantz
+ */
+public class CaseImportServiceTest {
+  private static final String PRODUCT_IDENTIFIER = "product";
+  private static final Long BATCH_ID = 13L;
+
+  private ImportBatchRepository importBatchRepository;
+  private ImportBatchItemRepository importBatchItemRepository;
+  private ImportActivationService importActivationService;
+  private AccountingAdapter accountingAdapter;
+  private Map<String, DataContextOfAction> dataContexts;
+  private ImportBatchEntity batch;
+  private CaseImportService testSubject;
+
+  @Before
+  public void prepare() throws Exception {
+    TenantContextHolder.setIdentifier("tenant");
+    UserContextHolder.setAccessToken("migrator", "token");
+
+    importBatchRepository = Mockito.mock(ImportBatchRepository.class);
+    importBatchItemRepository = Mockito.mock(ImportBatchItemRepository.class);
+    importActivationService = Mockito.mock(ImportActivationService.class);
+    accountingAdapter = Mockito.mock(AccountingAdapter.class);
+    dataContexts = new ConcurrentHashMap<>();
+
+    batch = new ImportBatchEntity();
+    batch.setId(BATCH_ID);
+    batch.setIdentifier("migration");
+    batch.setCurrentState(ImportBatchEntity.State.RUNNING);
+    Mockito.doReturn(Optional.of(batch)).when(importBatchRepository)
+        .findByProductIdentifierAndIdentifier(PRODUCT_IDENTIFIER, "migration");
+    Mockito.doReturn(batch).when(importBatchRepository).findOne(BATCH_ID);
+    Mockito.doAnswer(invocation -> invocation.getArguments()[0])
+        .when(importBatchItemRepository).save(Matchers.any(ImportBatchItemEntity.class));
+
+    final CaseRepository caseRepository = Mockito.mock(CaseRepository.class);
+    Mockito.doAnswer(invocation -> invocation.getArguments()[0])
+        .when(caseRepository).save(Matchers.any(CaseEntity.class));
+
+    Mockito.doAnswer(invocation -> dataContexts.computeIfAbsent((String) invocation.getArguments()[1],
+        caseIdentifier -> dataContext(dataContexts.size() + 1L, caseIdentifier)))
+        .when(importActivationService)
+        .checkedGetImportableDataContext(Matchers.eq(PRODUCT_IDENTIFIER), Matchers.anyString(), Matchers.any(ImportParameters.class));
+    Mockito.doReturn(Collections.emptyList()).when(importActivationService)
+        .startLedgerCreations(Matchers.any(DataContextOfAction.class), Matchers.any(AccountIdentifierAllocator.class));
+    Mockito.doThrow(ServiceException.conflict("Account could not be created."))
+        .when(importActivationService)
+        .createAccounts(forCase("partlyCreated"), Matchers.anyMap(), Matchers.any(AccountIdentifierAllocator.class));
+    Mockito.doThrow(ServiceException.badRequest("Payment size missing."))
+        .when(importActivationService)
+        .activate(forCase("unactivatable"), Matchers.any(ImportParameters.class), Matchers.any());
+
+    final DataSource dataSource = Mockito.mock(DataSource.class);
+    final Connection connection = Mockito.mock(Connection.class);
+    final PreparedStatement preparedStatement = Mockito.mock(PreparedStatement.class);
+    Mockito.doReturn(connection).when(dataSource).getConnection();
+    Mockito.doReturn(preparedStatement).when(connection).prepareStatement(Matchers.anyString());
+    Mockito.doReturn(connection).when(preparedStatement).getConnection();
+
+    final PortfolioProperties portfolioProperties = new PortfolioProperties();
+    final NoOpTransactionManager transactionManager = new NoOpTransactionManager();
+    testSubject = new CaseImportService(
+        importBatchRepository,
+        importBatchItemRepository,
+        caseRepository,
+        Mockito.mock(CaseParametersRepository.class),
+        importActivationService,
+        accountingAdapter,
+        new CaseCommandGuard(portfolioProperties, transactionManager, Mockito.mock(Logger.class)),
+        dataSource,
+        portfolioProperties,
+        new Gson(),
+        transactionManager,
+        Mockito.mock(Logger.class));
+  }
+
+  @After
+  public void cleanup() {
+    testSubject.shutdown();
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+  }
+
+  @Test
+  public void casesOfAChunkAreActivatedOneAtATimeIfTogetherFails() {
+    final List<ImportBatchItemEntity> items = givenPendingItems("case1", "unactivatable", "case2");
+
+    submitAndAwaitFinish();
+
+    Assert.assertEquals(ImportResult.State.IMPORTED, items.get(0).getCurrentState());
+    Assert.assertEquals(ImportResult.State.FAILED, items.get(1).getCurrentState());
+    Assert.assertEquals("Payment size missing.", items.get(1).getMessage());
+    Assert.assertEquals(ImportResult.State.IMPORTED, items.get(2).getCurrentState());
+  }
+
+  @Test
+  public void ledgersOfAChunkAreAwaitedTogether() throws Exception {
+    givenPendingItems("case1", "case2", "case3");
+
+    submitAndAwaitFinish();
+
+    Mockito.verify(importActivationService, Mockito.times(3))
+        .startLedgerCreations(Matchers.any(DataContextOfAction.class), Matchers.any(AccountIdentifierAllocator.class));
+    Mockito.verify(accountingAdapter, Mockito.times(1)).awaitLedgerCreations(Matchers.anyCollection());
+  }
+
+  @Test
+  public void resumedImportContinuesFromTheStoredAccountAssignments() {
+    final List<ImportBatchItemEntity> items = givenPendingItems("accountsCreated", "case1");
+    items.get(0).setAccountAssignments("[]");
+
+    submitAndAwaitFinish();
+
+    Mockito.verify(importActivationService, Mockito.never())
+        .startLedgerCreations(forCase("accountsCreated"), Matchers.any(AccountIdentifierAllocator.class));
+    Mockito.verify(importActivationService, Mockito.never())
+        .createAccounts(forCase("accountsCreated"), Matchers.anyMap(), Matchers.any(AccountIdentifierAllocator.class));
+    Mockito.verify(importActivationService)
+        .activate(forCase("accountsCreated"), Matchers.any(ImportParameters.class), Matchers.any());
+    Assert.assertEquals(ImportResult.State.IMPORTED, items.get(0).getCurrentState());
+    Assert.assertEquals(ImportResult.State.IMPORTED, items.get(1).getCurrentState());
+    Assert.assertNotNull(items.get(1).getAccountAssignments());
+  }
+
+  @Test
+  public void failureAfterSomeAccountsWereCreatedOnlyFailsItsCase() {
+    final List<ImportBatchItemEntity> items = givenPendingItems("case1", "partlyCreated", "case2");
+
+    submitAndAwaitFinish();
+
+    Assert.assertEquals(ImportResult.State.FAILED, items.get(1).getCurrentState());
+    Assert.assertEquals("Account could not be created.", items.get(1).getMessage());
+    //Without stored account assignments, a retry creates the accounts of the case again.
+    Assert.assertNull(items.get(1).getAccountAssignments());
+    Mockito.verify(importActivationService, Mockito.never())
+        .activate(forCase("partlyCreated"), Matchers.any(ImportParameters.class), Matchers.any());
+    Assert.assertEquals(ImportResult.State.IMPORTED, items.get(0).getCurrentState());
+    Assert.assertEquals(ImportResult.State.IMPORTED, items.get(2).getCurrentState());
+  }
+
+  private List<ImportBatchItemEntity> givenPendingItems(final String... caseIdentifiers) {
+    final List<ImportBatchItemEntity> ret = new ArrayList<>();
+    for (int position = 0; position < caseIdentifiers.length; position++) {
+      final ImportBatchItemEntity item = new ImportBatchItemEntity();
+      item.setId(100L + position);
+      item.setBatchId(BATCH_ID);
+      item.setPosition(position);
+      item.setCaseIdentifier(caseIdentifiers[position]);
+      item.setImportParameters(new Gson().toJson(importParameters()));
+      item.setCurrentState(ImportResult.State.PENDING);
+      ret.add(item);
+    }
+    Mockito.doReturn(ret).when(importBatchItemRepository)
+        .findByBatchIdAndCurrentStateOrderByPositionAsc(BATCH_ID, ImportResult.State.PENDING);
+    return ret;
+  }
+
+  private void submitAndAwaitFinish() {
+    final ImportBatch importBatch = new ImportBatch();
+    importBatch.setIdentifier("migration");
+    importBatch.setImports(Collections.singletonList(new CaseImport()));
+    testSubject.submit(PRODUCT_IDENTIFIER, importBatch);
+
+    Mockito.verify(importBatchRepository, Mockito.timeout(5000)).save(batch);
+    Assert.assertEquals(ImportBatchEntity.State.FINISHED, batch.getCurrentState());
+  }
+
+  private static ImportParameters importParameters() {
+    final ImportParameters ret = new ImportParameters();
+    ret.setCaseAccountAssignments(Collections.emptyList());
+    ret.setCurrentBalances(Collections.emptyMap());
+    ret.setStartOfTerm("2017-03-01T00:00:00.000Z");
+    ret.setCreatedOn("2017-06-01T00:00:00.000Z");
+    return ret;
+  }
+
+  private static DataContextOfAction forCase(final String caseIdentifier) {
+    return Matchers.argThat(new ArgumentMatcher<DataContextOfAction>() {
+      @Override
+      public boolean matches(final Object argument) {
+        return argument != null &&
+            caseIdentifier.equals(((DataContextOfAction) argument).getCustomerCaseEntity().getIdentifier());
+      }
+    });
+  }
+
+  private static DataContextOfAction dataContext(final Long caseId, final String caseIdentifier) {
+    final ProductEntity product = new ProductEntity();
+    product.setIdentifier(PRODUCT_IDENTIFIER);
+    product.setAccountAssignments(Collections.emptySet());
+    final CaseEntity customerCase = new CaseEntity();
+    customerCase.setId(caseId);
+    customerCase.setIdentifier(caseIdentifier);
+    customerCase.setProductIdentifier(PRODUCT_IDENTIFIER);
+    customerCase.setAccountAssignments(new HashSet<>());
+    final CaseParametersEntity caseParameters = new CaseParametersEntity();
+    caseParameters.setCaseId(customerCase.getId());
+    return new DataContextOfAction(product, customerCase, caseParameters, null);
+  }
+}
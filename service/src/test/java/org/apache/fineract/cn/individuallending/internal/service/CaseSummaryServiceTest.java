@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseRepository;
+import org.apache.fineract.cn.individuallending.internal.service.costcomponent.SimulatedRunningBalances;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * @author Myrle Krantz
+ */
+public class CaseSummaryServiceTest {
+  private static final Long CASE_ID = 7L;
+
+  private CaseSummaryRepository caseSummaryRepository;
+  private LateCaseRepository lateCaseRepository;
+  private CaseCommandRepository caseCommandRepository;
+  private CaseSummaryService testSubject;
+
+  @Before
+  public void prepare() {
+    caseSummaryRepository = Mockito.mock(CaseSummaryRepository.class);
+    lateCaseRepository = Mockito.mock(LateCaseRepository.class);
+    caseCommandRepository = Mockito.mock(CaseCommandRepository.class);
+    Mockito.doReturn(Optional.empty()).when(caseSummaryRepository).findByCaseId(Matchers.anyLong());
+    Mockito.doReturn(Optional.empty()).when(lateCaseRepository).findByCaseId(Matchers.anyLong());
+    Mockito.doReturn(Collections.emptyList()).when(caseCommandRepository)
+        .findByActionNameAndCaseIdIn(Matchers.anyString(), Matchers.anyCollection());
+    testSubject = new CaseSummaryService(
+        caseSummaryRepository,
+        Mockito.mock(CaseRepository.class),
+        Mockito.mock(ProductRepository.class),
+        lateCaseRepository,
+        caseCommandRepository,
+        new RepaymentCalendarCache(),
+        Mockito.mock(PortfolioAtRiskService.class));
+  }
+
+  @Test
+  public void caseWithoutAccountsStartsFromZero() {
+    final Map<String, BigDecimal> balanceAdjustments = new HashMap<>();
+    balanceAdjustments.put(AccountDesignators.CUSTOMER_LOAN_FEES, BigDecimal.valueOf(-10));
+    balanceAdjustments.put(AccountDesignators.PROCESSING_FEE_INCOME, BigDecimal.valueOf(10));
+
+    testSubject.recordAction(dataContext(), new SimulatedRunningBalances(), balanceAdjustments,
+        Action.OPEN, "2017-03-01T00:00:00.000Z");
+
+    final CaseSummaryEntity saved = savedSummary();
+    Assert.assertEquals(CASE_ID, saved.getCaseId());
+    Assert.assertEquals(0, BigDecimal.ZERO.compareTo(saved.getPrincipalBalance()));
+    Assert.assertEquals(0, BigDecimal.ZERO.compareTo(saved.getInterestBalance()));
+    Assert.assertEquals(0, BigDecimal.valueOf(10).compareTo(saved.getFeesBalance()));
+    Assert.assertNull(saved.getNextDueDate());
+    Assert.assertNotNull(saved.getLastModifiedOn());
+  }
+
+  @Test
+  public void paymentReducesBalancesAndEndsLateness() {
+    final CaseSummaryEntity existing = givenSummary("1000", "20", "5");
+    existing.setLateSince(LocalDate.of(2017, 2, 20).atStartOfDay());
+
+    final Map<String, BigDecimal> balanceAdjustments = new HashMap<>();
+    balanceAdjustments.put(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, BigDecimal.valueOf(100));
+    balanceAdjustments.put(AccountDesignators.CUSTOMER_LOAN_INTEREST, BigDecimal.valueOf(20));
+    balanceAdjustments.put(AccountDesignators.ENTRY, BigDecimal.valueOf(-120));
+
+    testSubject.recordAction(dataContext(), new SimulatedRunningBalances(), balanceAdjustments,
+        Action.ACCEPT_PAYMENT, "2017-03-01T00:00:00.000Z");
+
+    final CaseSummaryEntity saved = savedSummary();
+    Assert.assertEquals(0, BigDecimal.valueOf(900).compareTo(saved.getPrincipalBalance()));
+    Assert.assertEquals(0, BigDecimal.ZERO.compareTo(saved.getInterestBalance()));
+    Assert.assertEquals(0, BigDecimal.valueOf(5).compareTo(saved.getFeesBalance()));
+    Assert.assertNull(saved.getLateSince());
+    Assert.assertEquals(LocalDate.of(2017, 3, 1), saved.getLastPaymentOn().toLocalDate());
+  }
+
+  @Test
+  public void markingLateKeepsTheFirstLateDate() {
+    final CaseSummaryEntity existing = givenSummary("1000", "0", "0");
+    testSubject.recordAction(dataContext(), new SimulatedRunningBalances(), Collections.emptyMap(),
+        Action.MARK_LATE, "2017-03-01T00:00:00.000Z");
+    testSubject.recordAction(dataContext(), new SimulatedRunningBalances(), Collections.emptyMap(),
+        Action.MARK_LATE, "2017-03-08T00:00:00.000Z");
+
+    Assert.assertEquals(LocalDate.of(2017, 3, 1), existing.getLateSince().toLocalDate());
+  }
+
+  @Test
+  public void onlyMissingSummariesAreRebuilt() {
+    Assert.assertTrue(testSubject.recordMissing(dataContext(), new SimulatedRunningBalances()));
+    final CaseSummaryEntity saved = savedSummary();
+    Assert.assertEquals(CASE_ID, saved.getCaseId());
+    Assert.assertEquals(0, BigDecimal.ZERO.compareTo(saved.getPrincipalBalance()));
+
+    givenSummary("1000", "0", "0");
+    Assert.assertFalse(testSubject.recordMissing(dataContext(), new SimulatedRunningBalances()));
+    Mockito.verify(caseSummaryRepository, Mockito.times(1)).save(Matchers.any(CaseSummaryEntity.class));
+  }
+
+  @Test
+  public void importStartsFromImportedBalances() {
+    final Map<String, BigDecimal> currentBalances = new HashMap<>();
+    currentBalances.put(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, BigDecimal.valueOf(500));
+    currentBalances.put(AccountDesignators.ENTRY, BigDecimal.valueOf(1000));
+
+    testSubject.recordImport(dataContext(), currentBalances, "2017-03-01T00:00:00.000Z");
+
+    final CaseSummaryEntity saved = savedSummary();
+    Assert.assertEquals(0, BigDecimal.valueOf(500).compareTo(saved.getPrincipalBalance()));
+    Assert.assertEquals(0, BigDecimal.ZERO.compareTo(saved.getInterestBalance()));
+  }
+
+  private CaseSummaryEntity givenSummary(final String principal, final String interest, final String fees) {
+    final CaseSummaryEntity ret = new CaseSummaryEntity();
+    ret.setCaseId(CASE_ID);
+    ret.setPrincipalBalance(new BigDecimal(principal));
+    ret.setInterestBalance(new BigDecimal(interest));
+    ret.setFeesBalance(new BigDecimal(fees));
+    Mockito.doReturn(Optional.of(ret)).when(caseSummaryRepository).findByCaseId(CASE_ID);
+    return ret;
+  }
+
+  private CaseSummaryEntity savedSummary() {
+    final ArgumentCaptor<CaseSummaryEntity> saved = ArgumentCaptor.forClass(CaseSummaryEntity.class);
+    Mockito.verify(caseSummaryRepository).save(saved.capture());
+    return saved.getValue();
+  }
+
+  private static DataContextOfAction dataContext() {
+    final ProductEntity product = new ProductEntity();
+    product.setIdentifier("product");
+    product.setAccountAssignments(Collections.emptySet());
+    final CaseEntity customerCase = new CaseEntity();
+    customerCase.setId(CASE_ID);
+    customerCase.setIdentifier("case");
+    customerCase.setCurrentState(Case.State.CREATED.name());
+    customerCase.setAccountAssignments(Collections.emptySet());
+    final CaseParametersEntity caseParameters = new CaseParametersEntity();
+    caseParameters.setCaseId(CASE_ID);
+    return new DataContextOfAction(product, customerCase, caseParameters, null);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.ChargeIdentifiers;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
+import org.apache.fineract.cn.portfolio.service.internal.service.ConfigurableChargeDefinitionService;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * @author Myrle Krantz
+ */
+public class ChargeDefinitionServiceTest {
+  private static final String PRODUCT_IDENTIFIER = "product";
+
+  private ConfigurableChargeDefinitionService configurableChargeDefinitionService;
+  private ChargeDefinitionVersions chargeDefinitionVersions;
+  private ChargeDefinitionService testSubject;
+
+  @Before
+  public void prepare() {
+    TenantContextHolder.setIdentifier("tenant");
+    configurableChargeDefinitionService = Mockito.mock(ConfigurableChargeDefinitionService.class);
+    Mockito.when(configurableChargeDefinitionService.findAllEntities(PRODUCT_IDENTIFIER))
+        .thenAnswer(invocation -> ChargeDefinitionService.defaultConfigurableIndividualLoanCharges());
+    chargeDefinitionVersions = new ChargeDefinitionVersions();
+    testSubject = new ChargeDefinitionService(configurableChargeDefinitionService, chargeDefinitionVersions);
+  }
+
+  @After
+  public void cleanup() {
+    TenantContextHolder.clear();
+  }
+
+  @Test
+  public void chargeDefinitionsAreReadOnceUntilTheyChange() {
+    final Map<String, List<ChargeDefinition>> first
+        = testSubject.getChargeDefinitionsMappedByChargeAction(PRODUCT_IDENTIFIER);
+    final Map<String, List<ChargeDefinition>> second
+        = testSubject.getChargeDefinitionsMappedByChargeAction(PRODUCT_IDENTIFIER);
+    testSubject.getChargeDefinitionsMappedByAccrueAction(PRODUCT_IDENTIFIER);
+    Assert.assertSame(first, second);
+    Mockito.verify(configurableChargeDefinitionService, Mockito.times(1)).findAllEntities(PRODUCT_IDENTIFIER);
+
+    chargeDefinitionVersions.changed(PRODUCT_IDENTIFIER);
+    final Map<String, List<ChargeDefinition>> third
+        = testSubject.getChargeDefinitionsMappedByChargeAction(PRODUCT_IDENTIFIER);
+    Assert.assertNotSame(first, third);
+    Assert.assertEquals(first.keySet(), third.keySet());
+    Mockito.verify(configurableChargeDefinitionService, Mockito.times(2)).findAllEntities(PRODUCT_IDENTIFIER);
+  }
+
+  @Test
+  public void chargeDefinitionsAreInProportionalityApplicationOrder() {
+    final List<String> disburseCharges = testSubject.getChargeDefinitionsMappedByChargeAction(PRODUCT_IDENTIFIER)
+        .get(Action.DISBURSE.name()).stream()
+        .map(ChargeDefinition::getIdentifier)
+        .collect(Collectors.toList());
+
+    //Charges proportional to the maximum balance come before those proportional to the requested disbursement.
+    Assert.assertEquals(Arrays.asList(
+        ChargeIdentifiers.LOAN_ORIGINATION_FEE_ID,
+        ChargeIdentifiers.PROCESSING_FEE_ID,
+        ChargeIdentifiers.DISBURSE_PAYMENT_ID,
+        ChargeIdentifiers.DISBURSEMENT_FEE_ID), disburseCharges);
+  }
+
+  @Test
+  public void accrueActionsOnlyContainChargesWhichAccrue() {
+    testSubject.getChargeDefinitionsMappedByAccrueAction(PRODUCT_IDENTIFIER).values().stream()
+        .flatMap(List::stream)
+        .forEach(x -> Assert.assertNotNull(x.getAccrueAction()));
+  }
+}
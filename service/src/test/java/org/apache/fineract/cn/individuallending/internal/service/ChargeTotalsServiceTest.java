@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseParametersEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeDayTotalEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeDayTotalRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeTotalEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.ChargeTotalRepository;
+import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * @author Myrle Krantz
+ */
+public class ChargeTotalsServiceTest {
+  private static final Long CASE_ID = 7L;
+
+  private ChargeTotalRepository chargeTotalRepository;
+  private ChargeDayTotalRepository chargeDayTotalRepository;
+  private ChargeTotalsService testSubject;
+
+  @Before
+  public void prepare() {
+    chargeTotalRepository = Mockito.mock(ChargeTotalRepository.class);
+    Mockito.doReturn(Optional.empty()).when(chargeTotalRepository)
+        .findByCaseIdAndDesignatorAndActionName(Matchers.anyLong(), Matchers.anyString(), Matchers.anyString());
+    chargeDayTotalRepository = Mockito.mock(ChargeDayTotalRepository.class);
+    Mockito.doReturn(Optional.empty()).when(chargeDayTotalRepository).findByCaseIdAndDesignatorAndActionNameAndBookedOn(
+        Matchers.anyLong(), Matchers.anyString(), Matchers.anyString(), Matchers.any());
+    testSubject = new ChargeTotalsService(chargeTotalRepository, chargeDayTotalRepository);
+  }
+
+  @Test
+  public void completeCaseWithoutBookingsHasNothingBooked() {
+    final Optional<BigDecimal> result = testSubject.findTotalSince(
+        dataContext(true), AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 1, 1));
+    Assert.assertEquals(Optional.of(BigDecimal.ZERO), result);
+  }
+
+  @Test
+  public void incompleteCaseWithoutTotalMustAskAccounting() {
+    final Optional<BigDecimal> result = testSubject.findTotalSince(
+        dataContext(false), AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 1, 1));
+    Assert.assertFalse(result.isPresent());
+  }
+
+  @Test
+  public void seededTotalIsOnlyValidForTheDateItWasSeededFor() {
+    givenTotal(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, "150.00", LocalDate.of(2017, 2, 1));
+    final DataContextOfAction dataContextOfAction = dataContext(false);
+
+    Assert.assertEquals(Optional.of(new BigDecimal("150.00")), testSubject.findTotalSince(
+        dataContextOfAction, AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 2, 1)));
+    Assert.assertFalse(testSubject.findTotalSince(
+        dataContextOfAction, AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 1, 1)).isPresent());
+    Assert.assertFalse(testSubject.findTotalSince(
+        dataContextOfAction, AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 3, 1)).isPresent());
+  }
+
+  @Test
+  public void completeTotalIsValidForEarlierDates() {
+    givenTotal(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, "150.00", LocalDate.of(2017, 2, 1));
+    final DataContextOfAction dataContextOfAction = dataContext(true);
+
+    Assert.assertEquals(Optional.of(new BigDecimal("150.00")), testSubject.findTotalSince(
+        dataContextOfAction, AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 1, 1)));
+    Assert.assertFalse(testSubject.findTotalSince(
+        dataContextOfAction, AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 3, 1)).isPresent());
+  }
+
+  @Test
+  public void totalCountedByDayIsValidForLaterDates() {
+    final ChargeTotalEntity chargeTotal
+        = givenTotal(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, "150.00", LocalDate.of(2017, 2, 1));
+    chargeTotal.setCountedByDaySince(LocalDate.of(2017, 2, 1).atStartOfDay());
+    Mockito.doReturn(new BigDecimal("50.0000")).when(chargeDayTotalRepository).sumSince(
+        CASE_ID, AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT.name(), LocalDate.of(2017, 3, 1).atStartOfDay());
+
+    Assert.assertEquals(Optional.of(new BigDecimal("50.00")), testSubject.findTotalSince(
+        dataContext(true), AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 3, 1)));
+    Assert.assertEquals(Optional.of(BigDecimal.ZERO.setScale(2)), testSubject.findTotalSince(
+        dataContext(true), AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 4, 1)));
+  }
+
+  @Test
+  public void totalIsRoundedToTheDigitsOfTheCurrency() {
+    givenTotal(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, "0.1051", LocalDate.of(2017, 2, 1));
+
+    Assert.assertEquals(Optional.of(new BigDecimal("0.11")), testSubject.findTotalSince(
+        dataContext(true), AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, LocalDate.of(2017, 2, 1)));
+  }
+
+  @Test
+  public void bookingIsAddedPerAccount() {
+    final ChargeTotalEntity existingTotal
+        = givenTotal(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, "100.00", LocalDate.of(2017, 2, 1));
+
+    final Map<String, BigDecimal> balanceAdjustments = new HashMap<>();
+    balanceAdjustments.put(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, BigDecimal.valueOf(50));
+    balanceAdjustments.put(AccountDesignators.CUSTOMER_LOAN_INTEREST, BigDecimal.valueOf(5));
+    balanceAdjustments.put(AccountDesignators.ENTRY, BigDecimal.valueOf(-55));
+
+    testSubject.recordBooking(dataContext(true), balanceAdjustments, mapper(), Action.ACCEPT_PAYMENT, "2017-03-01T00:00:00.000Z");
+
+    final ArgumentCaptor<ChargeTotalEntity> savedTotals = ArgumentCaptor.forClass(ChargeTotalEntity.class);
+    Mockito.verify(chargeTotalRepository, Mockito.times(3)).save(savedTotals.capture());
+
+    Assert.assertEquals(0, BigDecimal.valueOf(150).compareTo(existingTotal.getTotal()));
+    Assert.assertEquals(LocalDate.of(2017, 2, 1), existingTotal.getCountedSince().toLocalDate());
+    //Principal and interest share an account, so each is counted with the amount accounting would show for them.
+    final ChargeTotalEntity interestTotal = savedTotals.getAllValues().stream()
+        .filter(x -> x.getDesignator().equals(AccountDesignators.CUSTOMER_LOAN_INTEREST))
+        .findAny()
+        .orElseThrow(IllegalStateException::new);
+    Assert.assertEquals(0, BigDecimal.valueOf(55).compareTo(interestTotal.getTotal()));
+    Assert.assertEquals(LocalDate.of(2017, 3, 1), interestTotal.getCountedSince().toLocalDate());
+    Assert.assertEquals(LocalDate.of(2017, 3, 1), interestTotal.getCountedByDaySince().toLocalDate());
+
+    //The total which existed before day totals were counted has none.
+    final ArgumentCaptor<ChargeDayTotalEntity> savedDayTotals = ArgumentCaptor.forClass(ChargeDayTotalEntity.class);
+    Mockito.verify(chargeDayTotalRepository, Mockito.times(2)).save(savedDayTotals.capture());
+    Assert.assertFalse(savedDayTotals.getAllValues().stream()
+        .anyMatch(x -> x.getDesignator().equals(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL)));
+  }
+
+  @Test
+  public void bookingIsIgnoredForIncompleteCaseWithoutTotal() {
+    final Map<String, BigDecimal> balanceAdjustments = new HashMap<>();
+    balanceAdjustments.put(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, BigDecimal.valueOf(50));
+    balanceAdjustments.put(AccountDesignators.ENTRY, BigDecimal.valueOf(-50));
+
+    testSubject.recordBooking(dataContext(false), balanceAdjustments, mapper(), Action.ACCEPT_PAYMENT, "2017-03-01T00:00:00.000Z");
+
+    Mockito.verify(chargeTotalRepository, Mockito.never()).save(Matchers.any(ChargeTotalEntity.class));
+  }
+
+  @Test
+  public void seedingInsertsOnlyIfNoTotalWasSeededInTheMeantime() {
+    testSubject.seedTotal(dataContext(false), AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT,
+        LocalDate.of(2017, 2, 1), new BigDecimal("150.00"));
+
+    Mockito.verify(chargeTotalRepository).insertIfAbsent(CASE_ID, AccountDesignators.CUSTOMER_LOAN_PRINCIPAL,
+        Action.ACCEPT_PAYMENT.name(), new BigDecimal("150.00"), Timestamp.valueOf(LocalDate.of(2017, 2, 1).atStartOfDay()));
+    Mockito.verify(chargeTotalRepository, Mockito.never()).save(Matchers.any(ChargeTotalEntity.class));
+  }
+
+  @Test
+  public void seedingReplacesOnlyTotalsCountedFromALaterDate() {
+    final ChargeTotalEntity existingTotal
+        = givenTotal(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT, "100.00", LocalDate.of(2017, 2, 1));
+
+    testSubject.seedTotal(dataContext(false), AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT,
+        LocalDate.of(2017, 3, 1), new BigDecimal("50.00"));
+    Mockito.verify(chargeTotalRepository, Mockito.never()).save(Matchers.any(ChargeTotalEntity.class));
+
+    testSubject.seedTotal(dataContext(false), AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, Action.ACCEPT_PAYMENT,
+        LocalDate.of(2017, 1, 1), new BigDecimal("150.00"));
+    Mockito.verify(chargeTotalRepository).save(existingTotal);
+    Assert.assertEquals(new BigDecimal("150.00"), existingTotal.getTotal());
+    Assert.assertEquals(LocalDate.of(2017, 1, 1), existingTotal.getCountedSince().toLocalDate());
+    Mockito.verify(chargeTotalRepository, Mockito.never()).insertIfAbsent(
+        Matchers.anyLong(), Matchers.anyString(), Matchers.anyString(), Matchers.any(), Matchers.any());
+  }
+
+  private ChargeTotalEntity givenTotal(
+      final String accountDesignator,
+      final Action action,
+      final String total,
+      final LocalDate countedSince) {
+    final ChargeTotalEntity ret = new ChargeTotalEntity();
+    ret.setCaseId(CASE_ID);
+    ret.setDesignator(accountDesignator);
+    ret.setActionName(action.name());
+    ret.setTotal(new BigDecimal(total));
+    ret.setCountedSince(countedSince.atStartOfDay());
+    Mockito.doReturn(Optional.of(ret)).when(chargeTotalRepository)
+        .findByCaseIdAndDesignatorAndActionName(CASE_ID, accountDesignator, action.name());
+    return ret;
+  }
+
+  private static DataContextOfAction dataContext(final boolean chargeTotalsComplete) {
+    final ProductEntity product = new ProductEntity();
+    product.setIdentifier("product");
+    product.setMinorCurrencyUnitDigits(2);
+    final CaseEntity customerCase = new CaseEntity();
+    customerCase.setId(CASE_ID);
+    customerCase.setIdentifier("case");
+    final CaseParametersEntity caseParameters = new CaseParametersEntity();
+    caseParameters.setCaseId(CASE_ID);
+    caseParameters.setChargeTotalsComplete(chargeTotalsComplete);
+    return new DataContextOfAction(product, customerCase, caseParameters, null);
+  }
+
+  private static DesignatorToAccountIdentifierMapper mapper() {
+    return new DesignatorToAccountIdentifierMapper(
+        Collections.emptySet(),
+        Collections.emptySet(),
+        Arrays.asList(
+            new AccountAssignment(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, "loan"),
+            new AccountAssignment(AccountDesignators.CUSTOMER_LOAN_INTEREST, "loan"),
+            new AccountAssignment(AccountDesignators.ENTRY, "entry")));
+  }
+}
@@ -42,13 +42,12 @@ public class DefaultChargeDefinitionsMocker {
 
 
     final ChargeDefinitionService configurableChargeDefinitionServiceMock = Mockito.mock(ChargeDefinitionService.class);
-    final Map<String, List<ChargeDefinition>> chargeDefinitionsByChargeAction = defaultChargesWithFeesReplaced.stream()
-        .collect(Collectors.groupingBy(ChargeDefinition::getChargeAction,
-            Collectors.mapping(x -> x, Collectors.toList())));
-    final Map<String, List<ChargeDefinition>> chargeDefinitionsByAccrueAction = defaultChargesWithFeesReplaced.stream()
-        .filter(x -> x.getAccrueAction() != null)
-        .collect(Collectors.groupingBy(ChargeDefinition::getAccrueAction,
-            Collectors.mapping(x -> x, Collectors.toList())));
+    //Grouped and ordered the way the service does it, since the scheduled charges rely on the order.
+    final ChargeDefinitionTable chargeDefinitionTable = new ChargeDefinitionTable("product", 0, defaultChargesWithFeesReplaced);
+    final Map<String, List<ChargeDefinition>> chargeDefinitionsByChargeAction
+        = chargeDefinitionTable.getChargeDefinitionsMappedByChargeAction();
+    final Map<String, List<ChargeDefinition>> chargeDefinitionsByAccrueAction
+        = chargeDefinitionTable.getChargeDefinitionsMappedByAccrueAction();
     Mockito.doReturn(chargeDefinitionsByChargeAction).when(configurableChargeDefinitionServiceMock).getChargeDefinitionsMappedByChargeAction(Mockito.any());
     Mockito.doReturn(chargeDefinitionsByAccrueAction).when(configurableChargeDefinitionServiceMock).getChargeDefinitionsMappedByAccrueAction(Mockito.any());
 
@@ -26,6 +26,8 @@ import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDes
 import org.apache.fineract.cn.individuallending.api.v1.domain.product.ChargeIdentifiers;
 import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
 import org.apache.fineract.cn.individuallending.internal.mapper.CaseParametersMapper;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.BalanceSegmentIndexCache;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.RepaymentCalendarCache;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledAction;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledActionHelpers;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledCharge;
@@ -34,14 +36,15 @@ import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
 import org.apache.fineract.cn.portfolio.api.v1.domain.CostComponent;
 import org.apache.fineract.cn.portfolio.api.v1.domain.PaymentCycle;
 import org.apache.fineract.cn.portfolio.api.v1.domain.TermRange;
-import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentRepository;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
 import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
+import org.apache.fineract.cn.lang.TenantContextHolder;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
-import org.mockito.Matchers;
 import org.mockito.Mockito;
 
 import java.math.BigDecimal;
@@ -265,12 +268,15 @@ public class IndividualLoanServiceTest {
   {
     this.testCase = testCase;
 
-    final BalanceSegmentRepository balanceSegmentRepositoryMock = Mockito.mock(BalanceSegmentRepository.class);
-    Mockito.doReturn(Stream.empty()).when(balanceSegmentRepositoryMock).findByProductIdentifierAndSegmentSetIdentifier(Matchers.anyString(), Matchers.anyString());
+    final BalanceSegmentIndexCache balanceSegmentIndexCacheMock = Mockito.mock(BalanceSegmentIndexCache.class);
 
-    scheduledChargesService = new ScheduledChargesService(DefaultChargeDefinitionsMocker.getChargeDefinitionService(testCase.chargeDefinitions), balanceSegmentRepositoryMock);
+    scheduledChargesService = new ScheduledChargesService(DefaultChargeDefinitionsMocker.getChargeDefinitionService(testCase.chargeDefinitions), balanceSegmentIndexCacheMock);
 
-    testSubject = new IndividualLoanService(scheduledChargesService);
+    testSubject = new IndividualLoanService(
+        scheduledChargesService,
+        new RepaymentCalendarCache(),
+        new PlannedPaymentScheduleCache(new PortfolioProperties()),
+        Mockito.mock(ChargeDefinitionVersions.class));
   }
 
   @Test
@@ -375,6 +381,36 @@ public class IndividualLoanServiceTest {
     Assert.assertEquals(testCase.expectedChargeIdentifiers, resultChargeIdentifiers);
   }
 
+  @Test
+  public void pagesOfACachedScheduleAreThoseOfAFreshSchedule() {
+    final int pageSize = 3;
+    final DataContextOfAction persistedCase = testCase.getDataContextOfAction();
+    persistedCase.getCustomerCaseEntity().setId(1L);
+
+    TenantContextHolder.setIdentifier("tenant");
+    try {
+      final int totalPages = testSubject.getPlannedPaymentsPage(persistedCase,
+          new IndividualLoanService.PlannedPaymentWindow(0, pageSize, Optional.of(testCase.initialDisbursementDate)))
+          .getTotalPages();
+
+      //The last page first, then all of them, so that pages are taken both from a partial and a complete schedule.
+      final List<Integer> pageIndexes = new ArrayList<>();
+      pageIndexes.add(totalPages - 1);
+      Stream.iterate(0, x -> x + 1).limit(totalPages).forEach(pageIndexes::add);
+      pageIndexes.forEach(pageIndex -> {
+        final PlannedPaymentPage cachedPage = testSubject.getPlannedPaymentsPage(persistedCase,
+            new IndividualLoanService.PlannedPaymentWindow(pageIndex, pageSize, Optional.of(testCase.initialDisbursementDate)));
+        final PlannedPaymentPage freshPage = testSubject.getPlannedPaymentsPage(testCase.getDataContextOfAction(),
+            new IndividualLoanService.PlannedPaymentWindow(pageIndex, pageSize, Optional.of(testCase.initialDisbursementDate)));
+        Assert.assertEquals("Page " + pageIndex, freshPage.getElements(), cachedPage.getElements());
+        Assert.assertEquals(freshPage.getTotalElements(), cachedPage.getTotalElements());
+      });
+    }
+    finally {
+      TenantContextHolder.clear();
+    }
+  }
+
   private BigDecimal getBalanceForPayment(
       final List<PlannedPayment> allPlannedPayments,
       final String accountDesignator,
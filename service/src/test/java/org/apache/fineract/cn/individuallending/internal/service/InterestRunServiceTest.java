@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.individuallending.api.v1.events.IndividualLoanCommandEvent;
+import org.apache.fineract.cn.individuallending.internal.command.ApplyInterestCommand;
+import org.apache.fineract.cn.individuallending.internal.repository.InterestRunPartitionEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.InterestRunPartitionRepository;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.apache.fineract.cn.command.gateway.CommandGateway;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @author Myrle Krantz
+ */
+public class InterestRunServiceTest {
+  private final LocalDateTime forTime = LocalDateTime.of(2017, 11, 3, 0, 0);
+  private CaseRepository caseRepositoryMock;
+  private CaseCommandRepository caseCommandRepositoryMock;
+  private InterestRunPartitionRepository interestRunPartitionRepositoryMock;
+  private CommandGateway commandGatewayMock;
+  private InterestRunService testSubject;
+
+  @Before
+  public void prepare() {
+    caseRepositoryMock = Mockito.mock(CaseRepository.class);
+    caseCommandRepositoryMock = Mockito.mock(CaseCommandRepository.class);
+    commandGatewayMock = Mockito.mock(CommandGateway.class);
+    interestRunPartitionRepositoryMock = Mockito.mock(InterestRunPartitionRepository.class);
+    final PortfolioProperties portfolioProperties = new PortfolioProperties();
+    portfolioProperties.setInterestRunPartitionSize(3);
+
+    testSubject = new InterestRunService(
+        caseRepositoryMock,
+        caseCommandRepositoryMock,
+        interestRunPartitionRepositoryMock,
+        portfolioProperties,
+        commandGatewayMock,
+        new NoOpTransactionManager(),
+        Mockito.mock(Logger.class));
+  }
+
+  @Test
+  public void planPartitionsCoversAllCaseIdsInContiguousRanges() {
+    Mockito.doReturn(Collections.emptyList()).when(interestRunPartitionRepositoryMock).findByForTimeOrderByLowerCaseId(forTime);
+    Mockito.doReturn(Arrays.asList(1L, 2L, 5L)).when(caseRepositoryMock)
+        .findIdsByCurrentStateInAndIdGreaterThan(Mockito.anyCollection(), Mockito.eq(0L), Mockito.any(Pageable.class));
+    Mockito.doReturn(Arrays.asList(7L, 9L, 11L)).when(caseRepositoryMock)
+        .findIdsByCurrentStateInAndIdGreaterThan(Mockito.anyCollection(), Mockito.eq(5L), Mockito.any(Pageable.class));
+    Mockito.doReturn(Collections.singletonList(12L)).when(caseRepositoryMock)
+        .findIdsByCurrentStateInAndIdGreaterThan(Mockito.anyCollection(), Mockito.eq(11L), Mockito.any(Pageable.class));
+
+    testSubject.planPartitions(forTime);
+
+    @SuppressWarnings("unchecked")
+    final ArgumentCaptor<Iterable> savedPartitions = ArgumentCaptor.forClass(Iterable.class);
+    Mockito.verify(interestRunPartitionRepositoryMock).save(savedPartitions.capture());
+    final List<InterestRunPartitionEntity> partitions = new ArrayList<>();
+    //noinspection unchecked
+    savedPartitions.getValue().forEach(x -> partitions.add((InterestRunPartitionEntity) x));
+
+    Assert.assertEquals(3, partitions.size());
+    Assert.assertEquals(Long.valueOf(1L), partitions.get(0).getLowerCaseId());
+    Assert.assertEquals(Long.valueOf(5L), partitions.get(0).getUpperCaseId());
+    Assert.assertEquals(Long.valueOf(6L), partitions.get(1).getLowerCaseId());
+    Assert.assertEquals(Long.valueOf(11L), partitions.get(1).getUpperCaseId());
+    Assert.assertEquals(Long.valueOf(12L), partitions.get(2).getLowerCaseId());
+    Assert.assertEquals(Long.valueOf(Long.MAX_VALUE), partitions.get(2).getUpperCaseId());
+    Assert.assertEquals(Integer.valueOf(1), partitions.get(2).getCaseCount());
+    partitions.forEach(x -> {
+      Assert.assertEquals(forTime, x.getForTime());
+      Assert.assertEquals(InterestRunPartitionEntity.State.PENDING, x.getCurrentState());
+    });
+  }
+
+  @Test
+  public void planPartitionsDoesNotReplanAResumedRun() {
+    final InterestRunPartitionEntity existingPartition = new InterestRunPartitionEntity();
+    existingPartition.setForTime(forTime);
+    existingPartition.setCurrentState(InterestRunPartitionEntity.State.FINISHED);
+    Mockito.doReturn(Collections.singletonList(existingPartition)).when(interestRunPartitionRepositoryMock)
+        .findByForTimeOrderByLowerCaseId(forTime);
+
+    testSubject.planPartitions(forTime);
+
+    Mockito.verifyZeroInteractions(caseRepositoryMock);
+    Mockito.verify(interestRunPartitionRepositoryMock, Mockito.never()).save(Mockito.anyListOf(InterestRunPartitionEntity.class));
+  }
+
+  @Test
+  public void runPartitionWaitsForCommandsOutsideOfTransactions() {
+    final InterestRunPartitionEntity partition = givenPartitionOfThreeCases(Collections.singleton(1L));
+    final List<String> interestAppliedTo = new ArrayList<>();
+    final List<Boolean> transactionActiveWhileWaiting = new ArrayList<>();
+    givenInterestFailsFor("case3", interestAppliedTo, transactionActiveWhileWaiting);
+
+    testSubject.runPartition(3L);
+
+    Assert.assertEquals(Arrays.asList(false, false), transactionActiveWhileWaiting);
+    Assert.assertEquals(Arrays.asList("case2", "case3"), interestAppliedTo);
+    Assert.assertEquals(Integer.valueOf(3), partition.getCaseCount());
+    Assert.assertEquals(Integer.valueOf(2), partition.getProcessedCount());
+    Assert.assertEquals(Integer.valueOf(1), partition.getFailedCount());
+    //The failed case is retried on the next run.
+    Assert.assertEquals(InterestRunPartitionEntity.State.PENDING, partition.getCurrentState());
+    Assert.assertNull(partition.getFinishedOn());
+  }
+
+  @Test
+  public void runPartitionRetriesOnlyTheCasesWithoutInterestAndFinishes() {
+    final InterestRunPartitionEntity partition = givenPartitionOfThreeCases(new HashSet<>(Arrays.asList(1L, 2L)));
+    final List<String> interestAppliedTo = new ArrayList<>();
+    givenInterestFailsFor("none", interestAppliedTo, new ArrayList<>());
+
+    testSubject.runPartition(3L);
+
+    Assert.assertEquals(Collections.singletonList("case3"), interestAppliedTo);
+    Assert.assertEquals(Integer.valueOf(3), partition.getProcessedCount());
+    Assert.assertEquals(Integer.valueOf(0), partition.getFailedCount());
+    Assert.assertEquals(InterestRunPartitionEntity.State.FINISHED, partition.getCurrentState());
+    Assert.assertNotNull(partition.getFinishedOn());
+  }
+
+  private InterestRunPartitionEntity givenPartitionOfThreeCases(final Set<Long> alreadyApplied) {
+    final InterestRunPartitionEntity ret = new InterestRunPartitionEntity();
+    ret.setId(3L);
+    ret.setForTime(forTime);
+    ret.setLowerCaseId(1L);
+    ret.setUpperCaseId(Long.MAX_VALUE);
+    ret.setCurrentState(InterestRunPartitionEntity.State.PENDING);
+    Mockito.doReturn(ret).when(interestRunPartitionRepositoryMock).findOne(3L);
+    Mockito.doReturn(alreadyApplied).when(caseCommandRepositoryMock)
+        .findCaseIdsByActionNameAndCreatedOnAndCaseIdBetween(Action.APPLY_INTEREST.name(), forTime, 1L, Long.MAX_VALUE);
+    Mockito.doReturn(Arrays.asList(activeCase(1L), activeCase(2L), activeCase(3L))).when(caseRepositoryMock)
+        .findByCurrentStateInAndIdBetweenOrderByIdAsc(Mockito.anyCollection(), Mockito.eq(1L), Mockito.eq(Long.MAX_VALUE));
+    return ret;
+  }
+
+  private void givenInterestFailsFor(
+      final String failingCaseIdentifier,
+      final List<String> interestAppliedTo,
+      final List<Boolean> transactionActiveWhileWaiting) {
+    Mockito.doAnswer(invocation -> {
+      final ApplyInterestCommand command = (ApplyInterestCommand) invocation.getArguments()[0];
+      interestAppliedTo.add(command.getCaseIdentifier());
+      transactionActiveWhileWaiting.add(TransactionSynchronizationManager.isActualTransactionActive());
+      final CompletableFuture<IndividualLoanCommandEvent> ret = new CompletableFuture<>();
+      if (command.getCaseIdentifier().equals(failingCaseIdentifier))
+        ret.completeExceptionally(new IllegalStateException("Interest could not be applied."));
+      else
+        ret.complete(new IndividualLoanCommandEvent(command.getProductIdentifier(), command.getCaseIdentifier(), command.getForTime()));
+      return ret;
+    }).when(commandGatewayMock).process(Mockito.any(ApplyInterestCommand.class), Mockito.eq(IndividualLoanCommandEvent.class));
+  }
+
+  private static CaseEntity activeCase(final Long caseId) {
+    final CaseEntity ret = new CaseEntity();
+    ret.setId(caseId);
+    ret.setProductIdentifier("product");
+    ret.setIdentifier("case" + caseId);
+    return ret;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.internal.service.schedule.Period;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Myrle Krantz
+ */
+public class LatenessCheckServiceTest {
+  private final List<Period> repaymentPeriods = Arrays.asList(
+      new Period(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 2, 1)),
+      new Period(LocalDate.of(2017, 2, 1), LocalDate.of(2017, 3, 1)),
+      new Period(LocalDate.of(2017, 3, 1), LocalDate.of(2017, 4, 1), true));
+
+  @Test
+  public void neverCheckedCaseIsAlwaysChecked() {
+    Assert.assertTrue(LatenessCheckService.repaymentFellDueSince(repaymentPeriods, null));
+    Assert.assertTrue(LatenessCheckService.repaymentFellDueSince(
+        Collections.singletonList(new Period(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 2, 1), true)), null));
+  }
+
+  @Test
+  public void repaymentDueOnDayOfLastCheckIsNotMissed() {
+    Assert.assertTrue(LatenessCheckService.repaymentFellDueSince(repaymentPeriods, LocalDateTime.of(2017, 3, 1, 0, 0)));
+  }
+
+  @Test
+  public void noRepaymentDueSinceLastCheck() {
+    Assert.assertFalse(LatenessCheckService.repaymentFellDueSince(repaymentPeriods, LocalDateTime.of(2017, 3, 2, 0, 0)));
+  }
+
+  @Test
+  public void beginningOfTermIsNotARepayment() {
+    Assert.assertFalse(LatenessCheckService.repaymentFellDueSince(
+        Collections.singletonList(new Period(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 2, 1), true)),
+        LocalDateTime.of(2016, 12, 1, 0, 0)));
+  }
+}
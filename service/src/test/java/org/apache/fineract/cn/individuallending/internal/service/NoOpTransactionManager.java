@@ -16,40 +16,30 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-package org.apache.fineract.cn.individuallending.internal.command;
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
 
 /**
  * @author Myrle Krantz
  */
-public class CheckLateCommand {
-  private final String productIdentifier;
-  private final String caseIdentifier;
-  private final String forTime;
-
-  public CheckLateCommand(String productIdentifier, String caseIdentifier, String forTime) {
-    this.productIdentifier = productIdentifier;
-    this.caseIdentifier = caseIdentifier;
-    this.forTime = forTime;
-  }
-
-  public String getProductIdentifier() {
-    return productIdentifier;
+class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+  @Override
+  protected Object doGetTransaction() {
+    return new Object();
   }
 
-  public String getCaseIdentifier() {
-    return caseIdentifier;
+  @Override
+  protected void doBegin(final Object transaction, final TransactionDefinition definition) {
   }
 
-  public String getForTime() {
-    return forTime;
+  @Override
+  protected void doCommit(final DefaultTransactionStatus status) {
   }
 
   @Override
-  public String toString() {
-    return "CheckLateCommand{" +
-        "productIdentifier='" + productIdentifier + '\'' +
-        ", caseIdentifier='" + caseIdentifier + '\'' +
-        ", forTime='" + forTime + '\'' +
-        '}';
+  protected void doRollback(final DefaultTransactionStatus status) {
   }
 }
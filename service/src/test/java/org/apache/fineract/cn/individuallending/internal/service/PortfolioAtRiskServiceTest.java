@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.PortfolioAtRiskBucket;
+import org.apache.fineract.cn.individuallending.internal.repository.AtRiskCaseEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.AtRiskCaseRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.CaseSummaryRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.LateCaseRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.PortfolioAgingEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.PortfolioAgingRepository;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Case;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductRepository;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * @author Myrle Krantz
+ */
+public class PortfolioAtRiskServiceTest {
+  private static final Long PRODUCT_ID = 3L;
+  private static final Long CASE_ID = 7L;
+  private static final String PRODUCT_IDENTIFIER = "product";
+  private static final String CASE_IDENTIFIER = "case";
+  private static final LocalDateTime LATE_SINCE = LocalDate.of(2017, 3, 1).atTime(2, 0);
+  private static final Timestamp LATE_ON = Timestamp.valueOf(LocalDate.of(2017, 3, 1).atStartOfDay());
+
+  private static final String TENANT = "tenant";
+
+  private AtRiskCaseRepository atRiskCaseRepository;
+  private PortfolioAgingRepository portfolioAgingRepository;
+  private CaseRepository caseRepository;
+  private ProductRepository productRepository;
+  private LateCaseRepository lateCaseRepository;
+  private CaseSummaryRepository caseSummaryRepository;
+  private CaseCommandGuard caseCommandGuard;
+  private PortfolioAtRiskService testSubject;
+  private ExecutorService executor;
+
+  @Before
+  public void prepare() {
+    TenantContextHolder.setIdentifier(TENANT);
+    atRiskCaseRepository = Mockito.mock(AtRiskCaseRepository.class);
+    portfolioAgingRepository = Mockito.mock(PortfolioAgingRepository.class);
+    caseRepository = Mockito.mock(CaseRepository.class);
+    productRepository = Mockito.mock(ProductRepository.class);
+    lateCaseRepository = Mockito.mock(LateCaseRepository.class);
+    caseSummaryRepository = Mockito.mock(CaseSummaryRepository.class);
+    Mockito.doReturn(Optional.empty()).when(atRiskCaseRepository).findByCaseId(Matchers.anyLong());
+    final PortfolioProperties portfolioProperties = new PortfolioProperties();
+    final PlatformTransactionManager transactionManager = new NoOpTransactionManager();
+    caseCommandGuard = new CaseCommandGuard(portfolioProperties, transactionManager, Mockito.mock(Logger.class));
+    testSubject = new PortfolioAtRiskService(
+        atRiskCaseRepository,
+        portfolioAgingRepository,
+        caseRepository,
+        productRepository,
+        lateCaseRepository,
+        caseSummaryRepository,
+        portfolioProperties,
+        caseCommandGuard,
+        transactionManager,
+        Mockito.mock(Logger.class));
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void cleanup() {
+    executor.shutdownNow();
+    TenantContextHolder.clear();
+  }
+
+  @Test
+  public void caseWhichIsNotLateIsNotRecorded() {
+    testSubject.recordCase(PRODUCT_ID, activeCase(), null, BigDecimal.valueOf(1000));
+
+    Mockito.verifyZeroInteractions(portfolioAgingRepository);
+    Mockito.verify(atRiskCaseRepository, Mockito.never()).save(Matchers.any(AtRiskCaseEntity.class));
+  }
+
+  @Test
+  public void caseWhichBecomesLateIsAddedToItsDay() {
+    testSubject.recordCase(PRODUCT_ID, activeCase(), LATE_SINCE, BigDecimal.valueOf(1000));
+
+    Mockito.verify(portfolioAgingRepository).add(PRODUCT_ID, LATE_ON, 1, BigDecimal.valueOf(1000));
+    Mockito.verify(atRiskCaseRepository).save(Matchers.any(AtRiskCaseEntity.class));
+  }
+
+  @Test
+  public void disbursementToLateCaseOnlyChangesThePrincipalOfTheDay() {
+    givenAtRiskCase(BigDecimal.valueOf(1000));
+
+    testSubject.recordCase(PRODUCT_ID, activeCase(), LATE_SINCE, BigDecimal.valueOf(1200));
+
+    Mockito.verify(portfolioAgingRepository).add(PRODUCT_ID, LATE_ON, 0, BigDecimal.valueOf(200));
+    Mockito.verify(portfolioAgingRepository, Mockito.never()).deleteIfEmpty(Matchers.anyLong(), Matchers.any());
+  }
+
+  @Test
+  public void closedCaseIsRemoved() {
+    final AtRiskCaseEntity atRiskCase = givenAtRiskCase(BigDecimal.valueOf(1000));
+    final CaseEntity closedCase = activeCase();
+    closedCase.setCurrentState(Case.State.CLOSED.name());
+
+    testSubject.recordCase(PRODUCT_ID, closedCase, LATE_SINCE, BigDecimal.ZERO);
+
+    Mockito.verify(portfolioAgingRepository).add(PRODUCT_ID, LATE_ON, -1, BigDecimal.valueOf(-1000));
+    Mockito.verify(portfolioAgingRepository).deleteIfEmpty(PRODUCT_ID, LATE_ON.toLocalDateTime());
+    Mockito.verify(atRiskCaseRepository).delete(atRiskCase);
+  }
+
+  @Test
+  public void recomputeWaitsForCommandsOnTheCasesOfARange() throws Exception {
+    final CaseEntity lateCase = activeCase();
+    Mockito.doReturn(Collections.singletonList(lateCase)).when(caseRepository)
+        .findByCurrentStateInAndIdBetweenOrderByIdAsc(Matchers.anyCollection(), Matchers.anyLong(), Matchers.anyLong());
+    final LateCaseEntity lateness = new LateCaseEntity();
+    lateness.setCaseId(CASE_ID);
+    lateness.setLateSince(LATE_SINCE);
+    Mockito.doReturn(Collections.singletonList(lateness)).when(lateCaseRepository)
+        .findByCaseIdIn(Matchers.anyCollection());
+    final CaseSummaryEntity caseSummary = new CaseSummaryEntity();
+    caseSummary.setCaseId(CASE_ID);
+    caseSummary.setPrincipalBalance(BigDecimal.valueOf(1000));
+    Mockito.doReturn(Collections.singletonList(caseSummary)).when(caseSummaryRepository)
+        .findByCaseIdIn(Matchers.anyCollection());
+    final ProductEntity product = new ProductEntity();
+    product.setId(PRODUCT_ID);
+    Mockito.doReturn(Optional.of(product)).when(productRepository).findByIdentifier(PRODUCT_IDENTIFIER);
+
+    final CountDownLatch releaseCommand = new CountDownLatch(1);
+    final Future<Boolean> command = commandOnCase(CASE_IDENTIFIER, releaseCommand);
+    final Future<?> recompute = recompute();
+    assertNotDone(recompute);
+    Mockito.verify(lateCaseRepository, Mockito.never()).findByCaseIdIn(Matchers.anyCollection());
+
+    releaseCommand.countDown();
+    Assert.assertTrue(command.get(5, TimeUnit.SECONDS));
+    recompute.get(5, TimeUnit.SECONDS);
+    Mockito.verify(atRiskCaseRepository).save(Matchers.argThat(new ArgumentMatcher<Iterable<AtRiskCaseEntity>>() {
+      @Override
+      public boolean matches(final Object argument) {
+        final Iterator<?> atRiskCases = ((Iterable<?>) argument).iterator();
+        return atRiskCases.hasNext() && ((AtRiskCaseEntity) atRiskCases.next()).getCaseId().equals(CASE_ID);
+      }
+    }));
+    Mockito.verify(portfolioAgingRepository).insertFromAtRiskCases();
+  }
+
+  @Test
+  public void agingIsRebuiltWhileNoCommandsAreRunning() throws Exception {
+    final CountDownLatch releaseCommand = new CountDownLatch(1);
+    final Future<Boolean> command = commandOnCase("someOtherCase", releaseCommand);
+    final Future<?> recompute = recompute();
+    assertNotDone(recompute);
+    Mockito.verify(portfolioAgingRepository, Mockito.never()).deleteAllInBulk();
+
+    releaseCommand.countDown();
+    Assert.assertTrue(command.get(5, TimeUnit.SECONDS));
+    recompute.get(5, TimeUnit.SECONDS);
+    final InOrder inOrder = Mockito.inOrder(portfolioAgingRepository);
+    inOrder.verify(portfolioAgingRepository).deleteAllInBulk();
+    inOrder.verify(portfolioAgingRepository).insertFromAtRiskCases();
+  }
+
+  @Test
+  public void bucketsAreCumulative() {
+    final LocalDate asOf = LocalDate.of(2017, 6, 30);
+    final List<PortfolioAtRiskBucket> buckets = PortfolioAtRiskService.getBuckets(
+        Arrays.asList(
+            aging(asOf, 1, 100),
+            aging(asOf, 29, 200),
+            aging(asOf, 30, 300),
+            aging(asOf, 90, 400)),
+        asOf,
+        2);
+
+    Assert.assertEquals(PortfolioAtRiskService.BUCKET_DAYS_LATE.size(), buckets.size());
+    assertBucket(buckets.get(0), 1, 4, "1000.00");
+    assertBucket(buckets.get(1), 30, 2, "700.00");
+    assertBucket(buckets.get(2), 60, 1, "400.00");
+    assertBucket(buckets.get(3), 90, 1, "400.00");
+  }
+
+  @Test
+  public void caseIsOneDayLateOnTheDayItBecameLate() {
+    final LocalDate asOf = LocalDate.of(2017, 3, 1);
+    Assert.assertEquals(1, PortfolioAtRiskService.daysLate(asOf, asOf));
+    Assert.assertTrue(LATE_SINCE.isBefore(PortfolioAtRiskService.lateBefore(asOf, 1)));
+    Assert.assertFalse(LATE_SINCE.isBefore(PortfolioAtRiskService.lateBefore(asOf, 2)));
+    Assert.assertTrue(LATE_SINCE.isBefore(PortfolioAtRiskService.lateBefore(asOf.plusDays(1), 2)));
+  }
+
+  private AtRiskCaseEntity givenAtRiskCase(final BigDecimal principalBalance) {
+    final AtRiskCaseEntity ret = new AtRiskCaseEntity();
+    ret.setProductId(PRODUCT_ID);
+    ret.setCaseId(CASE_ID);
+    ret.setLateSince(LATE_SINCE);
+    ret.setPrincipalBalance(principalBalance);
+    Mockito.doReturn(Optional.of(ret)).when(atRiskCaseRepository).findByCaseId(CASE_ID);
+    return ret;
+  }
+
+  private Future<Boolean> commandOnCase(final String caseIdentifier, final CountDownLatch release) throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final Future<Boolean> ret = executor.submit(() -> {
+      TenantContextHolder.setIdentifier(TENANT);
+      try {
+        return caseCommandGuard.runLocked(PRODUCT_IDENTIFIER, caseIdentifier, () -> {
+          entered.countDown();
+          try {
+            return release.await(5, TimeUnit.SECONDS);
+          }
+          catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+          }
+        });
+      }
+      finally {
+        TenantContextHolder.clear();
+      }
+    });
+    Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+    return ret;
+  }
+
+  private Future<?> recompute() {
+    return executor.submit(() -> {
+      TenantContextHolder.setIdentifier(TENANT);
+      try {
+        testSubject.recompute();
+      }
+      finally {
+        TenantContextHolder.clear();
+      }
+    });
+  }
+
+  private static void assertNotDone(final Future<?> future) throws Exception {
+    try {
+      future.get(200, TimeUnit.MILLISECONDS);
+      Assert.fail("Recompute should have been waiting for the command.");
+    }
+    catch (final TimeoutException ignored) {
+    }
+  }
+
+  private static CaseEntity activeCase() {
+    final CaseEntity ret = new CaseEntity();
+    ret.setId(CASE_ID);
+    ret.setProductIdentifier(PRODUCT_IDENTIFIER);
+    ret.setIdentifier(CASE_IDENTIFIER);
+    ret.setCurrentState(Case.State.ACTIVE.name());
+    return ret;
+  }
+
+  private static PortfolioAgingEntity aging(final LocalDate asOf, final int daysLate, final long principalBalance) {
+    final PortfolioAgingEntity ret = new PortfolioAgingEntity();
+    ret.setProductId(PRODUCT_ID);
+    ret.setLateSince(asOf.minusDays(daysLate - 1).atStartOfDay());
+    ret.setCaseCount(1L);
+    ret.setPrincipalBalance(BigDecimal.valueOf(principalBalance));
+    return ret;
+  }
+
+  private static void assertBucket(
+      final PortfolioAtRiskBucket bucket,
+      final int daysLate,
+      final long caseCount,
+      final String principalBalance) {
+    Assert.assertEquals(Integer.valueOf(daysLate), bucket.getDaysLate());
+    Assert.assertEquals(Long.valueOf(caseCount), bucket.getCaseCount());
+    Assert.assertEquals(new BigDecimal(principalBalance), bucket.getPrincipalBalance());
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.apache.fineract.cn.portfolio.api.v1.domain.AccountAssignment;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductAccountAssignmentEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
+import org.apache.fineract.cn.portfolio.service.internal.util.AccountingAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+
+/**
+ * @author Myrle Krantz
+ */
+public class ProductAccountAssignmentIndexTest {
+  @Test
+  public void ledgerAssignmentsHaveNoAccountIdentifier() {
+    final ProductAccountAssignmentIndex testSubject = ProductAccountAssignmentIndex.of(new HashSet<>(Arrays.asList(
+        productAssignment(AccountDesignators.ENTRY, "entry-account", AccountingAdapter.IdentifierType.ACCOUNT),
+        productAssignment(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, "loan-ledger", AccountingAdapter.IdentifierType.LEDGER))));
+
+    Assert.assertEquals(Optional.of("entry-account"), testSubject.findAccountIdentifier(AccountDesignators.ENTRY));
+    Assert.assertEquals(Optional.empty(), testSubject.findAccountIdentifier(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL));
+    Assert.assertNull(testSubject.findAccountIdentifier(AccountDesignators.LOAN_FUNDS_SOURCE));
+    Assert.assertEquals(Optional.of("loan-ledger"), testSubject.findAccountAssignment(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL)
+        .map(AccountAssignment::getLedgerIdentifier));
+  }
+
+  @Test
+  public void isForOnlyTheUnchangedProduct() {
+    final ProductEntity product = new ProductEntity();
+    product.setId(1L);
+    product.setLastModifiedOn(LocalDateTime.of(2017, 1, 1, 0, 0));
+    product.setAccountAssignments(new HashSet<>(Collections.singletonList(
+        productAssignment(AccountDesignators.ENTRY, "entry-account", AccountingAdapter.IdentifierType.ACCOUNT))));
+    final ProductAccountAssignmentIndex testSubject = ProductAccountAssignmentIndex.of(product);
+
+    Assert.assertTrue(testSubject.isFor(product));
+
+    product.setLastModifiedOn(LocalDateTime.of(2017, 1, 2, 0, 0));
+    Assert.assertFalse(testSubject.isFor(product));
+    Assert.assertFalse(ProductAccountAssignmentIndex.of(product.getAccountAssignments()).isFor(product));
+  }
+
+  private static ProductAccountAssignmentEntity productAssignment(
+      final String accountDesignator,
+      final String identifier,
+      final AccountingAdapter.IdentifierType type) {
+    final ProductAccountAssignmentEntity ret = new ProductAccountAssignmentEntity();
+    ret.setDesignator(accountDesignator);
+    ret.setIdentifier(identifier);
+    ret.setType(type);
+    return ret;
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service;
+
+import com.google.gson.Gson;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Repayment;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentBatch;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.RepaymentResult;
+import org.apache.fineract.cn.individuallending.api.v1.events.IndividualLoanCommandEvent;
+import org.apache.fineract.cn.individuallending.internal.command.AcceptPaymentCommand;
+import org.apache.fineract.cn.individuallending.internal.repository.RepaymentBatchEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.RepaymentBatchItemEntity;
+import org.apache.fineract.cn.individuallending.internal.repository.RepaymentBatchItemRepository;
+import org.apache.fineract.cn.individuallending.internal.repository.RepaymentBatchRepository;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.portfolio.api.v1.domain.Command;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseCommandRepository;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.CaseRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.command.gateway.CommandGateway;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * @author Myrle Krantz
+ */
+public class RepaymentBatchServiceTest {
+  private static final Long BATCH_ID = 11L;
+  private static final Long CASE_ID = 5L;
+
+  private RepaymentBatchRepository repaymentBatchRepository;
+  private RepaymentBatchItemRepository repaymentBatchItemRepository;
+  private CaseRepository caseRepository;
+  private CaseCommandRepository caseCommandRepository;
+  private CommandGateway commandGateway;
+  private List<String> acceptedPayments;
+  private List<String> transactionUniqueifiers;
+  private RepaymentBatchEntity batch;
+  private RepaymentBatchService testSubject;
+
+  @Before
+  public void prepare() throws Exception {
+    TenantContextHolder.setIdentifier("tenant");
+    UserContextHolder.setAccessToken("cashier", "token");
+
+    repaymentBatchRepository = Mockito.mock(RepaymentBatchRepository.class);
+    repaymentBatchItemRepository = Mockito.mock(RepaymentBatchItemRepository.class);
+    caseRepository = Mockito.mock(CaseRepository.class);
+    caseCommandRepository = Mockito.mock(CaseCommandRepository.class);
+    commandGateway = Mockito.mock(CommandGateway.class);
+    acceptedPayments = Collections.synchronizedList(new ArrayList<>());
+    transactionUniqueifiers = Collections.synchronizedList(new ArrayList<>());
+
+    batch = new RepaymentBatchEntity();
+    batch.setId(BATCH_ID);
+    batch.setIdentifier("settlement");
+    batch.setCurrentState(RepaymentBatchEntity.State.RUNNING);
+    Mockito.doReturn(Optional.empty()).when(repaymentBatchRepository)
+        .findByProductIdentifierAndIdentifier(Matchers.anyString(), Matchers.anyString());
+    Mockito.doReturn(batch).when(repaymentBatchRepository).save(Matchers.any(RepaymentBatchEntity.class));
+    Mockito.doReturn(batch).when(repaymentBatchRepository).findOne(BATCH_ID);
+    Mockito.doAnswer(invocation -> {
+      @SuppressWarnings("unchecked")
+      final List<RepaymentBatchItemEntity> items = (List<RepaymentBatchItemEntity>) invocation.getArguments()[0];
+      items.forEach(item -> item.setId(100L + item.getPosition()));
+      Mockito.doReturn(items).when(repaymentBatchItemRepository)
+          .findByBatchIdAndCurrentStateOrderByPositionAsc(BATCH_ID, RepaymentResult.State.PENDING);
+      return items;
+    }).when(repaymentBatchItemRepository).save(Matchers.anyListOf(RepaymentBatchItemEntity.class));
+
+    Mockito.doAnswer(invocation -> {
+      final AcceptPaymentCommand command = (AcceptPaymentCommand) invocation.getArguments()[0];
+      command.getTransactionUniqueifier().ifPresent(transactionUniqueifiers::add);
+      if (command.getCommand().getNote().equals("unreadable"))
+        throw new IllegalStateException("Payment unreadable.");
+      final CompletableFuture<IndividualLoanCommandEvent> ret = new CompletableFuture<>();
+      if (command.getCommand().getNote().equals("bounced")) {
+        ret.completeExceptionally(ServiceException.conflict("Payment bounced."));
+      }
+      else {
+        acceptedPayments.add(command.getCaseIdentifier() + ":" + command.getCommand().getNote());
+        ret.complete(new IndividualLoanCommandEvent("product", command.getCaseIdentifier(), command.getCommand().getCreatedOn()));
+      }
+      return ret;
+    }).when(commandGateway).process(Matchers.any(AcceptPaymentCommand.class), Matchers.eq(IndividualLoanCommandEvent.class));
+
+    testSubject = new RepaymentBatchService(
+        repaymentBatchRepository,
+        repaymentBatchItemRepository,
+        caseRepository,
+        caseCommandRepository,
+        commandGateway,
+        new PortfolioProperties(),
+        new Gson(),
+        Mockito.mock(PlatformTransactionManager.class),
+        Mockito.mock(Logger.class));
+  }
+
+  @After
+  public void cleanup() {
+    testSubject.shutdown();
+    TenantContextHolder.clear();
+    UserContextHolder.clear();
+  }
+
+  @Test
+  public void repaymentsOfACaseAreAcceptedInOrder() {
+    testSubject.submit("product", batch(
+        repayment("case1", "first"),
+        repayment("case2", "first"),
+        repayment("case1", "second", "2017-03-02T00:00:00.000Z"),
+        repayment("case1", "bounced", "2017-03-03T00:00:00.000Z"),
+        repayment("case1", "third", "2017-03-04T00:00:00.000Z")));
+
+    final ArgumentCaptor<RepaymentBatchItemEntity> recorded = ArgumentCaptor.forClass(RepaymentBatchItemEntity.class);
+    Mockito.verify(repaymentBatchItemRepository, Mockito.timeout(5000).times(5)).save(recorded.capture());
+
+    final List<String> acceptedForCase1 = acceptedPayments.stream()
+        .filter(x -> x.startsWith("case1:"))
+        .collect(Collectors.toList());
+    Assert.assertEquals(Arrays.asList("case1:first", "case1:second", "case1:third"), acceptedForCase1);
+    Assert.assertTrue(acceptedPayments.contains("case2:first"));
+
+    final List<RepaymentBatchItemEntity> failed = recorded.getAllValues().stream()
+        .filter(x -> x.getCurrentState() == RepaymentResult.State.FAILED)
+        .collect(Collectors.toList());
+    Assert.assertEquals(1, failed.size());
+    Assert.assertEquals(Integer.valueOf(3), failed.get(0).getPosition());
+    Assert.assertNotNull(failed.get(0).getMessage());
+
+    Mockito.verify(repaymentBatchRepository, Mockito.timeout(5000).times(2)).save(Matchers.any(RepaymentBatchEntity.class));
+  }
+
+  @Test
+  public void repaymentWhichCantBeSubmittedDoesNotStopTheRestOfTheCase() {
+    testSubject.submit("product", batch(
+        repayment("case1", "unreadable"),
+        repayment("case1", "first", "2017-03-02T00:00:00.000Z")));
+
+    final ArgumentCaptor<RepaymentBatchItemEntity> recorded = ArgumentCaptor.forClass(RepaymentBatchItemEntity.class);
+    Mockito.verify(repaymentBatchItemRepository, Mockito.timeout(5000).times(2)).save(recorded.capture());
+
+    Assert.assertEquals(Collections.singletonList("case1:first"), acceptedPayments);
+    Assert.assertEquals(RepaymentResult.State.FAILED, recorded.getAllValues().get(0).getCurrentState());
+    Assert.assertEquals(RepaymentResult.State.ACCEPTED, recorded.getAllValues().get(1).getCurrentState());
+  }
+
+  @Test
+  public void everyRepaymentIsBookedUnderItsOwnUniqueifier() {
+    testSubject.submit("product", batch(
+        repayment("case1", "first"),
+        repayment("case1", "second", "2017-03-02T00:00:00.000Z")));
+
+    Mockito.verify(repaymentBatchItemRepository, Mockito.timeout(5000).times(2)).save(Matchers.any(RepaymentBatchItemEntity.class));
+    Assert.assertEquals(Arrays.asList("rb2s", "rb2t"), transactionUniqueifiers);
+  }
+
+  @Test(expected = ServiceException.class)
+  public void repaymentsRepeatedWithinABatchAreRejected() {
+    testSubject.submit("product", batch(
+        repayment("case1", "first"),
+        repayment("case2", "first"),
+        repayment("case1", "again")));
+  }
+
+  @Test
+  public void partiallyRecordedBatchIsResumedWithoutRepeatingAcceptedRepayments() {
+    //The first repayment's result was recorded.  The second was accepted, but the service stopped before its result
+    //was recorded.  The third wasn't accepted yet.
+    final RepaymentBatchItemEntity acceptedButNotRecorded = item(101L, 1, "case1", "second");
+    final RepaymentBatchItemEntity notAccepted = item(102L, 2, "case1", "third");
+    Mockito.doReturn(Optional.of(batch)).when(repaymentBatchRepository)
+        .findByProductIdentifierAndIdentifier("product", "settlement");
+    Mockito.doReturn(Arrays.asList(acceptedButNotRecorded, notAccepted)).when(repaymentBatchItemRepository)
+        .findByBatchIdAndCurrentStateOrderByPositionAsc(BATCH_ID, RepaymentResult.State.PENDING);
+    final CaseEntity case1 = new CaseEntity();
+    case1.setId(CASE_ID);
+    Mockito.doReturn(Optional.of(case1)).when(caseRepository).findByProductIdentifierAndIdentifier("product", "case1");
+    final CaseCommandEntity acceptedPayment = new CaseCommandEntity();
+    acceptedPayment.setCaseId(CASE_ID);
+    acceptedPayment.setActionName(Action.ACCEPT_PAYMENT.name());
+    acceptedPayment.setTransactionUniqueifier(RepaymentBatchService.transactionUniqueifier(acceptedButNotRecorded));
+    Mockito.doReturn(Collections.singletonList(acceptedPayment)).when(caseCommandRepository)
+        .findByCaseIdAndActionNameAndTransactionUniqueifierIn(
+            Matchers.eq(CASE_ID), Matchers.eq(Action.ACCEPT_PAYMENT.name()), Matchers.anyCollectionOf(String.class));
+
+    testSubject.submit("product", batch(
+        repayment("case1", "first"),
+        repayment("case1", "second", "2017-03-02T00:00:00.000Z"),
+        repayment("case1", "third", "2017-03-03T00:00:00.000Z")));
+
+    Mockito.verify(repaymentBatchItemRepository, Mockito.timeout(5000).times(2)).save(Matchers.any(RepaymentBatchItemEntity.class));
+    Assert.assertEquals(Collections.singletonList("case1:third"), acceptedPayments);
+    Assert.assertEquals(Collections.singletonList(RepaymentBatchService.transactionUniqueifier(notAccepted)), transactionUniqueifiers);
+    Assert.assertEquals(RepaymentResult.State.ACCEPTED, acceptedButNotRecorded.getCurrentState());
+    Assert.assertEquals(RepaymentResult.State.ACCEPTED, notAccepted.getCurrentState());
+    //The repayments of a resumed batch are not added again.
+    Mockito.verify(repaymentBatchItemRepository, Mockito.never()).save(Matchers.anyListOf(RepaymentBatchItemEntity.class));
+  }
+
+  @Test
+  public void batchIsOnlyProcessedOnceAtATime() throws InterruptedException {
+    final CountDownLatch paymentStarted = new CountDownLatch(1);
+    final CountDownLatch paymentMayFinish = new CountDownLatch(1);
+    Mockito.doAnswer(invocation -> {
+      final AcceptPaymentCommand command = (AcceptPaymentCommand) invocation.getArguments()[0];
+      paymentStarted.countDown();
+      paymentMayFinish.await(5, TimeUnit.SECONDS);
+      acceptedPayments.add(command.getCaseIdentifier() + ":" + command.getCommand().getNote());
+      return CompletableFuture.completedFuture(
+          new IndividualLoanCommandEvent("product", command.getCaseIdentifier(), command.getCommand().getCreatedOn()));
+    }).when(commandGateway).process(Matchers.any(AcceptPaymentCommand.class), Matchers.eq(IndividualLoanCommandEvent.class));
+
+    testSubject.submit("product", batch(repayment("case1", "first")));
+    Assert.assertTrue(paymentStarted.await(5, TimeUnit.SECONDS));
+
+    //Submitting the batch again while it is still being processed must not accept its pending repayments twice.
+    Mockito.doReturn(Optional.of(batch)).when(repaymentBatchRepository)
+        .findByProductIdentifierAndIdentifier("product", "settlement");
+    testSubject.submit("product", batch(repayment("case1", "first")));
+    paymentMayFinish.countDown();
+
+    Mockito.verify(repaymentBatchItemRepository, Mockito.timeout(5000).times(1)).save(Matchers.any(RepaymentBatchItemEntity.class));
+    Mockito.verify(repaymentBatchRepository, Mockito.timeout(5000).times(2)).save(Matchers.any(RepaymentBatchEntity.class));
+    Assert.assertEquals(Collections.singletonList("case1:first"), acceptedPayments);
+    Mockito.verify(commandGateway, Mockito.times(1))
+        .process(Matchers.any(AcceptPaymentCommand.class), Matchers.eq(IndividualLoanCommandEvent.class));
+  }
+
+  private static RepaymentBatchItemEntity item(
+      final Long id,
+      final int position,
+      final String caseIdentifier,
+      final String note) {
+    final RepaymentBatchItemEntity ret = new RepaymentBatchItemEntity();
+    ret.setId(id);
+    ret.setBatchId(BATCH_ID);
+    ret.setPosition(position);
+    ret.setCaseIdentifier(caseIdentifier);
+    ret.setCommand(new Gson().toJson(repayment(caseIdentifier, note).getCommand()));
+    ret.setCurrentState(RepaymentResult.State.PENDING);
+    return ret;
+  }
+
+  private static RepaymentBatch batch(final Repayment... repayments) {
+    final RepaymentBatch ret = new RepaymentBatch();
+    ret.setIdentifier("settlement");
+    ret.setRepayments(Arrays.asList(repayments));
+    return ret;
+  }
+
+  private static Repayment repayment(final String caseIdentifier, final String note) {
+    return repayment(caseIdentifier, note, "2017-03-01T00:00:00.000Z");
+  }
+
+  private static Repayment repayment(final String caseIdentifier, final String note, final String createdOn) {
+    final Command command = new Command();
+    command.setPaymentSize(BigDecimal.TEN);
+    command.setNote(note);
+    command.setCreatedOn(createdOn);
+
+    final Repayment ret = new Repayment();
+    ret.setCaseIdentifier(caseIdentifier);
+    ret.setCommand(command);
+    return ret;
+  }
+}
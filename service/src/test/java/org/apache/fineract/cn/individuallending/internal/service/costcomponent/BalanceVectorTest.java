@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Myrle Krantz
+ */
+public class BalanceVectorTest {
+  private static final String UNREGISTERED_DESIGNATOR = "unregistered";
+
+  @Test
+  public void snapshotsAreNotChangedByLaterAdjustments() {
+    final BalanceVector testSubject = new BalanceVector();
+    testSubject.getForChange(AccountDesignators.ENTRY).add(BigDecimal.TEN);
+    testSubject.getForChange(UNREGISTERED_DESIGNATOR).add(BigDecimal.ONE);
+    final BalanceVector firstSnapshot = testSubject.snapshot();
+
+    testSubject.getForChange(AccountDesignators.ENTRY).add(BigDecimal.ONE);
+    testSubject.getForChange(UNREGISTERED_DESIGNATOR).add(BigDecimal.ONE);
+    testSubject.getForChange(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL).subtract(BigDecimal.valueOf(5, 2));
+    final BalanceVector secondSnapshot = testSubject.snapshot();
+    testSubject.getForChange(AccountDesignators.ENTRY).add(BigDecimal.ONE);
+
+    final Map<String, BigDecimal> expectedFirst = new HashMap<>();
+    expectedFirst.put(AccountDesignators.ENTRY, BigDecimal.TEN);
+    expectedFirst.put(UNREGISTERED_DESIGNATOR, BigDecimal.ONE);
+    Assert.assertEquals(expectedFirst, firstSnapshot.toMap(true));
+
+    final Map<String, BigDecimal> expectedSecond = new HashMap<>();
+    expectedSecond.put(AccountDesignators.ENTRY, BigDecimal.valueOf(11));
+    expectedSecond.put(UNREGISTERED_DESIGNATOR, BigDecimal.valueOf(2));
+    expectedSecond.put(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL, BigDecimal.valueOf(-5, 2));
+    Assert.assertEquals(expectedSecond, secondSnapshot.toMap(true));
+
+    Assert.assertEquals(BigDecimal.valueOf(12), testSubject.get(AccountDesignators.ENTRY).toBigDecimal());
+  }
+
+  @Test
+  public void zerosAreOnlyIncludedOnRequest() {
+    final BalanceVector testSubject = new BalanceVector();
+    testSubject.getForChange(AccountDesignators.EXPENSE).add(BigDecimal.ONE);
+    testSubject.getForChange(AccountDesignators.EXPENSE).subtract(BigDecimal.ONE);
+
+    Assert.assertTrue(testSubject.toMap(false).isEmpty());
+    Assert.assertEquals(BigDecimal.ZERO, testSubject.toMap(true).get(AccountDesignators.EXPENSE));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void snapshotsCantBeChanged() {
+    final BalanceVector testSubject = new BalanceVector();
+    testSubject.snapshot().getForChange(AccountDesignators.ENTRY);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
+
+import org.apache.fineract.cn.individuallending.IndividualLendingPatternFactory;
+import org.apache.fineract.cn.individuallending.api.v1.domain.product.AccountDesignators;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author Myrle Krantz
+ */
+public class DesignatorTopologyTest {
+  private final DesignatorTopology testSubject = IndividualLendingPatternFactory.individualLendingTopology();
+
+  @Test
+  public void everyRequiredAccountHasAnOrdinal() {
+    final Set<String> designators = new HashSet<>();
+    for (int i = 0; i < testSubject.size(); i++) {
+      final String designator = testSubject.designatorOf(i);
+      Assert.assertEquals(i, testSubject.ordinalOf(designator));
+      designators.add(designator);
+    }
+
+    Assert.assertEquals(IndividualLendingPatternFactory.individualLendingPattern().getAccountAssignmentsRequired().size(),
+        designators.size());
+    Assert.assertEquals(DesignatorTopology.NO_ORDINAL, testSubject.ordinalOf(AccountDesignators.CUSTOMER_LOAN_GROUP));
+    Assert.assertEquals(DesignatorTopology.NO_ORDINAL, testSubject.ordinalOf("not-a-designator"));
+  }
+
+  @Test
+  public void groupMembership() {
+    Assert.assertTrue(testSubject.isGroup(AccountDesignators.CUSTOMER_LOAN_GROUP));
+    Assert.assertFalse(testSubject.isGroup(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL));
+
+    final long expected = (1L << testSubject.ordinalOf(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL))
+        | (1L << testSubject.ordinalOf(AccountDesignators.CUSTOMER_LOAN_INTEREST))
+        | (1L << testSubject.ordinalOf(AccountDesignators.CUSTOMER_LOAN_FEES));
+    Assert.assertEquals(expected, testSubject.getGroupMembership(AccountDesignators.CUSTOMER_LOAN_GROUP));
+    Assert.assertEquals(0L, testSubject.getGroupMembership(AccountDesignators.ENTRY));
+  }
+
+  @Test
+  public void accountSignsFollowAccountTypes() {
+    Assert.assertEquals(RunningBalances.NEGATIVE, testSubject.getAccountSign(AccountDesignators.CUSTOMER_LOAN_PRINCIPAL));
+    Assert.assertEquals(RunningBalances.NEGATIVE, testSubject.getAccountSign(AccountDesignators.PRODUCT_LOSS_ALLOWANCE));
+    Assert.assertEquals(RunningBalances.NEGATIVE, testSubject.getAccountSign(AccountDesignators.GENERAL_LOSS_ALLOWANCE));
+    Assert.assertEquals(RunningBalances.POSITIVE, testSubject.getAccountSign(AccountDesignators.INTEREST_ACCRUAL));
+    Assert.assertEquals(RunningBalances.POSITIVE, testSubject.getAccountSign(AccountDesignators.ENTRY));
+    Assert.assertNull(testSubject.getAccountSign(AccountDesignators.CUSTOMER_LOAN_GROUP));
+  }
+
+  @Test
+  public void expandLeavesDesignatorsWithoutGroupsAlone() {
+    final Set<String> ret = testSubject.expand(Collections.singleton(AccountDesignators.ENTRY));
+
+    Assert.assertEquals(Collections.singleton(AccountDesignators.ENTRY), ret);
+  }
+
+  @Test
+  public void expandAddsGroupMembers() {
+    final Set<String> ret = testSubject.expand(new HashSet<>(Arrays.asList(
+        AccountDesignators.CUSTOMER_LOAN_GROUP,
+        AccountDesignators.LOAN_FUNDS_SOURCE)));
+
+    Assert.assertEquals(new HashSet<>(Arrays.asList(
+        AccountDesignators.CUSTOMER_LOAN_GROUP,
+        AccountDesignators.LOAN_FUNDS_SOURCE,
+        AccountDesignators.CUSTOMER_LOAN_PRINCIPAL,
+        AccountDesignators.CUSTOMER_LOAN_INTEREST,
+        AccountDesignators.CUSTOMER_LOAN_FEES)), ret);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.costcomponent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * @author Myrle Krantz
+ */
+public class FixedPointSumTest {
+  @Test
+  public void sumHasTheValueAndScaleOfABigDecimalSum() {
+    final FixedPointSum testSubject = new FixedPointSum();
+    testSubject.add(BigDecimal.valueOf(1050, 2));
+    testSubject.subtract(BigDecimal.valueOf(25, 8));
+    testSubject.add(BigDecimal.valueOf(3, -2));
+
+    final BigDecimal expected = BigDecimal.ZERO
+        .add(BigDecimal.valueOf(1050, 2))
+        .subtract(BigDecimal.valueOf(25, 8))
+        .add(BigDecimal.valueOf(3, -2));
+    Assert.assertEquals(expected, testSubject.toBigDecimal());
+    Assert.assertEquals(8, testSubject.toBigDecimal().scale());
+  }
+
+  @Test
+  public void emptySumIsBigDecimalZero() {
+    final FixedPointSum testSubject = new FixedPointSum();
+    Assert.assertTrue(testSubject.isZero());
+    Assert.assertEquals(BigDecimal.ZERO, testSubject.toBigDecimal());
+  }
+
+  @Test
+  public void overflowFallsBackToBigDecimal() {
+    final FixedPointSum testSubject = new FixedPointSum();
+    final BigDecimal large = BigDecimal.valueOf(Long.MAX_VALUE / 2, 2);
+    testSubject.add(large);
+    testSubject.add(large);
+    testSubject.add(large);
+    testSubject.add(BigDecimal.valueOf(1, 10)); //Rescaling overflows as well.
+
+    final BigDecimal expected = large.add(large).add(large).add(BigDecimal.valueOf(1, 10));
+    Assert.assertEquals(expected, testSubject.toBigDecimal());
+
+    testSubject.subtract(expected);
+    Assert.assertTrue(testSubject.isZero());
+  }
+
+  @Test
+  public void randomSumsAreIdenticalToBigDecimalSums() {
+    final Random random = new Random(7);
+    for (int i = 0; i < 1000; i++) {
+      final FixedPointSum testSubject = new FixedPointSum();
+      final FixedPointSum other = new FixedPointSum();
+      BigDecimal expected = BigDecimal.ZERO;
+      BigDecimal otherExpected = BigDecimal.ZERO;
+      for (int j = 0; j < 20; j++) {
+        final BigDecimal amount = random.nextInt(10) == 0
+            ? new BigDecimal(new BigInteger(80, random), random.nextInt(4))
+            : BigDecimal.valueOf(random.nextLong() % 100_000_000_00L, random.nextInt(11));
+        switch (random.nextInt(3)) {
+          case 0:
+            testSubject.add(amount);
+            expected = expected.add(amount);
+            break;
+          case 1:
+            testSubject.subtract(amount);
+            expected = expected.subtract(amount);
+            break;
+          default:
+            other.add(amount);
+            otherExpected = otherExpected.add(amount);
+            testSubject.subtract(other);
+            expected = expected.subtract(otherExpected);
+        }
+        Assert.assertEquals(expected, testSubject.toBigDecimal());
+        Assert.assertEquals(expected.signum() == 0, testSubject.isZero());
+      }
+    }
+  }
+}
@@ -23,8 +23,8 @@ import org.apache.fineract.cn.individuallending.internal.repository.CaseParamete
 import org.apache.fineract.cn.individuallending.internal.service.ChargeDefinitionService;
 import org.apache.fineract.cn.individuallending.internal.service.DataContextOfAction;
 import org.apache.fineract.cn.individuallending.internal.service.DefaultChargeDefinitionsMocker;
+import org.apache.fineract.cn.individuallending.internal.service.schedule.BalanceSegmentIndexCache;
 import org.apache.fineract.cn.individuallending.internal.service.schedule.ScheduledChargesService;
-import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentRepository;
 import org.apache.fineract.cn.portfolio.service.internal.repository.CaseEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ProductEntity;
 import org.mockito.Mockito;
@@ -37,9 +37,9 @@ class PaymentBuilderServiceTestHarness {
   static PaymentBuilder constructCallToPaymentBuilder (
       final Function<ScheduledChargesService, PaymentBuilderService> serviceFactory,
       final PaymentBuilderServiceTestCase testCase) {
-    final BalanceSegmentRepository balanceSegmentRepository = Mockito.mock(BalanceSegmentRepository.class);
+    final BalanceSegmentIndexCache balanceSegmentIndexCache = Mockito.mock(BalanceSegmentIndexCache.class);
     final ChargeDefinitionService chargeDefinitionService = DefaultChargeDefinitionsMocker.getChargeDefinitionService(Collections.emptyList());
-    final ScheduledChargesService scheduledChargesService = new ScheduledChargesService(chargeDefinitionService, balanceSegmentRepository);
+    final ScheduledChargesService scheduledChargesService = new ScheduledChargesService(chargeDefinitionService, balanceSegmentIndexCache);
     final PaymentBuilderService testSubject = serviceFactory.apply(scheduledChargesService);
 
     final ProductEntity product = new ProductEntity();
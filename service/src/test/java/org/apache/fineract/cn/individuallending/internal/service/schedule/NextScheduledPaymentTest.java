@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.schedule;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseParameters;
+import org.apache.fineract.cn.individuallending.api.v1.domain.workflow.Action;
+import org.apache.fineract.cn.portfolio.api.v1.domain.PaymentCycle;
+import org.apache.fineract.cn.portfolio.api.v1.domain.TermRange;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+/**
+ * Compares the next scheduled payment against the one found by generating the entire repayment schedule, for randomly
+ * chosen payment cycles, terms, and dates.
+ *
+ * @author Myrle Krantz
+ */
+public class NextScheduledPaymentTest {
+  private static final ChronoUnit[] PAYMENT_CYCLE_UNITS = {ChronoUnit.DAYS, ChronoUnit.WEEKS, ChronoUnit.MONTHS, ChronoUnit.YEARS};
+  private static final ChronoUnit[] TERM_UNITS = {ChronoUnit.WEEKS, ChronoUnit.MONTHS, ChronoUnit.YEARS};
+  private static final Integer[] ALIGNMENT_WEEKS = {null, 0, 1, 2, -1};
+
+  @Test
+  public void sameAsGeneratedSchedule() {
+    final Random random = new Random(20171017L);
+    for (int i = 0; i < 5000; i++) {
+      final CaseParameters caseParameters = new CaseParameters();
+      caseParameters.setTermRange(randomTermRange(random));
+      caseParameters.setPaymentCycle(randomPaymentCycle(random));
+
+      final LocalDate startOfTerm = LocalDate.of(2000, 1, 1).plusDays(random.nextInt(365 * 40));
+      final LocalDate endOfTerm = ScheduledActionHelpers.getRoughEndDate(startOfTerm, caseParameters);
+      final LocalDate fromDate = startOfTerm.plusDays(random.nextInt((int) ChronoUnit.DAYS.between(startOfTerm, endOfTerm) + 60) - 30);
+
+      Assert.assertEquals(
+          "start " + startOfTerm + ", from " + fromDate + ", " + caseParameters.getPaymentCycle() + ", " + caseParameters.getTermRange(),
+          nextScheduledPaymentFromGeneratedSchedule(startOfTerm, fromDate, endOfTerm, caseParameters),
+          ScheduledActionHelpers.getNextScheduledPayment(startOfTerm, fromDate, endOfTerm, caseParameters));
+    }
+  }
+
+  @Test
+  public void endOfMonthStaysAtEndOfShortestMonth() {
+    final CaseParameters caseParameters = new CaseParameters();
+    caseParameters.setTermRange(new TermRange(ChronoUnit.YEARS, 1));
+    caseParameters.setPaymentCycle(new PaymentCycle(ChronoUnit.MONTHS, 1, null, null, null));
+    final LocalDate startOfTerm = LocalDate.of(2017, 1, 31);
+    final LocalDate endOfTerm = ScheduledActionHelpers.getRoughEndDate(startOfTerm, caseParameters);
+
+    final ScheduledAction nextPayment = ScheduledActionHelpers.getNextScheduledPayment(
+        startOfTerm, LocalDate.of(2017, 3, 29), endOfTerm, caseParameters);
+
+    Assert.assertEquals(LocalDate.of(2017, 4, 28), nextPayment.getWhen());
+  }
+
+  private static ScheduledAction nextScheduledPaymentFromGeneratedSchedule(
+      final LocalDate startOfTerm,
+      final LocalDate fromDate,
+      final LocalDate endOfTerm,
+      final CaseParameters caseParameters) {
+    final LocalDate effectiveEndOfTerm = fromDate.isAfter(endOfTerm) ? fromDate : endOfTerm;
+    return ScheduledActionHelpers.generateRepaymentPeriods(startOfTerm, effectiveEndOfTerm, caseParameters)
+        .filter(x -> !x.getEndDate().isBefore(fromDate))
+        .findFirst()
+        .map(x -> new ScheduledAction(Action.ACCEPT_PAYMENT, x.getEndDate(), x, x))
+        .orElseGet(() -> new ScheduledAction(Action.ACCEPT_PAYMENT, fromDate));
+  }
+
+  static TermRange randomTermRange(final Random random) {
+    final ChronoUnit termUnit = TERM_UNITS[random.nextInt(TERM_UNITS.length)];
+    return new TermRange(termUnit, 1 + random.nextInt(termUnit == ChronoUnit.YEARS ? 30 : 36));
+  }
+
+  static PaymentCycle randomPaymentCycle(final Random random) {
+    final ChronoUnit temporalUnit = PAYMENT_CYCLE_UNITS[random.nextInt(PAYMENT_CYCLE_UNITS.length)];
+    final Integer alignmentWeek = random.nextBoolean() ? null : ALIGNMENT_WEEKS[random.nextInt(ALIGNMENT_WEEKS.length)];
+    final boolean alignedInDaysOfWeek = alignmentWeek != null || temporalUnit == ChronoUnit.WEEKS;
+    final Integer alignmentDay = random.nextBoolean() ? null : random.nextInt(alignedInDaysOfWeek ? 7 : 31);
+    final Integer alignmentMonth = random.nextInt(4) != 0 ? null : random.nextInt(12);
+    return new PaymentCycle(temporalUnit, 1 + random.nextInt(4), alignmentDay, alignmentWeek, alignmentMonth);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.schedule;
+
+import org.apache.fineract.cn.lang.TenantContextHolder;
+import org.apache.fineract.cn.portfolio.api.v1.domain.PaymentCycle;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * @author Myrle Krantz
+ */
+public class RepaymentCalendarCacheTest {
+  private static final PaymentCycle PAYMENT_CYCLE = new PaymentCycle(ChronoUnit.MONTHS, 1, 0, null, null);
+  private static final LocalDate START_OF_TERM = LocalDate.of(2017, 10, 17);
+  private static final LocalDate LATEST_DISBURSEMENT = LocalDate.of(2017, 11, 2);
+  private static final LocalDate END_OF_TERM = LocalDate.of(2018, 10, 17);
+
+  private RepaymentCalendarCache testSubject;
+
+  @Before
+  public void prepare() {
+    TenantContextHolder.setIdentifier("tenant");
+    testSubject = new RepaymentCalendarCache();
+  }
+
+  @After
+  public void cleanup() {
+    TenantContextHolder.clear();
+  }
+
+  @Test
+  public void differentStartsOfTermDontReplaceEachOther() {
+    final RepaymentCalendar fromStartOfTerm = testSubject.getRepaymentCalendar(1L, START_OF_TERM, END_OF_TERM, PAYMENT_CYCLE);
+    final RepaymentCalendar fromDisbursement = testSubject.getRepaymentCalendar(1L, LATEST_DISBURSEMENT, END_OF_TERM, PAYMENT_CYCLE);
+
+    Assert.assertNotSame(fromStartOfTerm, fromDisbursement);
+    Assert.assertSame(fromStartOfTerm, testSubject.getRepaymentCalendar(1L, START_OF_TERM, END_OF_TERM, PAYMENT_CYCLE));
+    Assert.assertSame(fromDisbursement, testSubject.getRepaymentCalendar(1L, LATEST_DISBURSEMENT, END_OF_TERM, PAYMENT_CYCLE));
+  }
+
+  @Test
+  public void invalidateDropsAllCalendarsOfTheCase() {
+    final RepaymentCalendar fromStartOfTerm = testSubject.getRepaymentCalendar(1L, START_OF_TERM, END_OF_TERM, PAYMENT_CYCLE);
+    final RepaymentCalendar otherCase = testSubject.getRepaymentCalendar(2L, START_OF_TERM, END_OF_TERM, PAYMENT_CYCLE);
+    testSubject.getRepaymentCalendar(1L, LATEST_DISBURSEMENT, END_OF_TERM, PAYMENT_CYCLE);
+
+    testSubject.invalidate(1L);
+
+    Assert.assertNotSame(fromStartOfTerm, testSubject.getRepaymentCalendar(1L, START_OF_TERM, END_OF_TERM, PAYMENT_CYCLE));
+    Assert.assertSame(otherCase, testSubject.getRepaymentCalendar(2L, START_OF_TERM, END_OF_TERM, PAYMENT_CYCLE));
+  }
+
+  @Test
+  public void changedEndOfTermIsRebuilt() {
+    final RepaymentCalendar before = testSubject.getRepaymentCalendar(1L, START_OF_TERM, END_OF_TERM, PAYMENT_CYCLE);
+    final RepaymentCalendar after = testSubject.getRepaymentCalendar(1L, START_OF_TERM, END_OF_TERM.plusMonths(1), PAYMENT_CYCLE);
+
+    Assert.assertNotSame(before, after);
+    Assert.assertTrue(after.isFor(START_OF_TERM, END_OF_TERM.plusMonths(1), PAYMENT_CYCLE));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.individuallending.internal.service.schedule;
+
+import org.apache.fineract.cn.individuallending.api.v1.domain.caseinstance.CaseParameters;
+import org.apache.fineract.cn.portfolio.api.v1.domain.PaymentCycle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * @author Myrle Krantz
+ */
+public class RepaymentCalendarTest {
+  @Test
+  public void sameAsGeneratedSchedule() {
+    final Random random = new Random(20171018L);
+    for (int i = 0; i < 2000; i++) {
+      final CaseParameters caseParameters = new CaseParameters();
+      caseParameters.setTermRange(NextScheduledPaymentTest.randomTermRange(random));
+      caseParameters.setPaymentCycle(NextScheduledPaymentTest.randomPaymentCycle(random));
+
+      final LocalDate startOfTerm = LocalDate.of(2000, 1, 1).plusDays(random.nextInt(365 * 40));
+      final LocalDate endOfTerm = ScheduledActionHelpers.getRoughEndDate(startOfTerm, caseParameters);
+      final int termDays = (int) ChronoUnit.DAYS.between(startOfTerm, endOfTerm);
+      final String message = "start " + startOfTerm + ", " + caseParameters.getPaymentCycle() + ", " + caseParameters.getTermRange();
+
+      final RepaymentCalendar testSubject = RepaymentCalendar.build(startOfTerm, endOfTerm, caseParameters.getPaymentCycle());
+
+      Assert.assertEquals(message,
+          repaymentPeriods(startOfTerm, endOfTerm, caseParameters),
+          testSubject.getRepaymentPeriods().collect(Collectors.toList()));
+
+      for (int j = 0; j < 5; j++) {
+        final LocalDate date = startOfTerm.plusDays(random.nextInt(termDays + 120) - 30);
+        Assert.assertEquals(message + ", until " + date,
+            repaymentPeriods(startOfTerm, date, caseParameters),
+            testSubject.getRepaymentPeriods(date).collect(Collectors.toList()));
+        Assert.assertEquals(message + ", from " + date,
+            ScheduledActionHelpers.getNextScheduledPayment(startOfTerm, date, endOfTerm, caseParameters),
+            testSubject.getNextScheduledPayment(date));
+      }
+    }
+  }
+
+  @Test
+  public void isForSameParametersOnly() {
+    final PaymentCycle paymentCycle = new PaymentCycle(ChronoUnit.MONTHS, 1, 0, null, null);
+    final LocalDate startOfTerm = LocalDate.of(2017, 10, 17);
+    final LocalDate endOfTerm = LocalDate.of(2018, 10, 17);
+
+    final RepaymentCalendar testSubject = RepaymentCalendar.build(startOfTerm, endOfTerm, paymentCycle);
+
+    Assert.assertTrue(testSubject.isFor(startOfTerm, endOfTerm, new PaymentCycle(ChronoUnit.MONTHS, 1, 0, null, null)));
+    Assert.assertFalse(testSubject.isFor(startOfTerm.plusDays(1), endOfTerm, paymentCycle));
+    Assert.assertFalse(testSubject.isFor(startOfTerm, endOfTerm.plusDays(1), paymentCycle));
+    Assert.assertFalse(testSubject.isFor(startOfTerm, endOfTerm, new PaymentCycle(ChronoUnit.MONTHS, 1, 1, null, null)));
+
+    paymentCycle.setAlignmentDay(1);
+    Assert.assertTrue("A calendar must not change with the parameters it was built from.",
+        testSubject.isFor(startOfTerm, endOfTerm, new PaymentCycle(ChronoUnit.MONTHS, 1, 0, null, null)));
+  }
+
+  private static List<Period> repaymentPeriods(
+      final LocalDate startOfTerm,
+      final LocalDate endOfTerm,
+      final CaseParameters caseParameters) {
+    return ScheduledActionHelpers.generateRepaymentPeriods(startOfTerm, endOfTerm, caseParameters)
+        .collect(Collectors.toList());
+  }
+}
@@ -22,6 +22,8 @@ import org.apache.fineract.cn.individuallending.internal.service.ChargeDefinitio
 import org.apache.fineract.cn.portfolio.api.v1.domain.ChargeDefinition;
 import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentEntity;
 import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
+import org.apache.fineract.cn.lang.TenantContextHolder;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -116,17 +118,30 @@ public class ScheduledChargesServiceTest {
     final ChargeDefinitionService chargeDefinitionServiceMock = Mockito.mock(ChargeDefinitionService.class);
     final BalanceSegmentRepository balanceSegmentRepositoryMock = Mockito.mock(BalanceSegmentRepository.class);
 
-    Mockito.doReturn(testCase.balanceSegmentEntities.stream())
+    Mockito.doReturn(testCase.balanceSegmentEntities)
         .when(balanceSegmentRepositoryMock)
-        .findByProductIdentifierAndSegmentSetIdentifier(PRODUCT_IDENTIFIER, SEGMENT_SET_IDENTIFIER);
+        .findByProductIdentifierOrderByLowerBound(PRODUCT_IDENTIFIER);
 
-    final ScheduledChargesService testSubject = new ScheduledChargesService(chargeDefinitionServiceMock, balanceSegmentRepositoryMock);
+    final BalanceSegmentIndexCache balanceSegmentIndexCache
+        = new BalanceSegmentIndexCache(balanceSegmentRepositoryMock, new ChargeDefinitionVersions());
+    final ScheduledChargesService testSubject = new ScheduledChargesService(chargeDefinitionServiceMock, balanceSegmentIndexCache);
     final ChargeDefinition chargeDefinition = new ChargeDefinition();
 
     chargeDefinition.setForSegmentSet(SEGMENT_SET_IDENTIFIER);
     chargeDefinition.setFromSegment(testCase.fromSegment);
     chargeDefinition.setToSegment(testCase.toSegment);
-    final Optional<ChargeRange> result = testSubject.findChargeRange(PRODUCT_IDENTIFIER, chargeDefinition);
-    Assert.assertEquals(testCase.expectedResult, result);
+    TenantContextHolder.setIdentifier("tenant");
+    try {
+      final Optional<ChargeRange> result = testSubject.findChargeRange(PRODUCT_IDENTIFIER, chargeDefinition);
+      Assert.assertEquals(testCase.expectedResult, result);
+
+      final Optional<ChargeRange> resultAgain = testSubject.findChargeRange(PRODUCT_IDENTIFIER, chargeDefinition);
+      Assert.assertEquals(testCase.expectedResult, resultAgain);
+      Mockito.verify(balanceSegmentRepositoryMock, Mockito.times(1))
+          .findByProductIdentifierOrderByLowerBound(PRODUCT_IDENTIFIER);
+    }
+    finally {
+      TenantContextHolder.clear();
+    }
   }
 }
@@ -21,6 +21,7 @@ package org.apache.fineract.cn.portfolio.service.internal.command.handler;
 import org.apache.fineract.cn.portfolio.service.internal.command.DeleteProductChargeDefinitionCommand;
 import org.apache.fineract.cn.portfolio.service.internal.repository.BalanceSegmentRepository;
 import org.apache.fineract.cn.portfolio.service.internal.repository.ChargeDefinitionRepository;
+import org.apache.fineract.cn.portfolio.service.internal.util.ChargeDefinitionVersions;
 import java.util.Optional;
 import org.apache.fineract.cn.lang.ServiceException;
 import org.junit.Assert;
@@ -42,7 +43,7 @@ public class ChargeDefinitionCommandHandlerTest {
 
     final BalanceSegmentRepository balanceSegmentRepository = Mockito.mock(BalanceSegmentRepository.class);
 
-    final ChargeDefinitionCommandHandler testSubject = new ChargeDefinitionCommandHandler(null, chargeDefinitionRepositoryMock, balanceSegmentRepository);
+    final ChargeDefinitionCommandHandler testSubject = new ChargeDefinitionCommandHandler(null, chargeDefinitionRepositoryMock, balanceSegmentRepository, new ChargeDefinitionVersions());
 
     try {
       testSubject.process(new DeleteProductChargeDefinitionCommand(productIdentifier, chargeDefinitionIdentifier));
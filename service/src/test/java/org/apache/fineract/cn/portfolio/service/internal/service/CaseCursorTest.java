@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.service;
+
+import java.time.LocalDateTime;
+import org.apache.fineract.cn.lang.ServiceException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Myrle Krantz
+ */
+public class CaseCursorTest {
+  @Test
+  public void shouldDecodeWhatWasEncoded() {
+    final LocalDateTime lastModifiedOn = LocalDateTime.of(2017, 6, 30, 14, 15, 16, 789_000_000);
+    final String pageToken = new CaseCursor(lastModifiedOn, 12345L).encode();
+
+    final CaseCursor decoded = CaseCursor.decode(pageToken);
+    Assert.assertEquals(lastModifiedOn, decoded.getLastModifiedOn());
+    Assert.assertEquals(Long.valueOf(12345L), decoded.getId());
+  }
+
+  @Test
+  public void tokenShouldBeSafeInUrls() {
+    final String pageToken = new CaseCursor(LocalDateTime.of(2099, 12, 31, 23, 59, 59), Long.MAX_VALUE).encode();
+    Assert.assertTrue(pageToken, pageToken.matches("[A-Za-z0-9_-]+"));
+  }
+
+  @Test(expected = ServiceException.class)
+  public void shouldRejectTokenWhichIsNotBase64() {
+    CaseCursor.decode("not a token");
+  }
+
+  @Test(expected = ServiceException.class)
+  public void shouldRejectTokenOfWrongLength() {
+    CaseCursor.decode("AQID");
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import java.util.Arrays;
+import org.apache.fineract.cn.accounting.api.v1.client.LedgerManager;
+import org.apache.fineract.cn.accounting.api.v1.domain.AccountPage;
+import org.apache.fineract.cn.accounting.api.v1.domain.Ledger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * @author Myrle Krantz
+ */
+public class AccountIdentifierAllocatorTest {
+  private LedgerManager ledgerManager;
+  private AccountIdentifierAllocator testSubject;
+
+  @Before
+  public void prepare() {
+    ledgerManager = Mockito.mock(LedgerManager.class);
+    final Ledger parentLedger = new Ledger();
+    parentLedger.setIdentifier("parent");
+    parentLedger.setSubLedgers(Arrays.asList(ledger("fred.cus.00001"), ledger("fred.cus.00003")));
+    Mockito.doReturn(parentLedger).when(ledgerManager).findLedger("parent");
+    testSubject = new AccountIdentifierAllocator(ledgerManager);
+  }
+
+  @Test
+  public void ledgerIdentifiersSkipExistingAndAllocatedSubLedgers() {
+    Assert.assertEquals("fred.cus.00002", testSubject.nextLedgerIdentifier("fred", "customer", "parent"));
+    Assert.assertEquals("fred.cus.00004", testSubject.nextLedgerIdentifier("fred", "customer", "parent"));
+    Assert.assertEquals("wilma.cus.00001", testSubject.nextLedgerIdentifier("wilma", "customer", "parent"));
+
+    Mockito.verify(ledgerManager, Mockito.times(1)).findLedger("parent");
+  }
+
+  @Test
+  public void ledgersAreFetchedOnce() {
+    testSubject.getLedger("parent");
+    testSubject.getLedger("parent");
+
+    Mockito.verify(ledgerManager, Mockito.times(1)).findLedger("parent");
+  }
+
+  @Test
+  public void rememberedLedgersAreNotFetched() {
+    final Ledger created = ledger("fred.cus.00002");
+    testSubject.rememberLedger(created);
+
+    Assert.assertSame(created, testSubject.getLedger("fred.cus.00002"));
+    Mockito.verify(ledgerManager, Mockito.never()).findLedger("fred.cus.00002");
+  }
+
+  @Test
+  public void accountIdentifiersCountUpPerCustomerAndDesignator() {
+    givenAccountCount("loans", 0L);
+    givenAccountCount("entries", 0L);
+
+    Assert.assertEquals("fred.cus.00001", testSubject.nextCaseAccountIdentifier("fred", "customer-loan-principal", "loans"));
+    Assert.assertEquals("fred.cus.00002", testSubject.nextCaseAccountIdentifier("fred", "customer-loan-interest", "loans"));
+    Assert.assertEquals("fred.ent.00001", testSubject.nextCaseAccountIdentifier("fred", "entry", "entries"));
+    Assert.assertEquals("barney.cus.00001", testSubject.nextCaseAccountIdentifier("barney", "customer-loan-principal", "loans"));
+  }
+
+  @Test
+  public void accountIdentifiersStartAfterTheAccountsAlreadyInTheLedger() {
+    givenAccountCount("fred.loans", 3L);
+
+    Assert.assertEquals("fred.cus.00004", testSubject.nextCaseAccountIdentifier("fred", "customer-loan-principal", "fred.loans"));
+    Assert.assertEquals("fred.cus.00005", testSubject.nextCaseAccountIdentifier("fred", "customer-loan-interest", "fred.loans"));
+    Mockito.verify(ledgerManager, Mockito.times(1))
+        .fetchAccountsOfLedger("fred.loans", null, null, null, null);
+  }
+
+  private void givenAccountCount(final String ledgerIdentifier, final Long accountCount) {
+    final AccountPage accountPage = new AccountPage();
+    accountPage.setTotalElements(accountCount);
+    Mockito.doReturn(accountPage).when(ledgerManager).fetchAccountsOfLedger(ledgerIdentifier, null, null, null, null);
+  }
+
+  private static Ledger ledger(final String identifier) {
+    final Ledger ret = new Ledger();
+    ret.setIdentifier(identifier);
+    return ret;
+  }
+}
@@ -23,14 +23,18 @@ import org.apache.fineract.cn.individuallending.internal.service.DesignatorToAcc
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
-import org.apache.fineract.cn.accounting.api.v1.client.JournalEntryAlreadyExistsException;
+import java.util.Optional;
 import org.apache.fineract.cn.accounting.api.v1.client.LedgerManager;
+import org.apache.fineract.cn.accounting.api.v1.domain.Account;
+import org.apache.fineract.cn.accounting.api.v1.domain.AccountType;
 import org.apache.fineract.cn.accounting.api.v1.domain.Creditor;
 import org.apache.fineract.cn.accounting.api.v1.domain.Debtor;
 import org.apache.fineract.cn.accounting.api.v1.domain.JournalEntry;
 import org.apache.fineract.cn.api.util.UserContextHolder;
+import org.apache.fineract.cn.lang.TenantContextHolder;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 
@@ -61,10 +65,9 @@ public class AccountingAdapterTest {
   }
 
   @Test
-  public void journalEntryCreationFailsBecauseIdentifierAlreadyExistsShouldCauseRetry() {
-    final LedgerManager ledgerManagerMock = Mockito.mock(LedgerManager.class);
-    final AccountingAdapter testSubject = new AccountingAdapter(ledgerManagerMock, null, null);
-
+  public void bookingsAtTheSameTimeAreIdentifiedByTheirCommands() {
+    final JournalEntryOutbox journalEntryOutboxMock = Mockito.mock(JournalEntryOutbox.class);
+    final AccountingAdapter testSubject = new AccountingAdapter(null, null, new AccountMetadataCache(), journalEntryOutboxMock, null, null);
 
     final Map<String, BigDecimal> balanceAdjustments = new HashMap<>();
     balanceAdjustments.put("a", BigDecimal.ONE);
@@ -74,19 +77,88 @@ public class AccountingAdapterTest {
     Mockito.doReturn("a1").when(designatorToAccountIdentifierMapper).mapOrThrow("a");
     Mockito.doReturn("b1").when(designatorToAccountIdentifierMapper).mapOrThrow("b");
 
-    Mockito.doThrow(JournalEntryAlreadyExistsException.class)
-        .doThrow(JournalEntryAlreadyExistsException.class)
-        .doNothing()
-        .when(ledgerManagerMock).createJournalEntry(Matchers.anyObject());
+    UserContextHolder.setAccessToken("blah", "blah");
+
+    final String firstUniqueifier = AccountingAdapter.newTransactionUniqueifier();
+    final String secondUniqueifier = AccountingAdapter.newTransactionUniqueifier();
+    Assert.assertEquals(26, firstUniqueifier.length());
+    Assert.assertNotEquals(firstUniqueifier, secondUniqueifier);
+
+    final Optional<String> first = testSubject.bookCharges(7L, balanceAdjustments, designatorToAccountIdentifierMapper,
+        "", "2017-10-17T10:15:30.000Z", "x", "", firstUniqueifier);
+    final Optional<String> second = testSubject.bookCharges(7L, balanceAdjustments, designatorToAccountIdentifierMapper,
+        "", "2017-10-17T10:15:30.000Z", "x", "", secondUniqueifier);
+
+    Assert.assertEquals(Optional.of(firstUniqueifier), first);
+    Assert.assertEquals(Optional.of(secondUniqueifier), second);
+
+    final ArgumentCaptor<JournalEntry> journalEntries = ArgumentCaptor.forClass(JournalEntry.class);
+    Mockito.verify(journalEntryOutboxMock, Mockito.times(2)).enqueue(Matchers.eq(7L), journalEntries.capture());
+    Assert.assertEquals("portfolio.x." + firstUniqueifier, journalEntries.getAllValues().get(0).getTransactionIdentifier());
+    Assert.assertEquals("portfolio.x." + secondUniqueifier, journalEntries.getAllValues().get(1).getTransactionIdentifier());
+  }
+
+  @Test
+  public void getAccountsFetchesEachAccountInTheCallersContext() {
+    final LedgerManager ledgerManagerMock = Mockito.mock(LedgerManager.class);
+    final AccountingAdapter testSubject = new AccountingAdapter(ledgerManagerMock, null, new AccountMetadataCache(), null, new AccountFetchers(4), null);
 
+    Mockito.doAnswer(invocation -> {
+      Assert.assertEquals("tenant", TenantContextHolder.checkedGetIdentifier());
+      final Account ret = new Account();
+      ret.setIdentifier(invocation.getArgumentAt(0, String.class));
+      ret.setType(AccountType.ASSET.name());
+      ret.setBalance(1.0);
+      return ret;
+    }).when(ledgerManagerMock).findAccount(Matchers.anyString());
+
+    TenantContextHolder.setIdentifier("tenant");
     UserContextHolder.setAccessToken("blah", "blah");
+    try {
+      final Map<String, Account> accounts = testSubject.getAccounts(Sets.newHashSet("a1", "b1", "c1"));
 
-    testSubject.bookCharges(
-        balanceAdjustments,
-        designatorToAccountIdentifierMapper,
-        "", "", "x", "");
+      Assert.assertEquals(Sets.newHashSet("a1", "b1", "c1"), accounts.keySet());
+      accounts.forEach((accountIdentifier, account) -> Assert.assertEquals(accountIdentifier, account.getIdentifier()));
+      Mockito.verify(ledgerManagerMock, Mockito.times(3)).findAccount(Matchers.anyString());
+    }
+    finally {
+      TenantContextHolder.clear();
+    }
+  }
+
+  @Test
+  public void accountMetadataIsFetchedOnlyOnceUntilInvalidated() {
+    final LedgerManager ledgerManagerMock = Mockito.mock(LedgerManager.class);
+    final AccountMetadataCache accountMetadataCache = new AccountMetadataCache();
+    final AccountingAdapter testSubject = new AccountingAdapter(ledgerManagerMock, null, accountMetadataCache, null, null, null);
+
+    final Account account = new Account();
+    account.setIdentifier("a1");
+    account.setType(AccountType.REVENUE.name());
+    account.setLedger("l1");
+    account.setBalance(1.0);
+    Mockito.doReturn(account).when(ledgerManagerMock).findAccount("a1");
+
+    TenantContextHolder.setIdentifier("tenant");
+    try {
+      Assert.assertEquals(AccountType.REVENUE.name(), testSubject.getAccountMetadata("a1").getType());
+      Assert.assertEquals("l1", testSubject.getAccountMetadata("a1").getLedger());
+      Mockito.verify(ledgerManagerMock, Mockito.times(1)).findAccount("a1");
+      Assert.assertEquals(1, accountMetadataCache.getHitCount());
+      Assert.assertEquals(1, accountMetadataCache.getMissCount());
+
+      accountMetadataCache.invalidate("other-tenant", "a1");
+      testSubject.getAccountMetadata("a1");
+      Mockito.verify(ledgerManagerMock, Mockito.times(1)).findAccount("a1");
 
-    Mockito.verify(ledgerManagerMock, Mockito.atLeast(3)).createJournalEntry(Matchers.anyObject());
+      accountMetadataCache.invalidate("tenant", "a1");
+      testSubject.getAccountMetadata("a1");
+      Mockito.verify(ledgerManagerMock, Mockito.times(2)).findAccount("a1");
+      Assert.assertEquals(1, accountMetadataCache.getInvalidationCount());
+    }
+    finally {
+      TenantContextHolder.clear();
+    }
   }
 
 }
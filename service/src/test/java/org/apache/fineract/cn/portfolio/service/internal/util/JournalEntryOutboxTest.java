@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cn.portfolio.service.internal.util;
+
+import com.google.gson.Gson;
+import org.apache.fineract.cn.accounting.api.v1.client.JournalEntryAlreadyExistsException;
+import org.apache.fineract.cn.accounting.api.v1.client.LedgerManager;
+import org.apache.fineract.cn.accounting.api.v1.domain.JournalEntry;
+import org.apache.fineract.cn.portfolio.service.config.PortfolioProperties;
+import org.apache.fineract.cn.portfolio.service.internal.repository.JournalEntryOutboxEntity;
+import org.apache.fineract.cn.portfolio.service.internal.repository.JournalEntryOutboxRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+import java.util.Optional;
+
+/**
+ * @author Myrle Krantz
+ */
+public class JournalEntryOutboxTest {
+  private JournalEntryOutboxRepository journalEntryOutboxRepositoryMock;
+  private LedgerManager ledgerManagerMock;
+  private JournalEntryOutbox testSubject;
+
+  @Before
+  public void prepare() {
+    journalEntryOutboxRepositoryMock = Mockito.mock(JournalEntryOutboxRepository.class);
+    ledgerManagerMock = Mockito.mock(LedgerManager.class);
+    final PortfolioProperties portfolioProperties = new PortfolioProperties();
+    portfolioProperties.setAwaitJournalEntryDelivery(true);
+
+    testSubject = new JournalEntryOutbox(
+        journalEntryOutboxRepositoryMock,
+        ledgerManagerMock,
+        portfolioProperties,
+        new Gson(),
+        Mockito.mock(PlatformTransactionManager.class),
+        Mockito.mock(Logger.class));
+
+    Mockito.doAnswer(invocation -> {
+      final JournalEntryOutboxEntity outboxEntry = invocation.getArgumentAt(0, JournalEntryOutboxEntity.class);
+      if (outboxEntry.getId() == null)
+        outboxEntry.setId(1L);
+      Mockito.doReturn(Optional.of(outboxEntry)).when(journalEntryOutboxRepositoryMock).findByIdForUpdate(1L);
+      return outboxEntry;
+    }).when(journalEntryOutboxRepositoryMock).save(Matchers.any(JournalEntryOutboxEntity.class));
+  }
+
+  @After
+  public void cleanup() {
+    testSubject.shutdown();
+  }
+
+  @Test
+  public void sentEntryIsRemovedFromOutbox() {
+    testSubject.enqueue(7L, journalEntry());
+
+    final ArgumentCaptor<JournalEntry> sent = ArgumentCaptor.forClass(JournalEntry.class);
+    Mockito.verify(ledgerManagerMock).createJournalEntry(sent.capture());
+    Assert.assertEquals("portfolio.x.abc", sent.getValue().getTransactionIdentifier());
+    Mockito.verify(journalEntryOutboxRepositoryMock).delete(Matchers.any(JournalEntryOutboxEntity.class));
+  }
+
+  @Test
+  public void entryAccountingAlreadyHasIsNotSentAgain() {
+    Mockito.doThrow(JournalEntryAlreadyExistsException.class)
+        .when(ledgerManagerMock).createJournalEntry(Matchers.anyObject());
+
+    testSubject.enqueue(7L, journalEntry());
+
+    Mockito.verify(ledgerManagerMock, Mockito.times(1)).createJournalEntry(Matchers.anyObject());
+    Mockito.verify(journalEntryOutboxRepositoryMock).delete(Matchers.any(JournalEntryOutboxEntity.class));
+  }
+
+  @Test
+  public void failedEntryIsRetriedAndKept() {
+    Mockito.doThrow(new IllegalStateException("accounting unavailable"))
+        .when(ledgerManagerMock).createJournalEntry(Matchers.anyObject());
+
+    testSubject.enqueue(7L, journalEntry());
+
+    Mockito.verify(ledgerManagerMock, Mockito.times(3)).createJournalEntry(Matchers.anyObject());
+    Mockito.verify(journalEntryOutboxRepositoryMock, Mockito.never()).delete(Matchers.any(JournalEntryOutboxEntity.class));
+    final ArgumentCaptor<JournalEntryOutboxEntity> saved = ArgumentCaptor.forClass(JournalEntryOutboxEntity.class);
+    Mockito.verify(journalEntryOutboxRepositoryMock, Mockito.times(4)).save(saved.capture());
+    Assert.assertEquals(3, saved.getValue().getAttemptCount());
+    Assert.assertEquals("accounting unavailable", saved.getValue().getLastError());
+  }
+
+  @Test
+  public void pendingEntriesOfACaseAreSentBeforeItsBalancesAreRead() {
+    final JournalEntryOutboxEntity outboxEntry = new JournalEntryOutboxEntity();
+    outboxEntry.setId(2L);
+    outboxEntry.setCaseId(7L);
+    outboxEntry.setJournalEntry(new Gson().toJson(journalEntry()));
+    Mockito.doReturn(Collections.singletonList(2L)).when(journalEntryOutboxRepositoryMock).findIdsByCaseId(7L);
+    Mockito.doReturn(Optional.of(outboxEntry)).when(journalEntryOutboxRepositoryMock).findByIdForUpdate(2L);
+
+    Assert.assertTrue(testSubject.sendPendingOf(7L));
+    Mockito.verify(ledgerManagerMock).createJournalEntry(Matchers.anyObject());
+    Mockito.verify(journalEntryOutboxRepositoryMock).delete(outboxEntry);
+
+    Mockito.doThrow(new IllegalStateException("accounting unavailable"))
+        .when(ledgerManagerMock).createJournalEntry(Matchers.anyObject());
+    Assert.assertFalse(testSubject.sendPendingOf(7L));
+  }
+
+  private static JournalEntry journalEntry() {
+    final JournalEntry ret = new JournalEntry();
+    ret.setTransactionIdentifier("portfolio.x.abc");
+    ret.setMessage("x");
+    return ret;
+  }
+}